@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork;
+
+import greyfox.rxnetwork.internal.net.RxNetworkInfo;
+import io.reactivex.Observable;
+import io.reactivex.functions.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static android.net.ConnectivityManager.TYPE_MOBILE;
+import static android.net.ConnectivityManager.TYPE_WIFI;
+import static android.net.NetworkInfo.State.CONNECTED;
+import static android.net.NetworkInfo.State.DISCONNECTED;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.changes;
+import static greyfox.rxnetwork.internal.strategy.network.helpers.Functions.TO_CONNECTION_STATE;
+
+/**
+ * The {@code distinctUntilChanged()} pipelines RxNetwork observables are built of. Results are
+ * per single {@link RxNetworkInfo} event, most of which are duplicates of the previous one,
+ * just like with network callbacks firing for every capability update.
+ *
+ * @author Radek Kozak
+ */
+@State(Scope.Benchmark)
+public class DistinctUntilChangedBenchmark {
+
+  private static final int EVENTS = 1024;
+  private static final int DUPLICATES = 8;
+
+  private RxNetworkInfo[] events;
+
+  @Setup
+  public void setUp() {
+    final RxNetworkInfo[] distinct = new RxNetworkInfo[] {
+        RxNetworkInfo.builder().state(CONNECTED).type(TYPE_WIFI).connected(true).build(),
+        RxNetworkInfo.builder().state(DISCONNECTED).type(TYPE_WIFI).build(),
+        RxNetworkInfo.builder().state(CONNECTED).type(TYPE_MOBILE).connected(true).build(),
+        RxNetworkInfo.builder().state(CONNECTED).type(TYPE_MOBILE).connected(true).roaming(true)
+            .build()
+    };
+
+    events = new RxNetworkInfo[EVENTS];
+
+    for (int i = 0; i < EVENTS; i++) {
+      final RxNetworkInfo event = distinct[(i / DUPLICATES) % distinct.length];
+      // equal, but not the same instance, as emitted by network observing strategies
+      events[i] = RxNetworkInfo.builder().state(event.getState()).type(event.getType())
+          .connected(event.isConnected()).roaming(event.isRoaming()).build();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void networkInfo(Blackhole blackhole) {
+    Observable.fromArray(events).distinctUntilChanged().subscribe(consume(blackhole));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void connectionState(Blackhole blackhole) {
+    Observable.fromArray(events).map(TO_CONNECTION_STATE).distinctUntilChanged()
+        .subscribe(consume(blackhole));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public void changeSets(Blackhole blackhole) {
+    Observable.fromArray(events).compose(changes()).subscribe(consume(blackhole));
+  }
+
+  private static <T> Consumer<T> consume(final Blackhole blackhole) {
+    return new Consumer<T>() {
+      @Override
+      public void accept(T value) throws Exception {
+        blackhole.consume(value);
+      }
+    };
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static android.net.ConnectivityManager.TYPE_MOBILE;
+import static android.net.ConnectivityManager.TYPE_WIFI;
+import static android.net.NetworkInfo.DetailedState.CONNECTED;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_LTE;
+
+/**
+ * Construction, equality and string representation of {@link RxNetworkInfo}.
+ *
+ * @author Radek Kozak
+ */
+@State(Scope.Benchmark)
+public class RxNetworkInfoBenchmark {
+
+  private RxNetworkInfo wifi;
+  private RxNetworkInfo sameWifi;
+  private RxNetworkInfo mobile;
+
+  /* Distinct string instances on purpose, just like the ones coming from NetworkInfo. */
+  private String typeName;
+  private String subTypeName;
+
+  @Setup
+  public void setUp() {
+    typeName = new String("WIFI");
+    subTypeName = new String("");
+
+    wifi = wifi().build();
+    sameWifi = wifi().build();
+    mobile = connected().type(TYPE_MOBILE).subType(NETWORK_TYPE_LTE).typeName("MOBILE")
+        .subTypeName("LTE").build();
+  }
+
+  @Benchmark
+  public RxNetworkInfo create() {
+    return connected().type(TYPE_WIFI).typeName(typeName).subTypeName(subTypeName).build();
+  }
+
+  @Benchmark
+  public boolean equalsSame() {
+    return wifi.equals(sameWifi);
+  }
+
+  @Benchmark
+  public boolean equalsDifferent() {
+    return wifi.equals(mobile);
+  }
+
+  @Benchmark
+  public int hashCodeOf() {
+    return wifi.hashCode();
+  }
+
+  @Benchmark
+  public String toStringOf() {
+    return wifi.toString();
+  }
+
+  private static RxNetworkInfo.Builder connected() {
+    return RxNetworkInfo.builder().state(android.net.NetworkInfo.State.CONNECTED)
+        .detailedState(CONNECTED).available(true).connected(true).connectedOrConnecting(true);
+  }
+
+  private static RxNetworkInfo.Builder wifi() {
+    return connected().type(TYPE_WIFI).typeName(new String("WIFI")).subTypeName(new String(""));
+  }
+}
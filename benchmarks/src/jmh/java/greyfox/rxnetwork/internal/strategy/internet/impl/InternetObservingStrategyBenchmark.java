@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
+import static java.net.HttpURLConnection.HTTP_OK;
+
+/**
+ * Single {@code checkConnection()} of each internet observing strategy against loopback
+ * HTTP server, which leaves mostly the cost of strategy itself.
+ *
+ * @author Radek Kozak
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InternetObservingStrategyBenchmark {
+
+  private static final int TIMEOUT_MS = 1000;
+
+  private HttpServer server;
+
+  private SocketInternetObservingStrategy socket;
+  private HttpOkInternetObservingStrategy httpOk;
+  private WalledGardenInternetObservingStrategy walledGarden;
+
+  @Setup
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/blank.html", respondWith(HTTP_OK));
+    server.createContext("/generate_204", respondWith(HTTP_NO_CONTENT));
+    server.start();
+
+    final String host = server.getAddress().getHostString();
+    final int port = server.getAddress().getPort();
+    final String baseUrl = "http://" + host + ":" + port;
+
+    socket = SocketInternetObservingStrategy.builder().endpoint(host).port(port)
+        .timeout(TIMEOUT_MS).build();
+    httpOk = HttpOkInternetObservingStrategy.builder().endpoint(baseUrl + "/blank.html")
+        .timeout(TIMEOUT_MS).build();
+    walledGarden = WalledGardenInternetObservingStrategy.builder()
+        .endpoint(baseUrl + "/generate_204").timeout(TIMEOUT_MS).build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Benchmark
+  public boolean socket() {
+    return socket.checkConnection();
+  }
+
+  @Benchmark
+  public boolean httpOk() {
+    return httpOk.checkConnection();
+  }
+
+  @Benchmark
+  public boolean walledGarden() {
+    return walledGarden.checkConnection();
+  }
+
+  private static HttpHandler respondWith(final int code) {
+    return new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(code, code == HTTP_NO_CONTENT ? -1 : 0);
+        exchange.close();
+      }
+    };
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.network.helpers;
+
+import greyfox.rxnetwork.internal.net.RxNetworkInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static greyfox.rxnetwork.internal.strategy.network.helpers.Functions.TO_CONNECTION_STATE;
+
+/**
+ * Mapping with {@link Functions} helpers.
+ *
+ * @author Radek Kozak
+ */
+@State(Scope.Benchmark)
+public class FunctionsBenchmark {
+
+  private RxNetworkInfo connected;
+
+  @Setup
+  public void setUp() {
+    connected = RxNetworkInfo.builder().connected(true).build();
+  }
+
+  @Benchmark
+  public Boolean toConnectionState() throws Exception {
+    return TO_CONNECTION_STATE.apply(connected);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.network.predicate;
+
+import android.net.NetworkCapabilities;
+import greyfox.rxnetwork.internal.net.RxNetworkInfo;
+import io.reactivex.functions.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static android.net.ConnectivityManager.TYPE_BLUETOOTH;
+import static android.net.ConnectivityManager.TYPE_ETHERNET;
+import static android.net.ConnectivityManager.TYPE_MOBILE;
+import static android.net.ConnectivityManager.TYPE_WIFI;
+import static android.net.ConnectivityManager.TYPE_WIMAX;
+import static android.net.NetworkCapabilities.TRANSPORT_CELLULAR;
+import static android.net.NetworkCapabilities.TRANSPORT_ETHERNET;
+import static android.net.NetworkCapabilities.TRANSPORT_WIFI;
+import static android.net.NetworkInfo.State.CONNECTED;
+import static android.net.NetworkInfo.State.CONNECTING;
+import static android.net.NetworkInfo.State.DISCONNECTING;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.Capabilities.hasTransportType;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.State.hasState;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.Type.IS_WIFI;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.Type.hasType;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.and;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.not;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.or;
+
+/**
+ * Evaluation of {@link RxNetworkInfoPredicate} filters, matching on the last given value so that
+ * every one of them has to be looked at.
+ *
+ * @author Radek Kozak
+ */
+@State(Scope.Benchmark)
+public class RxNetworkInfoPredicateBenchmark {
+
+  private Predicate<RxNetworkInfo> hasState;
+  private Predicate<RxNetworkInfo> hasType;
+  private Predicate<RxNetworkInfo> isWifi;
+  private Predicate<RxNetworkInfo> hasTransportType;
+  private Predicate<RxNetworkInfo> composite;
+
+  private RxNetworkInfo networkInfo;
+
+  @Setup
+  public void setUp() {
+    hasState = hasState(DISCONNECTING, CONNECTING, CONNECTED);
+    hasType = hasType(TYPE_MOBILE, TYPE_BLUETOOTH, TYPE_ETHERNET, TYPE_WIMAX, TYPE_WIFI);
+    isWifi = IS_WIFI;
+    hasTransportType = hasTransportType(TRANSPORT_CELLULAR, TRANSPORT_ETHERNET, TRANSPORT_WIFI);
+    composite = and(or(hasState(CONNECTED), hasState(CONNECTING)), not(hasType(TYPE_MOBILE)));
+
+    final NetworkCapabilities capabilities = new NetworkCapabilities();
+    capabilities.addTransportType(TRANSPORT_WIFI);
+
+    networkInfo = RxNetworkInfo.builder().state(CONNECTED).type(TYPE_WIFI)
+        .networkCapabilities(capabilities).build();
+  }
+
+  @Benchmark
+  public boolean state() throws Exception {
+    return hasState.test(networkInfo);
+  }
+
+  @Benchmark
+  public boolean type() throws Exception {
+    return hasType.test(networkInfo);
+  }
+
+  @Benchmark
+  public boolean wifi() throws Exception {
+    return isWifi.test(networkInfo);
+  }
+
+  @Benchmark
+  public boolean transportType() throws Exception {
+    return hasTransportType.test(networkInfo);
+  }
+
+  @Benchmark
+  public boolean composite() throws Exception {
+    return composite.test(networkInfo);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.metrics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fixed-memory latency histogram with logarithmic buckets.
+ * <p>
+ * Latencies are kept in microseconds: exactly up to 16 &micro;s, then in 16 buckets per power
+ * of two, so any recorded value is off by at most 1/16 (about 6%). Latencies over
+ * {@code 2^32} &micro;s (over an hour) land in the last bucket. That's 464 counters whatever
+ * the number of samples.
+ * <p>
+ * Recording is lock-free and never allocates, so it's cheap enough for every probe.
+ * {@linkplain #snapshotAndReset() Reset-on-read} snapshots let dashboards export percentiles of
+ * fixed intervals: samples recorded meanwhile go to either this snapshot or the next one, none
+ * are lost.
+ *
+ * @author Radek Kozak
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 31;
+
+  @VisibleForTesting
+  static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  /**
+   * Records single latency.
+   *
+   * @param duration latency, at least {@code 0}
+   * @param unit     unit of {@code duration}
+   */
+  public void record(long duration, @NonNull TimeUnit unit) {
+    checkNotNull(unit, "unit");
+
+    if (duration < 0) {
+      throw new IllegalArgumentException("Invalid duration: " + duration);
+    }
+
+    final long micros = unit.toMicros(duration);
+    counts.incrementAndGet(index(micros));
+
+    long max;
+    while ((max = maxMicros.get()) < micros && !maxMicros.compareAndSet(max, micros)) {
+      // lost the race to another sample, retry against its max
+    }
+  }
+
+  /** Snapshot of latencies recorded so far. */
+  @NonNull
+  public LatencySnapshot snapshot() {
+    final long[] snapshot = new long[BUCKETS];
+
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+    }
+
+    return new LatencySnapshot(snapshot, maxMicros.get());
+  }
+
+  /** Snapshot of latencies recorded since the last reset, starting over right away. */
+  @NonNull
+  public LatencySnapshot snapshotAndReset() {
+    final long[] snapshot = new long[BUCKETS];
+
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.getAndSet(i, 0);
+    }
+
+    return new LatencySnapshot(snapshot, maxMicros.getAndSet(0));
+  }
+
+  /** Bucket of given latency in microseconds. */
+  @VisibleForTesting
+  static int index(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+
+    final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+
+    final int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Latency in microseconds given bucket stands for: the middle of its range. */
+  @VisibleForTesting
+  static long value(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    final long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return (SUB_BUCKETS + index % SUB_BUCKETS) * width + width / 2;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.metrics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
+import greyfox.rxnetwork.internal.strategy.internet.ProbeEventListener;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static greyfox.rxnetwork.internal.metrics.ProbeLatencies.NOT_STARTED;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * {@link ProbeEventListener} keeping {@linkplain LatencyHistogram latency histograms} of probes,
+ * per strategy and endpoint, along with delivery latency of network changes.
+ * <p>
+ * Register it with strategies, or with {@code RxNetwork.Builder} for the default ones, and export
+ * percentiles every now and then:
+ * <pre><code>
+ * for (ProbeLatencies latencies : recorder.latencies()) {
+ *   LatencySnapshot probes = latencies.probeDuration().snapshotAndReset();
+ *   dashboard.report(latencies.endpoint(), probes.percentile(50, MILLISECONDS),
+ *       probes.percentile(99, MILLISECONDS));
+ * }
+ * </code></pre>
+ * Histograms of each strategy and endpoint are created on their first probe, after that
+ * recording takes a couple of lock-free map lookups and counter increments. Start times are kept
+ * per strategy and endpoint, which holds since probes of a strategy don't overlap.
+ *
+ * @author Radek Kozak
+ */
+public final class LatencyRecorder extends ProbeEventListener {
+
+  private static final String NO_ENDPOINT = "";
+  private static final int RECENT_CALLBACKS = 4;
+
+  private final ConcurrentMap<InternetObservingStrategy, ConcurrentMap<String, ProbeLatencies>>
+      latencies = new ConcurrentHashMap<>();
+  private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+  private final AtomicReferenceArray<NetworkCallback> recentCallbacks =
+      new AtomicReferenceArray<>(RECENT_CALLBACKS);
+  private final AtomicInteger nextCallback = new AtomicInteger();
+
+  LatencyRecorder() {
+  }
+
+  @NonNull
+  public static LatencyRecorder create() {
+    return new LatencyRecorder();
+  }
+
+  /** Latencies of all of the strategies and endpoints probed so far. */
+  @NonNull
+  public List<ProbeLatencies> latencies() {
+    final List<ProbeLatencies> all = new ArrayList<>();
+
+    for (ConcurrentMap<String, ProbeLatencies> byEndpoint : latencies.values()) {
+      all.addAll(byEndpoint.values());
+    }
+
+    return all;
+  }
+
+  /**
+   * Latencies of delivering network changes: from network callback reporting them to each of the
+   * subscribers receiving them, on the schedulers they observe on. Only the few most recent
+   * changes are followed: the ones superseded before reaching subscribers are not recorded.
+   */
+  @NonNull
+  public LatencyHistogram deliveryLatency() {
+    return deliveryLatency;
+  }
+
+  @Override
+  public void probeStart(@NonNull InternetObservingStrategy strategy,
+      @Nullable String endpoint) {
+
+    final ProbeLatencies latencies = latenciesOf(strategy, endpoint);
+    final long now = System.nanoTime();
+    latencies.probeStarted.set(now);
+    latencies.connectStarted.set(now);
+  }
+
+  @Override
+  public void dnsResolved(@NonNull InternetObservingStrategy strategy, @NonNull String endpoint,
+      @Nullable InetAddress address) {
+
+    latenciesOf(strategy, endpoint).connectStarted.set(System.nanoTime());
+  }
+
+  @Override
+  public void connected(@NonNull InternetObservingStrategy strategy, @NonNull String endpoint) {
+    final ProbeLatencies latencies = latenciesOf(strategy, endpoint);
+    final long started = latencies.connectStarted.getAndSet(NOT_STARTED);
+
+    if (started != NOT_STARTED) {
+      latencies.connectTime().record(System.nanoTime() - started, NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void probeEnd(@NonNull InternetObservingStrategy strategy, @Nullable String endpoint,
+      boolean isConnected) {
+
+    final ProbeLatencies latencies = latenciesOf(strategy, endpoint);
+    final long started = latencies.probeStarted.getAndSet(NOT_STARTED);
+
+    if (started != NOT_STARTED) {
+      latencies.probeDuration().record(System.nanoTime() - started, NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void networkCallbackReceived(@NonNull Object networkInfo) {
+    final int slot = (nextCallback.getAndIncrement() & Integer.MAX_VALUE) % RECENT_CALLBACKS;
+    recentCallbacks.set(slot, new NetworkCallback(networkInfo, System.nanoTime()));
+  }
+
+  @Override
+  public void emissionDelivered(@NonNull Object value) {
+    for (int i = 0; i < RECENT_CALLBACKS; i++) {
+      final NetworkCallback callback = recentCallbacks.get(i);
+
+      if (callback != null && callback.networkInfo == value) {
+        deliveryLatency.record(System.nanoTime() - callback.received, NANOSECONDS);
+        return;
+      }
+    }
+  }
+
+  private ProbeLatencies latenciesOf(InternetObservingStrategy strategy,
+      @Nullable String endpoint) {
+
+    ConcurrentMap<String, ProbeLatencies> byEndpoint = latencies.get(strategy);
+
+    if (byEndpoint == null) {
+      final ConcurrentMap<String, ProbeLatencies> created = new ConcurrentHashMap<>();
+      byEndpoint = latencies.putIfAbsent(strategy, created);
+      byEndpoint = byEndpoint != null ? byEndpoint : created;
+    }
+
+    final String key = endpoint != null ? endpoint : NO_ENDPOINT;
+    ProbeLatencies probeLatencies = byEndpoint.get(key);
+
+    if (probeLatencies == null) {
+      final ProbeLatencies created = new ProbeLatencies(strategy, endpoint);
+      probeLatencies = byEndpoint.putIfAbsent(key, created);
+      probeLatencies = probeLatencies != null ? probeLatencies : created;
+    }
+
+    return probeLatencies;
+  }
+
+  /** Network change reported by network observing strategy, waiting for delivery. */
+  private static final class NetworkCallback {
+
+    final Object networkInfo;
+    final long received;
+
+    NetworkCallback(Object networkInfo, long received) {
+      this.networkInfo = networkInfo;
+      this.received = received;
+    }
+  }
+}
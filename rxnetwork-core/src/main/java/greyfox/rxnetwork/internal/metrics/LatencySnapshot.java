@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.metrics;
+
+import android.support.annotation.NonNull;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Immutable snapshot of {@link LatencyHistogram}, to compute percentiles from.
+ *
+ * @author Radek Kozak
+ */
+public final class LatencySnapshot {
+
+  private final long[] counts;
+  private final long maxMicros;
+  private final long count;
+
+  LatencySnapshot(@NonNull long[] counts, long maxMicros) {
+    this.counts = checkNotNull(counts, "counts");
+    this.maxMicros = maxMicros;
+
+    long total = 0;
+    for (long bucket : counts) {
+      total += bucket;
+    }
+
+    count = total;
+  }
+
+  /** Number of latencies recorded. */
+  public long count() {
+    return count;
+  }
+
+  /** Highest latency recorded or {@code 0} if there's none. */
+  public long max(@NonNull TimeUnit unit) {
+    checkNotNull(unit, "unit");
+    return unit.convert(maxMicros, MICROSECONDS);
+  }
+
+  /**
+   * Latency given percent of recorded latencies are at or below, e.g. {@code 50} for median or
+   * {@code 99} for tail latency. It's {@code 0} if nothing was recorded.
+   *
+   * @param percentile percentile in [0, 100]
+   * @param unit       unit to return the latency in
+   */
+  public long percentile(double percentile, @NonNull TimeUnit unit) {
+    checkNotNull(unit, "unit");
+
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("Invalid percentile: " + percentile);
+    }
+
+    if (count == 0) {
+      return 0;
+    }
+
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    int index = 0;
+
+    while ((seen += counts[index]) < rank) {
+      index++;
+    }
+
+    final long micros = LatencyHistogram.value(index);
+    return unit.convert(maxMicros > 0 ? Math.min(micros, maxMicros) : micros, MICROSECONDS);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.metrics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms of probes of single strategy to single endpoint.
+ *
+ * @author Radek Kozak
+ * @see LatencyRecorder
+ */
+public final class ProbeLatencies {
+
+  static final long NOT_STARTED = Long.MIN_VALUE;
+
+  /** When the current probe started, in {@link System#nanoTime()}. */
+  final AtomicLong probeStarted = new AtomicLong(NOT_STARTED);
+
+  /** When the current probe started connecting, after hostname resolution if there was one. */
+  final AtomicLong connectStarted = new AtomicLong(NOT_STARTED);
+
+  private final InternetObservingStrategy strategy;
+  private final String endpoint;
+  private final LatencyHistogram probeDuration = new LatencyHistogram();
+  private final LatencyHistogram connectTime = new LatencyHistogram();
+
+  ProbeLatencies(@NonNull InternetObservingStrategy strategy, @Nullable String endpoint) {
+    this.strategy = strategy;
+    this.endpoint = endpoint;
+  }
+
+  /** Strategy probing. */
+  @NonNull
+  public InternetObservingStrategy strategy() {
+    return strategy;
+  }
+
+  /** Endpoint probed or {@code null} if strategy has none. */
+  @Nullable
+  public String endpoint() {
+    return endpoint;
+  }
+
+  /** Durations of whole probes, successful or not. */
+  @NonNull
+  public LatencyHistogram probeDuration() {
+    return probeDuration;
+  }
+
+  /** Times it took to connect to the endpoint, without hostname resolution. */
+  @NonNull
+  public LatencyHistogram connectTime() {
+    return connectTime;
+  }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.prewarm;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.net.SocketFactory;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * Warms up connections to registered hosts, so that the first requests after regaining
+ * connectivity do not have to pay for DNS lookup, TCP and TLS handshakes.
+ * <p>
+ * Each {@linkplain #warm() warm-up} resolves all of the hosts concurrently, which fills
+ * resolver's cache, and connects to them. For TLS hosts it also completes the handshake, which
+ * leaves a session in the {@link SSLSocketFactory SSLSocketFactory's} session cache for later
+ * connections to resume; hosts whose certificate does not match their hostname are skipped.
+ * Warm connections are pooled and can be {@linkplain #take(String, int) taken} by whoever needs
+ * them, {@linkplain #takeTls(String, int) TLS ones} separately; ones idle for longer than
+ * {@code maxIdle} are closed.
+ * <p>
+ * Example usage:
+ * <pre><code>
+ * ConnectionPreWarmer preWarmer = ConnectionPreWarmer.builder()
+ *     .tls("api.example.com", 443)
+ *     .host("sync.example.com", 80)
+ *     .build();
+ *
+ * rxNetwork.preWarm(preWarmer).subscribe();
+ * </code></pre>
+ *
+ * @author Radek Kozak
+ */
+public final class ConnectionPreWarmer {
+
+  private static final Logger logger = getLogger(ConnectionPreWarmer.class.getSimpleName());
+
+  /** Whether TLS sockets can verify hostname themselves (Java 7, Android API 24). */
+  private static final boolean ENDPOINT_IDENTIFICATION = supportsEndpointIdentification();
+
+  private final List<Host> hosts;
+  private final int timeout;
+  private final long maxIdle;
+  private final SocketFactory socketFactory;
+  private final SSLSocketFactory sslSocketFactory;
+  @Nullable private final HostnameVerifier hostnameVerifier;
+  private final Scheduler scheduler;
+  private final Scheduler evictionScheduler;
+  private final Map<String, WarmConnection> pool = new ConcurrentHashMap<>();
+
+  ConnectionPreWarmer(@NonNull Builder builder) {
+    checkNotNull(builder, "builder");
+
+    hosts = Collections.unmodifiableList(new ArrayList<>(builder.hosts));
+    timeout = builder.timeout;
+    maxIdle = builder.maxIdle;
+    socketFactory = builder.socketFactory;
+    sslSocketFactory = builder.sslSocketFactory;
+    scheduler = builder.scheduler;
+    evictionScheduler = builder.evictionScheduler;
+
+    if (builder.hostnameVerifier != null) {
+      hostnameVerifier = builder.hostnameVerifier;
+    } else {
+      // null when the socket verifies hostname itself
+      hostnameVerifier = ENDPOINT_IDENTIFICATION ? null
+          : HttpsURLConnection.getDefaultHostnameVerifier();
+    }
+  }
+
+  private static boolean supportsEndpointIdentification() {
+    try {
+      SSLParameters.class.getMethod("setEndpointIdentificationAlgorithm", String.class);
+      return true;
+    } catch (NoSuchMethodException nsme) {
+      return false;
+    }
+  }
+
+  @NonNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Warms up all of the hosts concurrently, replacing connections pooled so far.
+   * Never fails; hosts that could not be warmed up are skipped.
+   */
+  @NonNull
+  public Completable warm() {
+    return Completable.defer(new Callable<Completable>() {
+      @Override
+      public Completable call() throws Exception {
+        evictAll();
+
+        final List<Completable> warmUps = new ArrayList<>(hosts.size());
+
+        for (Host host : hosts) {
+          warmUps.add(warmUp(host));
+        }
+
+        return Completable.merge(warmUps);
+      }
+    });
+  }
+
+  /**
+   * Warms up all of the hosts whenever given triggers emit, for example on each transition to
+   * having internet access. Warm-up still in progress is abandoned when the next one is triggered.
+   */
+  @NonNull
+  public Completable warmOn(@NonNull Observable<?> triggers) {
+    checkNotNull(triggers, "triggers");
+
+    return triggers.switchMap(new Function<Object, ObservableSource<Object>>() {
+      @Override
+      public ObservableSource<Object> apply(Object trigger) throws Exception {
+        return warm().toObservable();
+      }
+    }).ignoreElements();
+  }
+
+  /**
+   * Hands off warm plain connection to given host, if there is one. Once taken, the connection
+   * is owned, and has to be closed, by the caller.
+   */
+  @Nullable
+  public Socket take(@NonNull String host, int port) {
+    return handOff(host, port, false);
+  }
+
+  /**
+   * Hands off warm TLS connection to given host, if there is one. It's a {@link SSLSocket} with
+   * the handshake completed. Once taken, the connection is owned, and has to be closed, by the
+   * caller.
+   */
+  @Nullable
+  public SSLSocket takeTls(@NonNull String host, int port) {
+    return (SSLSocket) handOff(host, port, true);
+  }
+
+  @Nullable
+  private Socket handOff(@NonNull String host, int port, boolean tls) {
+    checkNotNull(host, "host");
+
+    final WarmConnection connection = pool.remove(key(host, port, tls));
+
+    if (connection == null) {
+      return null;
+    }
+
+    connection.eviction.dispose();
+
+    if (connection.isExpired(maxIdle) || connection.socket.isClosed()) {
+      close(connection.socket);
+      return null;
+    }
+
+    return connection.socket;
+  }
+
+  /** Closes all of the pooled connections. */
+  public void evictAll() {
+    for (String key : pool.keySet()) {
+      final WarmConnection connection = pool.remove(key);
+
+      if (connection != null) {
+        connection.eviction.dispose();
+        close(connection.socket);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  int pooled() {
+    return pool.size();
+  }
+
+  private Completable warmUp(final Host host) {
+    return Completable.fromAction(new Action() {
+      @Override
+      public void run() throws Exception {
+        final String key = key(host.name, host.port, host.tls);
+        final WarmConnection connection = new WarmConnection(connect(host));
+        final WarmConnection previous = pool.put(key, connection);
+
+        if (previous != null) {
+          previous.eviction.dispose();
+          close(previous.socket);
+        }
+
+        connection.eviction = evictionScheduler.scheduleDirect(new Runnable() {
+          @Override
+          public void run() {
+            if (pool.remove(key, connection)) {
+              close(connection.socket);
+            }
+          }
+        }, maxIdle, MILLISECONDS);
+      }
+    }).subscribeOn(scheduler).doOnError(new Consumer<Throwable>() {
+      @Override
+      public void accept(Throwable throwable) throws Exception {
+        logger.log(Level.WARNING, "Could not warm up " + host + ": " + throwable.getMessage());
+      }
+    }).onErrorComplete();
+  }
+
+  private Socket connect(Host host) throws IOException {
+    final InetAddress[] addresses = InetAddress.getAllByName(host.name);
+    final Socket socket = socketFactory.createSocket();
+    SSLSocket sslSocket = null;
+
+    try {
+      socket.connect(new InetSocketAddress(addresses[0], host.port), timeout);
+      socket.setSoTimeout(timeout);
+
+      if (!host.tls) {
+        // handed off sockets block on reads for as long as their owner wants
+        socket.setSoTimeout(0);
+        return socket;
+      }
+
+      sslSocket = (SSLSocket) sslSocketFactory.createSocket(socket, host.name, host.port, true);
+
+      if (hostnameVerifier == null) {
+        final SSLParameters parameters = sslSocket.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        sslSocket.setSSLParameters(parameters);
+      }
+
+      sslSocket.startHandshake();
+
+      if (hostnameVerifier != null && !hostnameVerifier.verify(host.name, sslSocket.getSession())) {
+        sslSocket.getSession().invalidate();
+        throw new SSLPeerUnverifiedException("Hostname " + host.name + " not verified");
+      }
+
+      sslSocket.setSoTimeout(0);
+      return sslSocket;
+    } catch (IOException ioe) {
+      close(sslSocket != null ? sslSocket : socket);
+      throw ioe;
+    }
+  }
+
+  private static String key(String host, int port, boolean tls) {
+    return (tls ? "tls://" : "tcp://") + host + ":" + port;
+  }
+
+  private static void close(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException ioe) {
+      logger.log(Level.WARNING, "Could not close the socket: " + ioe.getMessage());
+    }
+  }
+
+  private static final class Host {
+
+    final String name;
+    final int port;
+    final boolean tls;
+
+    Host(String name, int port, boolean tls) {
+      this.name = name;
+      this.port = port;
+      this.tls = tls;
+    }
+
+    @Override
+    public String toString() {
+      return (tls ? "tls://" : "tcp://") + name + ":" + port;
+    }
+  }
+
+  private static final class WarmConnection {
+
+    final Socket socket;
+    final long warmedAt = System.nanoTime();
+
+    /** Closes the connection once idle for too long. Set right after pooling. */
+    volatile Disposable eviction = Disposables.empty();
+
+    WarmConnection(Socket socket) {
+      this.socket = socket;
+    }
+
+    boolean isExpired(long maxIdle) {
+      return System.nanoTime() - warmedAt > MILLISECONDS.toNanos(maxIdle);
+    }
+  }
+
+  /** Build a new {@link ConnectionPreWarmer}. */
+  public static final class Builder {
+
+    private static final int DEFAULT_TIMEOUT_MS = 3000;
+    private static final long DEFAULT_MAX_IDLE_MS = 30000;
+
+    private final List<Host> hosts = new ArrayList<>();
+    private int timeout = DEFAULT_TIMEOUT_MS;
+    private long maxIdle = DEFAULT_MAX_IDLE_MS;
+    private SocketFactory socketFactory = SocketFactory.getDefault();
+    private SSLSocketFactory sslSocketFactory;
+    private HostnameVerifier hostnameVerifier;
+    private Scheduler scheduler = Schedulers.io();
+    private Scheduler evictionScheduler = Schedulers.computation();
+
+    Builder() {
+    }
+
+    /** Add plain TCP host to warm up. */
+    @NonNull
+    public Builder host(@NonNull String host, int port) {
+      return add(host, port, false);
+    }
+
+    /** Add TLS host to warm up, handshake included. */
+    @NonNull
+    public Builder tls(@NonNull String host, int port) {
+      return add(host, port, true);
+    }
+
+    private Builder add(String host, int port, boolean tls) {
+      checkNotNull(host, "host");
+
+      if (port <= 0 || port > 65535) {
+        throw new IllegalArgumentException("Invalid port: " + port);
+      }
+
+      hosts.add(new Host(host, port, tls));
+      return this;
+    }
+
+    /** Set the connect and handshake timeout in milliseconds. */
+    @NonNull
+    public Builder timeout(int timeout) {
+      if (timeout <= 0) {
+        throw new IllegalArgumentException("Invalid timeout: " + timeout);
+      }
+
+      this.timeout = timeout;
+      return this;
+    }
+
+    /** Set how long in milliseconds warm connections are kept for taking before closing them. */
+    @NonNull
+    public Builder maxIdle(long maxIdle) {
+      if (maxIdle <= 0) {
+        throw new IllegalArgumentException("Invalid max idle time: " + maxIdle);
+      }
+
+      this.maxIdle = maxIdle;
+      return this;
+    }
+
+    /** Set the {@link SocketFactory} to connect with. */
+    @NonNull
+    public Builder socketFactory(@NonNull SocketFactory socketFactory) {
+      this.socketFactory = checkNotNull(socketFactory, "socketFactory");
+      return this;
+    }
+
+    /**
+     * Set the {@link SSLSocketFactory} to do TLS handshakes with. It should be the one your
+     * HTTP client uses, so that its connections can resume warmed-up sessions. Defaults to
+     * {@linkplain SSLSocketFactory#getDefault()}.
+     */
+    @NonNull
+    public Builder sslSocketFactory(@NonNull SSLSocketFactory sslSocketFactory) {
+      this.sslSocketFactory = checkNotNull(sslSocketFactory, "sslSocketFactory");
+      return this;
+    }
+
+    /**
+     * Set the verifier of TLS hosts' hostnames. By default the hostname is verified by TLS socket
+     * itself where supported and by {@linkplain HttpsURLConnection#getDefaultHostnameVerifier()}
+     * elsewhere.
+     */
+    @NonNull
+    public Builder hostnameVerifier(@NonNull HostnameVerifier hostnameVerifier) {
+      this.hostnameVerifier = checkNotNull(hostnameVerifier, "hostnameVerifier");
+      return this;
+    }
+
+    /** Set the {@link Scheduler} hosts are warmed up on. Defaults to {@link Schedulers#io()}. */
+    @NonNull
+    public Builder scheduler(@NonNull Scheduler scheduler) {
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      return this;
+    }
+
+    /**
+     * Set the {@link Scheduler} idle connections are closed on.
+     * Defaults to {@link Schedulers#computation()}.
+     */
+    @NonNull
+    public Builder evictionScheduler(@NonNull Scheduler evictionScheduler) {
+      this.evictionScheduler = checkNotNull(evictionScheduler, "evictionScheduler");
+      return this;
+    }
+
+    /** Create an immutable instance of {@link ConnectionPreWarmer} using configured values. */
+    @NonNull
+    public ConnectionPreWarmer build() {
+      if (sslSocketFactory == null) {
+        sslSocketFactory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+      }
+
+      return new ConnectionPreWarmer(this);
+    }
+  }
+}
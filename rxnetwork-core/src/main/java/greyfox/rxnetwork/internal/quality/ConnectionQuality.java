@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.quality;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Class of connection quality, by estimated downstream throughput.
+ *
+ * @author Radek Kozak
+ */
+public enum ConnectionQuality {
+
+  /** No estimate, e.g. when disconnected. */
+  UNKNOWN(0, 0),
+  /** Below 150 kbps. */
+  POOR(0, 150),
+  /** From 150 to 550 kbps. */
+  MODERATE(150, 550),
+  /** From 550 to 2000 kbps. */
+  GOOD(550, 2000),
+  /** Above 2000 kbps. */
+  EXCELLENT(2000, Long.MAX_VALUE);
+
+  private final long lowerBound;
+  private final long upperBound;
+
+  ConnectionQuality(long lowerBound, long upperBound) {
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+  }
+
+  /** Class of given throughput in kbps; {@link #UNKNOWN} if it's not positive. */
+  @NonNull
+  public static ConnectionQuality of(double kbps) {
+    if (kbps <= 0) {
+      return UNKNOWN;
+    }
+
+    for (ConnectionQuality quality : values()) {
+      if (quality != UNKNOWN && kbps < quality.upperBound) {
+        return quality;
+      }
+    }
+
+    return EXCELLENT;
+  }
+
+  /** Lowest throughput of this class in kbps, inclusive. */
+  public long lowerBound() {
+    return lowerBound;
+  }
+
+  /** Highest throughput of this class in kbps, exclusive. */
+  public long upperBound() {
+    return upperBound;
+  }
+}
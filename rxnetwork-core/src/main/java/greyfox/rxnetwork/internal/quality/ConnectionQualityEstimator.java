@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.quality;
+
+import android.support.annotation.NonNull;
+import io.reactivex.Observable;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.Subject;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+
+/**
+ * Estimates {@link ConnectionQuality} from throughput samples.
+ * <p>
+ * The estimate is an exponentially weighted moving average of throughput in kbps. It starts
+ * from a {@linkplain #reset(long) prior}, e.g. bandwidth advertised by the platform or typical
+ * for the network type, which counts as a single sample: early samples quickly take over and
+ * their weight decreases until it settles at {@code weight}.
+ * <p>
+ * To keep the class from flapping when the estimate hovers around one of the boundaries, the
+ * estimate has to get past the boundary by {@code hysteresis} (a fraction of the boundary)
+ * before the class changes.
+ *
+ * @author Radek Kozak
+ */
+public final class ConnectionQualityEstimator {
+
+  private final double weight;
+  private final double hysteresis;
+  private final long minSampleBytes;
+  private final Subject<ConnectionQuality> qualities =
+      BehaviorSubject.createDefault(ConnectionQuality.UNKNOWN).toSerialized();
+
+  private double estimate;
+  private long samples;
+  private ConnectionQuality quality = ConnectionQuality.UNKNOWN;
+
+  ConnectionQualityEstimator(@NonNull Builder builder) {
+    checkNotNull(builder, "builder");
+
+    weight = builder.weight;
+    hysteresis = builder.hysteresis;
+    minSampleBytes = builder.minSampleBytes;
+  }
+
+  @NonNull
+  public static ConnectionQualityEstimator create() {
+    return builder().build();
+  }
+
+  @NonNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Discards the samples and starts over from given prior.
+   *
+   * @param priorKbps expected throughput in kbps or {@code 0} if there's no telling
+   */
+  public synchronized void reset(long priorKbps) {
+    if (priorKbps < 0) {
+      throw new IllegalArgumentException("Invalid prior: " + priorKbps);
+    }
+
+    estimate = priorKbps;
+    samples = priorKbps > 0 ? 1 : 0;
+    quality = ConnectionQuality.of(estimate);
+    qualities.onNext(quality);
+  }
+
+  /**
+   * Takes updated prior into account, e.g. bandwidth advertised by the platform changing while
+   * on the same network. Unlike {@linkplain #reset(long) reset} it keeps the samples: the prior
+   * is weighted as one more sample.
+   *
+   * @param priorKbps expected throughput in kbps or {@code 0} if there's no telling
+   */
+  public void addPrior(long priorKbps) {
+    if (priorKbps < 0) {
+      throw new IllegalArgumentException("Invalid prior: " + priorKbps);
+    }
+
+    if (priorKbps > 0) {
+      addSample((double) priorKbps);
+    }
+  }
+
+  /**
+   * Adds throughput sample, e.g. size and duration of a downloaded response body.
+   * Samples smaller than {@code minSampleBytes} are ignored, since they say more about latency
+   * than about throughput.
+   *
+   * @param bytes    number of bytes transferred
+   * @param duration how long the transfer took
+   * @param unit     unit of {@code duration}
+   */
+  public void addSample(long bytes, long duration, @NonNull TimeUnit unit) {
+    checkNotNull(unit, "unit");
+
+    final long micros = unit.toMicros(duration);
+
+    if (bytes < minSampleBytes || micros <= 0) {
+      return;
+    }
+
+    // bits per microsecond is megabits per second
+    addSample(bytes * 8 * 1000d / micros);
+  }
+
+  private synchronized void addSample(double kbps) {
+    samples++;
+    final double sampleWeight = Math.max(weight, 1d / samples);
+    estimate = estimate * (1 - sampleWeight) + kbps * sampleWeight;
+
+    final ConnectionQuality next = classify();
+
+    if (next != quality) {
+      quality = next;
+      qualities.onNext(quality);
+    }
+  }
+
+  /** Current estimate in kbps or {@code 0} if there's none. */
+  public synchronized double estimate() {
+    return estimate;
+  }
+
+  /** Current quality. */
+  @NonNull
+  public synchronized ConnectionQuality quality() {
+    return quality;
+  }
+
+  /**
+   * Observes quality. Emits current quality right away and then each time it changes.
+   *
+   * @return RxJava Observable with {@link ConnectionQuality}
+   */
+  @NonNull
+  public Observable<ConnectionQuality> observe() {
+    return qualities.distinctUntilChanged();
+  }
+
+  /** Class of the current estimate, sticking to the current class within hysteresis. */
+  private ConnectionQuality classify() {
+    final ConnectionQuality raw = ConnectionQuality.of(estimate);
+
+    if (quality == ConnectionQuality.UNKNOWN || raw == quality) {
+      return raw;
+    }
+
+    if (raw.compareTo(quality) > 0) {
+      return estimate >= quality.upperBound() * (1 + hysteresis) ? raw : quality;
+    }
+
+    return estimate < quality.lowerBound() * (1 - hysteresis) ? raw : quality;
+  }
+
+  /** Build a new {@link ConnectionQualityEstimator}. */
+  public static final class Builder {
+
+    private static final double DEFAULT_WEIGHT = 0.05;
+    private static final double DEFAULT_HYSTERESIS = 0.2;
+    private static final long DEFAULT_MIN_SAMPLE_BYTES = 10 * 1024;
+
+    private double weight = DEFAULT_WEIGHT;
+    private double hysteresis = DEFAULT_HYSTERESIS;
+    private long minSampleBytes = DEFAULT_MIN_SAMPLE_BYTES;
+
+    Builder() {
+    }
+
+    /** Set the weight of new samples once the estimate settles, in (0, 1]. Defaults to 0.05. */
+    @NonNull
+    public Builder weight(double weight) {
+      if (!(weight > 0 && weight <= 1)) {
+        throw new IllegalArgumentException("Invalid weight: " + weight);
+      }
+
+      this.weight = weight;
+      return this;
+    }
+
+    /**
+     * Set how far past the boundary, as a fraction of it, the estimate has to get for the class
+     * to change. Defaults to 0.2.
+     */
+    @NonNull
+    public Builder hysteresis(double hysteresis) {
+      if (!(hysteresis >= 0 && hysteresis < 1)) {
+        throw new IllegalArgumentException("Invalid hysteresis: " + hysteresis);
+      }
+
+      this.hysteresis = hysteresis;
+      return this;
+    }
+
+    /** Set the minimum size of samples taken into account. Defaults to 10 KiB. */
+    @NonNull
+    public Builder minSampleBytes(long minSampleBytes) {
+      if (minSampleBytes < 0) {
+        throw new IllegalArgumentException("Invalid min sample size: " + minSampleBytes);
+      }
+
+      this.minSampleBytes = minSampleBytes;
+      return this;
+    }
+
+    /**
+     * Create an instance of {@link ConnectionQualityEstimator} using configured values.
+     * Its quality is {@link ConnectionQuality#UNKNOWN} until it gets a prior or a sample.
+     */
+    @NonNull
+    public ConnectionQualityEstimator build() {
+      return new ConnectionQualityEstimator(this);
+    }
+  }
+}
@@ -0,0 +1,658 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.queue;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+import io.reactivex.CompletableOnSubscribe;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.observers.DisposableCompletableObserver;
+import io.reactivex.schedulers.Schedulers;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * Queue of network operations waiting for the right network conditions.
+ * <p>
+ * Operations are {@link Completable Completables} enqueued with a priority and a required
+ * {@link Condition}. While {@linkplain #process() processing}, the queue holds operations whose
+ * condition is not met and flushes the others, highest priority first, in batches: operations
+ * of a batch run concurrently and the next batch starts only after the previous one is done.
+ * Failed operations back off and go back to the queue once their retry delay (doubled with
+ * each attempt) elapses or their condition is met again, whichever comes first, until they run
+ * out of attempts. Operations not tried yet keep flowing meanwhile.
+ * <p>
+ * Operations enqueued by type and payload can be written to a {@linkplain Builder#journal
+ * journal} on disk. They are restored from it, with the help of {@link OperationFactory}, when
+ * the queue is built again, e.g. after process death. Journaled operations are removed from the
+ * journal only once they succeed (or are dropped), so they run at least once.
+ *
+ * @author Radek Kozak
+ */
+public final class OperationQueue {
+
+  /** Network condition an operation requires. */
+  public enum Condition {
+    /** Any network connection. */
+    ANY,
+    /** Connection to a network that is not metered. */
+    UNMETERED,
+    /** Connection with validated internet access. */
+    VALIDATED
+  }
+
+  /** Recreates journaled operations. */
+  public interface OperationFactory {
+
+    /** Creates operation of given type from given payload. */
+    @NonNull
+    Completable create(@NonNull String type, @NonNull String payload);
+  }
+
+  private static final Logger logger = getLogger(OperationQueue.class.getSimpleName());
+
+  private static final int JOURNAL_VERSION = 1;
+
+  /** Retry delay stops doubling after this many attempts. */
+  private static final int MAX_BACKOFF_SHIFT = 6;
+
+  private static final Comparator<Operation> BY_PRIORITY = new Comparator<Operation>() {
+    @Override
+    public int compare(Operation first, Operation second) {
+      if (first.priority != second.priority) {
+        return first.priority > second.priority ? -1 : 1;
+      }
+
+      return first.sequence < second.sequence ? -1 : (first.sequence == second.sequence ? 0 : 1);
+    }
+  };
+
+  private final Map<Condition, Observable<Boolean>> conditions;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final Scheduler scheduler;
+  private final long retryDelay;
+  private final Scheduler retryScheduler;
+  @Nullable private final File journal;
+  @Nullable private final OperationFactory factory;
+
+  private final TreeSet<Operation> pending = new TreeSet<>(BY_PRIORITY);
+  private final List<Operation> journaled = new ArrayList<>();
+  private final boolean[] met = new boolean[Condition.values().length];
+  private final List<Operation> running = new ArrayList<>();
+  private final Map<Operation, Disposable> backingOff = new LinkedHashMap<>();
+  private long sequence;
+  private boolean processing;
+  @Nullable private BatchObserver batch;
+
+  OperationQueue(@NonNull Builder builder) {
+    checkNotNull(builder, "builder");
+
+    conditions = new EnumMap<>(builder.conditions);
+    batchSize = builder.batchSize;
+    maxAttempts = builder.maxAttempts;
+    scheduler = builder.scheduler;
+    retryDelay = builder.retryDelay;
+    retryScheduler = builder.retryScheduler;
+    journal = builder.journal;
+    factory = builder.factory;
+
+    if (journal != null) {
+      restore();
+    }
+  }
+
+  @NonNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Enqueues in-memory operation. It's lost if the process dies before it succeeds.
+   *
+   * @param operation operation to run
+   * @param priority  the higher, the sooner the operation runs
+   * @param condition network condition the operation requires
+   */
+  public void enqueue(@NonNull Completable operation, int priority,
+      @NonNull Condition condition) {
+
+    checkNotNull(operation, "operation");
+    checkNotNull(condition, "condition");
+
+    synchronized (this) {
+      pending.add(new Operation(operation, null, null, priority, condition, sequence++, 0));
+    }
+
+    flush();
+  }
+
+  /**
+   * Enqueues journaled operation, created by the journal's {@link OperationFactory}.
+   *
+   * @param type      type of the operation, as understood by {@link OperationFactory}
+   * @param payload   payload of the operation, as understood by {@link OperationFactory}
+   * @param priority  the higher, the sooner the operation runs
+   * @param condition network condition the operation requires
+   *
+   * @throws IllegalStateException if the queue has no journal
+   */
+  public void enqueue(@NonNull String type, @NonNull String payload, int priority,
+      @NonNull Condition condition) {
+
+    checkNotNull(type, "type");
+    checkNotNull(payload, "payload");
+    checkNotNull(condition, "condition");
+
+    if (journal == null || factory == null) {
+      throw new IllegalStateException("Journaled operations require journal");
+    }
+
+    final Completable operation = factory.create(type, payload);
+
+    synchronized (this) {
+      final Operation entry =
+          new Operation(operation, type, payload, priority, condition, sequence++, 0);
+      pending.add(entry);
+      journaled.add(entry);
+      persist();
+    }
+
+    flush();
+  }
+
+  /** Number of operations waiting, backing off or running. */
+  public synchronized int size() {
+    return pending.size() + backingOff.size() + running.size();
+  }
+
+  /**
+   * Processes the queue for as long as returned {@link Completable} is subscribed to: watches
+   * the conditions and flushes operations whose condition is met. Operations still running when
+   * processing stops are abandoned and go back to the queue.
+   *
+   * @return RxJava Completable that never completes
+   */
+  @NonNull
+  public Completable process() {
+    return Completable.create(new CompletableOnSubscribe() {
+      @Override
+      public void subscribe(CompletableEmitter emitter) throws Exception {
+        synchronized (OperationQueue.this) {
+          if (processing) {
+            throw new IllegalStateException("Queue is being processed already");
+          }
+          processing = true;
+        }
+
+        final CompositeDisposable disposables = new CompositeDisposable();
+        disposables.add(Disposables.fromAction(new Action() {
+          @Override
+          public void run() throws Exception {
+            onStopped();
+          }
+        }));
+        emitter.setDisposable(disposables);
+
+        for (Map.Entry<Condition, Observable<Boolean>> condition : conditions.entrySet()) {
+          disposables.add(condition.getValue().subscribe(new ConditionWatcher(condition.getKey())));
+        }
+      }
+    });
+  }
+
+  private void flush() {
+    final List<Completable> runs;
+    final BatchObserver observer = new BatchObserver();
+
+    synchronized (this) {
+      if (!processing || batch != null) {
+        return;
+      }
+
+      final List<Operation> operations = pollBatch();
+
+      if (operations.isEmpty()) {
+        return;
+      }
+
+      running.addAll(operations);
+      batch = observer;
+      runs = new ArrayList<>(operations.size());
+
+      for (Operation operation : operations) {
+        runs.add(run(operation));
+      }
+    }
+
+    Completable.merge(runs).subscribe(observer);
+  }
+
+  private Completable run(final Operation operation) {
+    return operation.operation.subscribeOn(scheduler).doOnComplete(new Action() {
+      @Override
+      public void run() throws Exception {
+        onSucceeded(operation);
+      }
+    }).doOnError(new Consumer<Throwable>() {
+      @Override
+      public void accept(Throwable throwable) throws Exception {
+        onFailed(operation, throwable);
+      }
+    }).onErrorComplete();
+  }
+
+  /** Takes up to {@code batchSize} operations whose conditions are met, by priority. */
+  private List<Operation> pollBatch() {
+    final List<Operation> operations = new ArrayList<>(batchSize);
+    final Iterator<Operation> iterator = pending.iterator();
+
+    while (iterator.hasNext() && operations.size() < batchSize) {
+      final Operation operation = iterator.next();
+
+      if (met[operation.condition.ordinal()]) {
+        iterator.remove();
+        operations.add(operation);
+      }
+    }
+
+    return operations;
+  }
+
+  private synchronized void onSucceeded(Operation operation) {
+    running.remove(operation);
+
+    if (journaled.remove(operation)) {
+      persist();
+    }
+  }
+
+  private synchronized void onFailed(Operation operation, Throwable throwable) {
+    final Operation retry = operation.failed();
+    running.remove(operation);
+
+    if (retry.attempts < maxAttempts) {
+      backOff(retry);
+      replaceJournaled(operation, retry);
+    } else {
+      logger.log(Level.WARNING, "Dropping operation after " + retry.attempts + " attempts: "
+          + throwable.getMessage());
+
+      if (journaled.remove(operation)) {
+        persist();
+      }
+    }
+  }
+
+  /** Puts failed operation aside until its retry delay elapses. Guarded by this. */
+  private void backOff(final Operation operation) {
+    final long delay = retryDelay << Math.min(operation.attempts - 1, MAX_BACKOFF_SHIFT);
+
+    backingOff.put(operation, retryScheduler.scheduleDirect(new Runnable() {
+      @Override
+      public void run() {
+        if (onBackedOff(operation)) {
+          flush();
+        }
+      }
+    }, delay, MILLISECONDS));
+  }
+
+  private synchronized boolean onBackedOff(Operation operation) {
+    if (backingOff.remove(operation) == null) {
+      return false;
+    }
+
+    pending.add(operation);
+    return true;
+  }
+
+  /** Returns operations backing off to the queue early, e.g. when their condition is met again. */
+  private void retryBackingOff(@Nullable Condition condition) {
+    final Iterator<Map.Entry<Operation, Disposable>> iterator = backingOff.entrySet().iterator();
+
+    while (iterator.hasNext()) {
+      final Map.Entry<Operation, Disposable> entry = iterator.next();
+
+      if (condition == null || entry.getKey().condition == condition) {
+        entry.getValue().dispose();
+        pending.add(entry.getKey());
+        iterator.remove();
+      }
+    }
+  }
+
+  private void replaceJournaled(Operation operation, Operation replacement) {
+    final int index = journaled.indexOf(operation);
+
+    if (index >= 0) {
+      journaled.set(index, replacement);
+      persist();
+    }
+  }
+
+  private synchronized void onConditionChanged(Condition condition, boolean isMet) {
+    met[condition.ordinal()] = isMet;
+
+    if (isMet) {
+      retryBackingOff(condition);
+    }
+  }
+
+  private synchronized void onStopped() {
+    processing = false;
+
+    if (batch != null) {
+      batch.dispose();
+      batch = null;
+    }
+
+    pending.addAll(running);
+    running.clear();
+    retryBackingOff(null);
+  }
+
+  private synchronized boolean onBatchCompleted(BatchObserver observer) {
+    if (batch != observer) {
+      return false;
+    }
+
+    batch = null;
+    return true;
+  }
+
+  /** Rewrites the journal with all of the journaled operations. */
+  private void persist() {
+    final File temporary = new File(journal.getPath() + ".tmp");
+    DataOutputStream output = null;
+
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+      output.writeInt(JOURNAL_VERSION);
+      output.writeInt(journaled.size());
+
+      for (Operation operation : journaled) {
+        output.writeUTF(operation.type);
+        output.writeUTF(operation.payload);
+        output.writeInt(operation.priority);
+        output.writeInt(operation.condition.ordinal());
+        output.writeInt(operation.attempts);
+      }
+
+      output.close();
+      output = null;
+
+      if (!temporary.renameTo(journal)) {
+        throw new IOException("Could not replace " + journal);
+      }
+    } catch (IOException ioe) {
+      logger.log(Level.WARNING, "Could not write the journal: " + ioe.getMessage());
+    } finally {
+      close(output);
+    }
+  }
+
+  private void restore() {
+    if (!journal.exists()) {
+      return;
+    }
+
+    DataInputStream input = null;
+
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+
+      if (input.readInt() != JOURNAL_VERSION) {
+        throw new IOException("Unknown journal version");
+      }
+
+      final int count = input.readInt();
+
+      for (int i = 0; i < count; i++) {
+        final String type = input.readUTF();
+        final String payload = input.readUTF();
+        final int priority = input.readInt();
+        final Condition condition = Condition.values()[input.readInt()];
+        final int attempts = input.readInt();
+
+        final Operation operation = new Operation(factory.create(type, payload), type, payload,
+            priority, condition, sequence++, attempts);
+        pending.add(operation);
+        journaled.add(operation);
+      }
+    } catch (Exception exc) {
+      logger.log(Level.WARNING, "Could not restore the journal: " + exc.getMessage());
+      pending.clear();
+      journaled.clear();
+    } finally {
+      close(input);
+    }
+  }
+
+  private static void close(@Nullable Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException ioe) {
+        logger.log(Level.WARNING, "Could not close the journal: " + ioe.getMessage());
+      }
+    }
+  }
+
+  @VisibleForTesting
+  synchronized boolean isMet(Condition condition) {
+    return met[condition.ordinal()];
+  }
+
+  private final class ConditionWatcher implements Consumer<Boolean> {
+
+    private final Condition condition;
+
+    ConditionWatcher(Condition condition) {
+      this.condition = condition;
+    }
+
+    @Override
+    public void accept(Boolean isMet) throws Exception {
+      onConditionChanged(condition, isMet);
+
+      if (isMet) {
+        flush();
+      }
+    }
+  }
+
+  private final class BatchObserver extends DisposableCompletableObserver {
+
+    @Override
+    public void onComplete() {
+      // failed operations are backing off by now, so this flushes only the ones not tried yet
+      if (onBatchCompleted(this)) {
+        flush();
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      // Errors of the operations are handled one by one, so there's nothing to do here.
+      onBatchCompleted(this);
+    }
+  }
+
+  private static final class Operation {
+
+    final Completable operation;
+    @Nullable final String type;
+    @Nullable final String payload;
+    final int priority;
+    final Condition condition;
+    final long sequence;
+    final int attempts;
+
+    Operation(Completable operation, @Nullable String type, @Nullable String payload,
+        int priority, Condition condition, long sequence, int attempts) {
+
+      this.operation = operation;
+      this.type = type;
+      this.payload = payload;
+      this.priority = priority;
+      this.condition = condition;
+      this.sequence = sequence;
+      this.attempts = attempts;
+    }
+
+    Operation failed() {
+      return new Operation(operation, type, payload, priority, condition, sequence, attempts + 1);
+    }
+  }
+
+  /** Build a new {@link OperationQueue}. */
+  public static final class Builder {
+
+    private static final int DEFAULT_BATCH_SIZE = 4;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_RETRY_DELAY_MS = 1000;
+
+    private final Map<Condition, Observable<Boolean>> conditions = new EnumMap<>(Condition.class);
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private Scheduler scheduler = Schedulers.io();
+    private long retryDelay = DEFAULT_RETRY_DELAY_MS;
+    private Scheduler retryScheduler = Schedulers.computation();
+    private File journal;
+    private OperationFactory factory;
+
+    Builder() {
+    }
+
+    /**
+     * Set the signal telling whether given condition is met. Operations requiring conditions
+     * without a signal never run.
+     */
+    @NonNull
+    public Builder condition(@NonNull Condition condition, @NonNull Observable<Boolean> isMet) {
+      checkNotNull(condition, "condition");
+      conditions.put(condition, checkNotNull(isMet, "isMet"));
+      return this;
+    }
+
+    /** Set the maximum number of operations run concurrently in one batch. Defaults to 4. */
+    @NonNull
+    public Builder batchSize(int batchSize) {
+      if (batchSize <= 0) {
+        throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+      }
+
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /** Set the maximum number of attempts of each operation. Defaults to 3. */
+    @NonNull
+    public Builder maxAttempts(int maxAttempts) {
+      if (maxAttempts <= 0) {
+        throw new IllegalArgumentException("Invalid number of attempts: " + maxAttempts);
+      }
+
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /** Set the {@link Scheduler} operations are run on. Defaults to {@link Schedulers#io()}. */
+    @NonNull
+    public Builder scheduler(@NonNull Scheduler scheduler) {
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      return this;
+    }
+
+    /**
+     * Set the delay before the first retry of failed operation, doubled with each attempt up to
+     * 64 times. Operation is retried sooner if its condition is met again. Defaults to 1 s.
+     */
+    @NonNull
+    public Builder retryDelay(long retryDelay, @NonNull TimeUnit unit) {
+      checkNotNull(unit, "unit");
+
+      if (unit.toMillis(retryDelay) <= 0) {
+        throw new IllegalArgumentException("Invalid retry delay: " + retryDelay);
+      }
+
+      this.retryDelay = unit.toMillis(retryDelay);
+      return this;
+    }
+
+    /**
+     * Set the {@link Scheduler} retry delays are timed on.
+     * Defaults to {@link Schedulers#computation()}.
+     */
+    @NonNull
+    public Builder retryScheduler(@NonNull Scheduler retryScheduler) {
+      this.retryScheduler = checkNotNull(retryScheduler, "retryScheduler");
+      return this;
+    }
+
+    /**
+     * Set the journal file for operations enqueued by type and payload, and the factory to
+     * recreate them with.
+     */
+    @NonNull
+    public Builder journal(@NonNull File journal, @NonNull OperationFactory factory) {
+      this.journal = checkNotNull(journal, "journal");
+      this.factory = checkNotNull(factory, "factory");
+      return this;
+    }
+
+    /**
+     * Create an instance of {@link OperationQueue} using configured values, restoring journaled
+     * operations if there are any.
+     */
+    @NonNull
+    public OperationQueue build() {
+      return new OperationQueue(this);
+    }
+  }
+}
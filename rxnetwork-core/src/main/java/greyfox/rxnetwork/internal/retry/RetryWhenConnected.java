@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.retry;
+
+import android.support.annotation.NonNull;
+import io.reactivex.Completable;
+import io.reactivex.CompletableSource;
+import io.reactivex.CompletableTransformer;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleSource;
+import io.reactivex.SingleTransformer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.reactivestreams.Publisher;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static io.reactivex.BackpressureStrategy.LATEST;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Retries failed upstream once connectivity is back, instead of right away or after fixed
+ * backoff.
+ * <p>
+ * When upstream fails with retryable error (by default any {@link IOException}) it is not
+ * resubscribed until connectivity comes back: given signal goes from {@code false} to
+ * {@code true}. Requests usually fail before the signal notices the outage, so {@code true}
+ * it holds at the time says little; upstream is then resubscribed only if the signal stays
+ * {@code true} for {@code retryDelay}, doubled with each attempt. After {@code maxAttempts}
+ * retries, or on error that is not retryable, the error is passed downstream.
+ * <p>
+ * Example usage:
+ * <pre><code>
+ * api.fetchInbox()
+ *    .compose(RetryWhenConnected.&lt;Inbox&gt;builder(rxNetwork.observeInternetAccess())
+ *                               .maxAttempts(5)
+ *                               .build())
+ *    .subscribe(...);
+ * </code></pre>
+ * Works with {@link Observable}, {@link Flowable}, {@link Single} and {@link Completable}.
+ *
+ * @param <T> type of the upstream values
+ *
+ * @author Radek Kozak
+ */
+public final class RetryWhenConnected<T>
+    implements ObservableTransformer<T, T>, FlowableTransformer<T, T>, SingleTransformer<T, T>,
+    CompletableTransformer {
+
+  private static final Predicate<Boolean> IS_TRUE = new Predicate<Boolean>() {
+    @Override
+    public boolean test(Boolean value) throws Exception {
+      return value;
+    }
+  };
+
+  /** Retry delay stops doubling after this many attempts. */
+  private static final int MAX_BACKOFF_SHIFT = 6;
+
+  private final Observable<Boolean> connectivity;
+  private final int maxAttempts;
+  private final Predicate<? super Throwable> retryIf;
+  private final long retryDelay;
+  private final Scheduler scheduler;
+
+  RetryWhenConnected(@NonNull Builder<T> builder) {
+    checkNotNull(builder, "builder");
+
+    connectivity = builder.connectivity;
+    maxAttempts = builder.maxAttempts;
+    retryIf = builder.retryIf;
+    retryDelay = builder.retryDelay;
+    scheduler = builder.scheduler;
+  }
+
+  /**
+   * Create retrying transformer with default settings.
+   *
+   * @param connectivity connectivity signal, {@code true} meaning it's worth retrying
+   */
+  @NonNull
+  public static <T> RetryWhenConnected<T> create(@NonNull Observable<Boolean> connectivity) {
+    return RetryWhenConnected.<T>builder(connectivity).build();
+  }
+
+  /**
+   * Builder of retrying transformer.
+   *
+   * @param connectivity connectivity signal, {@code true} meaning it's worth retrying
+   */
+  @NonNull
+  public static <T> Builder<T> builder(@NonNull Observable<Boolean> connectivity) {
+    return new Builder<>(connectivity);
+  }
+
+  @Override
+  public ObservableSource<T> apply(Observable<T> upstream) {
+    return upstream.retryWhen(new Function<Observable<Throwable>, ObservableSource<?>>() {
+      @Override
+      public ObservableSource<?> apply(Observable<Throwable> errors) throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        return errors.concatMap(new Function<Throwable, ObservableSource<Boolean>>() {
+          @Override
+          public ObservableSource<Boolean> apply(Throwable error) throws Exception {
+            return whenConnected(error, attempts);
+          }
+        });
+      }
+    });
+  }
+
+  @Override
+  public Publisher<T> apply(Flowable<T> upstream) {
+    return upstream.retryWhen(flowableHandler());
+  }
+
+  @Override
+  public SingleSource<T> apply(Single<T> upstream) {
+    return upstream.retryWhen(flowableHandler());
+  }
+
+  @Override
+  public CompletableSource apply(Completable upstream) {
+    return upstream.retryWhen(flowableHandler());
+  }
+
+  private Function<Flowable<Throwable>, Publisher<Boolean>> flowableHandler() {
+    return new Function<Flowable<Throwable>, Publisher<Boolean>>() {
+      @Override
+      public Publisher<Boolean> apply(Flowable<Throwable> errors) throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        return errors.concatMap(new Function<Throwable, Publisher<Boolean>>() {
+          @Override
+          public Publisher<Boolean> apply(Throwable error) throws Exception {
+            return whenConnected(error, attempts).toFlowable(LATEST);
+          }
+        });
+      }
+    };
+  }
+
+  /** Signals when to retry or fails with given error if it should not be retried. */
+  private Observable<Boolean> whenConnected(Throwable error, AtomicInteger attempts)
+      throws Exception {
+
+    final int attempt = attempts.incrementAndGet();
+
+    if (attempt > maxAttempts || !retryIf.test(error)) {
+      return Observable.error(error);
+    }
+
+    final long delay = retryDelay << Math.min(attempt - 1, MAX_BACKOFF_SHIFT);
+
+    return connectivity.publish(new Function<Observable<Boolean>, ObservableSource<Boolean>>() {
+      @Override
+      public ObservableSource<Boolean> apply(Observable<Boolean> signal) throws Exception {
+        // fresh reconnection retries right away, value held since before the failure has to last
+        return Observable.merge(signal.skipWhile(IS_TRUE).filter(IS_TRUE),
+            signal.switchMap(new Function<Boolean, ObservableSource<Boolean>>() {
+              @Override
+              public ObservableSource<Boolean> apply(Boolean isConnected) throws Exception {
+                return isConnected ? Observable.just(true).delay(delay, MILLISECONDS, scheduler)
+                                   : Observable.<Boolean>never();
+              }
+            }));
+      }
+    }).take(1);
+  }
+
+  /** Build a new {@link RetryWhenConnected}. */
+  public static final class Builder<T> {
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_RETRY_DELAY_MS = 1000;
+
+    private static final Predicate<Throwable> IS_IO_EXCEPTION = new Predicate<Throwable>() {
+      @Override
+      public boolean test(Throwable throwable) throws Exception {
+        return throwable instanceof IOException;
+      }
+    };
+
+    private final Observable<Boolean> connectivity;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private Predicate<? super Throwable> retryIf = IS_IO_EXCEPTION;
+    private long retryDelay = DEFAULT_RETRY_DELAY_MS;
+    private Scheduler scheduler = Schedulers.computation();
+
+    Builder(@NonNull Observable<Boolean> connectivity) {
+      this.connectivity = checkNotNull(connectivity, "connectivity");
+    }
+
+    /** Set the maximum number of retries. Defaults to 3. */
+    @NonNull
+    public Builder<T> maxAttempts(int maxAttempts) {
+      if (maxAttempts < 0) {
+        throw new IllegalArgumentException("Invalid number of attempts: " + maxAttempts);
+      }
+
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /** Set which errors are worth retrying. Defaults to any {@link IOException}. */
+    @NonNull
+    public Builder<T> retryIf(@NonNull Predicate<? super Throwable> retryIf) {
+      this.retryIf = checkNotNull(retryIf, "retryIf");
+      return this;
+    }
+
+    /**
+     * Set how long connectivity that was there already when upstream failed has to last for
+     * upstream to be retried anyway, doubled with each attempt up to 64 times. Defaults to 1 s.
+     */
+    @NonNull
+    public Builder<T> retryDelay(long retryDelay, @NonNull TimeUnit unit) {
+      checkNotNull(unit, "unit");
+
+      if (retryDelay < 0) {
+        throw new IllegalArgumentException("Invalid retry delay: " + retryDelay);
+      }
+
+      this.retryDelay = unit.toMillis(retryDelay);
+      return this;
+    }
+
+    /** Set the {@link Scheduler} retry delays are timed on. Defaults to computation one. */
+    @NonNull
+    public Builder<T> scheduler(@NonNull Scheduler scheduler) {
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      return this;
+    }
+
+    /** Create an immutable instance of {@link RetryWhenConnected} using configured values. */
+    @NonNull
+    public RetryWhenConnected<T> build() {
+      return new RetryWhenConnected<>(this);
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.scheduler;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link Scheduler} running actions only while connectivity condition is met.
+ * <p>
+ * Actions scheduled while the condition is not met are deferred, in order, and dispatched to
+ * the underlying scheduler once the condition is met. Actions dispatched already run to the end
+ * even if the condition stops being met in the meantime. Delayed and periodic actions are
+ * gated whenever they are due.
+ * <p>
+ * Example usage:
+ * <pre><code>
+ * Scheduler onWifi = ConnectivityScheduler.create(isOnWifi, Schedulers.io());
+ *
+ * prefetchArticles().subscribeOn(onWifi).subscribe();
+ * </code></pre>
+ * The condition is subscribed to when the first action is scheduled and for as long as the
+ * scheduler is not {@linkplain #shutdown() shut down}.
+ *
+ * @author Radek Kozak
+ */
+public final class ConnectivityScheduler extends Scheduler {
+
+  private final Observable<Boolean> condition;
+  private final Scheduler actual;
+  private final Set<GatedWorker> workers =
+      Collections.newSetFromMap(new ConcurrentHashMap<GatedWorker, Boolean>());
+
+  private volatile boolean met;
+  @Nullable private Disposable subscription;
+
+  ConnectivityScheduler(@NonNull Observable<Boolean> condition, @NonNull Scheduler actual) {
+    this.condition = checkNotNull(condition, "condition");
+    this.actual = checkNotNull(actual, "actual");
+  }
+
+  /**
+   * Create scheduler gated by given condition.
+   *
+   * @param condition connectivity signal, {@code true} meaning actions can run
+   * @param actual    scheduler actions are dispatched to
+   */
+  @NonNull
+  public static ConnectivityScheduler create(@NonNull Observable<Boolean> condition,
+      @NonNull Scheduler actual) {
+
+    return new ConnectivityScheduler(condition, actual);
+  }
+
+  @NonNull
+  @Override
+  public Worker createWorker() {
+    start();
+    return new GatedWorker(actual.createWorker());
+  }
+
+  @Override
+  public synchronized void start() {
+    if (subscription == null) {
+      subscription = condition.subscribe(new Consumer<Boolean>() {
+        @Override
+        public void accept(Boolean isMet) throws Exception {
+          onConditionChanged(isMet);
+        }
+      });
+    }
+  }
+
+  @Override
+  public synchronized void shutdown() {
+    if (subscription != null) {
+      subscription.dispose();
+      subscription = null;
+    }
+
+    met = false;
+  }
+
+  @VisibleForTesting
+  boolean isMet() {
+    return met;
+  }
+
+  private void onConditionChanged(boolean isMet) {
+    met = isMet;
+
+    if (isMet) {
+      for (GatedWorker worker : workers) {
+        worker.drain();
+      }
+    }
+  }
+
+  private final class GatedWorker extends Worker {
+
+    private final Worker worker;
+    private final Queue<GatedAction> deferred = new ArrayDeque<>();
+    private volatile boolean disposed;
+
+    GatedWorker(Worker worker) {
+      this.worker = worker;
+      workers.add(this);
+    }
+
+    @NonNull
+    @Override
+    public Disposable schedule(@NonNull Runnable run, long delay, @NonNull TimeUnit unit) {
+      final GatedAction action = new GatedAction(checkNotNull(run, "run"));
+
+      if (delay > 0) {
+        action.delayed = worker.schedule(new Runnable() {
+          @Override
+          public void run() {
+            gate(action);
+          }
+        }, delay, unit);
+      } else {
+        gate(action);
+      }
+
+      return action;
+    }
+
+    private synchronized void gate(GatedAction action) {
+      if (disposed || action.isDisposed()) {
+        return;
+      }
+
+      if (met && deferred.isEmpty()) {
+        action.dispatched = worker.schedule(action);
+      } else {
+        deferred.offer(action);
+
+        if (met) {
+          drain();
+        }
+      }
+    }
+
+    synchronized void drain() {
+      while (met && !disposed && !deferred.isEmpty()) {
+        final GatedAction action = deferred.poll();
+
+        if (!action.isDisposed()) {
+          action.dispatched = worker.schedule(action);
+        }
+      }
+    }
+
+    @Override
+    public void dispose() {
+      if (!disposed) {
+        disposed = true;
+        workers.remove(this);
+        worker.dispose();
+
+        synchronized (this) {
+          deferred.clear();
+        }
+      }
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return disposed;
+    }
+  }
+
+  private static final class GatedAction implements Runnable, Disposable {
+
+    private final Runnable run;
+    private volatile boolean disposed;
+    @Nullable volatile Disposable delayed;
+    @Nullable volatile Disposable dispatched;
+
+    GatedAction(Runnable run) {
+      this.run = run;
+    }
+
+    @Override
+    public void run() {
+      if (!disposed) {
+        run.run();
+      }
+    }
+
+    @Override
+    public void dispose() {
+      disposed = true;
+      cancel(delayed);
+      cancel(dispatched);
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return disposed;
+    }
+
+    private static void cancel(@Nullable Disposable disposable) {
+      if (disposable != null) {
+        disposable.dispose();
+      }
+    }
+  }
+}
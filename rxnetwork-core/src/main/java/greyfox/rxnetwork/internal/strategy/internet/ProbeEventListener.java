@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.net.InetAddress;
+
+/**
+ * Listener of probe events, e.g. for metrics or tracing.
+ * <p>
+ * Register it on strategy builders, to follow their probes, and on {@code RxNetwork.Builder}, to
+ * follow network callbacks and emissions (and probes of the default internet observing
+ * strategy). Events are reported on threads the probes run on, in order:
+ * <ol>
+ * <li>{@linkplain #probeStart probe start},</li>
+ * <li>{@linkplain #dnsResolved DNS resolved}, if the strategy resolves endpoint itself,</li>
+ * <li>{@linkplain #connected connected}, for connection-based strategies,</li>
+ * <li>{@linkplain #firstByte first byte} of the response,</li>
+ * <li>{@linkplain #probeEnd probe end},</li>
+ * </ol>
+ * with {@linkplain #probeFailed failures} in between. Probes of one strategy never overlap, so
+ * events of a strategy belong to a single probe until its end. Events carry no timestamps:
+ * listeners take their own, e.g. with {@linkplain System#nanoTime()}, so that strategies don't
+ * allocate anything for listeners, nor ask for the time, when there's none registered.
+ * <p>
+ * All of the methods do nothing by default: override the ones you're interested in. They should
+ * return quickly, since probes wait for them.
+ *
+ * @author Radek Kozak
+ */
+public abstract class ProbeEventListener {
+
+  /** Listener ignoring all of the events, the default one. */
+  public static final ProbeEventListener NONE = new ProbeEventListener() {
+  };
+
+  /**
+   * Probe started.
+   *
+   * @param strategy strategy probing
+   * @param endpoint endpoint probed or {@code null} if strategy has none
+   */
+  public void probeStart(@NonNull InternetObservingStrategy strategy, @Nullable String endpoint) {
+  }
+
+  /**
+   * Endpoint hostname resolved.
+   *
+   * @param address address resolved or {@code null} if it could not be resolved
+   */
+  public void dnsResolved(@NonNull InternetObservingStrategy strategy, @NonNull String endpoint,
+      @Nullable InetAddress address) {
+  }
+
+  /** Connection to the endpoint established. */
+  public void connected(@NonNull InternetObservingStrategy strategy, @NonNull String endpoint) {
+  }
+
+  /** First byte of the response received, e.g. HTTP status line, DNS response or pong. */
+  public void firstByte(@NonNull InternetObservingStrategy strategy, @NonNull String endpoint) {
+  }
+
+  /**
+   * Probe ended.
+   *
+   * @param isConnected outcome of the probe
+   */
+  public void probeEnd(@NonNull InternetObservingStrategy strategy, @Nullable String endpoint,
+      boolean isConnected) {
+  }
+
+  /** Error occurred while probing, including the ones probe recovers from. */
+  public void probeFailed(@NonNull InternetObservingStrategy strategy, @Nullable String endpoint,
+      @NonNull Exception exception) {
+  }
+
+  /**
+   * Network observing strategy reported network change. Called on the thread of the network
+   * callback, as it emits, before the change is shared with subscribers.
+   *
+   * @param networkInfo network information, {@code RxNetworkInfo} on Android
+   */
+  public void networkCallbackReceived(@NonNull Object networkInfo) {
+  }
+
+  /**
+   * Value of shared observable delivered to one of its subscribers. Called once per subscriber,
+   * on the thread it's delivered on: after {@code observeOn} of the variants delivering on given
+   * scheduler. The latest value, replayed to subscribers as they subscribe, is not reported again.
+   *
+   * @param value value emitted: network information or internet access state
+   */
+  public void emissionDelivered(@NonNull Object value) {
+  }
+}
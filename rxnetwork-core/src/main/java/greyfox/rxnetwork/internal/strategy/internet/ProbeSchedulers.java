@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Scheduler Schedulers} for running blocking internet probes.
+ * <p>
+ * Pass {@linkplain #virtualThreads()} to strategy builder's {@code scheduler(Scheduler)} to run
+ * every {@code checkConnection()} on its own virtual thread. This lets thousands of strategies
+ * probe concurrently without holding a platform thread each, while the probing code itself stays
+ * plain blocking I/O.
+ * <p>
+ * Virtual threads are looked up reflectively, so this class works on any JVM (and on Android).
+ * Where they are not available (before JDK 21) the scheduler falls back to cached pool of
+ * platform daemon threads.
+ *
+ * @author Radek Kozak
+ */
+public final class ProbeSchedulers {
+
+  @VisibleForTesting
+  static final String VIRTUAL_THREAD_FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+  @VisibleForTesting
+  ProbeSchedulers() {
+    throw new AssertionError("No instances.");
+  }
+
+  /**
+   * Shared scheduler dispatching each task onto a new virtual thread, or onto platform threads
+   * if virtual threads are not available.
+   */
+  @NonNull
+  public static Scheduler virtualThreads() {
+    return Holder.VIRTUAL_THREADS;
+  }
+
+  /** Checks if {@linkplain #virtualThreads()} is actually backed by virtual threads. */
+  public static boolean isVirtualThreadsAvailable() {
+    return Holder.VIRTUAL;
+  }
+
+  @Nullable
+  @VisibleForTesting
+  static ExecutorService virtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod(VIRTUAL_THREAD_FACTORY_METHOD)
+          .invoke(null);
+    } catch (Exception exc) {
+      return null;
+    }
+  }
+
+  @NonNull
+  @VisibleForTesting
+  static ExecutorService platformThreadExecutor() {
+    return Executors.newCachedThreadPool(new ProbeThreadFactory());
+  }
+
+  private static final class Holder {
+
+    static final boolean VIRTUAL;
+    static final Scheduler VIRTUAL_THREADS;
+
+    static {
+      ExecutorService executor = virtualThreadExecutor();
+      VIRTUAL = executor != null;
+
+      if (executor == null) {
+        executor = platformThreadExecutor();
+      }
+
+      VIRTUAL_THREADS = Schedulers.from(executor);
+    }
+  }
+
+  private static final class ProbeThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(@NonNull Runnable runnable) {
+      final Thread thread = new Thread(runnable, "RxNetwork-Probe-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import greyfox.rxnetwork.internal.strategy.internet.error.InternetObservingStrategyException;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * Internet observing strategy that can also {@linkplain #measureBandwidth() measure bandwidth}
+ * on demand.
+ * <p>
+ * Measurement downloads payload from the endpoint (or uploads one to the upload endpoint),
+ * streaming it through single reusable direct buffer, so that nothing of it is retained.
+ * Transfer stops once {@code maxBytes} are transferred or {@code maxDuration} passes, whichever
+ * comes first: a watchdog then cuts off the connection, wherever the transfer is stuck.
+ * Measurements of one strategy do not overlap: concurrent ones wait for each other.
+ * <p>
+ * When observed, like any other strategy, it only checks that the endpoint responds with
+ * {@code 2xx} to {@code HEAD} request, so that no payload is sent.
+ * <p>
+ * Example usage, sizing sync batches after joining Wi-Fi:
+ * <pre><code>
+ * BandwidthInternetObservingStrategy strategy = BandwidthInternetObservingStrategy.builder()
+ *     .maxBytes(2 * 1024 * 1024)
+ *     .maxDuration(5000)
+ *     .build();
+ *
+ * strategy.measureBandwidth().subscribe(measurement -&gt; sync.setBatchSize(...));
+ * </code></pre>
+ *
+ * @author Radek Kozak
+ */
+public final class BandwidthInternetObservingStrategy extends EndpointInternetObservingStrategy {
+
+  private final String uploadEndpoint;
+  private final long maxBytes;
+  private final long maxDuration;
+  private final long stallThreshold;
+  private final Scheduler watchdogScheduler;
+  private final ByteBuffer buffer;
+  /** Guards the buffer for a whole measurement without pinning virtual threads. */
+  private final Lock bufferLock = new ReentrantLock();
+
+  BandwidthInternetObservingStrategy(@NonNull Builder builder) {
+    super(builder);
+
+    uploadEndpoint = builder.uploadEndpoint;
+    maxBytes = builder.maxBytes;
+    maxDuration = builder.maxDuration;
+    stallThreshold = builder.stallThreshold;
+    watchdogScheduler = builder.watchdogScheduler;
+    buffer = ByteBuffer.allocateDirect(builder.bufferSize);
+  }
+
+  @NonNull
+  public static BandwidthInternetObservingStrategy create() {
+    return builder().build();
+  }
+
+  @NonNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Measures download bandwidth.
+   *
+   * @return RxJava Single with {@link BandwidthMeasurement}, failing if the endpoint can't be
+   * reached, responds with other status than {@code 2xx} or sends no data at all
+   */
+  @NonNull
+  public Single<BandwidthMeasurement> measureBandwidth() {
+    return Single.fromCallable(new Callable<BandwidthMeasurement>() {
+      @Override
+      public BandwidthMeasurement call() throws Exception {
+        return download();
+      }
+    }).subscribeOn(scheduler());
+  }
+
+  /**
+   * Measures upload bandwidth by posting {@code maxBytes} of zeros to the upload endpoint.
+   *
+   * @return RxJava Single with {@link BandwidthMeasurement}, failing if the upload endpoint
+   * can't be reached or responds with other status than {@code 2xx}
+   */
+  @NonNull
+  public Single<BandwidthMeasurement> measureUploadBandwidth() {
+    return Single.fromCallable(new Callable<BandwidthMeasurement>() {
+      @Override
+      public BandwidthMeasurement call() throws Exception {
+        return upload();
+      }
+    }).subscribeOn(scheduler());
+  }
+
+  @Override
+  boolean checkConnection() {
+    HttpURLConnection urlConnection = null;
+
+    try {
+      urlConnection = open(endpoint());
+      urlConnection.setRequestMethod("HEAD");
+      return isSuccessful(urlConnection.getResponseCode());
+    } catch (IOException ioe) {
+      onError("Problem occurred while checking endpoint",
+          new InternetObservingStrategyException("Unable to check internet access", ioe));
+      return false;
+    } finally {
+      if (urlConnection != null) {
+        urlConnection.disconnect();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  BandwidthMeasurement download() throws IOException {
+    bufferLock.lock();
+    try {
+      final long deadline = System.nanoTime() + MILLISECONDS.toNanos(maxDuration);
+      final BandwidthMeasurement.Recorder recorder = recorder();
+      final HttpURLConnection urlConnection = open(endpoint());
+      final Disposable watchdog = watchdog(urlConnection);
+      boolean capped = true;
+
+      try {
+        urlConnection.connect();
+        urlConnection.setReadTimeout(readTimeout(deadline));
+        checkResponseCode(urlConnection);
+        final ReadableByteChannel channel = Channels.newChannel(urlConnection.getInputStream());
+
+        while (recorder.bytes() < maxBytes && System.nanoTime() - deadline < 0) {
+          buffer.clear();
+          buffer.limit((int) Math.min(buffer.capacity(), maxBytes - recorder.bytes()));
+          final int read = channel.read(buffer);
+
+          if (read < 0) {
+            capped = false;
+            break;
+          }
+
+          recorder.onBytes(read, System.nanoTime());
+        }
+      } catch (IOException ioe) {
+        // hitting the time cap while waiting for data still leaves a valid measurement
+        if (recorder.bytes() == 0 || !(ioe instanceof SocketTimeoutException || isPast(deadline))) {
+          throw ioe;
+        }
+      } finally {
+        watchdog.dispose();
+        urlConnection.disconnect();
+      }
+
+      if (recorder.bytes() == 0) {
+        throw new IOException("No data received from " + endpoint());
+      }
+
+      return recorder.finish(capped);
+    } finally {
+      bufferLock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  BandwidthMeasurement upload() throws IOException {
+    bufferLock.lock();
+    try {
+      final long deadline = System.nanoTime() + MILLISECONDS.toNanos(maxDuration);
+      final BandwidthMeasurement.Recorder recorder = recorder();
+      final int length = (int) Math.min(maxBytes, Integer.MAX_VALUE);
+      final HttpURLConnection urlConnection = open(uploadEndpoint);
+      final Disposable watchdog = watchdog(urlConnection);
+      boolean capped = false;
+
+      try {
+        urlConnection.setDoOutput(true);
+        urlConnection.setRequestMethod("POST");
+        urlConnection.setFixedLengthStreamingMode(length);
+        final WritableByteChannel channel = Channels.newChannel(urlConnection.getOutputStream());
+
+        zero(buffer);
+
+        while (recorder.bytes() < length) {
+          if (isPast(deadline)) {
+            capped = true;
+            break;
+          }
+
+          buffer.clear();
+          buffer.limit((int) Math.min(buffer.capacity(), length - recorder.bytes()));
+          recorder.onBytes(channel.write(buffer), System.nanoTime());
+        }
+
+        if (!capped) {
+          channel.close();
+          urlConnection.setReadTimeout(readTimeout(deadline));
+          checkResponseCode(urlConnection);
+        }
+      } catch (IOException ioe) {
+        // watchdog cutting the connection on time cap, the bytes written so far still count
+        if (recorder.bytes() == 0 || !isPast(deadline)) {
+          throw ioe;
+        }
+
+        capped = true;
+      } finally {
+        watchdog.dispose();
+        urlConnection.disconnect();
+      }
+
+      return recorder.finish(capped);
+    } finally {
+      bufferLock.unlock();
+    }
+  }
+
+  private BandwidthMeasurement.Recorder recorder() {
+    return new BandwidthMeasurement.Recorder(MILLISECONDS.toNanos(stallThreshold),
+        MILLISECONDS.toNanos(maxDuration));
+  }
+
+  @VisibleForTesting
+  HttpURLConnection open(@NonNull String endpoint) throws IOException {
+    final HttpURLConnection urlConnection = (HttpURLConnection) new URL(endpoint).openConnection();
+    final int timeout = (int) Math.min(timeout(), maxDuration);
+
+    urlConnection.setInstanceFollowRedirects(false);
+    urlConnection.setConnectTimeout(timeout);
+    urlConnection.setReadTimeout(timeout);
+    urlConnection.setUseCaches(false);
+    // compressed payload would make throughput look better than it is
+    urlConnection.setRequestProperty("Accept-Encoding", "identity");
+    return urlConnection;
+  }
+
+  /**
+   * Disconnects given connection once the measurement runs out of time. That fails blocking
+   * writes, which have no timeout, and on Android the reads too: read timeout changes don't reach
+   * the response stream once it's open.
+   */
+  private Disposable watchdog(final HttpURLConnection urlConnection) {
+    return watchdogScheduler.scheduleDirect(new Runnable() {
+      @Override
+      public void run() {
+        urlConnection.disconnect();
+      }
+    }, maxDuration, MILLISECONDS);
+  }
+
+  /** Read timeout in milliseconds bounded by the time left, never {@code 0} (no timeout). */
+  private int readTimeout(long deadline) {
+    final long left = NANOSECONDS.toMillis(deadline - System.nanoTime());
+    return (int) Math.max(1, Math.min(timeout(), left));
+  }
+
+  private static boolean isPast(long deadline) {
+    return System.nanoTime() - deadline >= 0;
+  }
+
+  private static void checkResponseCode(HttpURLConnection urlConnection) throws IOException {
+    final int responseCode = urlConnection.getResponseCode();
+
+    if (!isSuccessful(responseCode)) {
+      throw new IOException("Unexpected response code: " + responseCode);
+    }
+  }
+
+  private static boolean isSuccessful(int responseCode) {
+    return responseCode >= 200 && responseCode < 300;
+  }
+
+  private static void zero(ByteBuffer buffer) {
+    buffer.clear();
+
+    while (buffer.hasRemaining()) {
+      buffer.put((byte) 0);
+    }
+  }
+
+  @Override
+  Logger logger() {
+    return getLogger(BandwidthInternetObservingStrategy.class.getSimpleName());
+  }
+
+  // @formatter:off
+
+  /**
+   * {@code BandwidthInternetObservingStrategy} builder static inner class.
+   */
+  public static final class Builder extends
+      EndpointInternetObservingStrategy.Builder<BandwidthInternetObservingStrategy,
+          BandwidthInternetObservingStrategy.Builder> {
+
+    // @formatter:on
+
+    private static final String DEFAULT_ENDPOINT =
+        "https://speed.cloudflare.com/__down?bytes=10000000";
+    private static final String DEFAULT_UPLOAD_ENDPOINT = "https://speed.cloudflare.com/__up";
+    private static final int DEFAULT_TIMEOUT_MS = 3000;
+    private static final long DEFAULT_MAX_BYTES = 5 * 1024 * 1024;
+    private static final long DEFAULT_MAX_DURATION_MS = 10000;
+    private static final long DEFAULT_STALL_THRESHOLD_MS = 500;
+    private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    private static final int MIN_BUFFER_SIZE = 1024;
+
+    private String uploadEndpoint = DEFAULT_UPLOAD_ENDPOINT;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long maxDuration = DEFAULT_MAX_DURATION_MS;
+    private long stallThreshold = DEFAULT_STALL_THRESHOLD_MS;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private Scheduler watchdogScheduler = Schedulers.computation();
+
+    Builder() {
+      super();
+      endpoint(DEFAULT_ENDPOINT);
+      timeout(DEFAULT_TIMEOUT_MS);
+    }
+
+    /** Set the endpoint upload bandwidth is measured against. */
+    @NonNull
+    public Builder uploadEndpoint(@NonNull String uploadEndpoint) {
+      this.uploadEndpoint = checkNotNull(uploadEndpoint, "uploadEndpoint");
+      return this;
+    }
+
+    /** Set the maximum number of bytes transferred by single measurement. Defaults to 5 MiB. */
+    @NonNull
+    public Builder maxBytes(long maxBytes) {
+      if (maxBytes <= 0) {
+        throw new IllegalArgumentException("Invalid max bytes: " + maxBytes);
+      }
+
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /** Set the maximum duration of single measurement in milliseconds. Defaults to 10 s. */
+    @NonNull
+    public Builder maxDuration(long maxDuration) {
+      if (maxDuration <= 0) {
+        throw new IllegalArgumentException("Invalid max duration: " + maxDuration);
+      }
+
+      this.maxDuration = maxDuration;
+      return this;
+    }
+
+    /** Set the gap in milliseconds between chunks of data that counts as a stall. */
+    @NonNull
+    public Builder stallThreshold(long stallThreshold) {
+      if (stallThreshold <= 0) {
+        throw new IllegalArgumentException("Invalid stall threshold: " + stallThreshold);
+      }
+
+      this.stallThreshold = stallThreshold;
+      return this;
+    }
+
+    /** Set the size of the transfer buffer in bytes. Defaults to 16 KiB. */
+    @NonNull
+    public Builder bufferSize(int bufferSize) {
+      if (bufferSize < MIN_BUFFER_SIZE) {
+        throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+      }
+
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * Set the {@link Scheduler} cutting off measurements that run out of time.
+     * Defaults to {@link Schedulers#computation()}.
+     */
+    @NonNull
+    public Builder watchdogScheduler(@NonNull Scheduler watchdogScheduler) {
+      this.watchdogScheduler = checkNotNull(watchdogScheduler, "watchdogScheduler");
+      return this;
+    }
+
+    /**
+     * Create an immutable instance of {@link BandwidthInternetObservingStrategy} using
+     * configured values.
+     */
+    @NonNull
+    @Override
+    public BandwidthInternetObservingStrategy build() {
+      return new BandwidthInternetObservingStrategy(this);
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Outcome of bandwidth measurement of {@link BandwidthInternetObservingStrategy}.
+ * <p>
+ * Throughput leaves out the ramp-up, i.e. the time from the first byte until transfer rate
+ * first gets close to its peak, which is mostly TCP slow start. Stalls are the gaps between
+ * consecutive chunks of data longer than configured stall threshold.
+ *
+ * @author Radek Kozak
+ */
+public final class BandwidthMeasurement {
+
+  private final long bytes;
+  private final long duration;
+  private final long rampUp;
+  private final long throughput;
+  private final int stalls;
+  private final long stallTime;
+  private final boolean capped;
+
+  BandwidthMeasurement(long bytes, long duration, long rampUp, long throughput, int stalls,
+      long stallTime, boolean capped) {
+
+    this.bytes = bytes;
+    this.duration = duration;
+    this.rampUp = rampUp;
+    this.throughput = throughput;
+    this.stalls = stalls;
+    this.stallTime = stallTime;
+    this.capped = capped;
+  }
+
+  /** Number of bytes transferred. */
+  public long bytes() {
+    return bytes;
+  }
+
+  /** Time from the first to the last byte. */
+  public long duration(@NonNull TimeUnit unit) {
+    return checkNotNull(unit, "unit").convert(duration, NANOSECONDS);
+  }
+
+  /** Time from the first byte until transfer rate got close to its peak. */
+  public long rampUp(@NonNull TimeUnit unit) {
+    return checkNotNull(unit, "unit").convert(rampUp, NANOSECONDS);
+  }
+
+  /** Bytes per second after the ramp-up, or {@code 0} if there was too little data to tell. */
+  public long throughput() {
+    return throughput;
+  }
+
+  /** Number of stalls. */
+  public int stalls() {
+    return stalls;
+  }
+
+  /** Time spent in stalls. */
+  public long stallTime(@NonNull TimeUnit unit) {
+    return checkNotNull(unit, "unit").convert(stallTime, NANOSECONDS);
+  }
+
+  /** Checks if the transfer was cut short by byte or time cap. */
+  public boolean isCapped() {
+    return capped;
+  }
+
+  @Override
+  public String toString() {
+    return "BandwidthMeasurement{"
+        + "bytes=" + bytes + ", "
+        + "duration=" + duration + ", "
+        + "rampUp=" + rampUp + ", "
+        + "throughput=" + throughput + ", "
+        + "stalls=" + stalls + ", "
+        + "stallTime=" + stallTime + ", "
+        + "capped=" + capped
+        + "}";
+  }
+
+  /** Records progress of single transfer. Confined to the transferring thread. */
+  static final class Recorder {
+
+    /** Width of the windows transfer rate is tracked in. */
+    private static final long WINDOW_NS = MILLISECONDS.toNanos(100);
+    /** Fraction of the peak rate that ends ramp-up. */
+    private static final double RAMPED_UP = 0.75;
+
+    private final long stallThreshold;
+    private final long[] windows;
+    private long firstByteAt;
+    private long lastByteAt;
+    private long bytes;
+    private int stalls;
+    private long stallTime;
+
+    /**
+     * @param stallThreshold gap between chunks in nanoseconds that counts as a stall
+     * @param maxDuration    longest possible transfer in nanoseconds
+     */
+    Recorder(long stallThreshold, long maxDuration) {
+      this.stallThreshold = stallThreshold;
+      this.windows = new long[(int) (maxDuration / WINDOW_NS) + 1];
+    }
+
+    long bytes() {
+      return bytes;
+    }
+
+    void onBytes(int count, long now) {
+      if (count <= 0) {
+        return;
+      }
+
+      if (bytes == 0) {
+        firstByteAt = now;
+      } else if (now - lastByteAt > stallThreshold) {
+        stalls++;
+        stallTime += now - lastByteAt;
+      }
+
+      final int window = (int) Math.min(windows.length - 1, (now - firstByteAt) / WINDOW_NS);
+      windows[window] += count;
+      bytes += count;
+      lastByteAt = now;
+    }
+
+    @NonNull
+    BandwidthMeasurement finish(boolean capped) {
+      final long duration = bytes > 0 ? lastByteAt - firstByteAt : 0;
+      // the last window is usually partial, so it's left out unless it's the only one
+      final int complete = (int) Math.max(1, Math.min(windows.length, duration / WINDOW_NS));
+      long peak = 0;
+
+      for (int i = 0; i < complete; i++) {
+        peak = Math.max(peak, windows[i]);
+      }
+
+      int rampUpWindows = 0;
+
+      while (rampUpWindows < complete && windows[rampUpWindows] < peak * RAMPED_UP) {
+        rampUpWindows++;
+      }
+
+      final long rampUp = Math.min(duration, rampUpWindows * WINDOW_NS);
+      long rampUpBytes = 0;
+
+      for (int i = 0; i < rampUpWindows; i++) {
+        rampUpBytes += windows[i];
+      }
+
+      final long steadyDuration = duration - rampUp;
+      final long throughput = steadyDuration > 0
+          ? (long) ((bytes - rampUpBytes) * 1e9 / steadyDuration)
+          : (duration > 0 ? (long) (bytes * 1e9 / duration) : 0);
+
+      return new BandwidthMeasurement(bytes, duration, rampUp, throughput, stalls, stallTime,
+          capped);
+    }
+  }
+}
@@ -16,11 +16,17 @@
 package greyfox.rxnetwork.internal.strategy.internet.impl;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
 import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
+import greyfox.rxnetwork.internal.strategy.internet.ProbeEventListener;
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,12 +42,18 @@ abstract class BaseInternetObservingStrategy implements InternetObservingStrateg
 
   private long delay;
   private long interval;
+  private Scheduler scheduler;
+  private final ProbeDataUsage dataUsage = new ProbeDataUsage();
+  private final ProbeEventListener eventListener;
+  private final Lock probeLock = new ReentrantLock();
 
   BaseInternetObservingStrategy(@NonNull Builder builder) {
     checkNotNull(builder, "builder");
 
     delay = builder.delay;
     interval = builder.interval;
+    scheduler = builder.scheduler != null ? builder.scheduler : Schedulers.computation();
+    eventListener = builder.eventListener;
   }
 
   abstract Logger logger();
@@ -50,7 +62,7 @@ abstract class BaseInternetObservingStrategy implements InternetObservingStrateg
     return new Function<Long, Boolean>() {
       @Override
       public Boolean apply(Long tick) throws Exception {
-        return checkConnection();
+        return probe();
       }
     };
   }
@@ -59,13 +71,66 @@ abstract class BaseInternetObservingStrategy implements InternetObservingStrateg
   @Override
   @RestrictTo(LIBRARY_GROUP)
   public Observable<Boolean> observe() {
-    return Observable.interval(delay, interval, TimeUnit.MILLISECONDS).map(toConnectionState())
-        .distinctUntilChanged();
+    return ticks().map(toConnectionState()).distinctUntilChanged();
+  }
+
+  /** Probing ticks, as configured with delay, interval and scheduler. */
+  Observable<Long> ticks() {
+    return Observable.interval(delay, interval, TimeUnit.MILLISECONDS, scheduler);
+  }
+
+  /** Scheduler connection checks run on. */
+  Scheduler scheduler() {
+    return scheduler;
+  }
+
+  /** Data used by the probes of this strategy so far. */
+  @NonNull
+  public ProbeDataUsage dataUsage() {
+    return dataUsage;
+  }
+
+  /** Listener of probe events, {@linkplain ProbeEventListener#NONE none} by default. */
+  @NonNull
+  ProbeEventListener eventListener() {
+    return eventListener;
+  }
+
+  /** Endpoint the current probe goes to, if the strategy has one. */
+  @Nullable
+  String target() {
+    return null;
+  }
+
+  /**
+   * Lock held for the duration of each probe. It's not a monitor, so that virtual threads blocked
+   * in I/O while holding it don't pin their carrier threads.
+   */
+  Lock probeLock() {
+    return probeLock;
   }
 
   abstract boolean checkConnection();
 
+  /**
+   * Runs single probe: connection check along with whatever the strategy does around it.
+   * Probes of the strategy don't overlap, e.g. when fallback of one strategy probes on its own
+   * ticks too, so that listeners see events of one probe at a time.
+   */
+  boolean probe() {
+    probeLock.lock();
+    try {
+      eventListener.probeStart(this, target());
+      final boolean isConnected = checkConnection();
+      eventListener.probeEnd(this, target(), isConnected);
+      return isConnected;
+    } finally {
+      probeLock.unlock();
+    }
+  }
+
   void onError(String message, Exception exception) {
+    eventListener.probeFailed(this, target(), exception);
     logger().log(Level.WARNING,
         message + ": " + exception.getMessage() + ((exception.getCause() != null) ? ": " + exception
             .getCause().getMessage() : ""));
@@ -83,6 +148,8 @@ abstract class BaseInternetObservingStrategy implements InternetObservingStrateg
     private static final int DEFAULT_INTERVAL_MS = 3000;
     private long delay = DEFAULT_DELAY_MS;
     private long interval = DEFAULT_INTERVAL_MS;
+    private Scheduler scheduler;
+    private ProbeEventListener eventListener = ProbeEventListener.NONE;
 
     protected Builder() {
     }
@@ -105,6 +172,25 @@ abstract class BaseInternetObservingStrategy implements InternetObservingStrateg
       return self();
     }
 
+    /**
+     * Set the {@link Scheduler} that connection checks run on. Defaults to
+     * {@linkplain Schedulers#computation()}.
+     *
+     * @see greyfox.rxnetwork.internal.strategy.internet.ProbeSchedulers#virtualThreads()
+     */
+    @NonNull
+    public B scheduler(@NonNull Scheduler scheduler) {
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      return self();
+    }
+
+    /** Set the listener of probe events, e.g. for metrics or tracing. */
+    @NonNull
+    public B eventListener(@NonNull ProbeEventListener eventListener) {
+      this.eventListener = checkNotNull(eventListener, "eventListener");
+      return self();
+    }
+
     /** Create an immutable {@linkplain BaseInternetObservingStrategy} using configured values. */
     @NonNull
     public abstract S build();
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.BiFunction;
+import io.reactivex.functions.Function;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Internet observing strategy keeping probes of another strategy within {@link DataBudget}.
+ * <p>
+ * Probes of the primary strategy (e.g. {@link WalledGardenInternetObservingStrategy}) are
+ * charged to the budget of the current network type. While there's plenty of budget left,
+ * primary strategy probes at its usual interval. Once the budget runs low, its interval is
+ * stretched {@code stretchFactor} times. Once the budget is used up, probing switches to the
+ * fallback {@link SocketInternetObservingStrategy}, which sends no application data, or stops
+ * altogether until the next period if there's no fallback.
+ * <p>
+ * Example usage:
+ * <pre><code>
+ * DataBudget budget = DataBudget.builder()
+ *     .limit(TYPE_MOBILE, 50 * 1024, 1, TimeUnit.DAYS)
+ *     .build();
+ *
+ * InternetObservingStrategy strategy = BudgetedInternetObservingStrategy
+ *     .builder(WalledGardenInternetObservingStrategy.create(), budget)
+ *     .fallback(SocketInternetObservingStrategy.create())
+ *     .networkTypes(rxnetwork.observe().map(RxNetworkInfo::getType))
+ *     .build();
+ * </code></pre>
+ *
+ * @author Radek Kozak
+ */
+public final class BudgetedInternetObservingStrategy implements InternetObservingStrategy {
+
+  private final BaseInternetObservingStrategy primary;
+  @Nullable private final SocketInternetObservingStrategy fallback;
+  private final DataBudget budget;
+  private final Observable<Integer> networkTypes;
+  private final double lowBudget;
+  private final int stretchFactor;
+
+  BudgetedInternetObservingStrategy(@NonNull Builder builder) {
+    checkNotNull(builder, "builder");
+
+    primary = builder.primary;
+    fallback = builder.fallback;
+    budget = builder.budget;
+    networkTypes = builder.networkTypes;
+    lowBudget = builder.lowBudget;
+    stretchFactor = builder.stretchFactor;
+  }
+
+  /**
+   * Builder of strategy keeping probes of given strategy within given budget.
+   *
+   * @param primary one of the built-in strategies, e.g.
+   *                {@link WalledGardenInternetObservingStrategy}
+   * @param budget  data budget of the primary strategy
+   */
+  @NonNull
+  public static Builder builder(@NonNull InternetObservingStrategy primary,
+      @NonNull DataBudget budget) {
+
+    return new Builder(primary, budget);
+  }
+
+  @Override
+  @RestrictTo(LIBRARY_GROUP)
+  public Observable<Boolean> observe() {
+    return primary.ticks().withLatestFrom(networkTypes, new BiFunction<Long, Integer, Probe>() {
+      @Override
+      public Probe apply(Long tick, Integer networkType) throws Exception {
+        return new Probe(tick, networkType);
+      }
+    }).concatMap(new Function<Probe, ObservableSource<Boolean>>() {
+      @Override
+      public ObservableSource<Boolean> apply(Probe probe) throws Exception {
+        return check(probe.tick, probe.networkType);
+      }
+    }).distinctUntilChanged();
+  }
+
+  /** Data used by the primary strategy. */
+  @NonNull
+  public ProbeDataUsage dataUsage() {
+    return primary.dataUsage();
+  }
+
+  /** Checks connection within the budget, emitting nothing if the check is skipped. */
+  private Observable<Boolean> check(long tick, int networkType) {
+    final long now = primary.scheduler().now(MILLISECONDS);
+    final double remaining = budget.remainingFraction(networkType, now);
+
+    if (remaining <= 0) {
+      return fallback != null ? Observable.just(fallback.probe())
+          : Observable.<Boolean>empty();
+    }
+
+    if (remaining <= lowBudget && tick % stretchFactor != 0) {
+      return Observable.empty();
+    }
+
+    final long usedBefore = primary.dataUsage().totalBytes();
+    final boolean isConnected = primary.probe();
+    budget.spend(networkType, primary.dataUsage().totalBytes() - usedBefore, now);
+
+    return Observable.just(isConnected);
+  }
+
+  private static final class Probe {
+
+    final long tick;
+    final int networkType;
+
+    Probe(long tick, int networkType) {
+      this.tick = tick;
+      this.networkType = networkType;
+    }
+  }
+
+  /** Build a new {@link BudgetedInternetObservingStrategy}. */
+  public static final class Builder {
+
+    private static final double DEFAULT_LOW_BUDGET = 0.25;
+    private static final int DEFAULT_STRETCH_FACTOR = 4;
+
+    private final BaseInternetObservingStrategy primary;
+    private final DataBudget budget;
+    private SocketInternetObservingStrategy fallback;
+    private Observable<Integer> networkTypes = Observable.just(DataBudget.ANY_NETWORK);
+    private double lowBudget = DEFAULT_LOW_BUDGET;
+    private int stretchFactor = DEFAULT_STRETCH_FACTOR;
+
+    Builder(@NonNull InternetObservingStrategy primary, @NonNull DataBudget budget) {
+      checkNotNull(primary, "primary");
+
+      if (!(primary instanceof BaseInternetObservingStrategy)) {
+        throw new IllegalArgumentException("Invalid primary strategy: " + primary);
+      }
+
+      this.primary = (BaseInternetObservingStrategy) primary;
+      this.budget = checkNotNull(budget, "budget");
+    }
+
+    /** Set the strategy to fall back to once the budget is used up. */
+    @NonNull
+    public Builder fallback(@NonNull SocketInternetObservingStrategy fallback) {
+      this.fallback = checkNotNull(fallback, "fallback");
+      return this;
+    }
+
+    /**
+     * Set the network types probes are charged to, e.g. types of networks observed by
+     * {@code RxNetwork}. Probing waits for the first one. By default all probes are charged to
+     * {@link DataBudget#ANY_NETWORK}.
+     */
+    @NonNull
+    public Builder networkTypes(@NonNull Observable<Integer> networkTypes) {
+      this.networkTypes = checkNotNull(networkTypes, "networkTypes");
+      return this;
+    }
+
+    /**
+     * Set the fraction of the budget, from 0 to 1, below which the probe interval is stretched.
+     * Defaults to 0.25.
+     */
+    @NonNull
+    public Builder lowBudget(double lowBudget) {
+      if (!(lowBudget >= 0 && lowBudget <= 1)) {
+        throw new IllegalArgumentException("Invalid low budget: " + lowBudget);
+      }
+
+      this.lowBudget = lowBudget;
+      return this;
+    }
+
+    /** Set how many times the probe interval is stretched when budget runs low. Defaults to 4. */
+    @NonNull
+    public Builder stretchFactor(int stretchFactor) {
+      if (stretchFactor < 1) {
+        throw new IllegalArgumentException("Invalid stretch factor: " + stretchFactor);
+      }
+
+      this.stretchFactor = stretchFactor;
+      return this;
+    }
+
+    /**
+     * Create an immutable instance of {@link BudgetedInternetObservingStrategy} using
+     * configured values.
+     */
+    @NonNull
+    public BudgetedInternetObservingStrategy build() {
+      return new BudgetedInternetObservingStrategy(this);
+    }
+  }
+}
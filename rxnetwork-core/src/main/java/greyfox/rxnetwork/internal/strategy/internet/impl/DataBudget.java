@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+
+/**
+ * Data budget of probes, per network type and period, for
+ * {@link BudgetedInternetObservingStrategy}.
+ * <p>
+ * Each network type (e.g. {@code ConnectivityManager.TYPE_MOBILE}) can be given its own limit
+ * of bytes per period, e.g. 100 KiB per day. Limit set for {@link #ANY_NETWORK} applies to all
+ * of the network types without one of their own; types without any limit are unlimited. Periods
+ * are fixed windows, starting with the first use of the budget.
+ *
+ * @author Radek Kozak
+ */
+public final class DataBudget {
+
+  /** Network type standing for all of the network types without their own limit. */
+  public static final int ANY_NETWORK = -1;
+
+  private final Map<Integer, Window> windows;
+
+  DataBudget(@NonNull Builder builder) {
+    checkNotNull(builder, "builder");
+
+    windows = new HashMap<>();
+
+    for (Map.Entry<Integer, Window> window : builder.windows.entrySet()) {
+      windows.put(window.getKey(), new Window(window.getValue().limit,
+          window.getValue().period));
+    }
+  }
+
+  @NonNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Bytes left in the current period on given network type, {@code Long.MAX_VALUE} if none. */
+  public long remaining(int networkType) {
+    return remaining(networkType, System.currentTimeMillis());
+  }
+
+  synchronized long remaining(int networkType, long now) {
+    final Window window = window(networkType);
+    return window != null ? window.remaining(now) : Long.MAX_VALUE;
+  }
+
+  /** Fraction of the budget left in the current period on given network type, from 0 to 1. */
+  synchronized double remainingFraction(int networkType, long now) {
+    final Window window = window(networkType);
+    return window != null ? (double) window.remaining(now) / window.limit : 1;
+  }
+
+  synchronized void spend(int networkType, long bytes, long now) {
+    final Window window = window(networkType);
+
+    if (window != null) {
+      window.spend(bytes, now);
+    }
+  }
+
+  private Window window(int networkType) {
+    final Window window = windows.get(networkType);
+    return window != null ? window : windows.get(ANY_NETWORK);
+  }
+
+  /** Fixed window of single network type. Guarded by the budget. */
+  private static final class Window {
+
+    final long limit;
+    final long period;
+    private long start = -1;
+    private long spent;
+
+    Window(long limit, long period) {
+      this.limit = limit;
+      this.period = period;
+    }
+
+    long remaining(long now) {
+      roll(now);
+      return Math.max(0, limit - spent);
+    }
+
+    void spend(long bytes, long now) {
+      roll(now);
+      spent += bytes;
+    }
+
+    private void roll(long now) {
+      if (start < 0 || now - start >= period) {
+        start = start < 0 ? now : now - (now - start) % period;
+        spent = 0;
+      }
+    }
+  }
+
+  /** Build a new {@link DataBudget}. */
+  public static final class Builder {
+
+    private final Map<Integer, Window> windows = new HashMap<>();
+
+    Builder() {
+    }
+
+    /**
+     * Set the limit of bytes per period for given network type.
+     *
+     * @param networkType network type, e.g. {@code ConnectivityManager.TYPE_MOBILE}, or
+     *                    {@link #ANY_NETWORK}
+     * @param bytes       number of bytes probes can use per period
+     * @param period      length of the period, e.g. one hour or one day
+     * @param unit        unit of {@code period}
+     */
+    @NonNull
+    public Builder limit(int networkType, long bytes, long period, @NonNull TimeUnit unit) {
+      checkNotNull(unit, "unit");
+
+      if (bytes <= 0) {
+        throw new IllegalArgumentException("Invalid limit: " + bytes);
+      }
+
+      if (period <= 0) {
+        throw new IllegalArgumentException("Invalid period: " + period);
+      }
+
+      windows.put(networkType, new Window(bytes, unit.toMillis(period)));
+      return this;
+    }
+
+    /** Create an instance of {@link DataBudget} using configured values. */
+    @NonNull
+    public DataBudget build() {
+      return new DataBudget(this);
+    }
+  }
+}
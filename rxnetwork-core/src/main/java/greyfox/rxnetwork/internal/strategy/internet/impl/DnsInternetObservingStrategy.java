@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.Charset;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * DNS-based strategy for monitoring connectivity with the Internet.
+ * <p>
+ * Each probe sends single hand-built DNS query over UDP to the resolver and treats a valid
+ * response within the timeout as connected: one small packet each way, and it works where
+ * ports like 80 or 443 are firewalled. Only the header of the response is parsed: it has to
+ * answer the query sent (matching random ID) with either {@code NOERROR} and at least one answer
+ * or {@code NXDOMAIN}. Resolvers are tried in order until one of them answers. With
+ * {@linkplain Builder#endpoints(EndpointPool) pool of resolvers} each probe queries only the one
+ * selected by the pool, so that the pool sees the outcome of each resolver on its own.
+ * <p>
+ * Queries are built once and sent from single reusable buffer, so probes of one strategy do
+ * not overlap.
+ *
+ * @author Radek Kozak
+ */
+public final class DnsInternetObservingStrategy extends EndpointInternetObservingStrategy {
+
+  /** Classic DNS over UDP message size limit. */
+  @VisibleForTesting static final int MAX_MESSAGE_SIZE = 512;
+
+  private static final int HEADER_SIZE = 12;
+  private static final int FLAGS_RECURSION_DESIRED = 0x0100;
+  private static final int FLAG_RESPONSE = 0x80;
+  private static final int OPCODE_MASK = 0x78;
+  private static final int RCODE_MASK = 0x0F;
+  private static final int RCODE_NOERROR = 0;
+  private static final int RCODE_NXDOMAIN = 3;
+  private static final int TYPE_A = 1;
+  private static final int CLASS_IN = 1;
+  private static final int MAX_LABEL_LENGTH = 63;
+  private static final int MAX_NAME_LENGTH = 255;
+  private static final String[] NO_RESOLVERS = {};
+
+  private final String[] otherResolvers;
+  private final int port;
+  private final byte[] query;
+  private final ByteBuffer buffer = ByteBuffer.allocate(MAX_MESSAGE_SIZE);
+  /** Guards the buffer; a monitor would pin virtual threads while waiting on resolvers. */
+  private final Lock bufferLock = new ReentrantLock();
+  private final Random random = new SecureRandom();
+
+  /** Bytes sent and received by the current probe. Guarded by the buffer lock. */
+  private long sent;
+  private long received;
+
+  DnsInternetObservingStrategy(@NonNull Builder builder) {
+    super(builder);
+
+    otherResolvers = pool() != null ? NO_RESOLVERS : builder.otherResolvers;
+    port = builder.port;
+    query = buildQuery(builder.hostname);
+  }
+
+  @NonNull
+  public static DnsInternetObservingStrategy create() {
+    return builder().build();
+  }
+
+  @NonNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  Logger logger() {
+    return getLogger(DnsInternetObservingStrategy.class.getSimpleName());
+  }
+
+  @Override
+  boolean checkConnection() {
+    bufferLock.lock();
+    try {
+      sent = 0;
+      received = 0;
+      boolean isConnected = false;
+
+      for (int i = 0; i <= otherResolvers.length && !isConnected; i++) {
+        final String resolver = i == 0 ? endpoint() : otherResolvers[i - 1];
+
+        try {
+          isConnected = query(resolver);
+        } catch (IOException ioe) {
+          onError("Problem occurred while querying resolver " + resolver, ioe);
+        }
+      }
+
+      dataUsage().record(sent, received);
+      return isConnected;
+    } finally {
+      bufferLock.unlock();
+    }
+  }
+
+  /** Sends the query to given resolver and waits for its response. Guarded by the buffer lock. */
+  private boolean query(String resolver) throws IOException {
+    final int id = random.nextInt(0x10000);
+    final long deadline = System.currentTimeMillis() + timeout();
+
+    DatagramChannel channel = null;
+    Selector selector = null;
+    try {
+      channel = DatagramChannel.open();
+      channel.configureBlocking(false);
+      channel.connect(new InetSocketAddress(resolver, port));
+      selector = Selector.open();
+      channel.register(selector, SelectionKey.OP_READ);
+
+      buffer.clear();
+      buffer.put(query).putShort(0, (short) id).flip();
+      channel.write(buffer);
+      sent += query.length;
+
+      long remaining;
+      while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+        if (selector.select(remaining) == 0) {
+          continue;
+        }
+
+        selector.selectedKeys().clear();
+        buffer.clear();
+
+        if (channel.read(buffer) > 0) {
+          buffer.flip();
+          received += buffer.remaining();
+
+          // responses to earlier, timed out queries are ignored
+          if (buffer.remaining() >= HEADER_SIZE && (buffer.getShort(0) & 0xFFFF) == id) {
+            eventListener().firstByte(this, resolver);
+            return isValidResponse(buffer);
+          }
+        }
+      }
+
+      throw new SocketTimeoutException("No response within " + timeout() + " ms");
+    } finally {
+      try {
+        if (selector != null) {
+          selector.close();
+        }
+      } catch (IOException ioe) {
+        onError("Could not close the selector", ioe);
+      }
+
+      try {
+        if (channel != null) {
+          channel.close();
+        }
+      } catch (IOException ioe) {
+        onError("Could not close the channel", ioe);
+      }
+    }
+  }
+
+  /** Whether the header of given response answers a standard query of ours. */
+  @VisibleForTesting
+  static boolean isValidResponse(@NonNull ByteBuffer response) {
+    final int flags = response.get(2) & 0xFF;
+    final int rcode = response.get(3) & RCODE_MASK;
+    final int answers = response.getShort(6) & 0xFFFF;
+
+    if ((flags & FLAG_RESPONSE) == 0 || (flags & OPCODE_MASK) != 0) {
+      return false;
+    }
+
+    return rcode == RCODE_NOERROR && answers > 0 || rcode == RCODE_NXDOMAIN;
+  }
+
+  /** Standard recursive query for {@code A} records of given hostname, with zero ID. */
+  @VisibleForTesting
+  static byte[] buildQuery(@NonNull String hostname) {
+    final String[] labels = hostname.split("\\.");
+    final ByteBuffer query = ByteBuffer.allocate(HEADER_SIZE + MAX_NAME_LENGTH + 1 + 4);
+
+    query.putShort((short) 0).putShort((short) FLAGS_RECURSION_DESIRED)
+        .putShort((short) 1).putShort((short) 0).putShort((short) 0).putShort((short) 0);
+
+    for (String label : labels) {
+      final byte[] bytes = label.getBytes(Charset.forName("US-ASCII"));
+
+      if (bytes.length == 0 || bytes.length > MAX_LABEL_LENGTH
+          || query.position() + bytes.length + 1 > HEADER_SIZE + MAX_NAME_LENGTH) {
+        throw new IllegalArgumentException("Invalid hostname: " + hostname);
+      }
+
+      query.put((byte) bytes.length).put(bytes);
+    }
+
+    query.put((byte) 0).putShort((short) TYPE_A).putShort((short) CLASS_IN);
+    return Arrays.copyOf(query.array(), query.position());
+  }
+
+  // @formatter:off
+
+  /** Build a new {@link DnsInternetObservingStrategy}. */
+  public static final class Builder extends
+      EndpointInternetObservingStrategy.Builder<DnsInternetObservingStrategy,
+          DnsInternetObservingStrategy.Builder> {
+
+    // @formatter:on
+
+    /** Resolver address. Preferably IP literal, so that sending the query needs no lookup. */
+    private static final String DEFAULT_ENDPOINT = "8.8.8.8";
+    private static final String[] DEFAULT_OTHER_RESOLVERS = {"1.1.1.1"};
+    private static final String DEFAULT_HOSTNAME = "google.com";
+    private static final int DEFAULT_PORT = 53;
+    private static final int DEFAULT_TIMEOUT_MS = 2000;
+
+    private String[] otherResolvers = DEFAULT_OTHER_RESOLVERS;
+    private String hostname = DEFAULT_HOSTNAME;
+    private int port = DEFAULT_PORT;
+
+    Builder() {
+      super();
+      endpoint(DEFAULT_ENDPOINT);
+      timeout(DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * Set the resolvers to query, in order. Each gets the whole timeout. Defaults to
+     * {@code 8.8.8.8} and {@code 1.1.1.1}. Other resolvers are not queried when probes are routed
+     * to {@linkplain #endpoints(EndpointPool) pool of resolvers}.
+     */
+    @NonNull
+    public Builder resolvers(@NonNull String resolver, @NonNull String... otherResolvers) {
+      checkNotNull(otherResolvers, "otherResolvers");
+
+      for (String other : otherResolvers) {
+        checkNotNull(other, "resolver");
+      }
+
+      endpoint(resolver);
+      this.otherResolvers = otherResolvers.clone();
+      return self();
+    }
+
+    /** Set the hostname to query {@code A} records of. Defaults to {@code google.com}. */
+    @NonNull
+    public Builder hostname(@NonNull String hostname) {
+      this.hostname = checkNotNull(hostname, "hostname");
+      buildQuery(hostname);
+      return self();
+    }
+
+    /** Set the port resolvers listen on. Defaults to 53. */
+    @NonNull
+    public Builder port(int port) {
+      if (port <= 0 || port > 65535) {
+        throw new IllegalArgumentException("Invalid port: " + port);
+      }
+
+      this.port = port;
+      return self();
+    }
+
+    /**
+     * Create an immutable instance of {@link DnsInternetObservingStrategy} using
+     * configured values.
+     */
+    @NonNull
+    @Override
+    public DnsInternetObservingStrategy build() {
+      return new DnsInternetObservingStrategy(this);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Outcome of dual-stack (Happy Eyeballs) probe of {@link SocketInternetObservingStrategy}.
+ *
+ * @author Radek Kozak
+ */
+public final class DualStackResult {
+
+  /** Address family of the connection that won the race. */
+  public enum Family {
+    IPV4, IPV6;
+
+    @NonNull
+    static Family of(@NonNull InetAddress address) {
+      return checkNotNull(address, "address") instanceof Inet6Address ? IPV6 : IPV4;
+    }
+  }
+
+  @Nullable private final InetSocketAddress address;
+  private final long latency;
+
+  DualStackResult(@Nullable InetSocketAddress address, long latency) {
+    this.address = address;
+    this.latency = latency;
+  }
+
+  /** Checks if any of the endpoint's addresses accepted connection. */
+  public boolean isConnected() {
+    return address != null;
+  }
+
+  /** Address that accepted connection first, or {@code null} if none did. */
+  @Nullable
+  public InetSocketAddress address() {
+    return address;
+  }
+
+  /** Address family that won the race, or {@code null} if none did. */
+  @Nullable
+  public Family family() {
+    return address != null ? Family.of(address.getAddress()) : null;
+  }
+
+  /** Time it took to connect, or to give up. */
+  public long latency(@NonNull TimeUnit unit) {
+    checkNotNull(unit, "unit");
+    return unit.convert(latency, NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return "DualStackResult{"
+        + "address=" + address + ", "
+        + "family=" + family() + ", "
+        + "latency=" + latency
+        + "}";
+  }
+}
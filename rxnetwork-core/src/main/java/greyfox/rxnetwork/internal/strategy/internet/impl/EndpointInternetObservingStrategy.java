@@ -16,10 +16,12 @@
 package greyfox.rxnetwork.internal.strategy.internet.impl;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import java.net.InetSocketAddress;
 import java.net.URL;
 
 import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
  * Defines basic endpoint-based internet observing strategy.
@@ -30,19 +32,24 @@ import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
  * <p>
  * You can see more of this at work in {@link WalledGardenInternetObservingStrategy}
  * and {@link HttpOkInternetObservingStrategy}
+ * <p>
+ * Instead of single endpoint strategy can be given {@link EndpointPool}, in which case each
+ * probe goes to the endpoint selected by the pool.
  *
  * @author Radek Kozak
  */
 abstract class EndpointInternetObservingStrategy extends BaseInternetObservingStrategy {
 
   private int timeout;
-  private String endpoint;
+  private volatile String endpoint;
+  @Nullable private final EndpointPool pool;
 
   EndpointInternetObservingStrategy(@NonNull Builder builder) {
     super(builder);
 
     timeout = builder.timeout;
-    endpoint = builder.endpoint;
+    pool = builder.pool;
+    endpoint = pool != null ? pool.first() : builder.endpoint;
   }
 
   /** The API base timeout. */
@@ -50,11 +57,45 @@ abstract class EndpointInternetObservingStrategy extends BaseInternetObservingSt
     return timeout;
   }
 
-  /** The API base endpoint. */
+  /** The API base endpoint: the one configured or the one selected for the current probe. */
   String endpoint() {
     return endpoint;
   }
 
+  /** The pool probes are routed to, or {@code null} if the strategy has single endpoint. */
+  @Nullable
+  EndpointPool pool() {
+    return pool;
+  }
+
+  /** Routes the probe to the endpoint selected by the pool, if any. */
+  @Override
+  boolean probe() {
+    if (pool == null) {
+      return super.probe();
+    }
+
+    probeLock().lock();
+    try {
+      final String selected = pool.select(scheduler().now(MILLISECONDS));
+      endpoint = selected;
+
+      final long start = System.nanoTime();
+      final boolean isConnected = super.probe();
+      pool.record(selected, isConnected, System.nanoTime() - start,
+          scheduler().now(MILLISECONDS));
+
+      return isConnected;
+    } finally {
+      probeLock().unlock();
+    }
+  }
+
+  @Override
+  String target() {
+    return endpoint;
+  }
+
   // @formatter:off
 
   abstract static class Builder<S extends EndpointInternetObservingStrategy,
@@ -65,6 +106,7 @@ abstract class EndpointInternetObservingStrategy extends BaseInternetObservingSt
 
     private int timeout;
     private String endpoint;
+    private EndpointPool pool;
 
     protected Builder() {
       super();
@@ -81,6 +123,17 @@ abstract class EndpointInternetObservingStrategy extends BaseInternetObservingSt
     @NonNull
     public B endpoint(@NonNull String endpoint) {
       this.endpoint = checkNotNull(endpoint, "endpoint");
+      pool = null;
+      return self();
+    }
+
+    /**
+     * Set the pool of endpoints to route probes to, instead of single endpoint. Strategies
+     * keeping single connection open, like heartbeat one, stick to the first of them.
+     */
+    @NonNull
+    public B endpoints(@NonNull EndpointPool pool) {
+      this.pool = checkNotNull(pool, "pool");
       return self();
     }
   }
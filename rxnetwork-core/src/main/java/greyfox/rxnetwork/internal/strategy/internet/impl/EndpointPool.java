@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Pool of interchangeable endpoints for endpoint-based strategies to route their probes to.
+ * <p>
+ * The pool tracks exponentially weighted moving averages of latency and failure rate of each
+ * endpoint and routes each probe to the best one: the one with the lowest expected time per
+ * successful probe, {@code latency / (1 - failureRate)}. Every {@code explorationInterval}-th
+ * probe goes to one of the others in turn, so that the pool notices when they get better.
+ * <p>
+ * Endpoints failing {@code failureThreshold} probes in a row are benched (circuit breaker) for
+ * {@code coolDown}, after which they get single trial probe: success restores them, failure
+ * benches them again. If all of the endpoints are benched, probes go to the one to come back
+ * first.
+ * <p>
+ * Example usage:
+ * <pre><code>
+ * EndpointPool pool = EndpointPool.builder(
+ *     "http://google.cn/generate_204", "http://connectivitycheck.gstatic.com/generate_204")
+ *     .build();
+ *
+ * WalledGardenInternetObservingStrategy.builder().endpoints(pool).build();
+ * </code></pre>
+ *
+ * @author Radek Kozak
+ */
+public final class EndpointPool {
+
+  private static final double MAX_FAILURE_RATE = 0.99;
+
+  private final Endpoint[] endpoints;
+  private final double weight;
+  private final int explorationInterval;
+  private final int failureThreshold;
+  private final long coolDown;
+
+  private long probes;
+  private int explored;
+
+  EndpointPool(@NonNull Builder builder) {
+    checkNotNull(builder, "builder");
+
+    endpoints = new Endpoint[builder.endpoints.length];
+
+    for (int i = 0; i < endpoints.length; i++) {
+      endpoints[i] = new Endpoint(builder.endpoints[i]);
+    }
+
+    weight = builder.weight;
+    explorationInterval = builder.explorationInterval;
+    failureThreshold = builder.failureThreshold;
+    coolDown = builder.coolDown;
+  }
+
+  /**
+   * Builder of pool of given endpoints.
+   *
+   * @param endpoint       first of the endpoints, the one probed before any other
+   * @param otherEndpoints the rest of the endpoints
+   */
+  @NonNull
+  public static Builder builder(@NonNull String endpoint, @NonNull String... otherEndpoints) {
+    return new Builder(endpoint, otherEndpoints);
+  }
+
+  /** First of the endpoints. */
+  @NonNull
+  String first() {
+    return endpoints[0].name;
+  }
+
+  /** Selects endpoint for the next probe. */
+  @NonNull
+  synchronized String select(long now) {
+    probes++;
+
+    Endpoint best = null;
+    Endpoint comeback = null;
+    int available = 0;
+
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint.benched) {
+        if (now >= endpoint.benchedUntil) {
+          // cool-down is over: trial probe
+          return endpoint.name;
+        }
+
+        if (comeback == null || endpoint.benchedUntil < comeback.benchedUntil) {
+          comeback = endpoint;
+        }
+      } else {
+        if (endpoint.samples == 0) {
+          return endpoint.name;
+        }
+
+        if (best == null || endpoint.score() < best.score()) {
+          best = endpoint;
+        }
+
+        available++;
+      }
+    }
+
+    if (best == null) {
+      return comeback.name;
+    }
+
+    if (explorationInterval > 0 && available > 1 && probes % explorationInterval == 0) {
+      return explore(best).name;
+    }
+
+    return best.name;
+  }
+
+  /** Next available endpoint other than the best one, in turn. */
+  private Endpoint explore(Endpoint best) {
+    for (int i = 0; i < endpoints.length; i++) {
+      explored = (explored + 1) % endpoints.length;
+      final Endpoint endpoint = endpoints[explored];
+
+      if (endpoint != best && !endpoint.benched) {
+        return endpoint;
+      }
+    }
+
+    return best;
+  }
+
+  /** Records outcome of a probe of given endpoint. */
+  synchronized void record(@NonNull String endpoint, boolean success, long latencyNanos,
+      long now) {
+
+    final Endpoint stats = find(endpoint);
+
+    if (stats == null) {
+      return;
+    }
+
+    stats.samples++;
+    final double sampleWeight = Math.max(weight, 1d / stats.samples);
+    stats.failureRate = stats.failureRate * (1 - sampleWeight) + (success ? 0 : sampleWeight);
+
+    if (success) {
+      stats.successes++;
+      final double latencyWeight = Math.max(weight, 1d / stats.successes);
+      stats.latency = stats.latency * (1 - latencyWeight) + latencyNanos * latencyWeight;
+      stats.consecutiveFailures = 0;
+      stats.benched = false;
+    } else if (++stats.consecutiveFailures >= failureThreshold || stats.benched) {
+      stats.benched = true;
+      stats.benchedUntil = now + coolDown;
+    }
+  }
+
+  /** Endpoint probes currently go to, if none of the others is due for exploration or trial. */
+  @NonNull
+  public synchronized String best() {
+    Endpoint best = null;
+
+    for (Endpoint endpoint : endpoints) {
+      if (!endpoint.benched && (best == null || endpoint.score() < best.score())) {
+        best = endpoint;
+      }
+    }
+
+    return best != null ? best.name : endpoints[0].name;
+  }
+
+  /** Average latency of successful probes of given endpoint, {@code 0} if there were none. */
+  public synchronized long latency(@NonNull String endpoint, @NonNull TimeUnit unit) {
+    checkNotNull(unit, "unit");
+    final Endpoint stats = find(checkNotNull(endpoint, "endpoint"));
+    return stats != null ? unit.convert(Math.round(stats.latency), NANOSECONDS) : 0;
+  }
+
+  /** Average failure rate of probes of given endpoint, from 0 to 1. */
+  public synchronized double failureRate(@NonNull String endpoint) {
+    final Endpoint stats = find(checkNotNull(endpoint, "endpoint"));
+    return stats != null ? stats.failureRate : 0;
+  }
+
+  /** Whether given endpoint is benched for failing too many probes in a row. */
+  public synchronized boolean isBenched(@NonNull String endpoint) {
+    final Endpoint stats = find(checkNotNull(endpoint, "endpoint"));
+    return stats != null && stats.benched;
+  }
+
+  private Endpoint find(String name) {
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint.name.equals(name)) {
+        return endpoint;
+      }
+    }
+
+    return null;
+  }
+
+  /** Statistics of single endpoint. Guarded by the pool. */
+  private static final class Endpoint {
+
+    final String name;
+    long samples;
+    long successes;
+    double latency;
+    double failureRate;
+    int consecutiveFailures;
+    boolean benched;
+    long benchedUntil;
+
+    Endpoint(String name) {
+      this.name = name;
+    }
+
+    /** Expected time per successful probe. */
+    double score() {
+      return successes > 0 ? latency / (1 - Math.min(failureRate, MAX_FAILURE_RATE))
+          : Double.MAX_VALUE;
+    }
+  }
+
+  /** Build a new {@link EndpointPool}. */
+  public static final class Builder {
+
+    private static final double DEFAULT_WEIGHT = 0.2;
+    private static final int DEFAULT_EXPLORATION_INTERVAL = 10;
+    private static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    private static final long DEFAULT_COOL_DOWN_MS = 30000;
+
+    private final String[] endpoints;
+    private double weight = DEFAULT_WEIGHT;
+    private int explorationInterval = DEFAULT_EXPLORATION_INTERVAL;
+    private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private long coolDown = DEFAULT_COOL_DOWN_MS;
+
+    Builder(@NonNull String endpoint, @NonNull String... otherEndpoints) {
+      checkNotNull(endpoint, "endpoint");
+      checkNotNull(otherEndpoints, "otherEndpoints");
+
+      endpoints = new String[otherEndpoints.length + 1];
+      endpoints[0] = endpoint;
+
+      for (int i = 0; i < otherEndpoints.length; i++) {
+        endpoints[i + 1] = checkNotNull(otherEndpoints[i], "endpoint");
+      }
+    }
+
+    /** Set the weight of new samples in the averages, in (0, 1]. Defaults to 0.2. */
+    @NonNull
+    public Builder weight(double weight) {
+      if (!(weight > 0 && weight <= 1)) {
+        throw new IllegalArgumentException("Invalid weight: " + weight);
+      }
+
+      this.weight = weight;
+      return this;
+    }
+
+    /**
+     * Set how often probes go to other than the best endpoint, e.g. every 10th probe.
+     * {@code 0} turns exploration off. Defaults to 10.
+     */
+    @NonNull
+    public Builder explorationInterval(int explorationInterval) {
+      if (explorationInterval < 0 || explorationInterval == 1) {
+        throw new IllegalArgumentException("Invalid exploration interval: "
+            + explorationInterval);
+      }
+
+      this.explorationInterval = explorationInterval;
+      return this;
+    }
+
+    /** Set the number of failed probes in a row that benches an endpoint. Defaults to 3. */
+    @NonNull
+    public Builder failureThreshold(int failureThreshold) {
+      if (failureThreshold < 1) {
+        throw new IllegalArgumentException("Invalid failure threshold: " + failureThreshold);
+      }
+
+      this.failureThreshold = failureThreshold;
+      return this;
+    }
+
+    /** Set how long, in milliseconds, benched endpoints sit out. Defaults to 30 seconds. */
+    @NonNull
+    public Builder coolDown(long coolDown) {
+      if (coolDown < 0) {
+        throw new IllegalArgumentException("Invalid cool-down: " + coolDown);
+      }
+
+      this.coolDown = coolDown;
+      return this;
+    }
+
+    /** Create an instance of {@link EndpointPool} using configured values. */
+    @NonNull
+    public EndpointPool build() {
+      return new EndpointPool(this);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+
+/**
+ * Dual-stack connection racing as described in
+ * <a href="https://tools.ietf.org/html/rfc8305">RFC 8305 (Happy Eyeballs v2)</a>.
+ * <p>
+ * Addresses are interleaved by family, keeping resolver's order within each family, and
+ * connection attempts are started one after another, each one {@code attemptDelay} after the
+ * previous one or as soon as the previous one fails. First connection to succeed wins and all of
+ * the others are abandoned. All attempts are driven by single {@link Selector} on the calling
+ * thread.
+ *
+ * @author Radek Kozak
+ */
+final class HappyEyeballs {
+
+  @VisibleForTesting
+  HappyEyeballs() {
+    throw new AssertionError("No instances.");
+  }
+
+  /**
+   * Races connections to given addresses.
+   *
+   * @param timeout      overall timeout in milliseconds, zero or less meaning no timeout
+   * @param attemptDelay delay between starting consecutive attempts in milliseconds
+   */
+  @NonNull
+  static DualStackResult connect(@NonNull InetAddress[] addresses, int port, long timeout,
+      long attemptDelay) throws IOException {
+
+    checkNotNull(addresses, "addresses");
+
+    final List<InetAddress> candidates = interleave(addresses);
+    final long start = System.nanoTime();
+    final boolean bounded = timeout > 0;
+    final long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+    final long delay = TimeUnit.MILLISECONDS.toNanos(attemptDelay);
+    final Selector selector = Selector.open();
+
+    try {
+      int next = 0;
+      int pending = 0;
+      long nextAttemptAt = start;
+      SelectionKey latest = null;
+
+      while (true) {
+        final long now = System.nanoTime();
+
+        if (next < candidates.size() && now - nextAttemptAt >= 0) {
+          final InetSocketAddress address = new InetSocketAddress(candidates.get(next++), port);
+          final SocketChannel channel = SocketChannel.open();
+
+          try {
+            channel.configureBlocking(false);
+
+            if (channel.connect(address)) {
+              channel.close();
+              return new DualStackResult(address, System.nanoTime() - start);
+            }
+
+            latest = channel.register(selector, SelectionKey.OP_CONNECT, address);
+            pending++;
+            nextAttemptAt = now + delay;
+          } catch (IOException ioe) {
+            channel.close();
+            nextAttemptAt = now;
+          }
+          continue;
+        }
+
+        if (pending == 0 || bounded && now - deadline >= 0) {
+          return new DualStackResult(null, now - start);
+        }
+
+        final boolean attemptsLeft = next < candidates.size();
+
+        if (attemptsLeft && (!bounded || nextAttemptAt - deadline < 0)) {
+          selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextAttemptAt - now)));
+        } else if (bounded) {
+          selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - now)));
+        } else {
+          selector.select();
+        }
+
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+        while (keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+
+          final SocketChannel channel = (SocketChannel) key.channel();
+
+          try {
+            if (channel.finishConnect()) {
+              return new DualStackResult((InetSocketAddress) key.attachment(),
+                  System.nanoTime() - start);
+            }
+          } catch (IOException ioe) {
+            key.cancel();
+            channel.close();
+            pending--;
+
+            // failure of the latest attempt starts the next one right away
+            if (key == latest) {
+              nextAttemptAt = System.nanoTime();
+            }
+          }
+        }
+      }
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        key.channel().close();
+      }
+      selector.close();
+    }
+  }
+
+  /** Interleaves addresses by family, starting with the family of the first one. */
+  @NonNull
+  @VisibleForTesting
+  static List<InetAddress> interleave(@NonNull InetAddress[] addresses) {
+    checkNotNull(addresses, "addresses");
+
+    final List<InetAddress> first = new ArrayList<>();
+    final List<InetAddress> second = new ArrayList<>();
+
+    for (InetAddress address : addresses) {
+      if (first.isEmpty()
+          || DualStackResult.Family.of(address) == DualStackResult.Family.of(first.get(0))) {
+        first.add(address);
+      } else {
+        second.add(address);
+      }
+    }
+
+    final List<InetAddress> interleaved = new ArrayList<>(addresses.length);
+
+    for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+      if (i < first.size()) {
+        interleaved.add(first.get(i));
+      }
+      if (i < second.size()) {
+        interleaved.add(second.get(i));
+      }
+    }
+
+    return interleaved;
+  }
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import android.support.annotation.VisibleForTesting;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * Heartbeat-based strategy for monitoring connectivity with the Internet.
+ * <p>
+ * Instead of opening new connection for every probe, it keeps single long-lived TCP connection
+ * to the heartbeat endpoint and sends tiny ping frame every {@code interval}, expecting pong frame
+ * back before the next one. Missed pong or socket error is reported right away, so an outage
+ * shows within one heartbeat, and the connection is re-established with exponential backoff,
+ * from {@code interval} up to {@code maxBackoff}.
+ * <p>
+ * The endpoint has to answer each ping frame with pong frame, e.g.:
+ * <pre><code>
+ * HeartbeatInternetObservingStrategy.builder("heartbeat.example.com", 7000)
+ *     .ping("PING\n").pong("PONG\n")
+ *     .interval(5000)
+ *     .build();
+ * </code></pre>
+ * All of the subscribers share single connection, open for as long as there are any. Connection
+ * checks block on reading pongs, so they run on {@linkplain Schedulers#io()} by default.
+ *
+ * @author Radek Kozak
+ */
+public final class HeartbeatInternetObservingStrategy extends EndpointInternetObservingStrategy {
+
+  private final int port;
+  private final byte[] ping;
+  private final byte[] pong;
+  private final long interval;
+  private final long maxBackoff;
+  private final Observable<Boolean> heartbeats;
+
+  private volatile boolean alive;
+
+  HeartbeatInternetObservingStrategy(@NonNull Builder builder) {
+    super(builder);
+
+    port = builder.port;
+    ping = builder.ping;
+    pong = builder.pong;
+    interval = builder.interval;
+    maxBackoff = builder.maxBackoff;
+    heartbeats = Observable.create(new ObservableOnSubscribe<Boolean>() {
+      @Override
+      public void subscribe(ObservableEmitter<Boolean> emitter) throws Exception {
+        final Session session = new Session(emitter.serialize());
+        emitter.setDisposable(session);
+        session.start();
+      }
+    }).distinctUntilChanged().replay(1).refCount();
+  }
+
+  /**
+   * Builder of strategy sending heartbeats to given endpoint.
+   *
+   * @param endpoint hostname of the heartbeat endpoint
+   * @param port     port of the heartbeat endpoint
+   */
+  @NonNull
+  public static Builder builder(@NonNull String endpoint, int port) {
+    return new Builder().endpoint(endpoint).port(port);
+  }
+
+  @Override
+  Logger logger() {
+    return getLogger(HeartbeatInternetObservingStrategy.class.getSimpleName());
+  }
+
+  /** Observes heartbeats over connection shared by all of the subscribers. */
+  @Override
+  @RestrictTo(LIBRARY_GROUP)
+  public Observable<Boolean> observe() {
+    return heartbeats;
+  }
+
+  /** Whether the last heartbeat got its pong. Heartbeats only run while observed. */
+  @Override
+  boolean checkConnection() {
+    return alive;
+  }
+
+  /** Delay of reconnect attempt following given number of failed ones. */
+  @VisibleForTesting
+  long backoff(int attempt) {
+    return attempt < Long.numberOfLeadingZeros(interval) - 1
+        ? Math.min(interval << attempt, maxBackoff) : maxBackoff;
+  }
+
+  /** Single connection and its heartbeats, for as long as the shared observable is subscribed. */
+  private final class Session implements Disposable {
+
+    private final ObservableEmitter<Boolean> emitter;
+    private final Scheduler.Worker timer = scheduler().createWorker();
+    private final Scheduler.Worker reader = scheduler().createWorker();
+    private volatile boolean disposed;
+
+    /** Current connection or {@code null} while reconnecting. Guarded by this. */
+    @Nullable private Socket socket;
+    @Nullable private Disposable heartbeat;
+    private long pings;
+    private long pongs;
+    private int attempt;
+
+    Session(ObservableEmitter<Boolean> emitter) {
+      this.emitter = emitter;
+    }
+
+    void start() {
+      timer.schedule(new Runnable() {
+        @Override
+        public void run() {
+          connect();
+        }
+      });
+    }
+
+    private void connect() {
+      final Socket connection = new Socket();
+      try {
+        final InetSocketAddress address = new InetSocketAddress(endpoint(), port);
+        eventListener().dnsResolved(HeartbeatInternetObservingStrategy.this, endpoint(),
+            address.getAddress());
+        connection.connect(address, timeout());
+        connection.setTcpNoDelay(true);
+        eventListener().connected(HeartbeatInternetObservingStrategy.this, endpoint());
+      } catch (IOException ioe) {
+        onError("Could not connect to heartbeat endpoint", ioe);
+        close(connection);
+        emit(false);
+        reconnect();
+        return;
+      }
+
+      synchronized (this) {
+        if (disposed) {
+          close(connection);
+          return;
+        }
+
+        socket = connection;
+        pings = 0;
+        pongs = 0;
+        heartbeat = timer.schedulePeriodically(new Runnable() {
+          @Override
+          public void run() {
+            beat(connection);
+          }
+        }, 0, interval, MILLISECONDS);
+      }
+
+      reader.schedule(new Runnable() {
+        @Override
+        public void run() {
+          read(connection);
+        }
+      });
+    }
+
+    private void reconnect() {
+      final int failed;
+
+      synchronized (this) {
+        failed = attempt++;
+      }
+
+      timer.schedule(new Runnable() {
+        @Override
+        public void run() {
+          connect();
+        }
+      }, backoff(failed), MILLISECONDS);
+    }
+
+    private synchronized void beat(Socket connection) {
+      if (socket != connection) {
+        return;
+      }
+
+      if (pings > pongs) {
+        onLost(connection, new IOException("Missed pong"));
+        return;
+      }
+
+      try {
+        eventListener().probeStart(HeartbeatInternetObservingStrategy.this, endpoint());
+        final OutputStream output = connection.getOutputStream();
+        output.write(ping);
+        output.flush();
+        pings++;
+      } catch (IOException ioe) {
+        onLost(connection, ioe);
+      }
+    }
+
+    private void read(Socket connection) {
+      final byte[] frame = new byte[pong.length];
+      try {
+        final DataInputStream input = new DataInputStream(connection.getInputStream());
+
+        while (!disposed) {
+          input.readFully(frame);
+
+          if (!Arrays.equals(frame, pong)) {
+            throw new IOException("Unexpected frame");
+          }
+
+          onPong(connection);
+        }
+      } catch (IOException ioe) {
+        synchronized (this) {
+          onLost(connection, ioe);
+        }
+      }
+    }
+
+    private synchronized void onPong(Socket connection) {
+      if (socket != connection) {
+        return;
+      }
+
+      pongs++;
+      attempt = 0;
+      eventListener().firstByte(HeartbeatInternetObservingStrategy.this, endpoint());
+      eventListener().probeEnd(HeartbeatInternetObservingStrategy.this, endpoint(), true);
+      dataUsage().record(ping.length, pong.length);
+      emit(true);
+    }
+
+    /** Reports the loss of given connection, unless it's been replaced already. Guarded by this. */
+    private void onLost(Socket connection, IOException cause) {
+      if (socket != connection || disposed) {
+        return;
+      }
+
+      onError("Lost heartbeat connection", cause);
+
+      if (pings > pongs) {
+        eventListener().probeEnd(HeartbeatInternetObservingStrategy.this, endpoint(), false);
+      }
+
+      socket = null;
+      cancelHeartbeat();
+      close(connection);
+      emit(false);
+      reconnect();
+    }
+
+    private void emit(boolean isAlive) {
+      if (!disposed) {
+        alive = isAlive;
+        emitter.onNext(isAlive);
+      }
+    }
+
+    private void cancelHeartbeat() {
+      if (heartbeat != null) {
+        heartbeat.dispose();
+        heartbeat = null;
+      }
+    }
+
+    private void close(Socket connection) {
+      try {
+        connection.close();
+      } catch (IOException ioe) {
+        onError("Could not close the socket", ioe);
+      }
+    }
+
+    @Override
+    public void dispose() {
+      disposed = true;
+      timer.dispose();
+
+      synchronized (this) {
+        cancelHeartbeat();
+
+        if (socket != null) {
+          close(socket);
+          socket = null;
+        }
+      }
+
+      reader.dispose();
+      alive = false;
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return disposed;
+    }
+  }
+
+  // @formatter:off
+
+  /** Build a new {@link HeartbeatInternetObservingStrategy}. */
+  public static final class Builder extends
+      EndpointInternetObservingStrategy.Builder<HeartbeatInternetObservingStrategy,
+          HeartbeatInternetObservingStrategy.Builder> {
+
+    // @formatter:on
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final byte[] DEFAULT_PING = "PING\n".getBytes(ASCII);
+    private static final byte[] DEFAULT_PONG = "PONG\n".getBytes(ASCII);
+    private static final int DEFAULT_TIMEOUT_MS = 3000;
+    private static final long DEFAULT_INTERVAL_MS = 3000;
+    private static final long DEFAULT_MAX_BACKOFF_MS = 60000;
+
+    private int port;
+    private byte[] ping = DEFAULT_PING;
+    private byte[] pong = DEFAULT_PONG;
+    private long interval = DEFAULT_INTERVAL_MS;
+    private long maxBackoff = DEFAULT_MAX_BACKOFF_MS;
+
+    Builder() {
+      super();
+      timeout(DEFAULT_TIMEOUT_MS);
+      interval(DEFAULT_INTERVAL_MS);
+      scheduler(Schedulers.io());
+    }
+
+    /** Set the port of the heartbeat endpoint. */
+    @NonNull
+    public Builder port(int port) {
+      if (port <= 0 || port > 65535) {
+        throw new IllegalArgumentException("Invalid port: " + port);
+      }
+
+      this.port = port;
+      return self();
+    }
+
+    /** Set the heartbeat interval, how long pong can take. Defaults to 3000 ms. */
+    @NonNull
+    @Override
+    public Builder interval(long interval) {
+      if (interval <= 0) {
+        throw new IllegalArgumentException("Invalid interval: " + interval);
+      }
+
+      this.interval = interval;
+      return super.interval(interval);
+    }
+
+    /** Set the ping frame sent to the endpoint, in ASCII. Defaults to {@code PING\n}. */
+    @NonNull
+    public Builder ping(@NonNull String ping) {
+      this.ping = frame(checkNotNull(ping, "ping"));
+      return self();
+    }
+
+    /** Set the pong frame expected back from the endpoint, in ASCII. Defaults to {@code PONG\n}. */
+    @NonNull
+    public Builder pong(@NonNull String pong) {
+      this.pong = frame(checkNotNull(pong, "pong"));
+      return self();
+    }
+
+    /** Set the longest delay between reconnect attempts. Defaults to 60 seconds. */
+    @NonNull
+    public Builder maxBackoff(long maxBackoff) {
+      if (maxBackoff <= 0) {
+        throw new IllegalArgumentException("Invalid max backoff: " + maxBackoff);
+      }
+
+      this.maxBackoff = maxBackoff;
+      return self();
+    }
+
+    private static byte[] frame(String frame) {
+      if (frame.isEmpty()) {
+        throw new IllegalArgumentException("Invalid frame: " + frame);
+      }
+
+      return frame.getBytes(ASCII);
+    }
+
+    /**
+     * Create an immutable instance of {@link HeartbeatInternetObservingStrategy} using
+     * configured values.
+     */
+    @NonNull
+    @Override
+    public HeartbeatInternetObservingStrategy build() {
+      return new HeartbeatInternetObservingStrategy(this);
+    }
+  }
+}
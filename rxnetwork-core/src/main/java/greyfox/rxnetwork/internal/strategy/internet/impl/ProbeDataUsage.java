@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals of data used by probes of single internet observing strategy.
+ * <p>
+ * HTTP based strategies count request and response lines, headers and declared response body
+ * length, along with TLS handshakes of https endpoints. Failed requests count the request and
+ * whatever headers came back. Since {@link java.net.HttpURLConnection} does not expose the bytes
+ * that actually went over the wire, the totals are estimates: they leave out TCP/IP overhead,
+ * while handshakes and request headers added by the platform are approximated. Socket based
+ * strategies send no application data and only count probes.
+ *
+ * @author Radek Kozak
+ */
+public final class ProbeDataUsage {
+
+  private final AtomicLong probes = new AtomicLong();
+  private final AtomicLong sentBytes = new AtomicLong();
+  private final AtomicLong receivedBytes = new AtomicLong();
+
+  ProbeDataUsage() {
+  }
+
+  void record(long sent, long received) {
+    probes.incrementAndGet();
+    sentBytes.addAndGet(sent);
+    receivedBytes.addAndGet(received);
+  }
+
+  /** Number of probes so far. */
+  public long probes() {
+    return probes.get();
+  }
+
+  /** Bytes sent by probes so far. */
+  public long sentBytes() {
+    return sentBytes.get();
+  }
+
+  /** Bytes received by probes so far. */
+  public long receivedBytes() {
+    return receivedBytes.get();
+  }
+
+  /** Bytes sent and received by probes so far. */
+  public long totalBytes() {
+    return sentBytes.get() + receivedBytes.get();
+  }
+
+  /** Resets all of the totals, e.g. after reporting them. */
+  public void reset() {
+    probes.set(0);
+    sentBytes.set(0);
+    receivedBytes.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "ProbeDataUsage{"
+        + "probes=" + probes + ", "
+        + "sentBytes=" + sentBytes + ", "
+        + "receivedBytes=" + receivedBytes
+        + "}";
+  }
+}
@@ -17,7 +17,10 @@ package greyfox.rxnetwork.internal.strategy.internet.impl;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
+import io.reactivex.Observable;
+import io.reactivex.functions.Function;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
@@ -27,6 +30,12 @@ import static java.util.logging.Logger.getLogger;
 
 /**
  * Socket-based strategy for monitoring connectivity with the Internet.
+ * <p>
+ * By default it connects to the single address the endpoint resolves to. With
+ * {@linkplain Builder#dualStack(boolean) dual-stack} probing on, it resolves all of the endpoint's
+ * IPv4 and IPv6 addresses and races connections to them as described in RFC 8305
+ * (Happy Eyeballs), so broken IPv6 does not hold the probe up for the whole timeout when IPv4
+ * works, and vice versa. Use {@linkplain #observeDualStack()} to see which family won.
  *
  * @author Radek Kozak
  */
@@ -34,11 +43,15 @@ public final class SocketInternetObservingStrategy extends EndpointInternetObser
 
   /** Either default 80 or a user-specified port. In range [1..65535]. */
   private final int port;
+  private final boolean dualStack;
+  private final long attemptDelay;
 
   @VisibleForTesting
   SocketInternetObservingStrategy(@NonNull Builder builder) {
     super(builder);
     port = builder.port;
+    dualStack = builder.dualStack;
+    attemptDelay = builder.attemptDelay;
   }
 
   @NonNull
@@ -56,13 +69,46 @@ public final class SocketInternetObservingStrategy extends EndpointInternetObser
     return getLogger(SocketInternetObservingStrategy.class.getSimpleName());
   }
 
+  /**
+   * Observes results of dual-stack probes, regardless of whether dual-stack probing was turned on
+   * for {@linkplain #observe()}. Emits whenever connectivity or the winning address family
+   * changes.
+   */
+  @NonNull
+  public Observable<DualStackResult> observeDualStack() {
+    return ticks().map(new Function<Long, DualStackResult>() {
+      @Override
+      public DualStackResult apply(Long tick) throws Exception {
+        return checkDualStack();
+      }
+    }).distinctUntilChanged(new Function<DualStackResult, Object>() {
+      @Override
+      public Object apply(DualStackResult result) throws Exception {
+        return result.isConnected() ? result.family() : Boolean.FALSE;
+      }
+    });
+  }
+
   @Override
   boolean checkConnection() {
+    // connecting is all there is to the probe: no application data goes either way
+    dataUsage().record(0, 0);
+
+    if (dualStack) {
+      return checkDualStack().isConnected();
+    }
+
     boolean isConnected;
     Socket socket = null;
     try {
-      socket = connectSocketTo(new InetSocketAddress(endpoint(), port), timeout());
+      final InetSocketAddress address = new InetSocketAddress(endpoint(), port);
+      eventListener().dnsResolved(this, endpoint(), address.getAddress());
+      socket = connectSocketTo(address, timeout());
       isConnected = isSocketConnected(socket);
+
+      if (isConnected) {
+        eventListener().connected(this, endpoint());
+      }
     } catch (IOException ioe) {
       onError("Problem occurred while checking endpoint", ioe);
       isConnected = Boolean.FALSE;
@@ -79,6 +125,29 @@ public final class SocketInternetObservingStrategy extends EndpointInternetObser
     return isConnected;
   }
 
+  @NonNull
+  DualStackResult checkDualStack() {
+    try {
+      final InetAddress[] addresses = resolveAll(endpoint());
+      eventListener().dnsResolved(this, endpoint(), addresses.length > 0 ? addresses[0] : null);
+      final DualStackResult result = HappyEyeballs.connect(addresses, port, timeout(),
+          attemptDelay);
+
+      if (result.isConnected()) {
+        eventListener().connected(this, endpoint());
+      }
+
+      return result;
+    } catch (IOException ioe) {
+      onError("Problem occurred while checking endpoint", ioe);
+      return new DualStackResult(null, 0);
+    }
+  }
+
+  InetAddress[] resolveAll(String host) throws IOException {
+    return InetAddress.getAllByName(host);
+  }
+
   Socket connectSocketTo(SocketAddress socketAddress, int timeout) throws IOException {
     final Socket socket = new Socket();
     socket.connect(socketAddress, timeout);
@@ -106,7 +175,13 @@ public final class SocketInternetObservingStrategy extends EndpointInternetObser
     private static final String DEFAULT_ENDPOINT = "google.cn";
     private static final int DEFAULT_PORT = 80;
 
+    /** Connection Attempt Delay, as recommended by RFC 8305. */
+    private static final long DEFAULT_ATTEMPT_DELAY_MS = 250;
+    private static final long MIN_ATTEMPT_DELAY_MS = 10;
+
     private int port = DEFAULT_PORT;
+    private boolean dualStack;
+    private long attemptDelay = DEFAULT_ATTEMPT_DELAY_MS;
 
     Builder() {
       super();
@@ -124,6 +199,30 @@ public final class SocketInternetObservingStrategy extends EndpointInternetObser
       return self();
     }
 
+    /**
+     * Set whether to race connections to all of the endpoint's IPv4 and IPv6 addresses
+     * (Happy Eyeballs) instead of connecting to the first one. Off by default.
+     */
+    @NonNull
+    public Builder dualStack(boolean dualStack) {
+      this.dualStack = dualStack;
+      return self();
+    }
+
+    /**
+     * Set the delay in milliseconds between starting consecutive dual-stack connection attempts.
+     * Defaults to 250 ms, must not be less than 10 ms.
+     */
+    @NonNull
+    public Builder attemptDelay(long attemptDelay) {
+      if (attemptDelay < MIN_ATTEMPT_DELAY_MS) {
+        throw new IllegalArgumentException("Invalid attempt delay: " + attemptDelay);
+      }
+
+      this.attemptDelay = attemptDelay;
+      return self();
+    }
+
     /**
      * Create an immutable instance of {@link SocketInternetObservingStrategy} using
      * configured values.
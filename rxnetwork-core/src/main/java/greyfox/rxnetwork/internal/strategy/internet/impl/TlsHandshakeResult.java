@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Outcome of TLS handshake probe of {@link TlsInternetObservingStrategy}.
+ *
+ * @author Radek Kozak
+ */
+public final class TlsHandshakeResult {
+
+  @Nullable private final String protocol;
+  private final boolean resumed;
+  private final long connectTime;
+  private final long handshakeTime;
+
+  TlsHandshakeResult(@Nullable String protocol, boolean resumed, long connectTime,
+      long handshakeTime) {
+
+    this.protocol = protocol;
+    this.resumed = resumed;
+    this.connectTime = connectTime;
+    this.handshakeTime = handshakeTime;
+  }
+
+  /** Checks if the handshake completed and the endpoint's certificate was verified. */
+  public boolean isConnected() {
+    return protocol != null;
+  }
+
+  /** Protocol negotiated, e.g. {@code TLSv1.2}, or {@code null} if the handshake failed. */
+  @Nullable
+  public String protocol() {
+    return protocol;
+  }
+
+  /** Checks if the handshake was an abbreviated one, resuming previously established session. */
+  public boolean isResumed() {
+    return resumed;
+  }
+
+  /** Time it took to establish TCP connection. */
+  public long connectTime(@NonNull TimeUnit unit) {
+    checkNotNull(unit, "unit");
+    return unit.convert(connectTime, NANOSECONDS);
+  }
+
+  /** Time it took to complete the handshake once connected, or to give up. */
+  public long handshakeTime(@NonNull TimeUnit unit) {
+    checkNotNull(unit, "unit");
+    return unit.convert(handshakeTime, NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return "TlsHandshakeResult{"
+        + "protocol=" + protocol + ", "
+        + "resumed=" + resumed + ", "
+        + "connectTime=" + connectTime + ", "
+        + "handshakeTime=" + handshakeTime
+        + "}";
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import io.reactivex.Observable;
+import io.reactivex.functions.Function;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.util.logging.Logger;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * TLS-based strategy for monitoring connectivity with the Internet.
+ * <p>
+ * Each probe completes TLS handshake with the endpoint, verifying its certificate and hostname,
+ * and closes the connection without sending any application data. Unlike plain socket probes it
+ * does not succeed against transparent proxies or captive portals that accept any connection,
+ * and it costs far less than an HTTP request.
+ * <p>
+ * Sessions are cached by the {@link SSLSocketFactory} per endpoint and port, so after the first
+ * probe the following ones resume the session with an abbreviated handshake, skipping the
+ * certificate chain and key exchange. Use {@linkplain #observeHandshakes()} to see handshake
+ * latency and whether it was resumed.
+ *
+ * @author Radek Kozak
+ */
+public final class TlsInternetObservingStrategy extends EndpointInternetObservingStrategy {
+
+  /** Rough size of client and server hellos, key exchange and finished messages. */
+  static final int HANDSHAKE_OVERHEAD_BYTES = 512;
+
+  /** Limit of data read while waiting for the endpoint to close the connection. */
+  private static final int MAX_CLOSE_BYTES = 16 * 1024;
+
+  /** Whether TLS sockets can verify hostname themselves (Java 7, Android API 24). */
+  private static final boolean ENDPOINT_IDENTIFICATION = supportsEndpointIdentification();
+
+  private final int port;
+  private final SSLSocketFactory socketFactory;
+  @Nullable private final HostnameVerifier hostnameVerifier;
+
+  TlsInternetObservingStrategy(@NonNull Builder builder) {
+    super(builder);
+
+    port = builder.port;
+    socketFactory = builder.socketFactory != null ? builder.socketFactory
+        : (SSLSocketFactory) SSLSocketFactory.getDefault();
+
+    if (builder.hostnameVerifier != null) {
+      hostnameVerifier = builder.hostnameVerifier;
+    } else {
+      // null when the socket verifies hostname itself
+      hostnameVerifier = ENDPOINT_IDENTIFICATION ? null
+          : HttpsURLConnection.getDefaultHostnameVerifier();
+    }
+  }
+
+  private static boolean supportsEndpointIdentification() {
+    try {
+      SSLParameters.class.getMethod("setEndpointIdentificationAlgorithm", String.class);
+      return true;
+    } catch (NoSuchMethodException nsme) {
+      return false;
+    }
+  }
+
+  @NonNull
+  public static TlsInternetObservingStrategy create() {
+    return builder().build();
+  }
+
+  @NonNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  @Override
+  Logger logger() {
+    return getLogger(TlsInternetObservingStrategy.class.getSimpleName());
+  }
+
+  /**
+   * Observes results of handshake probes. Emits on every probe, so that changes in handshake
+   * latency can be followed.
+   */
+  @NonNull
+  public Observable<TlsHandshakeResult> observeHandshakes() {
+    return ticks().map(new Function<Long, TlsHandshakeResult>() {
+      @Override
+      public TlsHandshakeResult apply(Long tick) throws Exception {
+        return handshake();
+      }
+    });
+  }
+
+  @Override
+  boolean checkConnection() {
+    return handshake().isConnected();
+  }
+
+  @NonNull
+  TlsHandshakeResult handshake() {
+    final long start = System.nanoTime();
+    long connected = start;
+    Socket socket = null;
+    SSLSocket sslSocket = null;
+    SSLSession session = null;
+    boolean resumed = false;
+    try {
+      final InetSocketAddress address = new InetSocketAddress(endpoint(), port);
+      eventListener().dnsResolved(this, endpoint(), address.getAddress());
+      socket = new Socket();
+      socket.connect(address, timeout());
+      socket.setSoTimeout(timeout());
+      connected = System.nanoTime();
+      eventListener().connected(this, endpoint());
+
+      // wrapping with endpoint and port is what keys the session cache and sets SNI
+      sslSocket = (SSLSocket) socketFactory.createSocket(socket, endpoint(), port, true);
+
+      if (hostnameVerifier == null) {
+        final SSLParameters parameters = sslSocket.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        sslSocket.setSSLParameters(parameters);
+      }
+
+      final long handshakeStartMillis = System.currentTimeMillis();
+      sslSocket.startHandshake();
+      session = sslSocket.getSession();
+      resumed = session.getCreationTime() < handshakeStartMillis;
+
+      if (hostnameVerifier != null && !hostnameVerifier.verify(endpoint(), session)) {
+        session.invalidate();
+        throw new SSLPeerUnverifiedException("Hostname " + endpoint() + " not verified");
+      }
+
+      final long finished = System.nanoTime();
+      eventListener().firstByte(this, endpoint());
+      recordDataUsage(session, resumed);
+      closeGracefully(sslSocket);
+
+      return new TlsHandshakeResult(session.getProtocol(), resumed, connected - start,
+          finished - connected);
+    } catch (IOException ioe) {
+      onError("Problem occurred while checking endpoint", ioe);
+
+      if (session != null) {
+        // handshake completed, it's the hostname that was rejected
+        recordDataUsage(session, resumed);
+      } else if (sslSocket != null) {
+        // client hello went out, the endpoint answered if it's the handshake that failed
+        dataUsage().record(HANDSHAKE_OVERHEAD_BYTES,
+            ioe instanceof SSLException ? HANDSHAKE_OVERHEAD_BYTES : 0);
+      } else {
+        dataUsage().record(0, 0);
+      }
+
+      return new TlsHandshakeResult(null, false, connected - start,
+          System.nanoTime() - connected);
+    } finally {
+      close(sslSocket != null ? sslSocket : socket);
+    }
+  }
+
+  /** Records estimated handshake size: certificate chain is only sent on full handshakes. */
+  private void recordDataUsage(SSLSession session, boolean resumed) {
+    long received = HANDSHAKE_OVERHEAD_BYTES;
+
+    if (!resumed) {
+      try {
+        received += certificatesBytes(session.getPeerCertificates());
+      } catch (SSLPeerUnverifiedException ignored) {
+        // the estimate goes without the chain
+      }
+    }
+
+    dataUsage().record(HANDSHAKE_OVERHEAD_BYTES, received);
+  }
+
+  /** Encoded size of given certificate chain, as sent in the handshake. */
+  static long certificatesBytes(@Nullable Certificate[] chain) {
+    long bytes = 0;
+
+    if (chain != null) {
+      for (Certificate certificate : chain) {
+        try {
+          bytes += certificate.getEncoded().length;
+        } catch (CertificateEncodingException ignored) {
+          // the estimate goes without this one
+        }
+      }
+    }
+
+    return bytes;
+  }
+
+  /**
+   * Sends {@code close_notify} and reads up to the endpoint's one. TLS 1.3 session tickets are
+   * sent after the handshake, so this is what picks them up for the next probe to resume.
+   */
+  private static void closeGracefully(SSLSocket sslSocket) {
+    try {
+      sslSocket.shutdownOutput();
+      final InputStream input = sslSocket.getInputStream();
+      int skipped = 0;
+
+      while (skipped < MAX_CLOSE_BYTES && input.read() != -1) {
+        skipped++;
+      }
+    } catch (Exception ignored) {
+      // half-close is not supported everywhere, the session is still good for TLS 1.2
+    }
+  }
+
+  private void close(Socket socket) {
+    try {
+      if (socket != null) {
+        socket.close();
+      }
+    } catch (IOException ioe) {
+      onError("Could not close the socket", ioe);
+    }
+  }
+
+  // @formatter:off
+
+  /** Build a new {@link TlsInternetObservingStrategy}. */
+  public static final class Builder extends
+      EndpointInternetObservingStrategy.Builder<TlsInternetObservingStrategy,
+          TlsInternetObservingStrategy.Builder> {
+
+    // @formatter:on
+
+    /** Canonical hostname, the one its certificate is verified against. */
+    private static final String DEFAULT_ENDPOINT = "google.cn";
+    private static final int DEFAULT_PORT = 443;
+    private static final int DEFAULT_TIMEOUT_MS = 3000;
+
+    private int port = DEFAULT_PORT;
+    private SSLSocketFactory socketFactory;
+    private HostnameVerifier hostnameVerifier;
+
+    Builder() {
+      super();
+      endpoint(DEFAULT_ENDPOINT);
+      timeout(DEFAULT_TIMEOUT_MS);
+    }
+
+    /** Set the port for the strategy. Defaults to 443. */
+    @NonNull
+    public Builder port(int port) {
+      if (port <= 0 || port > 65535) {
+        throw new IllegalArgumentException("Invalid port: " + port);
+      }
+
+      this.port = port;
+      return self();
+    }
+
+    /**
+     * Set the factory of TLS sockets, e.g. one with custom trust managers. Sessions are cached
+     * by the factory. Defaults to {@linkplain SSLSocketFactory#getDefault()}.
+     */
+    @NonNull
+    public Builder socketFactory(@NonNull SSLSocketFactory socketFactory) {
+      this.socketFactory = checkNotNull(socketFactory, "socketFactory");
+      return self();
+    }
+
+    /**
+     * Set the verifier of endpoint's hostname. By default the hostname is verified by TLS socket
+     * itself where supported and by {@linkplain HttpsURLConnection#getDefaultHostnameVerifier()}
+     * elsewhere.
+     */
+    @NonNull
+    public Builder hostnameVerifier(@NonNull HostnameVerifier hostnameVerifier) {
+      this.hostnameVerifier = checkNotNull(hostnameVerifier, "hostnameVerifier");
+      return self();
+    }
+
+    /**
+     * Create an immutable instance of {@link TlsInternetObservingStrategy} using
+     * configured values.
+     */
+    @NonNull
+    @Override
+    public TlsInternetObservingStrategy build() {
+      return new TlsInternetObservingStrategy(this);
+    }
+  }
+}
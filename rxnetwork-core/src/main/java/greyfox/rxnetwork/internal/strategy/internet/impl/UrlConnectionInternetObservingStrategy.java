@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import greyfox.rxnetwork.internal.strategy.internet.error.InternetObservingStrategyException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static greyfox.rxnetwork.internal.strategy.internet.impl.TlsInternetObservingStrategy.HANDSHAKE_OVERHEAD_BYTES;
+
+/**
+ * Defines basic {@link HttpURLConnection} based internet observing strategies.
+ *
+ * @author Radek Kozak
+ * @see HttpOkInternetObservingStrategy
+ * @see WalledGardenInternetObservingStrategy
+ */
+abstract class UrlConnectionInternetObservingStrategy extends EndpointInternetObservingStrategy {
+
+  /** User-Agent, Connection and Accept-Encoding headers, as sent by Android. */
+  private static final int PLATFORM_REQUEST_HEADERS_BYTES = 120;
+
+  UrlConnectionInternetObservingStrategy(@NonNull Builder builder) {
+    super(builder);
+  }
+
+  @VisibleForTesting
+  HttpURLConnection buildUrlConnection(@NonNull URL url) throws InternetObservingStrategyException {
+
+    checkNotNull(url, "url");
+
+    final HttpURLConnection urlConnection;
+
+    try {
+      urlConnection = (HttpURLConnection) url.openConnection();
+      setUpUrlConnectionForStrategy(urlConnection);
+    } catch (IOException ioe) {
+      throw new InternetObservingStrategyException(
+          "Could not create valid connection " + "from " + url.toString(), ioe);
+    }
+
+    return urlConnection;
+  }
+
+  /**
+   * This is taken straight from Android's inner works
+   * ({@code android.net.wifi.WifiWatchdogStateMachine}) and what essentially
+   * makes the strategy handle walled-garden internet situations.
+   */
+  private void setUpUrlConnectionForStrategy(@NonNull HttpURLConnection urlConnection) {
+    checkNotNull(urlConnection, "urlConnection");
+
+    urlConnection.setInstanceFollowRedirects(false);
+    urlConnection.setConnectTimeout(timeout());
+    urlConnection.setReadTimeout(timeout());
+    urlConnection.setUseCaches(false);
+  }
+
+  @Override
+  boolean checkConnection() {
+    HttpURLConnection urlConnection = null;
+    boolean isRequestSent = false;
+    try {
+      urlConnection = buildUrlConnection(url());
+      connect(urlConnection);
+      isRequestSent = true;
+      request(urlConnection);
+      return isConnected(urlConnection);
+    } catch (InternetObservingStrategyException iose) {
+      onError("Problem occurred while checking endpoint", iose);
+      return false;
+    } finally {
+      if (urlConnection != null && isRequestSent) {
+        // failed requests are charged too: for the request and whatever came back before failure
+        recordDataUsage(urlConnection);
+      } else {
+        dataUsage().record(0, 0);
+      }
+
+      if (urlConnection != null) {
+        urlConnection.disconnect();
+      }
+    }
+  }
+
+  /** Connects to the endpoint, completing TLS handshake for https endpoints. */
+  private void connect(@NonNull HttpURLConnection urlConnection)
+      throws InternetObservingStrategyException {
+
+    try {
+      urlConnection.connect();
+      eventListener().connected(this, endpoint());
+    } catch (IOException ioe) {
+      throw new InternetObservingStrategyException(
+          "Could not create valid connection from " + urlConnection.getURL(), ioe);
+    }
+  }
+
+  /** Sends the request and waits for response headers. */
+  private void request(@NonNull HttpURLConnection urlConnection)
+      throws InternetObservingStrategyException {
+
+    try {
+      urlConnection.getInputStream();
+      eventListener().firstByte(this, endpoint());
+    } catch (IOException ioe) {
+      throw new InternetObservingStrategyException(
+          "Could not create valid connection from " + urlConnection.getURL(), ioe);
+    }
+  }
+
+  private void recordDataUsage(@NonNull HttpURLConnection urlConnection) {
+    long sent = sentBytes(urlConnection);
+    long received = receivedBytes(urlConnection);
+
+    if (urlConnection instanceof HttpsURLConnection) {
+      sent += HANDSHAKE_OVERHEAD_BYTES;
+      received += HANDSHAKE_OVERHEAD_BYTES + certificatesBytes((HttpsURLConnection) urlConnection);
+    }
+
+    dataUsage().record(sent, received);
+  }
+
+  /**
+   * Estimated size of the server's certificate chain. {@link HttpsURLConnection} doesn't tell
+   * resumed sessions apart, so every handshake is estimated as a full one.
+   */
+  private static long certificatesBytes(@NonNull HttpsURLConnection urlConnection) {
+    try {
+      return TlsInternetObservingStrategy.certificatesBytes(
+          urlConnection.getServerCertificates());
+    } catch (SSLPeerUnverifiedException ignored) {
+      return 0;
+    }
+  }
+
+  /** Estimated size of the request: request line, host and headers added by the platform. */
+  @VisibleForTesting
+  static long sentBytes(@NonNull HttpURLConnection urlConnection) {
+    final URL url = urlConnection.getURL();
+
+    if (url == null) {
+      return 0;
+    }
+
+    // "GET <file> HTTP/1.1\r\n" and "Host: <host>\r\n"
+    return "GET  HTTP/1.1\r\n".length() + Math.max(1, url.getFile().length())
+        + "Host: \r\n".length() + url.getHost().length()
+        + PLATFORM_REQUEST_HEADERS_BYTES + "\r\n".length();
+  }
+
+  /** Size of the response: status line, headers and declared body length. */
+  @VisibleForTesting
+  static long receivedBytes(@NonNull HttpURLConnection urlConnection) {
+    final Map<String, List<String>> headers = urlConnection.getHeaderFields();
+
+    if (headers == null || headers.isEmpty()) {
+      return 0;
+    }
+
+    long bytes = "\r\n".length();
+
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      for (String value : header.getValue()) {
+        // status line comes with null key
+        bytes += header.getKey() != null
+            ? header.getKey().length() + ": ".length() + value.length() + "\r\n".length()
+            : value.length() + "\r\n".length();
+      }
+    }
+
+    return bytes + Math.max(0, urlConnection.getContentLength());
+  }
+
+  /** Returns this URL as a {@link URL java.net.URL}. */
+  private URL url() throws InternetObservingStrategyException {
+    try {
+      return new URL(endpoint());
+    } catch (MalformedURLException mue) {
+      throw new InternetObservingStrategyException("Couldn't create valid endpoint", mue);
+    }
+  }
+
+  abstract boolean isConnected(@NonNull HttpURLConnection urlConnection)
+      throws InternetObservingStrategyException;
+
+  // @formatter:off
+
+  abstract static class Builder<S extends UrlConnectionInternetObservingStrategy,
+      B extends UrlConnectionInternetObservingStrategy.Builder<S, B>>
+      extends EndpointInternetObservingStrategy.Builder<S, B> {
+
+    // @formatter:on
+
+    protected Builder() {
+      super();
+    }
+  }
+}
@@ -0,0 +1,486 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.monitor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.functions.Cancellable;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * Watches reachability of large, dynamic set of {@link MonitoredEndpoint endpoints}.
+ * <p>
+ * Unlike {@code SocketInternetObservingStrategy}, which keeps its own timer and blocks a thread
+ * on every probe, the monitor runs a single event loop thread. All of the probes are scheduled
+ * on one hierarchical {@link TimingWheel} and connect through non-blocking socket channels
+ * registered with one {@link Selector}. Number of probes in flight is bounded; probes that
+ * become due while the limit is reached wait in line. This easily handles tens of thousands of
+ * endpoints.
+ * <p>
+ * Example usage:
+ * <pre><code>
+ * EndpointMonitor monitor = EndpointMonitor.builder().maxConcurrentProbes(512).build();
+ *
+ * monitor.add(MonitoredEndpoint.builder().endpoint("10.0.0.1").port(443).interval(5000).build());
+ * monitor.observe()
+ *        .filter(status -&gt; !status.isReachable())
+ *        .subscribe(...);
+ * </code></pre>
+ * Event loop is started with the first subscription to {@linkplain #observe()} and stopped once
+ * the last subscriber is gone. Endpoints can be added and removed at any time.
+ *
+ * @author Radek Kozak
+ */
+public final class EndpointMonitor {
+
+  private static final Logger logger = getLogger(EndpointMonitor.class.getSimpleName());
+
+  private static final int WHEEL_BITS = 6;
+  private static final int WHEEL_LEVELS = 4;
+
+  private final long tickDuration;
+  private final int maxConcurrentProbes;
+
+  private final Set<MonitoredEndpoint> endpoints =
+      Collections.newSetFromMap(new ConcurrentHashMap<MonitoredEndpoint, Boolean>());
+  private final Observable<EndpointStatus> statuses;
+
+  @Nullable private EventLoop eventLoop;
+
+  EndpointMonitor(@NonNull Builder builder) {
+    checkNotNull(builder, "builder");
+
+    tickDuration = builder.tickDuration;
+    maxConcurrentProbes = builder.maxConcurrentProbes;
+    statuses = Observable.create(new ObservableOnSubscribe<EndpointStatus>() {
+      @Override
+      public void subscribe(ObservableEmitter<EndpointStatus> emitter) throws Exception {
+        final EventLoop loop = start(emitter);
+
+        emitter.setCancellable(new Cancellable() {
+          @Override
+          public void cancel() throws Exception {
+            stop(loop);
+          }
+        });
+      }
+    }).share();
+  }
+
+  @NonNull
+  public static EndpointMonitor create() {
+    return builder().build();
+  }
+
+  @NonNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Starts watching given endpoint.
+   *
+   * @return {@code true} if the endpoint was not watched already, {@code false} otherwise
+   */
+  public boolean add(@NonNull MonitoredEndpoint endpoint) {
+    checkNotNull(endpoint, "endpoint");
+
+    if (!endpoints.add(endpoint)) {
+      return false;
+    }
+
+    final EventLoop loop = currentLoop();
+
+    if (loop != null) {
+      loop.submit(endpoint, true);
+    }
+
+    return true;
+  }
+
+  /**
+   * Stops watching given endpoint.
+   *
+   * @return {@code true} if the endpoint was watched, {@code false} otherwise
+   */
+  public boolean remove(@NonNull MonitoredEndpoint endpoint) {
+    checkNotNull(endpoint, "endpoint");
+
+    if (!endpoints.remove(endpoint)) {
+      return false;
+    }
+
+    final EventLoop loop = currentLoop();
+
+    if (loop != null) {
+      loop.submit(endpoint, false);
+    }
+
+    return true;
+  }
+
+  /** Number of watched endpoints. */
+  public int size() {
+    return endpoints.size();
+  }
+
+  /**
+   * Reachability changes of all the watched endpoints, merged into single stream.
+   * <p>
+   * First probe of every endpoint is always reported, after that only changes are. Statuses are
+   * emitted on monitor's event loop thread, so make sure not to block it.
+   *
+   * @return RxJava Observable with {@link EndpointStatus}
+   */
+  @NonNull
+  public Observable<EndpointStatus> observe() {
+    return statuses;
+  }
+
+  @Nullable
+  private synchronized EventLoop currentLoop() {
+    return eventLoop;
+  }
+
+  private synchronized EventLoop start(ObservableEmitter<EndpointStatus> emitter) {
+    eventLoop = new EventLoop(emitter);
+    eventLoop.start();
+    return eventLoop;
+  }
+
+  private synchronized void stop(EventLoop loop) {
+    loop.shutdown();
+
+    if (eventLoop == loop) {
+      eventLoop = null;
+    }
+  }
+
+  /** Probing state of single endpoint, confined to event loop thread. */
+  private static final class Probe extends TimingWheel.Timeout {
+
+    private static final int UNKNOWN = -1;
+
+    final MonitoredEndpoint endpoint;
+
+    @Nullable SocketChannel channel;
+    long startedAt;
+    int reachable = UNKNOWN;
+    boolean removed;
+
+    Probe(MonitoredEndpoint endpoint) {
+      this.endpoint = endpoint;
+    }
+  }
+
+  private final class EventLoop extends Thread {
+
+    private final ObservableEmitter<EndpointStatus> emitter;
+    private final TimingWheel<Probe> wheel = new TimingWheel<>(WHEEL_BITS, WHEEL_LEVELS);
+    private final Map<MonitoredEndpoint, Probe> probes = new HashMap<>();
+    private final Queue<Probe> waiting = new ArrayDeque<>();
+    private final List<Probe> expired = new ArrayList<>();
+    private final Queue<Object[]> commands = new ConcurrentLinkedQueue<>();
+    private final long startedAt = System.nanoTime();
+
+    private volatile boolean stopped;
+    private volatile Selector selector;
+    private int inFlight;
+
+    EventLoop(ObservableEmitter<EndpointStatus> emitter) {
+      super("RxNetwork-EndpointMonitor");
+      setDaemon(true);
+      this.emitter = emitter;
+    }
+
+    void submit(MonitoredEndpoint endpoint, boolean add) {
+      commands.add(new Object[] { endpoint, add });
+      wakeup();
+    }
+
+    void shutdown() {
+      stopped = true;
+      wakeup();
+    }
+
+    private void wakeup() {
+      final Selector current = selector;
+
+      if (current != null) {
+        current.wakeup();
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        selector = Selector.open();
+      } catch (IOException ioe) {
+        if (!emitter.isDisposed()) {
+          emitter.onError(ioe);
+        }
+        return;
+      }
+
+      for (MonitoredEndpoint endpoint : endpoints) {
+        add(endpoint);
+      }
+
+      try {
+        while (!stopped) {
+          selector.select(tickDuration);
+          processSelected();
+          processCommands();
+          processExpired();
+        }
+      } catch (IOException ioe) {
+        if (!emitter.isDisposed()) {
+          emitter.onError(ioe);
+        }
+      } finally {
+        for (Probe probe : probes.values()) {
+          close(probe);
+        }
+        close(selector);
+      }
+    }
+
+    private long currentTick() {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) / tickDuration;
+    }
+
+    private long ticks(long millis) {
+      return Math.max(1, (millis + tickDuration - 1) / tickDuration);
+    }
+
+    private void processSelected() {
+      final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+      while (keys.hasNext()) {
+        final SelectionKey key = keys.next();
+        keys.remove();
+
+        final Probe probe = (Probe) key.attachment();
+
+        if (!key.isValid() || probe.channel == null) {
+          continue;
+        }
+
+        try {
+          if (probe.channel.finishConnect()) {
+            finish(probe, true);
+          }
+        } catch (IOException ioe) {
+          finish(probe, false);
+        }
+      }
+    }
+
+    private void processCommands() {
+      Object[] command;
+
+      while ((command = commands.poll()) != null) {
+        final MonitoredEndpoint endpoint = (MonitoredEndpoint) command[0];
+
+        if ((Boolean) command[1]) {
+          add(endpoint);
+        } else {
+          remove(endpoint);
+        }
+      }
+    }
+
+    private void processExpired() {
+      wheel.advance(currentTick(), expired);
+
+      for (int i = 0; i < expired.size(); i++) {
+        final Probe probe = expired.get(i);
+
+        if (probe.channel != null) {
+          finish(probe, false);
+        } else {
+          start(probe);
+        }
+      }
+
+      expired.clear();
+    }
+
+    private void add(MonitoredEndpoint endpoint) {
+      if (!probes.containsKey(endpoint)) {
+        final Probe probe = new Probe(endpoint);
+        probes.put(endpoint, probe);
+        wheel.schedule(probe, wheel.currentTick());
+      }
+    }
+
+    private void remove(MonitoredEndpoint endpoint) {
+      final Probe probe = probes.remove(endpoint);
+
+      if (probe != null) {
+        probe.removed = true;
+        wheel.cancel(probe);
+
+        if (probe.channel != null) {
+          close(probe);
+          inFlight--;
+          startWaiting();
+        }
+      }
+    }
+
+    private void start(Probe probe) {
+      if (inFlight >= maxConcurrentProbes) {
+        waiting.add(probe);
+      } else {
+        connect(probe);
+      }
+    }
+
+    private void startWaiting() {
+      while (inFlight < maxConcurrentProbes && !waiting.isEmpty()) {
+        final Probe probe = waiting.poll();
+
+        if (!probe.removed) {
+          connect(probe);
+        }
+      }
+    }
+
+    private void connect(Probe probe) {
+      probe.startedAt = System.nanoTime();
+
+      try {
+        probe.channel = SocketChannel.open();
+        probe.channel.configureBlocking(false);
+
+        if (probe.channel.connect(probe.endpoint.address())) {
+          close(probe);
+          complete(probe, true);
+        } else {
+          probe.channel.register(selector, SelectionKey.OP_CONNECT, probe);
+          inFlight++;
+          wheel.schedule(probe, wheel.currentTick() + ticks(probe.endpoint.timeout()));
+        }
+      } catch (Exception exc) {
+        close(probe);
+        complete(probe, false);
+      }
+    }
+
+    private void finish(Probe probe, boolean reachable) {
+      wheel.cancel(probe);
+      close(probe);
+      inFlight--;
+      complete(probe, reachable);
+      startWaiting();
+    }
+
+    private void complete(Probe probe, boolean reachable) {
+      final int state = reachable ? 1 : 0;
+
+      if (probe.reachable != state) {
+        probe.reachable = state;
+        emitter.onNext(
+            new EndpointStatus(probe.endpoint, reachable, System.nanoTime() - probe.startedAt));
+      }
+
+      if (!probe.removed) {
+        wheel.schedule(probe, wheel.currentTick() + ticks(probe.endpoint.interval()));
+      }
+    }
+
+    private void close(Probe probe) {
+      if (probe.channel != null) {
+        close(probe.channel);
+        probe.channel = null;
+      }
+    }
+
+    private void close(java.io.Closeable closeable) {
+      try {
+        closeable.close();
+      } catch (IOException ioe) {
+        logger.log(Level.WARNING, "Could not close the channel: " + ioe.getMessage());
+      }
+    }
+  }
+
+  /** Build a new {@link EndpointMonitor}. */
+  public static final class Builder {
+
+    private static final long DEFAULT_TICK_DURATION_MS = 10;
+    private static final int DEFAULT_MAX_CONCURRENT_PROBES = 256;
+
+    private long tickDuration = DEFAULT_TICK_DURATION_MS;
+    private int maxConcurrentProbes = DEFAULT_MAX_CONCURRENT_PROBES;
+
+    Builder() {
+    }
+
+    /** Set the resolution of monitor's timing wheel in milliseconds. */
+    @NonNull
+    public Builder tickDuration(long tickDuration) {
+      if (tickDuration <= 0) {
+        throw new IllegalArgumentException("Invalid tick duration: " + tickDuration);
+      }
+
+      this.tickDuration = tickDuration;
+      return this;
+    }
+
+    /** Set the maximum number of probes in flight. */
+    @NonNull
+    public Builder maxConcurrentProbes(int maxConcurrentProbes) {
+      if (maxConcurrentProbes <= 0) {
+        throw new IllegalArgumentException(
+            "Invalid number of concurrent probes: " + maxConcurrentProbes);
+      }
+
+      this.maxConcurrentProbes = maxConcurrentProbes;
+      return this;
+    }
+
+    /** Create an immutable instance of {@link EndpointMonitor} using configured values. */
+    @NonNull
+    public EndpointMonitor build() {
+      return new EndpointMonitor(this);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.monitor;
+
+import android.support.annotation.NonNull;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Reachability of {@link MonitoredEndpoint} as reported by {@link EndpointMonitor}.
+ *
+ * @author Radek Kozak
+ */
+public final class EndpointStatus {
+
+  private final MonitoredEndpoint endpoint;
+  private final boolean reachable;
+  private final long latency;
+
+  EndpointStatus(@NonNull MonitoredEndpoint endpoint, boolean reachable, long latency) {
+    this.endpoint = checkNotNull(endpoint, "endpoint");
+    this.reachable = reachable;
+    this.latency = latency;
+  }
+
+  /** The endpoint this status is about. */
+  @NonNull
+  public MonitoredEndpoint endpoint() {
+    return endpoint;
+  }
+
+  /** Checks if the endpoint accepted connection within its timeout. */
+  public boolean isReachable() {
+    return reachable;
+  }
+
+  /** Time it took to connect to, or to give up on, the endpoint. */
+  public long latency(@NonNull TimeUnit unit) {
+    checkNotNull(unit, "unit");
+    return unit.convert(latency, NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return "EndpointStatus{"
+        + "endpoint=" + endpoint + ", "
+        + "reachable=" + reachable + ", "
+        + "latency=" + latency
+        + "}";
+  }
+}
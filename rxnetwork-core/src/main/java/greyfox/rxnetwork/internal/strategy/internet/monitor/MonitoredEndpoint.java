@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.monitor;
+
+import android.support.annotation.NonNull;
+import java.net.InetSocketAddress;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+
+/**
+ * Single {@code host:port} target watched by {@link EndpointMonitor}, with its own probing
+ * interval and timeout.
+ * <p>
+ * Host name is resolved once, when the endpoint is built. Endpoints are compared by identity,
+ * so the very same instance has to be used to {@linkplain EndpointMonitor#remove remove} it.
+ *
+ * @author Radek Kozak
+ */
+public final class MonitoredEndpoint {
+
+  private final String endpoint;
+  private final int port;
+  private final long interval;
+  private final long timeout;
+  private final InetSocketAddress address;
+
+  MonitoredEndpoint(@NonNull Builder builder) {
+    checkNotNull(builder, "builder");
+
+    endpoint = builder.endpoint;
+    port = builder.port;
+    interval = builder.interval;
+    timeout = builder.timeout;
+    address = new InetSocketAddress(endpoint, port);
+  }
+
+  @NonNull
+  public static MonitoredEndpoint create(@NonNull String endpoint, int port) {
+    return builder().endpoint(endpoint).port(port).build();
+  }
+
+  @NonNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Host name or address of the endpoint. */
+  @NonNull
+  public String endpoint() {
+    return endpoint;
+  }
+
+  /** Port of the endpoint. */
+  public int port() {
+    return port;
+  }
+
+  /** Interval between probes in milliseconds. */
+  public long interval() {
+    return interval;
+  }
+
+  /** Probe timeout in milliseconds. */
+  public long timeout() {
+    return timeout;
+  }
+
+  @NonNull
+  InetSocketAddress address() {
+    return address;
+  }
+
+  @Override
+  public String toString() {
+    return "MonitoredEndpoint{"
+        + "endpoint=" + endpoint + ", "
+        + "port=" + port + ", "
+        + "interval=" + interval + ", "
+        + "timeout=" + timeout
+        + "}";
+  }
+
+  /** Build a new {@link MonitoredEndpoint}. */
+  public static final class Builder {
+
+    private static final int DEFAULT_PORT = 80;
+    private static final long DEFAULT_INTERVAL_MS = 3000;
+    private static final long DEFAULT_TIMEOUT_MS = 3000;
+
+    private String endpoint;
+    private int port = DEFAULT_PORT;
+    private long interval = DEFAULT_INTERVAL_MS;
+    private long timeout = DEFAULT_TIMEOUT_MS;
+
+    Builder() {
+    }
+
+    /** Set the host name or address of the endpoint. */
+    @NonNull
+    public Builder endpoint(@NonNull String endpoint) {
+      this.endpoint = checkNotNull(endpoint, "endpoint");
+      return this;
+    }
+
+    /** Set the port of the endpoint. */
+    @NonNull
+    public Builder port(int port) {
+      if (port <= 0 || port > 65535) {
+        throw new IllegalArgumentException("Invalid port: " + port);
+      }
+
+      this.port = port;
+      return this;
+    }
+
+    /** Set the interval between probes in milliseconds. */
+    @NonNull
+    public Builder interval(long interval) {
+      if (interval <= 0) {
+        throw new IllegalArgumentException("Invalid interval: " + interval);
+      }
+
+      this.interval = interval;
+      return this;
+    }
+
+    /** Set the probe timeout in milliseconds. */
+    @NonNull
+    public Builder timeout(long timeout) {
+      if (timeout <= 0) {
+        throw new IllegalArgumentException("Invalid timeout: " + timeout);
+      }
+
+      this.timeout = timeout;
+      return this;
+    }
+
+    /** Create an immutable instance of {@link MonitoredEndpoint} using configured values. */
+    @NonNull
+    public MonitoredEndpoint build() {
+      checkNotNull(endpoint, "endpoint");
+      return new MonitoredEndpoint(this);
+    }
+  }
+}
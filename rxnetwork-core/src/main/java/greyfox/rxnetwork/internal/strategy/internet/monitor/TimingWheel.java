@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.monitor;
+
+import android.support.annotation.NonNull;
+import java.util.Collection;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hierarchical timing wheel.
+ * <p>
+ * Each level has the same number of slots, and every slot of a level spans as many ticks
+ * as the whole level below it. Timeouts are put into the lowest level that can hold them and
+ * cascade down level by level as their time draws near, so scheduling, cancelling and expiring
+ * are all constant time, no matter how many timeouts there are.
+ * <p>
+ * Not thread-safe. It's meant to be owned by single event loop thread.
+ *
+ * @author Radek Kozak
+ */
+final class TimingWheel<T extends TimingWheel.Timeout> {
+
+  private final int bits;
+  private final int mask;
+  private final Timeout[][] levels;
+
+  private long currentTick;
+
+  /**
+   * @param bits   number of bits of single level, i.e. {@code 2^bits} slots per level
+   * @param levels number of levels
+   */
+  TimingWheel(int bits, int levels) {
+    if (bits < 1 || levels < 1 || bits * levels > 62) {
+      throw new IllegalArgumentException("Invalid timing wheel size: " + levels + "x" + bits);
+    }
+
+    this.bits = bits;
+    this.mask = (1 << bits) - 1;
+    this.levels = new Timeout[levels][1 << bits];
+
+    for (Timeout[] slots : this.levels) {
+      for (int i = 0; i < slots.length; i++) {
+        slots[i] = Timeout.sentinel();
+      }
+    }
+  }
+
+  /** Tick the wheel has been advanced to. */
+  long currentTick() {
+    return currentTick;
+  }
+
+  /**
+   * Schedules given timeout to expire at given tick. Timeouts that are due already expire
+   * with the next tick. Rescheduling a pending timeout moves it.
+   */
+  void schedule(@NonNull T timeout, long deadline) {
+    checkNotNull(timeout, "timeout");
+
+    timeout.unlink();
+    timeout.deadline = Math.max(deadline, currentTick + 1);
+    insert(timeout);
+  }
+
+  /** Cancels given timeout. Cancelling timeout that is not pending does nothing. */
+  void cancel(@NonNull T timeout) {
+    checkNotNull(timeout, "timeout");
+    timeout.unlink();
+  }
+
+  /** Advances the wheel up to given tick, collecting all of the expired timeouts. */
+  @SuppressWarnings("unchecked")
+  void advance(long tick, @NonNull Collection<? super T> expired) {
+    checkNotNull(expired, "expired");
+
+    while (currentTick < tick) {
+      currentTick++;
+
+      for (int level = highestRolledOverLevel(); level > 0; level--) {
+        final Timeout head = levels[level][slotIndex(currentTick, level)];
+
+        for (Timeout timeout = head.next; timeout != head; timeout = head.next) {
+          timeout.unlink();
+          insert(timeout);
+        }
+      }
+
+      final Timeout head = levels[0][slotIndex(currentTick, 0)];
+
+      for (Timeout timeout = head.next; timeout != head; timeout = head.next) {
+        timeout.unlink();
+        expired.add((T) timeout);
+      }
+    }
+  }
+
+  private int highestRolledOverLevel() {
+    int level = 0;
+
+    while (level < levels.length - 1 && (currentTick & ((1L << (bits * (level + 1))) - 1)) == 0) {
+      level++;
+    }
+
+    return level;
+  }
+
+  private void insert(Timeout timeout) {
+    final int top = levels.length - 1;
+
+    for (int level = 0; level <= top; level++) {
+      final int shift = bits * level;
+
+      if ((timeout.deadline >>> shift) - (currentTick >>> shift) <= mask) {
+        levels[level][slotIndex(timeout.deadline, level)].append(timeout);
+        return;
+      }
+    }
+
+    // Beyond the range of the wheel: park it in the farthest slot and let it cascade from there.
+    final long farthest = (currentTick >>> (bits * top)) + mask;
+    levels[top][(int) (farthest & mask)].append(timeout);
+  }
+
+  private int slotIndex(long tick, int level) {
+    return (int) ((tick >>> (bits * level)) & mask);
+  }
+
+  /** Timeout that can be scheduled on {@link TimingWheel}, linked intrusively into its slot. */
+  abstract static class Timeout {
+
+    long deadline;
+    private Timeout prev;
+    private Timeout next;
+
+    private static Timeout sentinel() {
+      final Timeout sentinel = new Timeout() {
+      };
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+      return sentinel;
+    }
+
+    /** Checks if the timeout is pending on a wheel. */
+    final boolean isPending() {
+      return next != null;
+    }
+
+    void append(Timeout timeout) {
+      timeout.prev = prev;
+      timeout.next = this;
+      prev.next = timeout;
+      prev = timeout;
+    }
+
+    void unlink() {
+      if (next != null) {
+        prev.next = next;
+        next.prev = prev;
+        prev = null;
+        next = null;
+      }
+    }
+  }
+}
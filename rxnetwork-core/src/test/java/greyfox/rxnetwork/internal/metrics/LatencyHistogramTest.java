@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.metrics;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+  private final LatencyHistogram sut = new LatencyHistogram();
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToRecordWithNullUnit() {
+    sut.record(1, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToRecordNegativeDuration() {
+    sut.record(-1, MILLISECONDS);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToGetInvalidPercentile() {
+    sut.snapshot().percentile(101, MILLISECONDS);
+  }
+
+  @Test
+  public void shouldKeepBucketsWithinRelativeError() {
+    for (long micros = 0; micros < 10000000; micros += 1 + micros / 7) {
+      final long value = LatencyHistogram.value(LatencyHistogram.index(micros));
+
+      assertThat((double) Math.abs(value - micros)).isLessThanOrEqualTo(micros / 16d);
+    }
+  }
+
+  @Test
+  public void shouldPutHugeLatencies_inLastBucket() {
+    assertThat(LatencyHistogram.index(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.BUCKETS - 1);
+  }
+
+  @Test
+  public void shouldReturnZero_whenNothingRecorded() {
+    LatencySnapshot snapshot = sut.snapshot();
+
+    assertThat(snapshot.count()).isZero();
+    assertThat(snapshot.percentile(99, MILLISECONDS)).isZero();
+    assertThat(snapshot.max(MILLISECONDS)).isZero();
+  }
+
+  @Test
+  public void shouldComputePercentiles() {
+    for (int ms = 1; ms <= 100; ms++) {
+      sut.record(ms, MILLISECONDS);
+    }
+
+    LatencySnapshot snapshot = sut.snapshot();
+
+    assertThat(snapshot.count()).isEqualTo(100);
+    assertThat(snapshot.percentile(50, MILLISECONDS)).isBetween(47L, 53L);
+    assertThat(snapshot.percentile(99, MILLISECONDS)).isBetween(93L, 100L);
+    assertThat(snapshot.percentile(100, MILLISECONDS)).isEqualTo(100);
+    assertThat(snapshot.max(MILLISECONDS)).isEqualTo(100);
+  }
+
+  @Test
+  public void shouldKeepExactSmallLatencies() {
+    sut.record(3, MICROSECONDS);
+
+    assertThat(sut.snapshot().percentile(50, MICROSECONDS)).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldStartOver_whenSnapshotReset() {
+    sut.record(2, SECONDS);
+
+    assertThat(sut.snapshotAndReset().count()).isEqualTo(1);
+
+    sut.record(5, MILLISECONDS);
+    LatencySnapshot snapshot = sut.snapshotAndReset();
+
+    assertThat(snapshot.count()).isEqualTo(1);
+    assertThat(snapshot.max(MILLISECONDS)).isEqualTo(5);
+    assertThat(sut.snapshot().count()).isZero();
+  }
+
+  @Test
+  public void shouldNotLoseSamples_whenRecordedConcurrently() throws InterruptedException {
+    final int threads = 4;
+    final int samples = 10000;
+    final CountDownLatch done = new CountDownLatch(threads);
+
+    for (int i = 0; i < threads; i++) {
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < samples; j++) {
+            sut.record(j, MICROSECONDS);
+          }
+
+          done.countDown();
+        }
+      }).start();
+    }
+
+    long total = 0;
+    while (done.getCount() > 0) {
+      total += sut.snapshotAndReset().count();
+    }
+
+    done.await();
+    total += sut.snapshotAndReset().count();
+
+    assertThat(total).isEqualTo(threads * samples);
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.metrics;
+
+import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LatencyRecorderTest {
+
+  private static final String ENDPOINT = "endpoint";
+  private static final String OTHER_ENDPOINT = "other";
+
+  private final LatencyRecorder sut = LatencyRecorder.create();
+
+  @Mock private InternetObservingStrategy strategy;
+
+  @Test
+  public void shouldRecordProbeDurationAndConnectTime_perEndpoint() throws InterruptedException {
+    sut.probeStart(strategy, ENDPOINT);
+    Thread.sleep(20);
+    sut.dnsResolved(strategy, ENDPOINT, null);
+    sut.connected(strategy, ENDPOINT);
+    sut.probeEnd(strategy, ENDPOINT, true);
+    sut.probeStart(strategy, OTHER_ENDPOINT);
+    sut.probeEnd(strategy, OTHER_ENDPOINT, false);
+
+    List<ProbeLatencies> latencies = sut.latencies();
+    ProbeLatencies endpoint = latencies.get(0).endpoint().equals(ENDPOINT) ? latencies.get(0)
+                                                                          : latencies.get(1);
+
+    assertThat(latencies).hasSize(2);
+    assertThat(endpoint.strategy()).isSameAs(strategy);
+    assertThat(endpoint.probeDuration().snapshot().count()).isEqualTo(1);
+    assertThat(endpoint.probeDuration().snapshot().percentile(50, MILLISECONDS))
+        .isGreaterThanOrEqualTo(18);
+    assertThat(endpoint.connectTime().snapshot().percentile(50, MILLISECONDS)).isLessThan(18);
+  }
+
+  @Test
+  public void shouldRecordProbes_ofStrategyWithoutEndpoint() {
+    sut.probeStart(strategy, null);
+    sut.probeEnd(strategy, null, true);
+
+    assertThat(sut.latencies()).hasSize(1);
+    assertThat(sut.latencies().get(0).endpoint()).isNull();
+    assertThat(sut.latencies().get(0).probeDuration().snapshot().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldIgnoreProbeEnd_withoutProbeStart() {
+    sut.probeEnd(strategy, ENDPOINT, false);
+
+    assertThat(sut.latencies().get(0).probeDuration().snapshot().count()).isZero();
+  }
+
+  @Test
+  public void shouldRecordDeliveryLatency_ofReportedNetworkChanges() throws InterruptedException {
+    final Object networkInfo = new Object();
+
+    sut.networkCallbackReceived(networkInfo);
+    Thread.sleep(10);
+    sut.emissionDelivered(Boolean.TRUE);
+    sut.emissionDelivered(networkInfo);
+    sut.emissionDelivered(networkInfo);
+
+    LatencySnapshot snapshot = sut.deliveryLatency().snapshot();
+    assertThat(snapshot.count()).isEqualTo(2);
+    assertThat(snapshot.percentile(50, MILLISECONDS)).isGreaterThanOrEqualTo(9);
+  }
+
+  @Test
+  public void shouldRecordDeliveryLatency_ofChangeFollowedByAnother() {
+    final Object first = new Object();
+    final Object second = new Object();
+
+    sut.networkCallbackReceived(first);
+    sut.networkCallbackReceived(second);
+    sut.emissionDelivered(first);
+    sut.emissionDelivered(second);
+
+    assertThat(sut.deliveryLatency().snapshot().count()).isEqualTo(2);
+  }
+}
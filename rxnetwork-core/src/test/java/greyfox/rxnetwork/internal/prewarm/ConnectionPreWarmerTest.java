@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.prewarm;
+
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.PublishSubject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ConnectionPreWarmerTest {
+
+  private static final String LOOPBACK = "127.0.0.1";
+  private static final int TIMEOUT_MS = 1000;
+
+  /** Self-signed certificate of {@code localhost}. */
+  private static final String KEY_STORE = "/localhost.jks";
+  private static final char[] PASSWORD = "password".toCharArray();
+
+  private ServerSocket server;
+  private List<Socket> accepted;
+  private Thread acceptor;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new ServerSocket(0, 50, InetAddress.getByName(LOOPBACK));
+    accepted = new CopyOnWriteArrayList<>();
+    acceptor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (!server.isClosed()) {
+          try {
+            accepted.add(server.accept());
+          } catch (IOException ignored) {
+            // closed
+          }
+        }
+      }
+    });
+    acceptor.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.close();
+    acceptor.join();
+
+    for (Socket socket : accepted) {
+      socket.close();
+    }
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new ConnectionPreWarmer(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToAddHostWithInvalidPort() {
+    ConnectionPreWarmer.builder().host(LOOPBACK, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidTimeout() {
+    ConnectionPreWarmer.builder().timeout(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidMaxIdle() {
+    ConnectionPreWarmer.builder().maxIdle(0);
+  }
+
+  @Test
+  public void shouldHandOffWarmConnection_whenWarmedUp() {
+    ConnectionPreWarmer sut = builder().host(LOOPBACK, server.getLocalPort()).build();
+
+    sut.warm().blockingAwait();
+    Socket socket = sut.take(LOOPBACK, server.getLocalPort());
+
+    assertThat(socket).isNotNull();
+    assertThat(socket.isConnected()).isTrue();
+    assertThat(sut.take(LOOPBACK, server.getLocalPort())).isNull();
+  }
+
+  @Test
+  public void shouldHandOffConnectionWithoutReadTimeout_whenWarmedUp() throws Exception {
+    ConnectionPreWarmer sut = builder().host(LOOPBACK, server.getLocalPort()).build();
+
+    sut.warm().blockingAwait();
+    Socket socket = sut.take(LOOPBACK, server.getLocalPort());
+
+    assertThat(socket.getSoTimeout()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNotHandOffPlainConnection_asTlsOne() {
+    ConnectionPreWarmer sut = builder().host(LOOPBACK, server.getLocalPort()).build();
+
+    sut.warm().blockingAwait();
+
+    assertThat(sut.takeTls(LOOPBACK, server.getLocalPort())).isNull();
+    assertThat(sut.take(LOOPBACK, server.getLocalPort())).isNotNull();
+  }
+
+  @Test
+  public void shouldNotHandOffConnection_whenIdleForTooLong() throws Exception {
+    ConnectionPreWarmer sut = builder().host(LOOPBACK, server.getLocalPort()).maxIdle(1).build();
+
+    sut.warm().blockingAwait();
+    Thread.sleep(10);
+
+    assertThat(sut.take(LOOPBACK, server.getLocalPort())).isNull();
+  }
+
+  @Test
+  public void shouldSkipHost_whenItCannotBeWarmedUp() throws Exception {
+    ConnectionPreWarmer sut = builder().host(LOOPBACK, closedPort())
+                                       .host(LOOPBACK, server.getLocalPort()).build();
+
+    sut.warm().test().awaitDone(TIMEOUT_MS * 2, TimeUnit.MILLISECONDS)
+       .assertComplete();
+
+    assertThat(sut.pooled()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldSkipTlsHost_whenHandshakeFails() {
+    ConnectionPreWarmer sut = builder().tls(LOOPBACK, server.getLocalPort()).timeout(200).build();
+
+    sut.warm().test().awaitDone(TIMEOUT_MS * 2, TimeUnit.MILLISECONDS)
+       .assertComplete();
+
+    assertThat(sut.pooled()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldHandOffTlsConnection_whenCertificateMatchesHostname() throws Exception {
+    SSLContext context = tlsContext();
+    ServerSocket tlsServer = startTlsServer(context);
+    ConnectionPreWarmer sut = builder().tls("localhost", tlsServer.getLocalPort())
+        .sslSocketFactory(context.getSocketFactory()).build();
+
+    sut.warm().blockingAwait();
+    SSLSocket socket = sut.takeTls("localhost", tlsServer.getLocalPort());
+
+    assertThat(socket).isNotNull();
+    assertThat(socket.getSession().isValid()).isTrue();
+    assertThat(socket.getSoTimeout()).isEqualTo(0);
+    socket.close();
+    tlsServer.close();
+  }
+
+  @Test
+  public void shouldPoolPlainAndTlsConnectionsSeparately_whenToSameHostAndPort() throws Exception {
+    SSLContext context = tlsContext();
+    ServerSocket tlsServer = startTlsServer(context);
+    ConnectionPreWarmer sut = builder().host("localhost", tlsServer.getLocalPort())
+        .tls("localhost", tlsServer.getLocalPort())
+        .sslSocketFactory(context.getSocketFactory()).build();
+
+    sut.warm().blockingAwait();
+
+    assertThat(sut.pooled()).isEqualTo(2);
+    Socket plain = sut.take("localhost", tlsServer.getLocalPort());
+    SSLSocket tls = sut.takeTls("localhost", tlsServer.getLocalPort());
+    assertThat(plain).isNotNull().isNotInstanceOf(SSLSocket.class);
+    assertThat(tls).isNotNull();
+    plain.close();
+    tls.close();
+    tlsServer.close();
+  }
+
+  @Test
+  public void shouldSkipTlsHost_whenCertificateDoesNotMatchHostname() throws Exception {
+    SSLContext context = tlsContext();
+    ServerSocket tlsServer = startTlsServer(context);
+    ConnectionPreWarmer sut = builder().tls(LOOPBACK, tlsServer.getLocalPort())
+        .sslSocketFactory(context.getSocketFactory()).build();
+
+    sut.warm().blockingAwait();
+
+    assertThat(sut.pooled()).isEqualTo(0);
+    tlsServer.close();
+  }
+
+  @Test
+  public void shouldCloseConnection_whenIdleForMaxIdle() {
+    final TestScheduler evictionScheduler = new TestScheduler();
+    ConnectionPreWarmer sut = builder().host(LOOPBACK, server.getLocalPort()).maxIdle(1000)
+        .evictionScheduler(evictionScheduler).build();
+    sut.warm().blockingAwait();
+
+    evictionScheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+
+    assertThat(sut.pooled()).isEqualTo(1);
+
+    evictionScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+    assertThat(sut.pooled()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldReplacePooledConnections_whenWarmedUpAgain() {
+    ConnectionPreWarmer sut = builder().host(LOOPBACK, server.getLocalPort()).build();
+    PublishSubject<Object> triggers = PublishSubject.create();
+    sut.warmOn(triggers).test();
+
+    triggers.onNext(1);
+    Socket first = sut.take(LOOPBACK, server.getLocalPort());
+    triggers.onNext(2);
+    triggers.onNext(3);
+
+    assertThat(first).isNotNull();
+    assertThat(sut.pooled()).isEqualTo(1);
+    assertThat(sut.take(LOOPBACK, server.getLocalPort())).isNotSameAs(first);
+  }
+
+  @Test
+  public void shouldCloseConnections_whenEvicted() {
+    ConnectionPreWarmer sut = builder().host(LOOPBACK, server.getLocalPort()).build();
+    sut.warm().blockingAwait();
+
+    sut.evictAll();
+
+    assertThat(sut.pooled()).isEqualTo(0);
+    assertThat(sut.take(LOOPBACK, server.getLocalPort())).isNull();
+  }
+
+  private static ConnectionPreWarmer.Builder builder() {
+    return ConnectionPreWarmer.builder().timeout(TIMEOUT_MS).scheduler(Schedulers.trampoline());
+  }
+
+  private SSLContext tlsContext() throws Exception {
+    final KeyStore keyStore = KeyStore.getInstance("JKS");
+    final InputStream input = getClass().getResourceAsStream(KEY_STORE);
+    try {
+      keyStore.load(input, PASSWORD);
+    } finally {
+      input.close();
+    }
+
+    final KeyManagerFactory keyManagers =
+        KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagers.init(keyStore, PASSWORD);
+    final TrustManagerFactory trustManagers =
+        TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagers.init(keyStore);
+
+    final SSLContext context = SSLContext.getInstance("TLS");
+    context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+    return context;
+  }
+
+  /** Starts TLS server completing handshakes of whoever connects. */
+  private ServerSocket startTlsServer(SSLContext context) throws IOException {
+    final ServerSocket tlsServer = context.getServerSocketFactory()
+        .createServerSocket(0, 50, InetAddress.getByName(LOOPBACK));
+
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (!tlsServer.isClosed()) {
+          try {
+            final SSLSocket socket = (SSLSocket) tlsServer.accept();
+            accepted.add(socket);
+            handshake(socket);
+          } catch (IOException ignored) {
+            // closed
+          }
+        }
+      }
+    }).start();
+
+    return tlsServer;
+  }
+
+  /** Handshakes on its own thread, so that a client that never starts one blocks no other. */
+  private static void handshake(final SSLSocket socket) {
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          socket.startHandshake();
+        } catch (IOException ignored) {
+          // closed or handshake rejected by the client
+        }
+      }
+    }).start();
+  }
+
+  private static int closedPort() throws IOException {
+    ServerSocket socket = new ServerSocket(0);
+    int port = socket.getLocalPort();
+    socket.close();
+    return port;
+  }
+}
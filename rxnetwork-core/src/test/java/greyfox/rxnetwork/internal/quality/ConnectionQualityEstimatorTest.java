@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.quality;
+
+import io.reactivex.observers.TestObserver;
+import org.junit.Before;
+import org.junit.Test;
+
+import static greyfox.rxnetwork.internal.quality.ConnectionQuality.EXCELLENT;
+import static greyfox.rxnetwork.internal.quality.ConnectionQuality.GOOD;
+import static greyfox.rxnetwork.internal.quality.ConnectionQuality.MODERATE;
+import static greyfox.rxnetwork.internal.quality.ConnectionQuality.POOR;
+import static greyfox.rxnetwork.internal.quality.ConnectionQuality.UNKNOWN;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.within;
+
+public class ConnectionQualityEstimatorTest {
+
+  private ConnectionQualityEstimator sut;
+
+  @Before
+  public void setUp() {
+    sut = ConnectionQualityEstimator.builder().minSampleBytes(0).weight(0.5).build();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new ConnectionQualityEstimator(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidWeight() {
+    ConnectionQualityEstimator.builder().weight(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidHysteresis() {
+    ConnectionQualityEstimator.builder().hysteresis(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToResetWithNegativePrior() {
+    sut.reset(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToAddNegativePrior() {
+    sut.addPrior(-1);
+  }
+
+  @Test
+  public void shouldBeUnknown_untilPriorOrSample() {
+    sut.observe().test().assertValue(UNKNOWN);
+  }
+
+  @Test
+  public void shouldStartFromPrior() {
+    sut.reset(1000);
+
+    assertThat(sut.quality()).isEqualTo(GOOD);
+    assertThat(sut.estimate()).isEqualTo(1000);
+  }
+
+  @Test
+  public void shouldConvertSamplesToKbps() {
+    // 125 000 bytes in a second is 1000 kbps
+    sut.addSample(125000, 1000, MILLISECONDS);
+
+    assertThat(sut.estimate()).isCloseTo(1000, within(0.001));
+  }
+
+  @Test
+  public void shouldBlendPriorWithSamples() {
+    sut.reset(1000);
+
+    sut.addSample(25000, 1000, MILLISECONDS);
+
+    assertThat(sut.estimate()).isCloseTo(600, within(0.001));
+  }
+
+  @Test
+  public void shouldWeighUpdatedPrior_asOneMoreSample() {
+    sut.reset(1000);
+    sut.addSample(25000, 1000, MILLISECONDS);
+
+    sut.addPrior(900);
+
+    assertThat(sut.estimate()).isCloseTo(750, within(0.001));
+  }
+
+  @Test
+  public void shouldIgnoreSmallSamples() {
+    sut = ConnectionQualityEstimator.builder().minSampleBytes(1000).build();
+
+    sut.addSample(999, 1, MILLISECONDS);
+    sut.addSample(1000, 0, MILLISECONDS);
+
+    assertThat(sut.quality()).isEqualTo(UNKNOWN);
+  }
+
+  @Test
+  public void shouldSettleAtConfiguredWeight() {
+    sut = ConnectionQualityEstimator.builder().minSampleBytes(0).weight(0.1).build();
+
+    for (int i = 0; i < 100; i++) {
+      sut.addSample(125000, 1000, MILLISECONDS);
+    }
+    sut.addSample(0, 1000, MILLISECONDS);
+
+    assertThat(sut.estimate()).isCloseTo(900, within(0.001));
+  }
+
+  @Test
+  public void shouldNotChangeClass_withinHysteresis() {
+    sut = ConnectionQualityEstimator.builder().minSampleBytes(0).weight(1).hysteresis(0.2)
+                                    .build();
+    sut.reset(1000);
+
+    sut.addSample(kbps(2200), 1000, MILLISECONDS);
+    assertThat(sut.quality()).isEqualTo(GOOD);
+
+    sut.addSample(kbps(2400), 1000, MILLISECONDS);
+    assertThat(sut.quality()).isEqualTo(EXCELLENT);
+
+    sut.addSample(kbps(1700), 1000, MILLISECONDS);
+    assertThat(sut.quality()).isEqualTo(EXCELLENT);
+
+    sut.addSample(kbps(1500), 1000, MILLISECONDS);
+    assertThat(sut.quality()).isEqualTo(GOOD);
+  }
+
+  @Test
+  public void shouldEmitOnlyClassChanges() {
+    sut = ConnectionQualityEstimator.builder().minSampleBytes(0).weight(1).build();
+    final TestObserver<ConnectionQuality> observer = sut.observe().test();
+
+    sut.addSample(kbps(100), 1000, MILLISECONDS);
+    sut.addSample(kbps(120), 1000, MILLISECONDS);
+    sut.addSample(kbps(400), 1000, MILLISECONDS);
+
+    observer.assertValues(UNKNOWN, POOR, MODERATE);
+  }
+
+  /** Bytes transferred in a second at given throughput. */
+  private static long kbps(long kbps) {
+    return kbps * 1000 / 8;
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.quality;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ConnectionQualityTest {
+
+  @Test
+  public void shouldBeUnknown_whenThroughputIsNotPositive() {
+    assertThat(ConnectionQuality.of(0)).isEqualTo(ConnectionQuality.UNKNOWN);
+    assertThat(ConnectionQuality.of(-1)).isEqualTo(ConnectionQuality.UNKNOWN);
+  }
+
+  @Test
+  public void shouldClassifyByThroughput() {
+    assertThat(ConnectionQuality.of(1)).isEqualTo(ConnectionQuality.POOR);
+    assertThat(ConnectionQuality.of(149.9)).isEqualTo(ConnectionQuality.POOR);
+    assertThat(ConnectionQuality.of(150)).isEqualTo(ConnectionQuality.MODERATE);
+    assertThat(ConnectionQuality.of(550)).isEqualTo(ConnectionQuality.GOOD);
+    assertThat(ConnectionQuality.of(2000)).isEqualTo(ConnectionQuality.EXCELLENT);
+    assertThat(ConnectionQuality.of(1e9)).isEqualTo(ConnectionQuality.EXCELLENT);
+  }
+}
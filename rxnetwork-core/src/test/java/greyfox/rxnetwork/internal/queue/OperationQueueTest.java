@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.queue;
+
+import greyfox.rxnetwork.internal.queue.OperationQueue.Condition;
+import greyfox.rxnetwork.internal.queue.OperationQueue.OperationFactory;
+import io.reactivex.Completable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.CompletableSubject;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class OperationQueueTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final TestScheduler retryScheduler = new TestScheduler();
+
+  private BehaviorSubject<Boolean> any;
+  private BehaviorSubject<Boolean> unmetered;
+  private List<String> executed;
+
+  @Before
+  public void setUp() {
+    any = BehaviorSubject.createDefault(false);
+    unmetered = BehaviorSubject.createDefault(false);
+    executed = new ArrayList<>();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new OperationQueue(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidBatchSize() {
+    OperationQueue.builder().batchSize(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidMaxAttempts() {
+    OperationQueue.builder().maxAttempts(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidRetryDelay() {
+    OperationQueue.builder().retryDelay(0, TimeUnit.SECONDS);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldThrow_whenEnqueuingJournaledOperationWithoutJournal() {
+    queue().build().enqueue("type", "payload", 0, Condition.ANY);
+  }
+
+  @Test
+  public void shouldHoldOperations_whileConditionIsNotMet() {
+    OperationQueue queue = queue().build();
+    queue.process().test();
+
+    queue.enqueue(operation("first"), 0, Condition.ANY);
+
+    assertThat(executed).isEmpty();
+    assertThat(queue.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldHoldOperations_whileNotProcessing() {
+    OperationQueue queue = queue().build();
+    any.onNext(true);
+
+    queue.enqueue(operation("first"), 0, Condition.ANY);
+
+    assertThat(executed).isEmpty();
+  }
+
+  @Test
+  public void shouldRunOperation_whenEnqueuedWhileConditionIsMet() {
+    OperationQueue queue = queue().build();
+    any.onNext(true);
+    queue.process().test();
+
+    queue.enqueue(operation("first"), 0, Condition.ANY);
+
+    assertThat(executed).containsExactly("first");
+    assertThat(queue.size()).isZero();
+  }
+
+  @Test
+  public void shouldRunOperationsByPriority_whenConditionIsMet() {
+    OperationQueue queue = queue().batchSize(1).build();
+    queue.process().test();
+
+    queue.enqueue(operation("low"), 0, Condition.ANY);
+    queue.enqueue(operation("high"), 10, Condition.ANY);
+    queue.enqueue(operation("low again"), 0, Condition.ANY);
+    any.onNext(true);
+
+    assertThat(executed).containsExactly("high", "low", "low again");
+  }
+
+  @Test
+  public void shouldRunOnlyOperationsWithConditionMet() {
+    OperationQueue queue = queue().build();
+    queue.process().test();
+
+    queue.enqueue(operation("upload"), 10, Condition.UNMETERED);
+    queue.enqueue(operation("sync"), 0, Condition.ANY);
+    any.onNext(true);
+
+    assertThat(executed).containsExactly("sync");
+
+    unmetered.onNext(true);
+
+    assertThat(executed).containsExactly("sync", "upload");
+  }
+
+  @Test
+  public void shouldNeverRunOperations_whenConditionHasNoSignal() {
+    OperationQueue queue = queue().build();
+    any.onNext(true);
+    queue.process().test();
+
+    queue.enqueue(operation("first"), 0, Condition.VALIDATED);
+
+    assertThat(executed).isEmpty();
+  }
+
+  @Test
+  public void shouldRunBatchConcurrently_andStartNextBatchWhenDone() {
+    OperationQueue queue = queue().batchSize(2).build();
+    queue.process().test();
+    List<CompletableSubject> operations = new ArrayList<>();
+
+    for (int i = 0; i < 3; i++) {
+      CompletableSubject operation = CompletableSubject.create();
+      operations.add(operation);
+      queue.enqueue(operation, 0, Condition.ANY);
+    }
+    any.onNext(true);
+
+    assertThat(operations.get(0).hasObservers()).isTrue();
+    assertThat(operations.get(1).hasObservers()).isTrue();
+    assertThat(operations.get(2).hasObservers()).isFalse();
+
+    operations.get(0).onComplete();
+
+    assertThat(operations.get(2).hasObservers()).isFalse();
+
+    operations.get(1).onComplete();
+
+    assertThat(operations.get(2).hasObservers()).isTrue();
+  }
+
+  @Test
+  public void shouldRetryFailedOperation_whenConditionIsMetAgain() {
+    OperationQueue queue = queue().build();
+    queue.process().test();
+    queue.enqueue(failing("flaky", 1), 0, Condition.ANY);
+
+    any.onNext(true);
+
+    assertThat(executed).containsExactly("flaky");
+    assertThat(queue.size()).isEqualTo(1);
+
+    any.onNext(false);
+    any.onNext(true);
+
+    assertThat(executed).containsExactly("flaky", "flaky");
+    assertThat(queue.size()).isZero();
+  }
+
+  @Test
+  public void shouldKeepFlushing_andRetryAfterBackoff_whenOperationFailsWhileConditionsStayMet() {
+    OperationQueue queue = queue().batchSize(1).retryDelay(1, TimeUnit.SECONDS).build();
+    queue.process().test();
+    queue.enqueue(failing("flaky", 1), 10, Condition.ANY);
+
+    for (int i = 0; i < 4; i++) {
+      queue.enqueue(operation("op" + i), 0, Condition.ANY);
+    }
+    any.onNext(true);
+
+    assertThat(executed).containsExactly("flaky", "op0", "op1", "op2", "op3");
+    assertThat(queue.size()).isEqualTo(1);
+
+    retryScheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+
+    assertThat(executed).hasSize(5);
+
+    retryScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+    assertThat(executed).containsExactly("flaky", "op0", "op1", "op2", "op3", "flaky");
+    assertThat(queue.size()).isZero();
+  }
+
+  @Test
+  public void shouldDoubleRetryDelay_withEachAttempt() {
+    OperationQueue queue = queue().maxAttempts(3).retryDelay(1, TimeUnit.SECONDS).build();
+    queue.process().test();
+    any.onNext(true);
+    queue.enqueue(failing("broken", Integer.MAX_VALUE), 0, Condition.ANY);
+
+    retryScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+    retryScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+    assertThat(executed).hasSize(2);
+
+    retryScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+    assertThat(executed).hasSize(3);
+    assertThat(queue.size()).isZero();
+  }
+
+  @Test
+  public void shouldDropOperation_whenItRunsOutOfAttempts() {
+    OperationQueue queue = queue().maxAttempts(2).build();
+    queue.process().test();
+    queue.enqueue(failing("broken", Integer.MAX_VALUE), 0, Condition.ANY);
+
+    any.onNext(true);
+    any.onNext(true);
+    any.onNext(true);
+
+    assertThat(executed).containsExactly("broken", "broken");
+    assertThat(queue.size()).isZero();
+  }
+
+  @Test
+  public void shouldRequeueRunningOperations_whenProcessingStops() {
+    OperationQueue queue = queue().build();
+    any.onNext(true);
+    Disposable processing = queue.process().subscribe();
+    CompletableSubject operation = CompletableSubject.create();
+    queue.enqueue(operation, 0, Condition.ANY);
+
+    processing.dispose();
+
+    assertThat(operation.hasObservers()).isFalse();
+    assertThat(queue.size()).isEqualTo(1);
+
+    queue.process().test();
+
+    assertThat(operation.hasObservers()).isTrue();
+  }
+
+  @Test
+  public void shouldNotAllowProcessingTwice() {
+    OperationQueue queue = queue().build();
+    queue.process().test();
+
+    queue.process().test().assertError(IllegalStateException.class);
+  }
+
+  @Test
+  public void shouldRestoreJournaledOperations_whenBuiltAgain() {
+    File journal = new File(folder.getRoot(), "operations");
+    OperationQueue queue = queue().journal(journal, new RecordingFactory()).build();
+    queue.enqueue("upload", "photo-1", 0, Condition.ANY);
+    queue.enqueue("upload", "photo-2", 5, Condition.ANY);
+
+    OperationQueue restored = queue().journal(journal, new RecordingFactory()).build();
+    restored.process().test();
+    any.onNext(true);
+
+    assertThat(executed).containsExactly("upload:photo-2", "upload:photo-1");
+  }
+
+  @Test
+  public void shouldRemoveOperationsFromJournal_whenTheySucceed() {
+    File journal = new File(folder.getRoot(), "operations");
+    OperationQueue queue = queue().journal(journal, new RecordingFactory()).build();
+    queue.process().test();
+    queue.enqueue("upload", "photo-1", 0, Condition.ANY);
+    any.onNext(true);
+
+    OperationQueue restored = queue().journal(journal, new RecordingFactory()).build();
+
+    assertThat(restored.size()).isZero();
+  }
+
+  @Test
+  public void shouldStartEmpty_whenJournalIsCorrupt() throws IOException {
+    File journal = new File(folder.getRoot(), "operations");
+    FileOutputStream output = new FileOutputStream(journal);
+    output.write(new byte[] { 0, 0, 0, 1, 0, 0, 0, 2, 0 });
+    output.close();
+
+    OperationQueue queue = queue().journal(journal, new RecordingFactory()).build();
+
+    assertThat(queue.size()).isZero();
+  }
+
+  private OperationQueue.Builder queue() {
+    return OperationQueue.builder()
+        .condition(Condition.ANY, any)
+        .condition(Condition.UNMETERED, unmetered)
+        .scheduler(Schedulers.trampoline())
+        .retryScheduler(retryScheduler);
+  }
+
+  private Completable operation(final String name) {
+    return Completable.fromAction(new Action() {
+      @Override
+      public void run() throws Exception {
+        executed.add(name);
+      }
+    });
+  }
+
+  private Completable failing(final String name, final int failures) {
+    final int[] attempts = new int[1];
+
+    return Completable.fromAction(new Action() {
+      @Override
+      public void run() throws Exception {
+        executed.add(name);
+
+        if (attempts[0]++ < failures) {
+          throw new IOException("Failure #" + attempts[0]);
+        }
+      }
+    });
+  }
+
+  private final class RecordingFactory implements OperationFactory {
+
+    @Override
+    public Completable create(String type, String payload) {
+      return operation(type + ":" + payload);
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.retry;
+
+import io.reactivex.Single;
+import io.reactivex.functions.Predicate;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class RetryWhenConnectedTest {
+
+  private final TestScheduler scheduler = new TestScheduler();
+
+  private BehaviorSubject<Boolean> connectivity;
+  private AtomicInteger subscriptions;
+
+  @Before
+  public void setUp() {
+    connectivity = BehaviorSubject.createDefault(false);
+    subscriptions = new AtomicInteger();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new RetryWhenConnected<>(null);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToBuildWithNullConnectivity() {
+    RetryWhenConnected.builder(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidMaxAttempts() {
+    RetryWhenConnected.builder(connectivity).maxAttempts(-1);
+  }
+
+  @Test
+  public void shouldNotResubscribe_whileOffline() {
+    TestObserver<Integer> observer =
+        failingSingle(1).compose(RetryWhenConnected.<Integer>create(connectivity)).test();
+
+    connectivity.onNext(false);
+
+    observer.assertNoValues().assertNoErrors();
+    assertThat(subscriptions.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldResubscribe_whenBackOnline() {
+    TestObserver<Integer> observer =
+        failingSingle(1).compose(RetryWhenConnected.<Integer>create(connectivity)).test();
+
+    connectivity.onNext(true);
+
+    observer.assertValue(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidRetryDelay() {
+    RetryWhenConnected.builder(connectivity).retryDelay(-1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void shouldResubscribeAfterRetryDelay_whenAlreadyOnline() {
+    connectivity.onNext(true);
+
+    final TestObserver<Integer> observer = failingSingle(2).compose(sut().build()).test();
+
+    observer.assertNoValues();
+    assertThat(subscriptions.get()).isEqualTo(1);
+
+    scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+    observer.assertNoValues();
+    assertThat(subscriptions.get()).isEqualTo(2);
+
+    scheduler.advanceTimeBy(2, TimeUnit.SECONDS);
+
+    observer.assertValue(3);
+  }
+
+  @Test
+  public void shouldResubscribeRightAway_whenConnectivityComesBackAfterFailure() {
+    connectivity.onNext(true);
+    TestObserver<Integer> observer = failingSingle(1).compose(sut().build()).test();
+
+    connectivity.onNext(false);
+    connectivity.onNext(true);
+
+    observer.assertValue(2);
+  }
+
+  @Test
+  public void shouldNotRetry_whenConnectivityLostDuringRetryDelay() {
+    connectivity.onNext(true);
+    final TestObserver<Integer> observer = failingSingle(1).compose(sut().build()).test();
+
+    scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+    connectivity.onNext(false);
+    scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+    observer.assertNoValues();
+    assertThat(subscriptions.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldFail_whenAttemptsExhausted() {
+    connectivity.onNext(true);
+
+    TestObserver<Integer> observer =
+        failingSingle(10).compose(sut().maxAttempts(2).build()).test();
+    scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+    observer.assertError(IOException.class);
+    assertThat(subscriptions.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldFailRightAway_whenErrorNotRetryable() {
+    connectivity.onNext(true);
+
+    Single.<Integer>error(new IllegalStateException())
+        .compose(RetryWhenConnected.<Integer>create(connectivity))
+        .test().assertError(IllegalStateException.class);
+  }
+
+  @Test
+  public void shouldRetryOnlyMatchingErrors_whenRetryIfGiven() {
+    connectivity.onNext(true);
+    RetryWhenConnected<Integer> sut = RetryWhenConnected.<Integer>builder(connectivity)
+        .retryIf(new Predicate<Throwable>() {
+          @Override
+          public boolean test(Throwable throwable) throws Exception {
+            return throwable instanceof SocketTimeoutException;
+          }
+        }).build();
+
+    failingSingle(1).compose(sut).test().assertError(IOException.class);
+  }
+
+  @Test
+  public void shouldRetryObservable_whenBackOnline() {
+    TestObserver<Integer> observer = failingSingle(1).toObservable()
+        .compose(RetryWhenConnected.<Integer>create(connectivity)).test();
+
+    connectivity.onNext(true);
+
+    observer.assertValue(2).assertComplete();
+  }
+
+  @Test
+  public void shouldRetryFlowable_whenBackOnline() {
+    TestSubscriber<Integer> subscriber = failingSingle(1).toFlowable()
+        .compose(RetryWhenConnected.<Integer>create(connectivity)).test();
+
+    connectivity.onNext(true);
+
+    subscriber.assertValue(2).assertComplete();
+  }
+
+  @Test
+  public void shouldRetryCompletable_whenBackOnline() {
+    TestObserver<Void> observer = failingSingle(1).toCompletable()
+        .compose(RetryWhenConnected.create(connectivity)).test();
+
+    observer.assertNotComplete();
+    connectivity.onNext(true);
+
+    observer.assertComplete();
+  }
+
+  private RetryWhenConnected.Builder<Integer> sut() {
+    return RetryWhenConnected.<Integer>builder(connectivity).scheduler(scheduler);
+  }
+
+  private Single<Integer> failingSingle(final int failures) {
+    return Single.fromCallable(new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        if (subscriptions.incrementAndGet() <= failures) {
+          throw new IOException("offline");
+        }
+        return subscriptions.get();
+      }
+    });
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.scheduler;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.BehaviorSubject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ConnectivitySchedulerTest {
+
+  private BehaviorSubject<Boolean> condition;
+  private TestScheduler actual;
+  private ConnectivityScheduler sut;
+  private List<String> executed;
+
+  @Before
+  public void setUp() {
+    condition = BehaviorSubject.createDefault(false);
+    actual = new TestScheduler();
+    sut = ConnectivityScheduler.create(condition, actual);
+    executed = new ArrayList<>();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToCreateWithNullCondition() {
+    ConnectivityScheduler.create(null, actual);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToCreateWithNullScheduler() {
+    ConnectivityScheduler.create(condition, null);
+  }
+
+  @Test
+  public void shouldNotSubscribeToCondition_untilUsed() {
+    assertThat(condition.hasObservers()).isFalse();
+
+    sut.createWorker();
+
+    assertThat(condition.hasObservers()).isTrue();
+  }
+
+  @Test
+  public void shouldDeferActions_whileConditionIsNotMet() {
+    sut.scheduleDirect(action("first"));
+    actual.triggerActions();
+
+    assertThat(executed).isEmpty();
+  }
+
+  @Test
+  public void shouldRunActions_whenConditionIsMet() {
+    condition.onNext(true);
+
+    sut.scheduleDirect(action("first"));
+    actual.triggerActions();
+
+    assertThat(executed).containsExactly("first");
+  }
+
+  @Test
+  public void shouldRunDeferredActionsInOrder_whenConditionGetsMet() {
+    Scheduler.Worker worker = sut.createWorker();
+    worker.schedule(action("first"));
+    worker.schedule(action("second"));
+    worker.schedule(action("third"));
+
+    condition.onNext(true);
+    actual.triggerActions();
+
+    assertThat(executed).containsExactly("first", "second", "third");
+  }
+
+  @Test
+  public void shouldKeepOrder_whenActionScheduledWhileDraining() {
+    Scheduler.Worker worker = sut.createWorker();
+    worker.schedule(action("first"));
+    condition.onNext(true);
+
+    worker.schedule(action("second"));
+    actual.triggerActions();
+
+    assertThat(executed).containsExactly("first", "second");
+  }
+
+  @Test
+  public void shouldNotRunDisposedActions() {
+    Scheduler.Worker worker = sut.createWorker();
+    Disposable first = worker.schedule(action("first"));
+    worker.schedule(action("second"));
+
+    first.dispose();
+    condition.onNext(true);
+    actual.triggerActions();
+
+    assertThat(executed).containsExactly("second");
+  }
+
+  @Test
+  public void shouldNotRunActions_whenWorkerIsDisposed() {
+    Scheduler.Worker worker = sut.createWorker();
+    worker.schedule(action("first"));
+
+    worker.dispose();
+    condition.onNext(true);
+    actual.triggerActions();
+
+    assertThat(executed).isEmpty();
+  }
+
+  @Test
+  public void shouldGateDelayedActions_whenDue() {
+    condition.onNext(true);
+    sut.scheduleDirect(action("first"), 1, TimeUnit.SECONDS);
+
+    condition.onNext(false);
+    actual.advanceTimeBy(1, TimeUnit.SECONDS);
+    assertThat(executed).isEmpty();
+
+    condition.onNext(true);
+    actual.triggerActions();
+    assertThat(executed).containsExactly("first");
+  }
+
+  @Test
+  public void shouldDeferSubscription_whenUsedWithSubscribeOn() {
+    List<Integer> values = Observable.just(1).subscribeOn(sut).test().values();
+
+    actual.triggerActions();
+    assertThat(values).isEmpty();
+
+    condition.onNext(true);
+    actual.triggerActions();
+    assertThat(values).containsExactly(1);
+  }
+
+  @Test
+  public void shouldUnsubscribeFromCondition_whenShutDown() {
+    sut.createWorker();
+
+    sut.shutdown();
+
+    assertThat(condition.hasObservers()).isFalse();
+    assertThat(sut.isMet()).isFalse();
+  }
+
+  private Runnable action(final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        executed.add(name);
+      }
+    };
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet;
+
+import io.reactivex.Single;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ProbeSchedulersTest {
+
+  @Test(expected = AssertionError.class)
+  public void shouldThrow_whenTryingToInstantiateViaConstructor() {
+    new ProbeSchedulers();
+  }
+
+  @Test
+  public void shouldReturnSameScheduler_whenCalledRepeatedly() {
+    assertThat(ProbeSchedulers.virtualThreads()).isSameAs(ProbeSchedulers.virtualThreads());
+  }
+
+  @Test
+  public void shouldRunTaskOffCallingThread() {
+    Thread thread = Single.fromCallable(currentThread())
+                          .subscribeOn(ProbeSchedulers.virtualThreads())
+                          .blockingGet();
+
+    assertThat(thread).isNotSameAs(Thread.currentThread());
+  }
+
+  @Test
+  public void shouldUseVirtualThreads_onlyWhenJvmProvidesThem() throws Exception {
+    boolean supported = hasVirtualThreads();
+    ExecutorService executor = ProbeSchedulers.virtualThreadExecutor();
+
+    assertThat(ProbeSchedulers.isVirtualThreadsAvailable()).isEqualTo(supported);
+    assertThat(executor != null).isEqualTo(supported);
+
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldFallBackToPlatformDaemonThreads() throws Exception {
+    ExecutorService executor = ProbeSchedulers.platformThreadExecutor();
+
+    Future<Thread> thread = executor.submit(currentThread());
+
+    assertThat(thread.get().isDaemon()).isTrue();
+    assertThat(thread.get().getName()).startsWith("RxNetwork-Probe-");
+    executor.shutdown();
+  }
+
+  private static boolean hasVirtualThreads() {
+    try {
+      Thread.class.getMethod("ofVirtual");
+      return true;
+    } catch (NoSuchMethodException nsme) {
+      return false;
+    }
+  }
+
+  private static Callable<Thread> currentThread() {
+    return new Callable<Thread>() {
+      @Override
+      public Thread call() throws Exception {
+        return Thread.currentThread();
+      }
+    };
+  }
+}
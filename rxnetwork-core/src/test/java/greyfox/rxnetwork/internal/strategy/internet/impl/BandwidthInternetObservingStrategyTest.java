@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.Test;
+
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+@SuppressWarnings("ConstantConditions")
+public class BandwidthInternetObservingStrategyTest extends EndpointInternetObservingStrategyTest {
+
+  private static final int KIB = 1024;
+  private static final int MIB = 1024 * KIB;
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new BandwidthInternetObservingStrategy(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidMaxBytes() {
+    BandwidthInternetObservingStrategy.builder().maxBytes(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidMaxDuration() {
+    BandwidthInternetObservingStrategy.builder().maxDuration(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetTooSmallBuffer() {
+    BandwidthInternetObservingStrategy.builder().bufferSize(1);
+  }
+
+  @Test
+  public void shouldCheckConnection_withoutDownloadingPayload() throws InterruptedException {
+    server.enqueue(new MockResponse().setBody(payload(512 * KIB)));
+    setServerWithHttpStatusResponse(INVALID_SERVER_RESPONSE);
+
+    BandwidthInternetObservingStrategy sut = strategy().build();
+
+    assertThat(sut.checkConnection()).isTrue();
+    assertThat(sut.checkConnection()).isFalse();
+    assertThat(server.takeRequest().getMethod()).isEqualTo("HEAD");
+  }
+
+  @Test
+  public void shouldDownloadWholePayload_whenWithinCaps() throws IOException {
+    server.enqueue(new MockResponse().setBody(payload(256 * KIB)));
+
+    BandwidthMeasurement measurement = strategy().build().download();
+
+    assertThat(measurement.bytes()).isEqualTo(256 * KIB);
+    assertThat(measurement.isCapped()).isFalse();
+  }
+
+  @Test
+  public void shouldStopDownloading_whenByteCapIsHit() throws IOException {
+    server.enqueue(new MockResponse().setBody(payload(512 * KIB)));
+
+    BandwidthMeasurement measurement = strategy().maxBytes(100 * KIB).build().download();
+
+    assertThat(measurement.bytes()).isEqualTo(100 * KIB);
+    assertThat(measurement.isCapped()).isTrue();
+  }
+
+  @Test
+  public void shouldStopDownloading_whenTimeCapIsHit() throws IOException {
+    server.enqueue(new MockResponse().setBody(payload(512 * KIB))
+                                     .throttleBody(4 * KIB, 50, MILLISECONDS));
+
+    long start = System.nanoTime();
+    BandwidthMeasurement measurement = strategy().maxDuration(300).build().download();
+
+    assertThat(measurement.isCapped()).isTrue();
+    assertThat(measurement.bytes()).isLessThan(512 * KIB);
+    assertThat(NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+  }
+
+  @Test
+  public void shouldCutOffDownload_whenServerStallsMidBody() throws IOException {
+    final BandwidthInternetObservingStrategy sut =
+        spy(strategy().timeout(5000).maxDuration(300).build());
+    doReturn(new StallingConnection(16 * KIB)).when(sut).open(anyString());
+
+    long start = System.nanoTime();
+    BandwidthMeasurement measurement = sut.download();
+
+    assertThat(measurement.isCapped()).isTrue();
+    assertThat(measurement.bytes()).isEqualTo(16 * KIB);
+    assertThat(NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+  }
+
+  @Test
+  public void shouldCutOffUpload_whenServerStallsMidBody() throws IOException {
+    server.enqueue(new MockResponse().setResponseCode(HTTP_OK)
+                                     .throttleBody(64 * KIB, 5, SECONDS));
+
+    long start = System.nanoTime();
+    BandwidthMeasurement measurement =
+        strategy().timeout(5000).maxBytes(64 * MIB).maxDuration(300).build().upload();
+
+    assertThat(measurement.isCapped()).isTrue();
+    assertThat(NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+  }
+
+  @Test
+  public void shouldReportThroughputAndStalls() throws IOException {
+    server.enqueue(new MockResponse().setBody(payload(64 * KIB))
+                                     .throttleBody(16 * KIB, 200, MILLISECONDS));
+
+    BandwidthMeasurement measurement =
+        strategy().stallThreshold(100).bufferSize(16 * KIB).build().download();
+
+    assertThat(measurement.stalls()).isGreaterThanOrEqualTo(2);
+    assertThat(measurement.stallTime(MILLISECONDS)).isGreaterThanOrEqualTo(200);
+    // 16 KiB every 200 ms is 80 KiB/s
+    assertThat(measurement.throughput()).isBetween(40L * KIB, 160L * KIB);
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldFail_whenEndpointRespondsWithError() throws IOException {
+    setServerWithHttpStatusResponse(INVALID_SERVER_RESPONSE);
+
+    strategy().build().download();
+  }
+
+  @Test
+  public void shouldMeasureBandwidth_onDemand() {
+    server.enqueue(new MockResponse().setBody(payload(64 * KIB)));
+
+    strategy().build().measureBandwidth().test().awaitDone(5, SECONDS).assertValueCount(1);
+  }
+
+  @Test
+  public void shouldUploadPayload() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(HTTP_OK));
+
+    BandwidthMeasurement measurement = strategy().maxBytes(128 * KIB).build().upload();
+    RecordedRequest request = server.takeRequest();
+
+    assertThat(measurement.bytes()).isEqualTo(128 * KIB);
+    assertThat(request.getMethod()).isEqualTo("POST");
+    assertThat(request.getBodySize()).isEqualTo(128 * KIB);
+  }
+
+  @Override
+  protected BandwidthInternetObservingStrategy.Builder strategyBuilder() {
+    return BandwidthInternetObservingStrategy.builder();
+  }
+
+  private BandwidthInternetObservingStrategy.Builder strategy() {
+    return strategyBuilder().endpoint(server.url("/down").toString())
+                            .uploadEndpoint(server.url("/up").toString())
+                            .timeout(1000);
+  }
+
+  private static Buffer payload(int size) {
+    return new Buffer().write(new byte[size]);
+  }
+
+  /**
+   * Connection sending some of the body and then nothing until disconnected, the way Android's
+   * connections fail reads they're blocked in on disconnect.
+   */
+  private static final class StallingConnection extends HttpURLConnection {
+
+    private final CountDownLatch disconnected = new CountDownLatch(1);
+    private final int bytes;
+
+    StallingConnection(int bytes) throws IOException {
+      super(new URL("http://localhost/"));
+      this.bytes = bytes;
+    }
+
+    @Override
+    public void connect() {
+      connected = true;
+    }
+
+    @Override
+    public int getResponseCode() {
+      return HTTP_OK;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new SequenceInputStream(new ByteArrayInputStream(new byte[bytes]), new InputStream() {
+        @Override
+        public int read() throws IOException {
+          try {
+            disconnected.await();
+          } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+          }
+
+          throw new SocketException("Socket closed");
+        }
+      });
+    }
+
+    @Override
+    public void disconnect() {
+      disconnected.countDown();
+    }
+
+    @Override
+    public boolean usingProxy() {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class BandwidthMeasurementTest {
+
+  private static final long MS = MILLISECONDS.toNanos(1);
+
+  private final BandwidthMeasurement.Recorder sut =
+      new BandwidthMeasurement.Recorder(300 * MS, SECONDS.toNanos(10));
+
+  @Test
+  public void shouldMeasureNothing_whenNoBytes() {
+    BandwidthMeasurement measurement = sut.finish(false);
+
+    assertThat(measurement.bytes()).isZero();
+    assertThat(measurement.throughput()).isZero();
+  }
+
+  @Test
+  public void shouldMeasureThroughput_afterRampUp() {
+    // slow start: 1 000 and 5 000 bytes in the first two windows, then 10 000 per window
+    sut.onBytes(1000, 0);
+    sut.onBytes(5000, 100 * MS);
+    for (int i = 2; i <= 10; i++) {
+      sut.onBytes(10000, i * 100 * MS);
+    }
+
+    BandwidthMeasurement measurement = sut.finish(false);
+
+    assertThat(measurement.bytes()).isEqualTo(96000);
+    assertThat(measurement.duration(MILLISECONDS)).isEqualTo(1000);
+    assertThat(measurement.rampUp(MILLISECONDS)).isEqualTo(200);
+    assertThat(measurement.throughput()).isEqualTo(112500);
+    assertThat(measurement.stalls()).isZero();
+  }
+
+  @Test
+  public void shouldCountStalls() {
+    sut.onBytes(1000, 0);
+    sut.onBytes(1000, 100 * MS);
+    sut.onBytes(1000, 600 * MS);
+    sut.onBytes(1000, 1000 * MS);
+    sut.onBytes(1000, 1100 * MS);
+
+    BandwidthMeasurement measurement = sut.finish(true);
+
+    assertThat(measurement.stalls()).isEqualTo(2);
+    assertThat(measurement.stallTime(MILLISECONDS)).isEqualTo(900);
+    assertThat(measurement.isCapped()).isTrue();
+  }
+
+  @Test
+  public void shouldIgnoreEmptyReads() {
+    sut.onBytes(0, 0);
+    sut.onBytes(1000, 500 * MS);
+
+    assertThat(sut.finish(false).stalls()).isZero();
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.BehaviorSubject;
+import java.io.IOException;
+import java.util.logging.Logger;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class BudgetedInternetObservingStrategyTest {
+
+  private static final int MOBILE = 0;
+  private static final int WIFI = 1;
+  private static final long PROBE_BYTES = 100;
+
+  private TestScheduler scheduler;
+  private FakeStrategy primary;
+  private DataBudget budget;
+  private BehaviorSubject<Integer> networkTypes;
+  private MockWebServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    scheduler = new TestScheduler();
+    primary = new FakeStrategy.Builder().interval(1000).scheduler(scheduler).build();
+    budget = DataBudget.builder().limit(MOBILE, 10 * PROBE_BYTES, 1, SECONDS).build();
+    networkTypes = BehaviorSubject.createDefault(MOBILE);
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new BudgetedInternetObservingStrategy(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToBudgetCustomStrategy() {
+    BudgetedInternetObservingStrategy.builder(mock(InternetObservingStrategy.class), budget);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidLowBudget() {
+    BudgetedInternetObservingStrategy.builder(primary, budget).lowBudget(1.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidStretchFactor() {
+    BudgetedInternetObservingStrategy.builder(primary, budget).stretchFactor(0);
+  }
+
+  @Test
+  public void shouldChargeProbesToCurrentNetworkType() {
+    observe(sut().build());
+
+    scheduler.triggerActions();
+    networkTypes.onNext(WIFI);
+    scheduler.advanceTimeBy(500, MILLISECONDS);
+    scheduler.advanceTimeBy(500, MILLISECONDS);
+
+    assertThat(primary.probes).isEqualTo(2);
+    assertThat(budget.remaining(MOBILE, 0)).isEqualTo(9 * PROBE_BYTES);
+    assertThat(budget.remaining(WIFI, 0)).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void shouldProbeAtUsualInterval_whilePlentyOfBudgetLeft() {
+    budget = DataBudget.builder().limit(MOBILE, 1000 * PROBE_BYTES, 1, SECONDS).build();
+    observe(sut().build());
+
+    scheduler.advanceTimeBy(9, SECONDS);
+
+    assertThat(primary.probes).isEqualTo(10);
+  }
+
+  @Test
+  public void shouldStretchProbeInterval_whenBudgetRunsLow() {
+    budget = DataBudget.builder().limit(MOBILE, 10 * PROBE_BYTES, 1, HOURS).build();
+    budget.spend(MOBILE, 5 * PROBE_BYTES, 0);
+    observe(sut().lowBudget(0.5).stretchFactor(2).build());
+
+    scheduler.advanceTimeBy(5, SECONDS);
+
+    // every other of 6 ticks
+    assertThat(primary.probes).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldFallBack_whenBudgetIsUsedUp() {
+    budget.spend(MOBILE, 10 * PROBE_BYTES, 0);
+    final TestObserver<Boolean> observer = observe(sut().fallback(fallback()).build());
+
+    scheduler.triggerActions();
+
+    assertThat(primary.probes).isZero();
+    observer.assertValue(true);
+  }
+
+  @Test
+  public void shouldStopProbing_whenBudgetIsUsedUpAndThereIsNoFallback() {
+    budget.spend(MOBILE, 10 * PROBE_BYTES, 0);
+    final TestObserver<Boolean> observer = observe(sut().build());
+
+    scheduler.triggerActions();
+
+    assertThat(primary.probes).isZero();
+    observer.assertNoValues();
+  }
+
+  @Test
+  public void shouldResumeProbing_whenBudgetIsRenewed() {
+    budget.spend(MOBILE, 10 * PROBE_BYTES, 0);
+    observe(sut().build());
+
+    scheduler.advanceTimeBy(1, SECONDS);
+
+    assertThat(primary.probes).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldReportDataUsageOfPrimaryStrategy() {
+    BudgetedInternetObservingStrategy sut = sut().build();
+    observe(sut);
+
+    scheduler.triggerActions();
+
+    assertThat(sut.dataUsage().totalBytes()).isEqualTo(PROBE_BYTES);
+  }
+
+  private BudgetedInternetObservingStrategy.Builder sut() {
+    return BudgetedInternetObservingStrategy.builder(primary, budget).networkTypes(networkTypes);
+  }
+
+  private TestObserver<Boolean> observe(BudgetedInternetObservingStrategy sut) {
+    return sut.observe().test();
+  }
+
+  private SocketInternetObservingStrategy fallback() {
+    return SocketInternetObservingStrategy.builder()
+        .endpoint(server.getHostName()).port(server.getPort()).timeout(1000).build();
+  }
+
+  /** Primary strategy using {@link #PROBE_BYTES} per probe. */
+  private static final class FakeStrategy extends BaseInternetObservingStrategy {
+
+    int probes;
+
+    FakeStrategy(Builder builder) {
+      super(builder);
+    }
+
+    @Override
+    Logger logger() {
+      return Logger.getLogger(FakeStrategy.class.getSimpleName());
+    }
+
+    @Override
+    boolean checkConnection() {
+      probes++;
+      dataUsage().record(PROBE_BYTES / 2, PROBE_BYTES / 2);
+      return true;
+    }
+
+    static final class Builder
+        extends BaseInternetObservingStrategy.Builder<FakeStrategy, Builder> {
+
+      @Override
+      public FakeStrategy build() {
+        return new FakeStrategy(this);
+      }
+    }
+  }
+}
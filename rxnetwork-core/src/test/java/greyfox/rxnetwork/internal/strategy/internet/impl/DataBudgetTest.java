@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import org.junit.Test;
+
+import static greyfox.rxnetwork.internal.strategy.internet.impl.DataBudget.ANY_NETWORK;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class DataBudgetTest {
+
+  private static final int MOBILE = 0;
+  private static final int WIFI = 1;
+  private static final long PERIOD_MS = 1000;
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new DataBudget(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidLimit() {
+    DataBudget.builder().limit(MOBILE, 0, PERIOD_MS, MILLISECONDS);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidPeriod() {
+    DataBudget.builder().limit(MOBILE, 100, 0, MILLISECONDS);
+  }
+
+  @Test
+  public void shouldBeUnlimited_whenNoLimitSet() {
+    DataBudget sut = DataBudget.builder().limit(MOBILE, 100, PERIOD_MS, MILLISECONDS).build();
+
+    sut.spend(WIFI, 1000, 0);
+
+    assertThat(sut.remaining(WIFI, 0)).isEqualTo(Long.MAX_VALUE);
+    assertThat(sut.remainingFraction(WIFI, 0)).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldSpendBudgetOfGivenNetworkType() {
+    DataBudget sut = DataBudget.builder()
+        .limit(MOBILE, 100, PERIOD_MS, MILLISECONDS)
+        .limit(WIFI, 1000, PERIOD_MS, MILLISECONDS)
+        .build();
+
+    sut.spend(MOBILE, 75, 0);
+
+    assertThat(sut.remaining(MOBILE, 0)).isEqualTo(25);
+    assertThat(sut.remainingFraction(MOBILE, 0)).isEqualTo(0.25);
+    assertThat(sut.remaining(WIFI, 0)).isEqualTo(1000);
+  }
+
+  @Test
+  public void shouldApplyAnyNetworkLimit_whenNetworkTypeHasNoneOfItsOwn() {
+    DataBudget sut = DataBudget.builder().limit(ANY_NETWORK, 100, PERIOD_MS, MILLISECONDS).build();
+
+    sut.spend(MOBILE, 60, 0);
+    sut.spend(WIFI, 60, 0);
+
+    assertThat(sut.remaining(MOBILE, 0)).isZero();
+  }
+
+  @Test
+  public void shouldRenewBudget_whenPeriodEnds() {
+    DataBudget sut = DataBudget.builder().limit(MOBILE, 100, PERIOD_MS, MILLISECONDS).build();
+    sut.spend(MOBILE, 100, 0);
+
+    assertThat(sut.remaining(MOBILE, PERIOD_MS - 1)).isZero();
+    assertThat(sut.remaining(MOBILE, PERIOD_MS)).isEqualTo(100);
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class DnsInternetObservingStrategyTest {
+
+  private static final String LOOPBACK = "127.0.0.1";
+  private static final String OTHER_LOOPBACK = "127.0.0.2";
+  private static final int NOERROR = 0;
+  private static final int SERVFAIL = 2;
+  private static final int NXDOMAIN = 3;
+  private static final int TIMEOUT_MS = 300;
+
+  private FakeResolver resolver;
+
+  @Before
+  public void setUp() throws IOException {
+    resolver = new FakeResolver();
+    resolver.start();
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    resolver.shutdown();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new DnsInternetObservingStrategy(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidPort() {
+    DnsInternetObservingStrategy.builder().port(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidHostname() {
+    DnsInternetObservingStrategy.builder().hostname("invalid..hostname");
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToSetNullResolver() {
+    DnsInternetObservingStrategy.builder().resolvers(LOOPBACK, (String) null);
+  }
+
+  @Test
+  public void shouldBuildStandardRecursiveQuery() {
+    byte[] query = DnsInternetObservingStrategy.buildQuery("example.com");
+
+    assertThat(query).isEqualTo(new byte[] {
+        0, 0, 1, 0, 0, 1, 0, 0, 0, 0, 0, 0,
+        7, 'e', 'x', 'a', 'm', 'p', 'l', 'e', 3, 'c', 'o', 'm', 0,
+        0, 1, 0, 1
+    });
+  }
+
+  @Test
+  public void shouldAcceptResponseWithAnswers() {
+    assertThat(DnsInternetObservingStrategy.isValidResponse(response(0x8180, 1))).isTrue();
+  }
+
+  @Test
+  public void shouldAcceptNonExistentDomainResponse() {
+    assertThat(DnsInternetObservingStrategy.isValidResponse(response(0x8183, 0))).isTrue();
+  }
+
+  @Test
+  public void shouldRejectResponseWithoutAnswers() {
+    assertThat(DnsInternetObservingStrategy.isValidResponse(response(0x8180, 0))).isFalse();
+  }
+
+  @Test
+  public void shouldRejectServerFailure() {
+    assertThat(DnsInternetObservingStrategy.isValidResponse(response(0x8182, 1))).isFalse();
+  }
+
+  @Test
+  public void shouldRejectQuery() {
+    assertThat(DnsInternetObservingStrategy.isValidResponse(response(0x0100, 1))).isFalse();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsTrue_whenResolverAnswers() {
+    resolver.rcode = NOERROR;
+
+    assertThat(strategy().build().checkConnection()).isTrue();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsTrue_whenResolverReportsNonExistentDomain() {
+    resolver.rcode = NXDOMAIN;
+
+    assertThat(strategy().build().checkConnection()).isTrue();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenResolverFails() {
+    resolver.rcode = SERVFAIL;
+
+    assertThat(strategy().build().checkConnection()).isFalse();
+  }
+
+  @Test
+  public void shouldIgnoreResponsesToOtherQueries() {
+    resolver.wrongIdFirst = true;
+
+    assertThat(strategy().build().checkConnection()).isTrue();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenResolverDoesNotAnswer() {
+    resolver.silent = true;
+
+    assertThat(strategy().build().checkConnection()).isFalse();
+  }
+
+  @Test
+  public void shouldTryNextResolver_whenOneDoesNotAnswer() {
+    // nothing listens on the other loopback address
+    DnsInternetObservingStrategy sut = strategy().resolvers(OTHER_LOOPBACK, LOOPBACK).build();
+
+    assertThat(sut.checkConnection()).isTrue();
+  }
+
+  @Test
+  public void shouldQueryOnlyResolverSelectedByPool_whenProbingPool() {
+    EndpointPool pool = EndpointPool.builder(OTHER_LOOPBACK, LOOPBACK).failureThreshold(1).build();
+    DnsInternetObservingStrategy sut = strategy().resolvers(OTHER_LOOPBACK, LOOPBACK)
+                                                 .endpoints(pool).build();
+
+    assertThat(sut.probe()).isFalse();
+    assertThat(pool.isBenched(OTHER_LOOPBACK)).isTrue();
+
+    assertThat(sut.probe()).isTrue();
+    assertThat(pool.isBenched(LOOPBACK)).isFalse();
+  }
+
+  @Test
+  public void shouldRecordDataUsage_whenProbed() {
+    DnsInternetObservingStrategy sut = strategy().hostname("example.com").build();
+
+    sut.checkConnection();
+
+    assertThat(sut.dataUsage().probes()).isEqualTo(1);
+    assertThat(sut.dataUsage().sentBytes()).isEqualTo(29);
+    assertThat(sut.dataUsage().receivedBytes()).isEqualTo(29);
+  }
+
+  @Test
+  public void shouldSubscribeCorrectly_whenCreatedFromDefaultFactory() {
+    DnsInternetObservingStrategy.create().observe().test().assertSubscribed();
+  }
+
+  private DnsInternetObservingStrategy.Builder strategy() {
+    return DnsInternetObservingStrategy.builder()
+        .resolvers(LOOPBACK).port(resolver.port()).timeout(TIMEOUT_MS);
+  }
+
+  private static ByteBuffer response(int flags, int answers) {
+    return ByteBuffer.allocate(12)
+        .putShort(0, (short) 42).putShort(2, (short) flags).putShort(4, (short) 1)
+        .putShort(6, (short) answers);
+  }
+
+  /** Resolver echoing the query back as a response header, without any records. */
+  private static final class FakeResolver extends Thread {
+
+    private final DatagramSocket socket;
+    volatile int rcode;
+    volatile boolean wrongIdFirst;
+    volatile boolean silent;
+
+    FakeResolver() throws IOException {
+      socket = new DatagramSocket(0, InetAddress.getByName(LOOPBACK));
+      setDaemon(true);
+    }
+
+    int port() {
+      return socket.getLocalPort();
+    }
+
+    @Override
+    public void run() {
+      final byte[] buffer = new byte[DnsInternetObservingStrategy.MAX_MESSAGE_SIZE];
+
+      while (!socket.isClosed()) {
+        try {
+          final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+          socket.receive(packet);
+
+          if (!silent) {
+            final byte[] response = Arrays.copyOf(buffer, packet.getLength());
+            response[2] = (byte) 0x81;
+            response[3] = (byte) (0x80 | rcode);
+            response[7] = (byte) (rcode == NOERROR ? 1 : 0);
+
+            if (wrongIdFirst) {
+              final byte[] other = response.clone();
+              other[0] ^= 0xFF;
+              socket.send(new DatagramPacket(other, other.length, packet.getSocketAddress()));
+            }
+
+            socket.send(new DatagramPacket(response, response.length, packet.getSocketAddress()));
+          }
+        } catch (IOException ignored) {
+          // closed
+        }
+      }
+    }
+
+    void shutdown() throws InterruptedException {
+      socket.close();
+      join();
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class EndpointPoolTest {
+
+  private static final String NEAR = "near";
+  private static final String FAR = "far";
+  private static final String OTHER = "other";
+  private static final long MS = 1000000;
+  private static final long COOL_DOWN_MS = 1000;
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new EndpointPool(null);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToBuildWithNullEndpoint() {
+    EndpointPool.builder(NEAR, (String) null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidWeight() {
+    EndpointPool.builder(NEAR).weight(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidExplorationInterval() {
+    EndpointPool.builder(NEAR).explorationInterval(1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidFailureThreshold() {
+    EndpointPool.builder(NEAR).failureThreshold(0);
+  }
+
+  @Test
+  public void shouldProbeEachEndpoint_beforeSelectingBest() {
+    EndpointPool sut = EndpointPool.builder(FAR, NEAR).explorationInterval(0).build();
+
+    assertThat(probe(sut, 50 * MS, 10 * MS)).isEqualTo(FAR);
+    assertThat(probe(sut, 50 * MS, 10 * MS)).isEqualTo(NEAR);
+    assertThat(sut.select(0)).isEqualTo(NEAR);
+    assertThat(sut.best()).isEqualTo(NEAR);
+  }
+
+  @Test
+  public void shouldAverageLatency() {
+    EndpointPool sut = EndpointPool.builder(NEAR).weight(0.5).build();
+
+    sut.record(NEAR, true, 10 * MS, 0);
+    sut.record(NEAR, true, 20 * MS, 0);
+    sut.record(NEAR, true, 40 * MS, 0);
+
+    assertThat(sut.latency(NEAR, MILLISECONDS)).isEqualTo(27);
+  }
+
+  @Test
+  public void shouldPreferReliableEndpoint_overFasterFailingOne() {
+    EndpointPool sut = EndpointPool.builder(NEAR, FAR).weight(0.5).explorationInterval(0)
+        .failureThreshold(10).build();
+    sut.record(NEAR, true, 10 * MS, 0);
+    sut.record(FAR, true, 15 * MS, 0);
+
+    sut.record(NEAR, false, 10 * MS, 0);
+
+    assertThat(sut.failureRate(NEAR)).isEqualTo(0.5);
+    assertThat(sut.best()).isEqualTo(FAR);
+  }
+
+  @Test
+  public void shouldExploreOtherEndpoints_inTurn() {
+    EndpointPool sut = EndpointPool.builder(NEAR, FAR, OTHER).explorationInterval(2).build();
+    sut.record(NEAR, true, 10 * MS, 0);
+    sut.record(FAR, true, 20 * MS, 0);
+    sut.record(OTHER, true, 30 * MS, 0);
+
+    assertThat(sut.select(0)).isEqualTo(NEAR);
+    assertThat(sut.select(0)).isEqualTo(FAR);
+    assertThat(sut.select(0)).isEqualTo(NEAR);
+    assertThat(sut.select(0)).isEqualTo(OTHER);
+  }
+
+  @Test
+  public void shouldBenchEndpoint_whenItKeepsFailing() {
+    EndpointPool sut = pool();
+    sut.record(FAR, true, 50 * MS, 0);
+
+    fail(sut, NEAR, 3);
+
+    assertThat(sut.isBenched(NEAR)).isTrue();
+    assertThat(sut.select(0)).isEqualTo(FAR);
+  }
+
+  @Test
+  public void shouldNotBenchEndpoint_whenFailuresAreNotInRow() {
+    EndpointPool sut = pool();
+
+    fail(sut, NEAR, 2);
+    sut.record(NEAR, true, 10 * MS, 0);
+    fail(sut, NEAR, 2);
+
+    assertThat(sut.isBenched(NEAR)).isFalse();
+  }
+
+  @Test
+  public void shouldGiveTrialProbe_whenCoolDownIsOver() {
+    EndpointPool sut = pool();
+    sut.record(FAR, true, 50 * MS, 0);
+    fail(sut, NEAR, 3);
+
+    assertThat(sut.select(COOL_DOWN_MS - 1)).isEqualTo(FAR);
+    assertThat(sut.select(COOL_DOWN_MS)).isEqualTo(NEAR);
+  }
+
+  @Test
+  public void shouldRestoreEndpoint_whenTrialProbeSucceeds() {
+    EndpointPool sut = pool();
+    fail(sut, NEAR, 3);
+
+    sut.record(NEAR, true, 10 * MS, COOL_DOWN_MS);
+
+    assertThat(sut.isBenched(NEAR)).isFalse();
+  }
+
+  @Test
+  public void shouldBenchEndpointAgain_whenTrialProbeFails() {
+    EndpointPool sut = pool();
+    sut.record(FAR, true, 50 * MS, 0);
+    fail(sut, NEAR, 3);
+
+    sut.record(NEAR, false, 10 * MS, COOL_DOWN_MS);
+
+    assertThat(sut.isBenched(NEAR)).isTrue();
+    assertThat(sut.select(2 * COOL_DOWN_MS - 1)).isEqualTo(FAR);
+  }
+
+  @Test
+  public void shouldProbeEndpointComingBackFirst_whenAllAreBenched() {
+    EndpointPool sut = pool();
+    fail(sut, NEAR, 3);
+    sut.record(FAR, false, 10 * MS, 100);
+    sut.record(FAR, false, 10 * MS, 100);
+    sut.record(FAR, false, 10 * MS, 100);
+
+    assertThat(sut.select(500)).isEqualTo(NEAR);
+  }
+
+  private EndpointPool pool() {
+    return EndpointPool.builder(NEAR, FAR).failureThreshold(3).coolDown(COOL_DOWN_MS)
+        .explorationInterval(0).build();
+  }
+
+  private static String probe(EndpointPool pool, long latencyIfFar, long latencyIfNear) {
+    final String endpoint = pool.select(0);
+    pool.record(endpoint, true, FAR.equals(endpoint) ? latencyIfFar : latencyIfNear, 0);
+    return endpoint;
+  }
+
+  private static void fail(EndpointPool pool, String endpoint, int times) {
+    for (int i = 0; i < times; i++) {
+      pool.record(endpoint, false, 10 * MS, 0);
+    }
+  }
+}
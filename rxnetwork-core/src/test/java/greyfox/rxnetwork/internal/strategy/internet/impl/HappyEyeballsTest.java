@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import greyfox.rxnetwork.internal.strategy.internet.impl.DualStackResult.Family;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class HappyEyeballsTest {
+
+  private static final long TIMEOUT_MS = 5000;
+  private static final long ATTEMPT_DELAY_MS = 100;
+
+  private InetAddress ipv4;
+  private InetAddress ipv6;
+  private ServerSocket server;
+
+  @Before
+  public void setUp() throws Exception {
+    ipv4 = InetAddress.getByName("127.0.0.1");
+    ipv6 = InetAddress.getByName("::1");
+    server = new ServerSocket(0, 50, ipv4);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.close();
+  }
+
+  @Test(expected = AssertionError.class)
+  public void shouldThrow_whenTryingToInstantiateViaConstructor() {
+    new HappyEyeballs();
+  }
+
+  @Test
+  public void shouldInterleaveFamilies_startingWithFirstAddressFamily() throws Exception {
+    InetAddress ipv6b = InetAddress.getByName("::2");
+    InetAddress ipv6c = InetAddress.getByName("::3");
+    InetAddress ipv4b = InetAddress.getByName("127.0.0.2");
+
+    assertThat(HappyEyeballs.interleave(new InetAddress[] { ipv6, ipv6b, ipv6c, ipv4, ipv4b }))
+        .containsExactly(ipv6, ipv4, ipv6b, ipv4b, ipv6c);
+    assertThat(HappyEyeballs.interleave(new InetAddress[] { ipv4, ipv6, ipv4b }))
+        .containsExactly(ipv4, ipv6, ipv4b);
+  }
+
+  @Test
+  public void shouldConnect_whenOnlyAddressAcceptsConnections() throws Exception {
+    DualStackResult result = connect(ipv4);
+
+    assertThat(result.isConnected()).isTrue();
+    assertThat(result.family()).isEqualTo(Family.IPV4);
+    assertThat(result.address().getAddress()).isEqualTo(ipv4);
+  }
+
+  @Test
+  public void shouldFallBackToOtherFamily_whenPreferredOneRefuses() throws Exception {
+    DualStackResult result = connect(ipv6, ipv4);
+
+    assertThat(result.isConnected()).isTrue();
+    assertThat(result.family()).isEqualTo(Family.IPV4);
+  }
+
+  @Test
+  public void shouldWinWithOtherFamily_whenPreferredOneDoesNotRespond() throws Exception {
+    // TEST-NET-1 address (RFC 5737) is never routed, so the attempt either hangs or fails
+    InetAddress blackhole = InetAddress.getByName("192.0.2.1");
+
+    DualStackResult result = connect(blackhole, ipv6, ipv4);
+
+    assertThat(result.isConnected()).isTrue();
+    assertThat(result.address().getAddress()).isEqualTo(ipv4);
+    assertThat(result.latency(TimeUnit.MILLISECONDS)).isLessThan(TIMEOUT_MS);
+  }
+
+  @Test
+  public void shouldStartNextAttempt_whenLatestOneFails() throws Exception {
+    final InetAddress stalled = InetAddress.getByName("127.0.0.2");
+    final InetAddress refused = InetAddress.getByName("127.0.0.3");
+    final long attemptDelay = 1000;
+    final ServerSocket full = new ServerSocket(server.getLocalPort(), 1, stalled);
+    final List<SocketChannel> backlog = new ArrayList<>();
+
+    try {
+      // once accept queue is full, connection attempts to it stay pending
+      for (int i = 0; i < 2; i++) {
+        final SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(full.getLocalSocketAddress());
+        backlog.add(channel);
+      }
+
+      DualStackResult result = HappyEyeballs.connect(new InetAddress[] { stalled, refused, ipv4 },
+          server.getLocalPort(), TIMEOUT_MS, attemptDelay);
+
+      assertThat(result.isConnected()).isTrue();
+      assertThat(result.address().getAddress()).isEqualTo(ipv4);
+      assertThat(result.latency(TimeUnit.MILLISECONDS)).isLessThan(attemptDelay * 3 / 2);
+    } finally {
+      for (SocketChannel channel : backlog) {
+        channel.close();
+      }
+      full.close();
+    }
+  }
+
+  @Test
+  public void shouldConnect_whenThereIsNoTimeout() throws Exception {
+    DualStackResult result = HappyEyeballs.connect(new InetAddress[] { ipv6, ipv4 },
+        server.getLocalPort(), 0, ATTEMPT_DELAY_MS);
+
+    assertThat(result.isConnected()).isTrue();
+    assertThat(result.address().getAddress()).isEqualTo(ipv4);
+  }
+
+  @Test
+  public void shouldNotConnect_whenNoAddressAcceptsConnections() throws Exception {
+    server.close();
+
+    DualStackResult result = connect(ipv6, ipv4);
+
+    assertThat(result.isConnected()).isFalse();
+    assertThat(result.address()).isNull();
+    assertThat(result.family()).isNull();
+  }
+
+  @Test
+  public void shouldNotConnect_whenNoAddresses() throws Exception {
+    assertThat(connect().isConnected()).isFalse();
+  }
+
+  private DualStackResult connect(InetAddress... addresses) throws IOException {
+    return HappyEyeballs.connect(addresses, server.getLocalPort(), TIMEOUT_MS, ATTEMPT_DELAY_MS);
+  }
+}
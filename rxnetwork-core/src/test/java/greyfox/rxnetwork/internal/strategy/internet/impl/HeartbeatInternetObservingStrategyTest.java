@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import io.reactivex.observers.TestObserver;
+import java.io.IOException;
+import java.net.ServerSocket;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class HeartbeatInternetObservingStrategyTest {
+
+  private static final long INTERVAL_MS = 100;
+  private static final int TIMEOUT_MS = 1000;
+
+  private HeartbeatServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new HeartbeatServer();
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new HeartbeatInternetObservingStrategy(null);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToBuildWithNullEndpoint() {
+    HeartbeatInternetObservingStrategy.builder(null, 7000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToBuildWithInvalidPort() {
+    HeartbeatInternetObservingStrategy.builder("localhost", 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidInterval() {
+    HeartbeatInternetObservingStrategy.builder("localhost", 7000).interval(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetEmptyPing() {
+    HeartbeatInternetObservingStrategy.builder("localhost", 7000).ping("");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidMaxBackoff() {
+    HeartbeatInternetObservingStrategy.builder("localhost", 7000).maxBackoff(0);
+  }
+
+  @Test
+  public void shouldBackOffExponentially_upToMaxBackoff() {
+    HeartbeatInternetObservingStrategy sut = HeartbeatInternetObservingStrategy
+        .builder("localhost", 7000).interval(1000).maxBackoff(5000).build();
+
+    assertThat(sut.backoff(0)).isEqualTo(1000);
+    assertThat(sut.backoff(1)).isEqualTo(2000);
+    assertThat(sut.backoff(2)).isEqualTo(4000);
+    assertThat(sut.backoff(3)).isEqualTo(5000);
+    assertThat(sut.backoff(100)).isEqualTo(5000);
+  }
+
+  @Test
+  public void shouldReportConnected_whenPongsArrive() throws InterruptedException {
+    HeartbeatInternetObservingStrategy sut = strategy().build();
+
+    final TestObserver<Boolean> observer = sut.observe().test();
+
+    observer.awaitCount(1);
+    observer.assertValue(true);
+    assertThat(sut.checkConnection()).isTrue();
+    observer.dispose();
+  }
+
+  @Test
+  public void shouldKeepSingleConnection_acrossHeartbeats() throws InterruptedException {
+    HeartbeatInternetObservingStrategy sut = strategy().build();
+
+    final TestObserver<Boolean> observer = sut.observe().test();
+    Thread.sleep(5 * INTERVAL_MS);
+
+    observer.assertValue(true);
+    assertThat(server.connections()).isEqualTo(1);
+    assertThat(sut.dataUsage().probes()).isGreaterThan(1);
+    observer.dispose();
+  }
+
+  @Test
+  public void shouldShareConnection_acrossSubscribers() throws InterruptedException {
+    HeartbeatInternetObservingStrategy sut = strategy().build();
+
+    final TestObserver<Boolean> first = sut.observe().test();
+    first.awaitCount(1);
+    final TestObserver<Boolean> second = sut.observe().test();
+    second.awaitCount(1);
+
+    second.assertValue(true);
+    assertThat(server.connections()).isEqualTo(1);
+    first.dispose();
+    second.dispose();
+  }
+
+  @Test
+  public void shouldReportDisconnected_withinHeartbeat_whenPongIsMissed() {
+    HeartbeatInternetObservingStrategy sut = strategy().build();
+    final TestObserver<Boolean> observer = sut.observe().test();
+    observer.awaitCount(1);
+
+    server.silent(true);
+    final long silentAt = System.nanoTime();
+    observer.awaitCount(2);
+
+    observer.assertValues(true, false);
+    assertThat(System.nanoTime() - silentAt).isLessThan(SECONDS.toNanos(1));
+    observer.dispose();
+  }
+
+  @Test
+  public void shouldReconnect_whenConnectionIsDropped() {
+    HeartbeatInternetObservingStrategy sut = strategy().build();
+    final TestObserver<Boolean> observer = sut.observe().test();
+    observer.awaitCount(1);
+
+    server.dropConnections();
+    observer.awaitCount(3);
+
+    observer.assertValues(true, false, true);
+    assertThat(server.connections()).isEqualTo(2);
+    observer.dispose();
+  }
+
+  @Test
+  public void shouldReportDisconnected_whenNothingListens() throws IOException {
+    final ServerSocket closed = new ServerSocket(0);
+    final int port = closed.getLocalPort();
+    closed.close();
+
+    final TestObserver<Boolean> observer = HeartbeatInternetObservingStrategy
+        .builder("127.0.0.1", port).interval(INTERVAL_MS).timeout(TIMEOUT_MS).build()
+        .observe().test();
+    observer.awaitCount(1);
+
+    observer.assertValue(false);
+    observer.dispose();
+  }
+
+  @Test
+  public void shouldCloseConnection_whenNoLongerObserved() throws InterruptedException {
+    HeartbeatInternetObservingStrategy sut = strategy().build();
+    final TestObserver<Boolean> observer = sut.observe().test();
+    observer.awaitCount(1);
+
+    observer.dispose();
+    Thread.sleep(INTERVAL_MS);
+
+    assertThat(sut.checkConnection()).isFalse();
+    sut.observe().test().awaitCount(1);
+    assertThat(server.connections()).isEqualTo(2);
+  }
+
+  private HeartbeatInternetObservingStrategy.Builder strategy() {
+    return HeartbeatInternetObservingStrategy.builder(server.hostName(), server.port())
+        .interval(INTERVAL_MS)
+        .timeout(TIMEOUT_MS);
+  }
+}
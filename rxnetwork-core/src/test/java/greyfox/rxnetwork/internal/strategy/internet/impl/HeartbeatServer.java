@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loopback stand-in for heartbeat endpoint: answers every {@code PING\n} with {@code PONG\n}.
+ * It can go silent or drop connections to simulate outages.
+ */
+final class HeartbeatServer implements Closeable {
+
+  private static final byte[] PONG = "PONG\n".getBytes(Charset.forName("US-ASCII"));
+  private static final int PING_LENGTH = 5;
+
+  private final ServerSocket serverSocket;
+  private final List<Socket> clients = new CopyOnWriteArrayList<>();
+  private final AtomicInteger connections = new AtomicInteger();
+  private volatile boolean silent;
+
+  HeartbeatServer() throws IOException {
+    serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+
+    final Thread acceptor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        accept();
+      }
+    }, "heartbeat-server");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  String hostName() {
+    return serverSocket.getInetAddress().getHostAddress();
+  }
+
+  int port() {
+    return serverSocket.getLocalPort();
+  }
+
+  /** Number of connections accepted so far. */
+  int connections() {
+    return connections.get();
+  }
+
+  /** Whether to stop answering pings, keeping the connections open. */
+  void silent(boolean silent) {
+    this.silent = silent;
+  }
+
+  /** Drops all of the open connections. */
+  void dropConnections() {
+    for (Socket client : clients) {
+      closeQuietly(client);
+    }
+  }
+
+  @Override
+  public void close() {
+    closeQuietly(serverSocket);
+    dropConnections();
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        final Socket client = serverSocket.accept();
+        clients.add(client);
+        connections.incrementAndGet();
+
+        final Thread handler = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            serve(client);
+          }
+        }, "heartbeat-client");
+        handler.setDaemon(true);
+        handler.start();
+      } catch (IOException ignored) {
+        // closed
+      }
+    }
+  }
+
+  private void serve(Socket client) {
+    try {
+      final InputStream input = client.getInputStream();
+      final OutputStream output = client.getOutputStream();
+      int read = 0;
+
+      while (input.read() != -1) {
+        if (++read % PING_LENGTH == 0 && !silent) {
+          output.write(PONG);
+          output.flush();
+        }
+      }
+    } catch (IOException ignored) {
+      // dropped
+    } finally {
+      clients.remove(client);
+      closeQuietly(client);
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException ignored) {
+      // nothing to do
+    }
+  }
+}
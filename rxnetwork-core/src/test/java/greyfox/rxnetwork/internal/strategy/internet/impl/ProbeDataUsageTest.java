@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ProbeDataUsageTest {
+
+  private final ProbeDataUsage sut = new ProbeDataUsage();
+
+  @Test
+  public void shouldAccumulateRecordedProbes() {
+    sut.record(100, 200);
+    sut.record(50, 0);
+
+    assertThat(sut.probes()).isEqualTo(2);
+    assertThat(sut.sentBytes()).isEqualTo(150);
+    assertThat(sut.receivedBytes()).isEqualTo(200);
+    assertThat(sut.totalBytes()).isEqualTo(350);
+  }
+
+  @Test
+  public void shouldStartOver_whenReset() {
+    sut.record(100, 200);
+
+    sut.reset();
+
+    assertThat(sut.probes()).isZero();
+    assertThat(sut.totalBytes()).isZero();
+  }
+}
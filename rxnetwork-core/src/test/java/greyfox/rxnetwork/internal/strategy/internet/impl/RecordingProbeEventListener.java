@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
+import greyfox.rxnetwork.internal.strategy.internet.ProbeEventListener;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** Records names of probe events in the order they come, along with their outcomes. */
+final class RecordingProbeEventListener extends ProbeEventListener {
+
+  final List<String> events = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void probeStart(InternetObservingStrategy strategy, String endpoint) {
+    events.add("probeStart");
+  }
+
+  @Override
+  public void dnsResolved(InternetObservingStrategy strategy, String endpoint,
+      InetAddress address) {
+    events.add("dnsResolved");
+  }
+
+  @Override
+  public void connected(InternetObservingStrategy strategy, String endpoint) {
+    events.add("connected");
+  }
+
+  @Override
+  public void firstByte(InternetObservingStrategy strategy, String endpoint) {
+    events.add("firstByte");
+  }
+
+  @Override
+  public void probeEnd(InternetObservingStrategy strategy, String endpoint,
+      boolean isConnected) {
+    events.add("probeEnd " + isConnected);
+  }
+
+  @Override
+  public void probeFailed(InternetObservingStrategy strategy, String endpoint,
+      Exception exception) {
+    events.add("probeFailed");
+  }
+}
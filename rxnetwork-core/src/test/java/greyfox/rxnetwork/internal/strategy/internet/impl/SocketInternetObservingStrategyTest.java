@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SocketInternetObservingStrategyTest {
+
+  private static final int TIMEOUT_MS = 200;
+  private static final int DELAY_MS = 100;
+  private static final int INTERVAL_MS = 200;
+  private static final String INVALID_HOST = "invalid.endpoint";
+
+  private MockWebServer server;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new SocketInternetObservingStrategy(null);
+  }
+
+  @Test
+  public void shouldSubscribeCorrectly() {
+    InternetObservingStrategy sut = SocketInternetObservingStrategy.create();
+
+    sut.observe().test().assertSubscribed();
+  }
+
+  @Test
+  public void shouldSubscribeCorrectly_whenCreatedFromDetailedBuilder() {
+    InternetObservingStrategy sut = detailedStrategyBuilder().build();
+
+    sut.observe().test().assertSubscribed();
+  }
+
+  @Test
+  public void shouldLogError_whenProblemClosingSocket() throws IOException {
+    SocketInternetObservingStrategy sut = spy(detailedStrategyBuilder().build());
+    Socket socket = mock(Socket.class);
+    doThrow(IOException.class).when(socket).close();
+
+    doReturn(socket).when(sut).connectSocketTo(any(SocketAddress.class), anyInt());
+
+    sut.observe().blockingFirst();
+    verify(sut).onError(anyString(), any(Exception.class));
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenTryingToObserveInvalidEndpoint() {
+    InternetObservingStrategy sut = detailedStrategyBuilder().endpoint(INVALID_HOST).build();
+
+    assertThat(sut.observe().blockingFirst()).isFalse();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsTrue_whenObservingValidEndpoint()
+      throws InterruptedException, IOException {
+
+    String host = server.url("/").host();
+    int port = server.url("/").port();
+
+    InternetObservingStrategy sut = detailedStrategyBuilder().endpoint(host).port(port).build();
+
+    assertThat(sut.observe().blockingFirst()).isTrue();
+  }
+
+  @Test
+  public void shouldReportProbeEvents_inOrder_whenConnected() {
+    RecordingProbeEventListener listener = new RecordingProbeEventListener();
+    SocketInternetObservingStrategy sut = detailedStrategyBuilder()
+        .endpoint(server.url("/").host()).port(server.url("/").port())
+        .eventListener(listener).build();
+
+    assertThat(sut.probe()).isTrue();
+    assertThat(listener.events)
+        .containsExactly("probeStart", "dnsResolved", "connected", "probeEnd true");
+  }
+
+  @Test
+  public void shouldReportProbeFailure_whenEndpointInvalid() {
+    RecordingProbeEventListener listener = new RecordingProbeEventListener();
+    SocketInternetObservingStrategy sut =
+        detailedStrategyBuilder().endpoint(INVALID_HOST).eventListener(listener).build();
+
+    assertThat(sut.probe()).isFalse();
+    assertThat(listener.events).startsWith("probeStart").contains("probeFailed")
+                               .endsWith("probeEnd false").doesNotContain("connected");
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToSetNullEventListener() {
+    SocketInternetObservingStrategy.builder().eventListener(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidAttemptDelay() {
+    SocketInternetObservingStrategy.builder().attemptDelay(9);
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsTrue_whenDualStackProbingValidEndpoint() {
+    int port = server.url("/").port();
+
+    InternetObservingStrategy sut = detailedStrategyBuilder().endpoint("localhost").port(port)
+                                                             .dualStack(true).build();
+
+    assertThat(sut.observe().blockingFirst()).isTrue();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsTrue_whenDualStackProbingWithDefaultTimeout() {
+    int port = server.url("/").port();
+
+    InternetObservingStrategy sut = SocketInternetObservingStrategy.builder().endpoint("localhost")
+                                                                   .port(port).dualStack(true)
+                                                                   .build();
+
+    assertThat(sut.observe().blockingFirst()).isTrue();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenDualStackProbingInvalidEndpoint() {
+    InternetObservingStrategy sut = detailedStrategyBuilder().endpoint(INVALID_HOST)
+                                                             .dualStack(true).build();
+
+    assertThat(sut.observe().blockingFirst()).isFalse();
+  }
+
+  @Test
+  public void shouldReportWinningFamily_whenObservingDualStack() {
+    String host = server.url("/").host();
+    int port = server.url("/").port();
+
+    SocketInternetObservingStrategy sut = detailedStrategyBuilder().endpoint(host).port(port)
+                                                                   .build();
+    DualStackResult result = sut.observeDualStack().blockingFirst();
+
+    assertThat(result.isConnected()).isTrue();
+    assertThat(result.family()).isNotNull();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToSetNullScheduler() {
+    SocketInternetObservingStrategy.builder().scheduler(null);
+  }
+
+  @Test
+  public void shouldCheckConnectionOnGivenScheduler() {
+    TestScheduler scheduler = new TestScheduler();
+    String host = server.url("/").host();
+    int port = server.url("/").port();
+
+    InternetObservingStrategy sut = detailedStrategyBuilder().endpoint(host).port(port)
+                                                             .scheduler(scheduler).build();
+    TestObserver<Boolean> observer = sut.observe().test();
+
+    observer.assertNoValues();
+    scheduler.advanceTimeBy(DELAY_MS, TimeUnit.MILLISECONDS);
+    observer.assertValue(true);
+  }
+
+  private SocketInternetObservingStrategy.Builder detailedStrategyBuilder() {
+    return SocketInternetObservingStrategy.builder().timeout(TIMEOUT_MS).delay(DELAY_MS)
+                                          .interval(INTERVAL_MS);
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.KeyStore;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static greyfox.rxnetwork.internal.strategy.internet.impl.TlsInternetObservingStrategy.HANDSHAKE_OVERHEAD_BYTES;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TlsInternetObservingStrategyTest {
+
+  /** Self-signed certificate of {@code localhost}. */
+  private static final String KEY_STORE = "/localhost.jks";
+  private static final char[] PASSWORD = "password".toCharArray();
+  private static final String HOSTNAME = "localhost";
+  private static final String OTHER_HOSTNAME = "127.0.0.1";
+  private static final int TIMEOUT_MS = 1000;
+
+  private SSLContext context;
+  private TlsServer server;
+
+  @Before
+  public void setUp() throws Exception {
+    final KeyStore keyStore = KeyStore.getInstance("JKS");
+    final InputStream input = getClass().getResourceAsStream(KEY_STORE);
+    try {
+      keyStore.load(input, PASSWORD);
+    } finally {
+      input.close();
+    }
+
+    final KeyManagerFactory keyManagers =
+        KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagers.init(keyStore, PASSWORD);
+    final TrustManagerFactory trustManagers =
+        TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagers.init(keyStore);
+
+    context = SSLContext.getInstance("TLS");
+    context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+
+    server = new TlsServer((SSLServerSocket) context.getServerSocketFactory()
+        .createServerSocket(0, 50, InetAddress.getByName(OTHER_HOSTNAME)));
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new TlsInternetObservingStrategy(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidPort() {
+    TlsInternetObservingStrategy.builder().port(65536);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToSetNullSocketFactory() {
+    TlsInternetObservingStrategy.builder().socketFactory(null);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToSetNullHostnameVerifier() {
+    TlsInternetObservingStrategy.builder().hostnameVerifier(null);
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsTrue_whenHandshakeCompletes() {
+    assertThat(strategy().build().checkConnection()).isTrue();
+  }
+
+  @Test
+  public void shouldReportFullHandshake_whenProbingForTheFirstTime() {
+    TlsHandshakeResult result = strategy().build().handshake();
+
+    assertThat(result.isConnected()).isTrue();
+    assertThat(result.isResumed()).isFalse();
+    assertThat(result.protocol()).startsWith("TLS");
+    assertThat(result.handshakeTime(MILLISECONDS)).isLessThan(TIMEOUT_MS);
+  }
+
+  @Test
+  public void shouldResumeSession_whenProbingAgain() throws InterruptedException {
+    TlsInternetObservingStrategy sut = strategy().build();
+    sut.handshake();
+
+    // session creation time has millisecond resolution
+    Thread.sleep(5);
+    TlsHandshakeResult result = sut.handshake();
+
+    assertThat(result.isConnected()).isTrue();
+    assertThat(result.isResumed()).isTrue();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenCertificateIsNotTrusted() {
+    TlsInternetObservingStrategy sut = TlsInternetObservingStrategy.builder()
+        .endpoint(HOSTNAME).port(server.port()).timeout(TIMEOUT_MS).build();
+
+    assertThat(sut.checkConnection()).isFalse();
+  }
+
+  @Test
+  public void shouldRecordHandshakeOverhead_whenCertificateIsNotTrusted() {
+    TlsInternetObservingStrategy sut = TlsInternetObservingStrategy.builder()
+        .endpoint(HOSTNAME).port(server.port()).timeout(TIMEOUT_MS).build();
+
+    sut.checkConnection();
+
+    assertThat(sut.dataUsage().sentBytes()).isEqualTo(HANDSHAKE_OVERHEAD_BYTES);
+    assertThat(sut.dataUsage().receivedBytes()).isEqualTo(HANDSHAKE_OVERHEAD_BYTES);
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenHostnameDoesNotMatch() {
+    TlsInternetObservingStrategy sut = strategy().endpoint(OTHER_HOSTNAME).build();
+
+    assertThat(sut.checkConnection()).isFalse();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenHostnameVerifierRejectsIt() {
+    TlsInternetObservingStrategy sut = strategy().hostnameVerifier(new HostnameVerifier() {
+      @Override
+      public boolean verify(String hostname, SSLSession session) {
+        return false;
+      }
+    }).build();
+
+    assertThat(sut.checkConnection()).isFalse();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenNothingListens() throws Exception {
+    TlsInternetObservingStrategy sut = strategy().build();
+    server.shutdown();
+
+    assertThat(sut.handshake().isConnected()).isFalse();
+  }
+
+  @Test
+  public void shouldRecordCertificateChain_onlyForFullHandshake() throws InterruptedException {
+    TlsInternetObservingStrategy sut = strategy().build();
+
+    sut.handshake();
+    final long fullHandshake = sut.dataUsage().receivedBytes();
+    Thread.sleep(5);
+    sut.handshake();
+
+    assertThat(sut.dataUsage().probes()).isEqualTo(2);
+    assertThat(sut.dataUsage().receivedBytes() - fullHandshake).isLessThan(fullHandshake);
+  }
+
+  private TlsInternetObservingStrategy.Builder strategy() {
+    return TlsInternetObservingStrategy.builder()
+        .endpoint(HOSTNAME)
+        .port(server.port())
+        .timeout(TIMEOUT_MS)
+        .socketFactory(context.getSocketFactory());
+  }
+
+  /** Server completing handshakes and closing connections. */
+  private static final class TlsServer extends Thread {
+
+    private final SSLServerSocket socket;
+
+    TlsServer(SSLServerSocket socket) {
+      this.socket = socket;
+      setDaemon(true);
+    }
+
+    int port() {
+      return socket.getLocalPort();
+    }
+
+    @Override
+    public void run() {
+      while (!socket.isClosed()) {
+        Socket client = null;
+        try {
+          client = socket.accept();
+          ((SSLSocket) client).startHandshake();
+          client.getInputStream().read();
+        } catch (IOException ignored) {
+          // client gave up or server closed
+        } finally {
+          close(client);
+        }
+      }
+    }
+
+    void shutdown() throws IOException, InterruptedException {
+      socket.close();
+      join();
+    }
+
+    private static void close(Socket client) {
+      try {
+        if (client != null) {
+          client.close();
+        }
+      } catch (IOException ignored) {
+        // nothing to do
+      }
+    }
+  }
+}
@@ -5,10 +5,15 @@ import greyfox.rxnetwork.internal.strategy.internet.error.InternetObservingStrat
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.security.cert.Certificate;
+import javax.net.ssl.HttpsURLConnection;
+import okhttp3.mockwebserver.MockResponse;
 import org.junit.Test;
 
+import static greyfox.rxnetwork.internal.strategy.internet.impl.TlsInternetObservingStrategy.HANDSHAKE_OVERHEAD_BYTES;
 import static greyfox.rxnetwork.internal.strategy.internet.impl.WalledGardenInternetObservingStrategy.builder;
 import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
+import static okhttp3.mockwebserver.SocketPolicy.NO_RESPONSE;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -97,6 +102,86 @@ public class WalledGardenInternetObservingStrategyTest
     assertThat(sut.observe().blockingFirst()).isFalse();
   }
 
+  @Test
+  public void shouldRecordDataUsage_whenProbed() {
+    setServerWithHttpStatusResponse(VALID_SERVER_RESPONSE);
+    WalledGardenInternetObservingStrategy sut =
+        (WalledGardenInternetObservingStrategy) buildStrategy();
+
+    sut.observe().blockingFirst();
+
+    assertThat(sut.dataUsage().probes()).isEqualTo(1);
+    assertThat(sut.dataUsage().sentBytes()).isGreaterThan(0);
+    assertThat(sut.dataUsage().receivedBytes()).isGreaterThan(0);
+  }
+
+  @Test
+  public void shouldRecordDataUsage_whenServerRespondsWithError() {
+    setServerWithHttpStatusResponse(INVALID_SERVER_RESPONSE);
+    WalledGardenInternetObservingStrategy sut =
+        (WalledGardenInternetObservingStrategy) buildStrategy();
+
+    assertThat(sut.probe()).isFalse();
+    assertThat(sut.dataUsage().probes()).isEqualTo(1);
+    assertThat(sut.dataUsage().sentBytes()).isGreaterThan(0);
+    assertThat(sut.dataUsage().receivedBytes()).isGreaterThan(0);
+  }
+
+  @Test
+  public void shouldRecordSentRequest_whenResponseNeverComes() {
+    server.enqueue(new MockResponse().setSocketPolicy(NO_RESPONSE));
+    WalledGardenInternetObservingStrategy sut =
+        builder().endpoint(server.url("/").toString()).timeout(VALID_TIMEOUT_MS).build();
+
+    assertThat(sut.probe()).isFalse();
+    assertThat(sut.dataUsage().sentBytes()).isGreaterThan(0);
+    assertThat(sut.dataUsage().receivedBytes()).isZero();
+  }
+
+  @Test
+  public void shouldRecordHandshake_whenProbingHttpsEndpoint() throws Exception {
+    WalledGardenInternetObservingStrategy sut = spy(detailedStrategyBuilder().build());
+    HttpsURLConnection urlConnection = mock(HttpsURLConnection.class);
+    Certificate certificate = mock(Certificate.class);
+    doReturn(new URL("https://localhost/generate_204")).when(urlConnection).getURL();
+    doReturn(new Certificate[] {certificate}).when(urlConnection).getServerCertificates();
+    doReturn(new byte[1000]).when(certificate).getEncoded();
+    doReturn(VALID_SERVER_RESPONSE).when(urlConnection).getResponseCode();
+    doReturn(urlConnection).when(sut).buildUrlConnection(any(URL.class));
+
+    assertThat(sut.probe()).isTrue();
+    assertThat(sut.dataUsage().sentBytes()).isGreaterThan(HANDSHAKE_OVERHEAD_BYTES);
+    assertThat(sut.dataUsage().receivedBytes()).isEqualTo(HANDSHAKE_OVERHEAD_BYTES + 1000);
+  }
+
+  @Test
+  public void shouldRouteProbes_toHealthyEndpointOfPool() {
+    for (int i = 0; i < 3; i++) {
+      setServerWithHttpStatusResponse(VALID_SERVER_RESPONSE);
+    }
+
+    final String healthy = server.url("/").toString();
+    EndpointPool pool = EndpointPool.builder(INVALID_HOST, healthy).build();
+    WalledGardenInternetObservingStrategy sut = builder().endpoints(pool).build();
+
+    assertThat(sut.probe()).isFalse();
+    assertThat(sut.probe()).isTrue();
+    assertThat(sut.probe()).isTrue();
+    assertThat(pool.best()).isEqualTo(healthy);
+  }
+
+  @Test
+  public void shouldReportProbeEvents_inOrder() {
+    setServerWithHttpStatusResponse(VALID_SERVER_RESPONSE);
+    RecordingProbeEventListener listener = new RecordingProbeEventListener();
+    WalledGardenInternetObservingStrategy sut =
+        builder().endpoint(server.url("/").toString()).eventListener(listener).build();
+
+    assertThat(sut.probe()).isTrue();
+    assertThat(listener.events)
+        .containsExactly("probeStart", "connected", "firstByte", "probeEnd true");
+  }
+
   private WalledGardenInternetObservingStrategy.Builder detailedStrategyBuilder() {
     return builder().delay(VALID_DELAY).interval(VALID_INTERVAL).timeout(VALID_TIMEOUT_MS)
                     .endpoint(VALID_ENDPOINT);
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.monitor;
+
+import io.reactivex.observers.TestObserver;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class EndpointMonitorTest {
+
+  private static final String LOOPBACK = "127.0.0.1";
+  private static final long INTERVAL_MS = 50;
+  private static final long TIMEOUT_MS = 1000;
+
+  private ServerSocket server;
+  private Thread acceptor;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new ServerSocket(0, 1024, InetAddress.getByName(LOOPBACK));
+    acceptor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (!server.isClosed()) {
+          try {
+            Socket socket = server.accept();
+            socket.close();
+          } catch (IOException ignored) {
+            // closed
+          }
+        }
+      }
+    });
+    acceptor.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.close();
+    acceptor.join();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new EndpointMonitor(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidTickDuration() {
+    EndpointMonitor.builder().tickDuration(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidMaxConcurrentProbes() {
+    EndpointMonitor.builder().maxConcurrentProbes(0);
+  }
+
+  @Test
+  public void shouldTrackEndpoints_whenAddedAndRemoved() {
+    EndpointMonitor sut = EndpointMonitor.create();
+    MonitoredEndpoint endpoint = endpoint(server.getLocalPort());
+
+    assertThat(sut.add(endpoint)).isTrue();
+    assertThat(sut.add(endpoint)).isFalse();
+    assertThat(sut.size()).isEqualTo(1);
+    assertThat(sut.remove(endpoint)).isTrue();
+    assertThat(sut.remove(endpoint)).isFalse();
+    assertThat(sut.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldReportReachable_whenEndpointAcceptsConnections() throws Exception {
+    EndpointMonitor sut = EndpointMonitor.create();
+    MonitoredEndpoint endpoint = endpoint(server.getLocalPort());
+    sut.add(endpoint);
+
+    TestObserver<EndpointStatus> observer = sut.observe().test();
+
+    observer.awaitCount(1);
+    observer.dispose();
+
+    assertThat(observer.values()).hasSize(1);
+    assertThat(observer.values().get(0).endpoint()).isSameAs(endpoint);
+    assertThat(observer.values().get(0).isReachable()).isTrue();
+  }
+
+  @Test
+  public void shouldReportUnreachable_whenEndpointRefusesConnections() throws Exception {
+    EndpointMonitor sut = EndpointMonitor.create();
+    sut.add(endpoint(closedPort()));
+
+    TestObserver<EndpointStatus> observer = sut.observe().test();
+
+    observer.awaitCount(1);
+    observer.dispose();
+
+    assertThat(observer.values().get(0).isReachable()).isFalse();
+  }
+
+  @Test
+  public void shouldEmitOnlyChanges_whenProbedRepeatedly() throws Exception {
+    EndpointMonitor sut = EndpointMonitor.create();
+    sut.add(endpoint(server.getLocalPort()));
+
+    TestObserver<EndpointStatus> observer = sut.observe().test();
+
+    observer.awaitCount(1);
+    Thread.sleep(INTERVAL_MS * 5);
+    observer.assertValueCount(1);
+
+    server.close();
+    observer.awaitCount(2);
+    observer.dispose();
+
+    assertThat(observer.values().get(1).isReachable()).isFalse();
+  }
+
+  @Test
+  public void shouldStartProbing_whenAddedWhileObserving() throws Exception {
+    EndpointMonitor sut = EndpointMonitor.create();
+    TestObserver<EndpointStatus> observer = sut.observe().test();
+
+    sut.add(endpoint(server.getLocalPort()));
+
+    observer.awaitCount(1);
+    observer.dispose();
+
+    observer.assertValueCount(1);
+  }
+
+  @Test
+  public void shouldStopProbing_whenRemoved() throws Exception {
+    EndpointMonitor sut = EndpointMonitor.create();
+    MonitoredEndpoint endpoint = endpoint(server.getLocalPort());
+    sut.add(endpoint);
+
+    TestObserver<EndpointStatus> observer = sut.observe().test();
+    observer.awaitCount(1);
+
+    sut.remove(endpoint);
+    Thread.sleep(INTERVAL_MS);
+    server.close();
+    Thread.sleep(INTERVAL_MS * 5);
+    observer.dispose();
+
+    observer.assertValueCount(1);
+  }
+
+  @Test
+  public void shouldReportAllEndpoints_whenWatchingTensOfThousands() throws Exception {
+    final int count = 10000;
+    EndpointMonitor sut = EndpointMonitor.builder().maxConcurrentProbes(128).build();
+
+    for (int i = 0; i < count; i++) {
+      sut.add(MonitoredEndpoint.builder()
+          .endpoint(LOOPBACK)
+          .port(server.getLocalPort())
+          .interval(60000)
+          .timeout(5000)
+          .build());
+    }
+
+    TestObserver<EndpointStatus> observer = sut.observe().test();
+
+    observer.awaitCount(count, TestObserver.TestWaitStrategy.SLEEP_10MS, 30000);
+    observer.dispose();
+
+    observer.assertValueCount(count);
+    for (EndpointStatus status : observer.values()) {
+      assertThat(status.isReachable()).isTrue();
+    }
+  }
+
+  private static MonitoredEndpoint endpoint(int port) {
+    return MonitoredEndpoint.builder()
+        .endpoint(LOOPBACK)
+        .port(port)
+        .interval(INTERVAL_MS)
+        .timeout(TIMEOUT_MS)
+        .build();
+  }
+
+  private static int closedPort() throws IOException {
+    ServerSocket socket = new ServerSocket(0);
+    int port = socket.getLocalPort();
+    socket.close();
+    return port;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.monitor;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class MonitoredEndpointTest {
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToBuildWithoutEndpoint() {
+    MonitoredEndpoint.builder().build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidPort() {
+    MonitoredEndpoint.builder().port(65536);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidInterval() {
+    MonitoredEndpoint.builder().interval(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidTimeout() {
+    MonitoredEndpoint.builder().timeout(-1);
+  }
+
+  @Test
+  public void shouldHaveDefaultValues_whenCreatedWithEndpointOnly() {
+    MonitoredEndpoint sut = MonitoredEndpoint.builder().endpoint("127.0.0.1").build();
+
+    assertThat(sut.port()).isEqualTo(80);
+    assertThat(sut.interval()).isEqualTo(3000);
+    assertThat(sut.timeout()).isEqualTo(3000);
+  }
+
+  @Test
+  public void shouldResolveAddress_whenBuilt() {
+    MonitoredEndpoint sut = MonitoredEndpoint.create("127.0.0.1", 8080);
+
+    assertThat(sut.address().isUnresolved()).isFalse();
+    assertThat(sut.address().getPort()).isEqualTo(8080);
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.monitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TimingWheelTest {
+
+  private TimingWheel<TestTimeout> sut;
+  private List<TestTimeout> expired;
+
+  @Before
+  public void setUp() {
+    sut = new TimingWheel<>(2, 3);
+    expired = new ArrayList<>();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToCreateWithInvalidSize() {
+    new TimingWheel<>(32, 2);
+  }
+
+  @Test
+  public void shouldExpire_whenDeadlineReached() {
+    TestTimeout timeout = new TestTimeout();
+    sut.schedule(timeout, 3);
+
+    sut.advance(2, expired);
+    assertThat(expired).isEmpty();
+    assertThat(timeout.isPending()).isTrue();
+
+    sut.advance(3, expired);
+    assertThat(expired).containsExactly(timeout);
+    assertThat(timeout.isPending()).isFalse();
+  }
+
+  @Test
+  public void shouldExpireOnTime_whenCascadingThroughAllLevels() {
+    List<TestTimeout> timeouts = new ArrayList<>();
+
+    for (int deadline = 1; deadline < 64; deadline++) {
+      TestTimeout timeout = new TestTimeout();
+      timeouts.add(timeout);
+      sut.schedule(timeout, deadline);
+    }
+
+    for (int tick = 1; tick < 64; tick++) {
+      sut.advance(tick, expired);
+
+      assertThat(expired).containsExactly(timeouts.get(tick - 1));
+      expired.clear();
+    }
+  }
+
+  @Test
+  public void shouldExpireOnNextTick_whenDeadlineAlreadyPassed() {
+    TestTimeout timeout = new TestTimeout();
+    sut.advance(10, expired);
+    sut.schedule(timeout, 5);
+
+    sut.advance(11, expired);
+
+    assertThat(expired).containsExactly(timeout);
+  }
+
+  @Test
+  public void shouldExpireEventually_whenDeadlineBeyondRange() {
+    TestTimeout timeout = new TestTimeout();
+    sut.schedule(timeout, 100);
+
+    sut.advance(99, expired);
+    assertThat(expired).isEmpty();
+
+    sut.advance(100, expired);
+    assertThat(expired).containsExactly(timeout);
+  }
+
+  @Test
+  public void shouldNotExpire_whenCancelled() {
+    TestTimeout timeout = new TestTimeout();
+    sut.schedule(timeout, 20);
+
+    sut.advance(10, expired);
+    sut.cancel(timeout);
+    sut.advance(30, expired);
+
+    assertThat(expired).isEmpty();
+    assertThat(timeout.isPending()).isFalse();
+  }
+
+  @Test
+  public void shouldMoveTimeout_whenRescheduled() {
+    TestTimeout timeout = new TestTimeout();
+    sut.schedule(timeout, 5);
+    sut.schedule(timeout, 40);
+
+    sut.advance(39, expired);
+    assertThat(expired).isEmpty();
+
+    sut.advance(40, expired);
+    assertThat(expired).containsExactly(timeout);
+  }
+
+  private static final class TestTimeout extends TimingWheel.Timeout {
+  }
+}
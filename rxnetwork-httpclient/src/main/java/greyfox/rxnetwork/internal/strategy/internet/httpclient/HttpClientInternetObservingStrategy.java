@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.httpclient;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.RestrictTo;
+import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleOnSubscribe;
+import io.reactivex.SingleSource;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.util.logging.Logger.getLogger;
+
+/**
+ * Internet observing strategy built on asynchronous {@link HttpClient}, for the JVM.
+ * <p>
+ * It checks the endpoint the same way {@code WalledGardenInternetObservingStrategy} and
+ * {@code HttpOkInternetObservingStrategy} do: redirects are not followed, responses are not
+ * cached and only the expected status code means internet access. Unlike them, probes are sent
+ * with {@linkplain HttpClient#sendAsync}, so no thread is blocked while waiting for the response.
+ * <p>
+ * By default all of the strategies share single {@link HttpClient} preferring HTTP/2, so probes
+ * to the same origin are multiplexed over one connection. HTTP/2 is only negotiated over TLS,
+ * hence the default endpoints are {@code https}; probes to {@code http} endpoints fall back
+ * to HTTP/1.1.
+ *
+ * @author Radek Kozak
+ */
+public final class HttpClientInternetObservingStrategy implements InternetObservingStrategy {
+
+  private static final Logger logger =
+      getLogger(HttpClientInternetObservingStrategy.class.getSimpleName());
+
+  private final HttpClient client;
+  private final HttpRequest request;
+  private final int expectedStatus;
+  private final long delay;
+  private final long interval;
+  private final Scheduler scheduler;
+
+  HttpClientInternetObservingStrategy(@NonNull Builder builder) {
+    checkNotNull(builder, "builder");
+
+    client = builder.client != null ? builder.client : SharedClient.INSTANCE;
+    request = HttpRequest.newBuilder(URI.create(builder.endpoint))
+                         .timeout(Duration.ofMillis(builder.timeout))
+                         .header("Cache-Control", "no-cache")
+                         .GET()
+                         .build();
+    expectedStatus = builder.expectedStatus;
+    delay = builder.delay;
+    interval = builder.interval;
+    scheduler = builder.scheduler != null ? builder.scheduler : Schedulers.computation();
+  }
+
+  /** Create strategy checking for {@code HTTP_NO_CONTENT} (Status-Code 204), as the default. */
+  @NonNull
+  public static HttpClientInternetObservingStrategy create() {
+    return builder().build();
+  }
+
+  /** Builder of strategy checking for {@code HTTP_NO_CONTENT} (Status-Code 204). */
+  @NonNull
+  public static Builder builder() {
+    return walledGarden();
+  }
+
+  /** Builder of strategy checking for {@code HTTP_NO_CONTENT} (Status-Code 204). */
+  @NonNull
+  public static Builder walledGarden() {
+    return new Builder(Builder.DEFAULT_WALLED_GARDEN_ENDPOINT, HTTP_NO_CONTENT);
+  }
+
+  /** Builder of strategy checking for {@code HTTP_OK} (Status-Code 200). */
+  @NonNull
+  public static Builder httpOk() {
+    return new Builder(Builder.DEFAULT_HTTP_OK_ENDPOINT, HTTP_OK);
+  }
+
+  /**
+   * Probes on every interval tick. Ticks coming while the previous probe is still in flight, e.g.
+   * the endpoint is slower to respond than the interval, are dropped instead of queued.
+   */
+  @Override
+  @RestrictTo(LIBRARY_GROUP)
+  public Observable<Boolean> observe() {
+    return Observable.defer(new Callable<ObservableSource<Boolean>>() {
+      @Override
+      public ObservableSource<Boolean> call() throws Exception {
+        final AtomicBoolean inFlight = new AtomicBoolean();
+
+        return Observable.interval(delay, interval, TimeUnit.MILLISECONDS, scheduler)
+                         .filter(new Predicate<Long>() {
+                           @Override
+                           public boolean test(Long tick) throws Exception {
+                             return inFlight.compareAndSet(false, true);
+                           }
+                         })
+                         .flatMapSingle(new Function<Long, SingleSource<Boolean>>() {
+                           @Override
+                           public SingleSource<Boolean> apply(Long tick) throws Exception {
+                             return checkConnection().doFinally(new Action() {
+                               @Override
+                               public void run() throws Exception {
+                                 inFlight.set(false);
+                               }
+                             });
+                           }
+                         });
+      }
+    }).distinctUntilChanged();
+  }
+
+  /**
+   * Sends single probe. Succeeds with {@code true} if the endpoint responded with expected status
+   * code, with {@code false} otherwise; it never fails. Disposing cancels the request in flight.
+   */
+  @NonNull
+  public Single<Boolean> checkConnection() {
+    return Single.create(new SingleOnSubscribe<Boolean>() {
+      @Override
+      public void subscribe(final SingleEmitter<Boolean> emitter) throws Exception {
+        final CompletableFuture<HttpResponse<Void>> response =
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+
+        emitter.setCancellable(new Cancellable() {
+          @Override
+          public void cancel() throws Exception {
+            response.cancel(true);
+          }
+        });
+
+        response.whenComplete(new BiConsumer<HttpResponse<Void>, Throwable>() {
+          @Override
+          public void accept(HttpResponse<Void> result, Throwable throwable) {
+            if (throwable != null) {
+              if (!isCancellation(throwable)) {
+                onError("Problem occurred while checking endpoint", throwable);
+              }
+              emitter.onSuccess(false);
+            } else {
+              emitter.onSuccess(result.statusCode() == expectedStatus);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  private static boolean isCancellation(Throwable throwable) {
+    return throwable instanceof CancellationException
+        || (throwable instanceof CompletionException
+        && throwable.getCause() instanceof CancellationException);
+  }
+
+  private void onError(String message, Throwable throwable) {
+    logger.log(Level.WARNING,
+        message + ": " + throwable.getMessage() + ((throwable.getCause() != null) ? ": " + throwable
+            .getCause().getMessage() : ""));
+  }
+
+  private static final class SharedClient {
+
+    static final HttpClient INSTANCE = HttpClient.newBuilder()
+                                                 .version(HttpClient.Version.HTTP_2)
+                                                 .followRedirects(HttpClient.Redirect.NEVER)
+                                                 .build();
+  }
+
+  /** Build a new {@link HttpClientInternetObservingStrategy}. */
+  public static final class Builder {
+
+    private static final String DEFAULT_WALLED_GARDEN_ENDPOINT = "https://www.google.cn/generate_204";
+    private static final String DEFAULT_HTTP_OK_ENDPOINT = "https://www.google.cn/blank.html";
+    private static final int DEFAULT_TIMEOUT_MS = 3000;
+    private static final long DEFAULT_DELAY_MS = 0;
+    private static final long DEFAULT_INTERVAL_MS = 3000;
+
+    private String endpoint;
+    private int expectedStatus;
+    private int timeout = DEFAULT_TIMEOUT_MS;
+    private long delay = DEFAULT_DELAY_MS;
+    private long interval = DEFAULT_INTERVAL_MS;
+    private Scheduler scheduler;
+    private HttpClient client;
+
+    Builder(String endpoint, int expectedStatus) {
+      this.endpoint = endpoint;
+      this.expectedStatus = expectedStatus;
+    }
+
+    /** Set the endpoint for the strategy. */
+    @NonNull
+    public Builder endpoint(@NonNull String endpoint) {
+      this.endpoint = checkNotNull(endpoint, "endpoint");
+      return this;
+    }
+
+    /** Set the timeout for the strategy. */
+    @NonNull
+    public Builder timeout(int timeout) {
+      if (timeout <= 0) {
+        throw new IllegalArgumentException("Invalid timeout: " + timeout);
+      }
+
+      this.timeout = timeout;
+      return this;
+    }
+
+    /** Set the delay for the strategy used in {@linkplain Observable#interval}. */
+    @NonNull
+    public Builder delay(long delay) {
+      this.delay = delay;
+      return this;
+    }
+
+    /** Set the interval for the strategy used in {@linkplain Observable#interval}. */
+    @NonNull
+    public Builder interval(long interval) {
+      this.interval = interval;
+      return this;
+    }
+
+    /**
+     * Set the {@link Scheduler} for the strategy used in {@linkplain Observable#interval}.
+     * Defaults to {@linkplain Schedulers#computation()}.
+     */
+    @NonNull
+    public Builder scheduler(@NonNull Scheduler scheduler) {
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      return this;
+    }
+
+    /**
+     * Set the {@link HttpClient} to send probes with. It should not follow redirects. By default
+     * the strategies share single HTTP/2 client.
+     */
+    @NonNull
+    public Builder client(@NonNull HttpClient client) {
+      this.client = checkNotNull(client, "client");
+      return this;
+    }
+
+    /**
+     * Create an immutable instance of {@link HttpClientInternetObservingStrategy} using
+     * configured values.
+     *
+     * @throws IllegalArgumentException if the endpoint is not a valid URI
+     */
+    @NonNull
+    public HttpClientInternetObservingStrategy build() {
+      return new HttpClientInternetObservingStrategy(this);
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.strategy.internet.httpclient;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static greyfox.rxnetwork.internal.strategy.internet.httpclient.HttpClientInternetObservingStrategy.httpOk;
+import static greyfox.rxnetwork.internal.strategy.internet.httpclient.HttpClientInternetObservingStrategy.walledGarden;
+import static java.net.HttpURLConnection.HTTP_MOVED_TEMP;
+import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class HttpClientInternetObservingStrategyTest {
+
+  private static final int TIMEOUT_MS = 1000;
+  private static final int INTERVAL_MS = 100;
+
+  private MockWebServer server;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new MockWebServer();
+    server.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new HttpClientInternetObservingStrategy(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidTimeout() {
+    HttpClientInternetObservingStrategy.builder().timeout(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToBuildWithInvalidEndpoint() {
+    HttpClientInternetObservingStrategy.builder().endpoint("http://invalid endpoint").build();
+  }
+
+  @Test
+  public void shouldSubscribeCorrectly() {
+    HttpClientInternetObservingStrategy.create().observe().test().assertSubscribed().dispose();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsTrue_whenWalledGardenEndpointRespondsNoContent() {
+    server.enqueue(new MockResponse().setResponseCode(HTTP_NO_CONTENT));
+
+    HttpClientInternetObservingStrategy sut = strategy(walledGarden());
+
+    assertThat(sut.checkConnection().blockingGet()).isTrue();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenWalledGardenEndpointRespondsOk() {
+    server.enqueue(new MockResponse().setResponseCode(HTTP_OK).setBody("captive portal"));
+
+    HttpClientInternetObservingStrategy sut = strategy(walledGarden());
+
+    assertThat(sut.checkConnection().blockingGet()).isFalse();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsTrue_whenHttpOkEndpointRespondsOk() {
+    server.enqueue(new MockResponse().setResponseCode(HTTP_OK));
+
+    HttpClientInternetObservingStrategy sut = strategy(httpOk());
+
+    assertThat(sut.checkConnection().blockingGet()).isTrue();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenRedirected() {
+    server.enqueue(new MockResponse().setResponseCode(HTTP_MOVED_TEMP)
+                                     .addHeader("Location", server.url("/login")));
+    server.enqueue(new MockResponse().setResponseCode(HTTP_OK));
+
+    HttpClientInternetObservingStrategy sut = strategy(httpOk());
+
+    assertThat(sut.checkConnection().blockingGet()).isFalse();
+  }
+
+  @Test
+  public void shouldReturnInternetConnectionIsFalse_whenEndpointUnreachable() throws Exception {
+    String endpoint = server.url("/generate_204").toString();
+    server.shutdown();
+
+    HttpClientInternetObservingStrategy sut =
+        walledGarden().endpoint(endpoint).timeout(TIMEOUT_MS).build();
+
+    assertThat(sut.checkConnection().blockingGet()).isFalse();
+  }
+
+  @Test
+  public void shouldNotLogWarning_whenProbeIsDisposedWhileInFlight() throws Exception {
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+    final List<LogRecord> records = new CopyOnWriteArrayList<>();
+    Handler handler = new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        records.add(record);
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    Logger logger = Logger.getLogger(HttpClientInternetObservingStrategy.class.getSimpleName());
+    logger.addHandler(handler);
+
+    try {
+      HttpClientInternetObservingStrategy sut = strategy(walledGarden());
+      TestObserver<Boolean> observer = sut.checkConnection().test();
+      server.takeRequest(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      observer.dispose();
+
+      observer.assertNoValues();
+      assertThat(records).isEmpty();
+    } finally {
+      logger.removeHandler(handler);
+    }
+  }
+
+  @Test
+  public void shouldObserveConnectionOnGivenScheduler() {
+    server.enqueue(new MockResponse().setResponseCode(HTTP_NO_CONTENT));
+    TestScheduler scheduler = new TestScheduler();
+
+    HttpClientInternetObservingStrategy sut = HttpClientInternetObservingStrategy.builder()
+        .endpoint(server.url("/generate_204").toString())
+        .timeout(TIMEOUT_MS)
+        .scheduler(scheduler)
+        .build();
+
+    TestObserver<Boolean> observer = sut.observe().test();
+    observer.assertNoValues();
+
+    scheduler.advanceTimeBy(0, TimeUnit.MILLISECONDS);
+    observer.awaitCount(1);
+    observer.dispose();
+
+    observer.assertValue(true);
+  }
+
+  @Test
+  public void shouldDropTicks_whileProbeIsInFlight() throws Exception {
+    final CountDownLatch respond = new CountDownLatch(1);
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        respond.await();
+        return new MockResponse().setResponseCode(HTTP_NO_CONTENT);
+      }
+    });
+    TestScheduler scheduler = new TestScheduler();
+
+    HttpClientInternetObservingStrategy sut = HttpClientInternetObservingStrategy.builder()
+        .endpoint(server.url("/generate_204").toString())
+        .timeout(5 * TIMEOUT_MS)
+        .interval(INTERVAL_MS)
+        .scheduler(scheduler)
+        .build();
+
+    final TestObserver<Boolean> observer = sut.observe().test();
+    scheduler.advanceTimeBy(0, TimeUnit.MILLISECONDS);
+    server.takeRequest(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    scheduler.advanceTimeBy(5 * INTERVAL_MS, TimeUnit.MILLISECONDS);
+    respond.countDown();
+    observer.awaitCount(1);
+    Thread.sleep(INTERVAL_MS);
+
+    assertThat(server.getRequestCount()).isEqualTo(1);
+
+    scheduler.advanceTimeBy(INTERVAL_MS, TimeUnit.MILLISECONDS);
+    server.takeRequest(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    observer.dispose();
+
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    observer.assertValue(true);
+  }
+
+  private HttpClientInternetObservingStrategy strategy(
+      HttpClientInternetObservingStrategy.Builder builder) {
+
+    return builder.endpoint(server.url("/").toString()).timeout(TIMEOUT_MS).build();
+  }
+}
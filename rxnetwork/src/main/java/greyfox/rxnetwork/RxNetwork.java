@@ -23,9 +23,21 @@ import android.support.annotation.Nullable;
 import android.support.annotation.RequiresApi;
 import android.support.annotation.RequiresPermission;
 import android.support.annotation.VisibleForTesting;
+import greyfox.rxnetwork.internal.net.LinkBandwidth;
 import greyfox.rxnetwork.internal.net.RxNetworkInfo;
+import greyfox.rxnetwork.internal.net.RxNetworkInfoChange;
+import greyfox.rxnetwork.internal.net.Snapshot;
+import greyfox.rxnetwork.internal.net.SnapshotRecorder;
+import greyfox.rxnetwork.internal.prewarm.ConnectionPreWarmer;
+import greyfox.rxnetwork.internal.quality.ConnectionQuality;
+import greyfox.rxnetwork.internal.quality.ConnectionQualityEstimator;
+import greyfox.rxnetwork.internal.queue.OperationQueue;
+import greyfox.rxnetwork.internal.queue.OperationQueue.Condition;
+import greyfox.rxnetwork.internal.retry.RetryWhenConnected;
+import greyfox.rxnetwork.internal.scheduler.ConnectivityScheduler;
 import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
 import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategyFactory;
+import greyfox.rxnetwork.internal.strategy.internet.ProbeEventListener;
 import greyfox.rxnetwork.internal.strategy.internet.impl.WalledGardenInternetObservingStrategy;
 import greyfox.rxnetwork.internal.strategy.network.NetworkObservingStrategy;
 import greyfox.rxnetwork.internal.strategy.network.NetworkObservingStrategyFactory;
@@ -33,15 +45,34 @@ import greyfox.rxnetwork.internal.strategy.network.factory.BuiltInNetworkObservi
 import greyfox.rxnetwork.internal.strategy.network.providers.BuiltInNetworkObservingStrategyProviders;
 import greyfox.rxnetwork.internal.strategy.network.providers.NetworkObservingStrategyProvider;
 import greyfox.rxnetwork.internal.strategy.network.providers.ObservingStrategyProviders;
+import greyfox.rxnetwork.internal.traffic.TrafficSample;
+import greyfox.rxnetwork.internal.traffic.TrafficSampler;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
 import io.reactivex.Scheduler;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.reactivestreams.Publisher;
 
 import static android.Manifest.permission.ACCESS_NETWORK_STATE;
 import static android.Manifest.permission.INTERNET;
+import static android.net.ConnectivityManager.TYPE_ETHERNET;
+import static android.net.ConnectivityManager.TYPE_WIFI;
+import static android.net.NetworkCapabilities.NET_CAPABILITY_NOT_METERED;
+import static android.os.Build.VERSION.SDK_INT;
 import static android.os.Build.VERSION_CODES.LOLLIPOP;
 import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
 import static greyfox.rxnetwork.common.base.Preconditions.checkNotNullWithMessage;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.changedAny;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.changes;
 import static greyfox.rxnetwork.internal.strategy.network.helpers.Functions.TO_CONNECTION_STATE;
+import static io.reactivex.BackpressureStrategy.LATEST;
 
 /**
  * RxNetwork is a class that listens to network connectivity changes in a reactive manner.
@@ -85,16 +116,90 @@ import static greyfox.rxnetwork.internal.strategy.network.helpers.Functions.TO_C
  *
  *     RxNetwork.builder().defaultNetworkRequest(customRequest).build();
  * </code></pre>
+ * <p>
+ * Default observables of each instance are shared between all of their subscribers. The values
+ * they emit are recorded, so the current state can be read synchronously at any time:
+ * <pre><code>
+ *     Snapshot&lt;Boolean&gt; internetAccess = rxnetwork.currentInternetAccess();
+ * </code></pre>
  *
  * @author Radek Kozak
  */
 @SuppressWarnings("WeakerAccess")
 public final class RxNetwork {
 
+  /** Fields telling networks apart: connection quality estimate starts over when they change. */
+  private static final int NETWORK_IDENTITY =
+      RxNetworkInfoChange.TYPE | RxNetworkInfoChange.SUB_TYPE | RxNetworkInfoChange.CONNECTED;
+
+  private static final Predicate<Boolean> IS_TRUE = new Predicate<Boolean>() {
+    @Override
+    public boolean test(Boolean value) throws Exception {
+      return value;
+    }
+  };
+
+  private static final Predicate<RxNetworkInfoChange> CONNECTED_TO_OTHER_NETWORK =
+      new Predicate<RxNetworkInfoChange>() {
+        @Override
+        public boolean test(RxNetworkInfoChange change) throws Exception {
+          return change.previous() != null && change.current().isConnected();
+        }
+      };
+
+  private static final Function<RxNetworkInfo, Boolean> IS_CONNECTED =
+      new Function<RxNetworkInfo, Boolean>() {
+        @Override
+        public Boolean apply(RxNetworkInfo networkInfo) throws Exception {
+          return networkInfo.isConnected();
+        }
+      };
+
+  private static final Function<RxNetworkInfo, Boolean> IS_CONNECTED_UNMETERED =
+      new Function<RxNetworkInfo, Boolean>() {
+        @Override
+        public Boolean apply(RxNetworkInfo networkInfo) throws Exception {
+          if (!networkInfo.isConnected()) {
+            return false;
+          }
+
+          if (SDK_INT >= LOLLIPOP && networkInfo.getNetworkCapabilities() != null) {
+            return networkInfo.getNetworkCapabilities().hasCapability(NET_CAPABILITY_NOT_METERED);
+          }
+
+          return networkInfo.getType() == TYPE_WIFI || networkInfo.getType() == TYPE_ETHERNET;
+        }
+      };
+
   @NonNull private final NetworkObservingStrategy networkObservingStrategy;
   @NonNull private final InternetObservingStrategy internetObservingStrategy;
   @Nullable private final NetworkRequest networkRequest;
   @Nullable private final Scheduler scheduler;
+  @NonNull private final ProbeEventListener eventListener;
+
+  @NonNull private final Consumer<Object> networkCallbackListener = new Consumer<Object>() {
+    @Override
+    public void accept(Object networkInfo) {
+      eventListener.networkCallbackReceived(networkInfo);
+    }
+  };
+
+  @NonNull private final SnapshotRecorder<RxNetworkInfo> networkInfoRecorder =
+      new SnapshotRecorder<>();
+  @NonNull private final SnapshotRecorder<Boolean> internetAccessRecorder =
+      new SnapshotRecorder<>();
+  @NonNull private final ReplayedValue<RxNetworkInfo> replayedNetworkInfo = new ReplayedValue<>();
+  @NonNull private final ReplayedValue<Boolean> replayedInternetAccess = new ReplayedValue<>();
+
+  @NonNull private final ConnectionQualityEstimator connectionQualityEstimator =
+      ConnectionQualityEstimator.create();
+
+  @Nullable private Observable<RxNetworkInfo> sharedNetworkInfo;
+  @Nullable private Observable<RxNetworkInfo> deliveredNetworkInfo;
+  @Nullable private Observable<Boolean> sharedInternetAccess;
+  @Nullable private Observable<Boolean> deliveredInternetAccess;
+  @Nullable private Observable<ConnectionQuality> sharedConnectionQuality;
+  @Nullable private Observable<TrafficSample> sharedTraffic;
 
   @VisibleForTesting
   RxNetwork() {
@@ -109,6 +214,7 @@ public final class RxNetwork {
     networkObservingStrategy = builder.networkObservingStrategy;
     internetObservingStrategy = builder.internetObservingStrategy;
     networkRequest = builder.networkRequest;
+    eventListener = builder.eventListener;
   }
 
   /** Create default implementation of RxNetwork. */
@@ -152,18 +258,31 @@ public final class RxNetwork {
     return this.networkRequest;
   }
 
+  @NonNull
+  @VisibleForTesting
+  ProbeEventListener eventListener() {
+    return this.eventListener;
+  }
+
   /**
    * RxNetworkInfo connectivity observable with all the original {@link NetworkInfo} information.
    * <p>
    * Use this if you're interested in more than just the connection and could use
    * more information of actual network information being emitted.
+   * <p>
+   * This observable is shared: all of its subscribers are served by single registration of
+   * the default network observing strategy and late subscribers get the latest value right away.
    *
    * @return RxJava Observable with {@link RxNetworkInfo} containing network information
    */
   @NonNull
   @RequiresPermission(ACCESS_NETWORK_STATE)
-  public Observable<RxNetworkInfo> observe() {
-    return observe(networkObservingStrategy);
+  public synchronized Observable<RxNetworkInfo> observe() {
+    if (deliveredNetworkInfo == null) {
+      deliveredNetworkInfo = reportDeliveries(sharedNetworkInfo(), replayedNetworkInfo);
+    }
+
+    return deliveredNetworkInfo;
   }
 
   /**
@@ -180,13 +299,47 @@ public final class RxNetwork {
     checkNotNullWithMessage(strategy, "Please provide network observing strategy or initialize"
         + " RxNetwork with proper Context to use the default one");
 
-    final Observable<RxNetworkInfo> observable = strategy.observe();
+    Observable<RxNetworkInfo> observable = strategy.observe();
 
-    if (scheduler != null) {
-      observable.subscribeOn(scheduler);
+    if (eventListener != ProbeEventListener.NONE) {
+      observable = observable.doOnNext(networkCallbackListener);
     }
 
-    return observable;
+    return scheduler != null ? observable.subscribeOn(scheduler) : observable;
+  }
+
+  /**
+   * Conflating variant of {@linkplain #observe()} for slow subscribers.
+   * <p>
+   * Only the most recent {@link RxNetworkInfo} is kept for each subscriber and handed over
+   * when it requests more, so intermediate states never pile up no matter how fast
+   * the network changes.
+   *
+   * @return RxJava Flowable with the latest {@link RxNetworkInfo}
+   */
+  @NonNull
+  @RequiresPermission(ACCESS_NETWORK_STATE)
+  public Flowable<RxNetworkInfo> observeLatest() {
+    return observe().toFlowable(LATEST);
+  }
+
+  /**
+   * Conflating variant of {@linkplain #observe()} delivering on given {@link Scheduler}.
+   * <p>
+   * Unlike plain {@code observeOn} this never queues more than a single value for delivery,
+   * so a subscriber busy on, say, the main thread always gets the newest {@link RxNetworkInfo}
+   * once it is done with the previous one.
+   *
+   * @param scheduler {@link Scheduler} to deliver values on
+   *
+   * @return RxJava Flowable with the latest {@link RxNetworkInfo}
+   */
+  @NonNull
+  @RequiresPermission(ACCESS_NETWORK_STATE)
+  public Flowable<RxNetworkInfo> observeLatest(@NonNull Scheduler scheduler) {
+    checkNotNull(scheduler, "scheduler");
+    return reportDeliveries(sharedNetworkInfo().toFlowable(LATEST).observeOn(scheduler, false, 1),
+        replayedNetworkInfo);
   }
 
   /**
@@ -205,16 +358,56 @@ public final class RxNetwork {
     return observe().map(TO_CONNECTION_STATE);
   }
 
+  /**
+   * Change-set observable based on {@linkplain #observe()}.
+   * <p>
+   * Instead of whole {@link RxNetworkInfo} each emission describes which of its fields changed
+   * along with previous and current values. Emissions that change nothing are dropped.
+   *
+   * @return RxJava Observable with {@link RxNetworkInfoChange}
+   */
+  @NonNull
+  @RequiresPermission(ACCESS_NETWORK_STATE)
+  public Observable<RxNetworkInfoChange> observeChanges() {
+    return observe().compose(changes());
+  }
+
+  /**
+   * Change-set observable based on {@linkplain #observe()} that emits only when any of
+   * the given fields changed.
+   * <p>
+   * Example usage:
+   * <pre><code>
+   * rxnetwork.observeChanges(ROAMING | BANDWIDTH).subscribe(...);
+   * </code></pre>
+   *
+   * @param fields one or many {@link RxNetworkInfoChange} fields combined with bitwise or
+   *
+   * @return RxJava Observable with {@link RxNetworkInfoChange}
+   */
+  @NonNull
+  @RequiresPermission(ACCESS_NETWORK_STATE)
+  public Observable<RxNetworkInfoChange> observeChanges(int fields) {
+    return observeChanges().filter(changedAny(fields));
+  }
+
   /**
    * Real internet access observable.
+   * <p>
+   * This observable is shared: all of its subscribers are served by single instance of
+   * the default internet observing strategy and late subscribers get the latest value right away.
    *
    * @return RxJava Observable with {@code Boolean} ( {@code true} if there is real internet access,
    * {@code false} if not )
    */
   @NonNull
   @RequiresPermission(INTERNET)
-  public Observable<Boolean> observeInternetAccess() {
-    return observeInternetAccess(internetObservingStrategy);
+  public synchronized Observable<Boolean> observeInternetAccess() {
+    if (deliveredInternetAccess == null) {
+      deliveredInternetAccess = reportDeliveries(sharedInternetAccess(), replayedInternetAccess);
+    }
+
+    return deliveredInternetAccess;
   }
 
   /**
@@ -231,10 +424,404 @@ public final class RxNetwork {
     checkNotNull(strategy, "internet observing strategy");
 
     final Observable<Boolean> observable = strategy.observe();
-    if (scheduler != null) {
-      observable.subscribeOn(scheduler);
+
+    return scheduler != null ? observable.subscribeOn(scheduler) : observable;
+  }
+
+  /**
+   * Conflating variant of {@linkplain #observeInternetAccess()} for slow subscribers.
+   *
+   * @return RxJava Flowable with the latest internet access state
+   *
+   * @see #observeLatest()
+   */
+  @NonNull
+  @RequiresPermission(INTERNET)
+  public Flowable<Boolean> observeInternetAccessLatest() {
+    return observeInternetAccess().toFlowable(LATEST);
+  }
+
+  /**
+   * Conflating variant of {@linkplain #observeInternetAccess()} delivering on given
+   * {@link Scheduler}.
+   *
+   * @param scheduler {@link Scheduler} to deliver values on
+   *
+   * @return RxJava Flowable with the latest internet access state
+   *
+   * @see #observeLatest(Scheduler)
+   */
+  @NonNull
+  @RequiresPermission(INTERNET)
+  public Flowable<Boolean> observeInternetAccessLatest(@NonNull Scheduler scheduler) {
+    checkNotNull(scheduler, "scheduler");
+    return reportDeliveries(
+        sharedInternetAccess().toFlowable(LATEST).observeOn(scheduler, false, 1),
+        replayedInternetAccess);
+  }
+
+  /**
+   * Connection quality observable, classifying estimated downstream throughput as
+   * {@link ConnectionQuality#POOR POOR}, {@link ConnectionQuality#MODERATE MODERATE},
+   * {@link ConnectionQuality#GOOD GOOD} or {@link ConnectionQuality#EXCELLENT EXCELLENT}.
+   * <p>
+   * Each time device connects to a network, the estimate starts over from bandwidth advertised
+   * by the platform (API 21+) or typical for the network's type and subtype. From then on it's
+   * refined by throughput samples {@linkplain #reportThroughput(long, long, TimeUnit) reported}
+   * by the app, and by bandwidth the platform advertises for the network, weighted as one more
+   * sample each time it changes. It's {@link ConnectionQuality#UNKNOWN UNKNOWN} while disconnected.
+   * <p>
+   * This observable is shared and late subscribers get the latest value right away.
+   *
+   * @return RxJava Observable with {@link ConnectionQuality}
+   *
+   * @see ConnectionQualityEstimator
+   */
+  @NonNull
+  @RequiresPermission(ACCESS_NETWORK_STATE)
+  public synchronized Observable<ConnectionQuality> observeConnectionQuality() {
+    if (sharedConnectionQuality == null) {
+      sharedConnectionQuality = observeChanges(NETWORK_IDENTITY | RxNetworkInfoChange.BANDWIDTH)
+          .doOnNext(new Consumer<RxNetworkInfoChange>() {
+            @Override
+            public void accept(RxNetworkInfoChange change) {
+              final long bandwidthKbps = LinkBandwidth.estimateKbps(change.current());
+
+              if (change.hasChanged(NETWORK_IDENTITY)) {
+                connectionQualityEstimator.reset(bandwidthKbps);
+              } else {
+                // same network advertising other bandwidth, the samples still hold
+                connectionQualityEstimator.addPrior(bandwidthKbps);
+              }
+            }
+          })
+          .filter(changedAny(NETWORK_IDENTITY))
+          .switchMap(new Function<RxNetworkInfoChange, ObservableSource<ConnectionQuality>>() {
+            @Override
+            public ObservableSource<ConnectionQuality> apply(RxNetworkInfoChange change) {
+              return connectionQualityEstimator.observe();
+            }
+          }).distinctUntilChanged().replay(1).refCount();
+    }
+
+    return sharedConnectionQuality;
+  }
+
+  /**
+   * Reports observed throughput, e.g. size and download time of a response body, for
+   * {@linkplain #observeConnectionQuality() connection quality} estimate. Small transfers are
+   * ignored, since they tell more about latency than about throughput.
+   *
+   * @param bytes    number of bytes transferred
+   * @param duration how long the transfer took
+   * @param unit     unit of {@code duration}
+   */
+  public void reportThroughput(long bytes, long duration, @NonNull TimeUnit unit) {
+    connectionQualityEstimator.addSample(bytes, duration, unit);
+  }
+
+  /**
+   * Passive throughput observable, sampling {@link android.net.TrafficStats TrafficStats} byte
+   * counters of the device and of this app once a second. Samples carry smoothed rates, idle
+   * and burst flags, and the {@linkplain #observe() network} they were taken on.
+   * <p>
+   * This observable is shared: all of its subscribers are served by single sampler and late
+   * subscribers get the latest sample right away.
+   *
+   * @return RxJava Observable with {@link TrafficSample}
+   *
+   * @see TrafficSampler
+   */
+  @NonNull
+  @RequiresPermission(ACCESS_NETWORK_STATE)
+  public synchronized Observable<TrafficSample> observeTraffic() {
+    if (sharedTraffic == null) {
+      sharedTraffic = observeTraffic(TrafficSampler.create()).replay(1).refCount();
+    }
+
+    return sharedTraffic;
+  }
+
+  /**
+   * Passive throughput observable using custom configured {@link TrafficSampler}.
+   *
+   * @param sampler custom {@link TrafficSampler} instance
+   *
+   * @return RxJava Observable with {@link TrafficSample}
+   */
+  @NonNull
+  @RequiresPermission(ACCESS_NETWORK_STATE)
+  public Observable<TrafficSample> observeTraffic(@NonNull TrafficSampler sampler) {
+    checkNotNull(sampler, "sampler");
+    return sampler.observe(observe());
+  }
+
+  /**
+   * Warms up connections of given {@link ConnectionPreWarmer} whenever internet access is
+   * regained, as seen by {@linkplain #observeInternetAccess()}, and whenever device connects to
+   * different network, as seen by {@linkplain #observe()}.
+   * <p>
+   * Warm-ups go on for as long as returned {@link Completable} is subscribed to.
+   *
+   * @param preWarmer {@link ConnectionPreWarmer} with the hosts to warm up
+   *
+   * @return RxJava Completable that never completes
+   */
+  @NonNull
+  @RequiresPermission(allOf = { ACCESS_NETWORK_STATE, INTERNET })
+  public Completable preWarm(@NonNull ConnectionPreWarmer preWarmer) {
+    checkNotNull(preWarmer, "preWarmer");
+
+    final Observable<Boolean> internetRegained = observeInternetAccess().filter(IS_TRUE);
+    final Observable<RxNetworkInfoChange> networkChanged =
+        observeChanges(RxNetworkInfoChange.TYPE | RxNetworkInfoChange.SUB_TYPE
+            | RxNetworkInfoChange.CONNECTED).filter(CONNECTED_TO_OTHER_NETWORK);
+
+    return preWarmer.warmOn(Observable.merge(internetRegained, networkChanged));
+  }
+
+  /**
+   * Transformer retrying upstream that failed with {@link java.io.IOException} once
+   * {@linkplain #observeInternetAccess() internet access} is back. Internet access that looks
+   * uninterrupted has to last for a while first, see {@link RetryWhenConnected}.
+   * <p>
+   * Example usage:
+   * <pre><code>
+   * api.fetchInbox().compose(rxnetwork.&lt;Inbox&gt;retryWhenConnected(3)).subscribe(...);
+   * </code></pre>
+   *
+   * @param maxAttempts maximum number of retries
+   *
+   * @return transformer for {@code Observable}, {@code Flowable}, {@code Single}
+   * and {@code Completable}
+   *
+   * @see RetryWhenConnected
+   */
+  @NonNull
+  @RequiresPermission(INTERNET)
+  public <T> RetryWhenConnected<T> retryWhenConnected(int maxAttempts) {
+    return RetryWhenConnected.<T>builder(observeInternetAccess()).maxAttempts(maxAttempts).build();
+  }
+
+  /**
+   * Transformer retrying upstream that failed with {@link java.io.IOException} once
+   * {@linkplain #observe() network} satisfies given condition.
+   * <p>
+   * Example usage, retrying on unmetered networks only:
+   * <pre><code>
+   * upload.compose(rxnetwork.&lt;Receipt&gt;retryWhenConnected(
+   *     hasCapability(NET_CAPABILITY_NOT_METERED), 3)).subscribe(...);
+   * </code></pre>
+   *
+   * @param condition   network condition to wait for, e.g. one of {@code RxNetworkInfoPredicate}
+   * @param maxAttempts maximum number of retries
+   *
+   * @return transformer for {@code Observable}, {@code Flowable}, {@code Single}
+   * and {@code Completable}
+   *
+   * @see RetryWhenConnected
+   */
+  @NonNull
+  @RequiresPermission(ACCESS_NETWORK_STATE)
+  public <T> RetryWhenConnected<T> retryWhenConnected(
+      @NonNull final Predicate<RxNetworkInfo> condition, int maxAttempts) {
+
+    checkNotNull(condition, "condition");
+    return RetryWhenConnected.<T>builder(satisfies(condition).distinctUntilChanged())
+        .maxAttempts(maxAttempts).build();
+  }
+
+  /**
+   * {@link Scheduler} that runs actions only while {@linkplain #observe() network} satisfies
+   * given condition. Actions scheduled in the meantime are deferred and dispatched, in order,
+   * to given scheduler once it does.
+   * <p>
+   * Example usage, prefetching on Wi-Fi only:
+   * <pre><code>
+   * Scheduler onWifi = rxnetwork.networkScheduler(IS_WIFI, Schedulers.io());
+   *
+   * prefetchArticles().subscribeOn(onWifi).subscribe(...);
+   * </code></pre>
+   *
+   * @param condition network condition to wait for, e.g. one of {@code RxNetworkInfoPredicate}
+   * @param scheduler scheduler to run actions on
+   *
+   * @return {@link ConnectivityScheduler} gated by the condition
+   *
+   * @see ConnectivityScheduler
+   */
+  @NonNull
+  @RequiresPermission(ACCESS_NETWORK_STATE)
+  public ConnectivityScheduler networkScheduler(@NonNull Predicate<RxNetworkInfo> condition,
+      @NonNull Scheduler scheduler) {
+
+    checkNotNull(condition, "condition");
+    checkNotNull(scheduler, "scheduler");
+
+    return ConnectivityScheduler.create(satisfies(condition).distinctUntilChanged(), scheduler);
+  }
+
+  /**
+   * Builder of {@link OperationQueue} with its conditions watched by this instance:
+   * <ul>
+   * <li>{@link Condition#ANY ANY} is met when {@linkplain #observe() network} is connected,</li>
+   * <li>{@link Condition#UNMETERED UNMETERED} is met when connected network is not metered
+   * (on pre-Lollipop devices: when it's Wi-Fi or Ethernet),</li>
+   * <li>{@link Condition#VALIDATED VALIDATED} is met when there's
+   * {@linkplain #observeInternetAccess() internet access}.</li>
+   * </ul>
+   * Example usage:
+   * <pre><code>
+   * OperationQueue queue = rxnetwork.operationQueue().batchSize(2).build();
+   * queue.process().subscribe();
+   *
+   * queue.enqueue(api.uploadPhoto(photo), 0, Condition.UNMETERED);
+   * </code></pre>
+   *
+   * @return {@link OperationQueue.Builder} for further configuration
+   *
+   * @see OperationQueue
+   */
+  @NonNull
+  @RequiresPermission(allOf = { ACCESS_NETWORK_STATE, INTERNET })
+  public OperationQueue.Builder operationQueue() {
+    return OperationQueue.builder()
+        .condition(Condition.ANY, observe().map(IS_CONNECTED).distinctUntilChanged())
+        .condition(Condition.UNMETERED,
+            observe().map(IS_CONNECTED_UNMETERED).distinctUntilChanged())
+        .condition(Condition.VALIDATED, observeInternetAccess());
+  }
+
+  /** Network information shared by all of the subscribers, before delivery to each of them. */
+  private synchronized Observable<RxNetworkInfo> sharedNetworkInfo() {
+    if (sharedNetworkInfo == null) {
+      sharedNetworkInfo = observe(networkObservingStrategy).doOnNext(networkInfoRecorder)
+          .doOnNext(replayedNetworkInfo).doFinally(replayedNetworkInfo).replay(1).refCount();
+    }
+
+    return sharedNetworkInfo;
+  }
+
+  /** Internet access shared by all of the subscribers, before delivery to each of them. */
+  private synchronized Observable<Boolean> sharedInternetAccess() {
+    if (sharedInternetAccess == null) {
+      sharedInternetAccess = observeInternetAccess(internetObservingStrategy)
+          .doOnNext(internetAccessRecorder).doOnNext(replayedInternetAccess)
+          .doFinally(replayedInternetAccess).replay(1).refCount();
+    }
+
+    return sharedInternetAccess;
+  }
+
+  /**
+   * Reports values of given shared observable to the event listener, if there is one, as they
+   * are delivered to each of its subscribers. The value replayed on subscription, the latest one
+   * of the connection live at the time, is not a delivery of a network change and is not reported.
+   */
+  private <T> Observable<T> reportDeliveries(@NonNull final Observable<T> observable,
+      @NonNull final ReplayedValue<T> replayed) {
+
+    if (eventListener == ProbeEventListener.NONE) {
+      return observable;
+    }
+
+    return Observable.defer(new Callable<ObservableSource<T>>() {
+      @Override
+      public ObservableSource<T> call() throws Exception {
+        return observable.doOnNext(new DeliveryReporter(replayed.value));
+      }
+    });
+  }
+
+  private <T> Flowable<T> reportDeliveries(@NonNull final Flowable<T> flowable,
+      @NonNull final ReplayedValue<T> replayed) {
+
+    if (eventListener == ProbeEventListener.NONE) {
+      return flowable;
+    }
+
+    return Flowable.defer(new Callable<Publisher<T>>() {
+      @Override
+      public Publisher<T> call() throws Exception {
+        return flowable.doOnNext(new DeliveryReporter(replayed.value));
+      }
+    });
+  }
+
+  private Observable<Boolean> satisfies(@NonNull final Predicate<RxNetworkInfo> condition) {
+    return observe().map(new Function<RxNetworkInfo, Boolean>() {
+      @Override
+      public Boolean apply(RxNetworkInfo networkInfo) throws Exception {
+        return condition.test(networkInfo);
+      }
+    });
+  }
+
+  /**
+   * Latest {@link RxNetworkInfo} observed by {@linkplain #observe()}.
+   * <p>
+   * This is a single volatile read: no binder call, no subscription and no allocation,
+   * so it is safe to call on hot paths like HTTP interceptors. Snapshot stays fresh only while
+   * {@linkplain #observe()} has at least one subscriber, which is why it's a good idea to keep
+   * long-lived subscription (e.g. in your {@code Application}) when relying on it.
+   *
+   * @return {@link Snapshot} of the latest network information along with its age
+   */
+  @NonNull
+  public Snapshot<RxNetworkInfo> currentNetworkInfo() {
+    return networkInfoRecorder.snapshot();
+  }
+
+  /**
+   * Latest internet access state observed by {@linkplain #observeInternetAccess()}.
+   *
+   * @return {@link Snapshot} of the latest internet access state along with its age
+   *
+   * @see #currentNetworkInfo()
+   */
+  @NonNull
+  public Snapshot<Boolean> currentInternetAccess() {
+    return internetAccessRecorder.snapshot();
+  }
+
+  /**
+   * Latest value of the live connection to shared observable, i.e. the one it replays to new
+   * subscribers. Unlike the snapshot, it's cleared once all of the subscribers are gone, since
+   * the next connection starts over without anything to replay.
+   */
+  private static final class ReplayedValue<T> implements Consumer<T>, Action {
+
+    @Nullable volatile T value;
+
+    @Override
+    public void accept(T value) {
+      this.value = value;
+    }
+
+    @Override
+    public void run() {
+      value = null;
+    }
+  }
+
+  /** Reports deliveries to single subscriber, skipping the value replayed on subscription. */
+  private final class DeliveryReporter implements Consumer<Object> {
+
+    @Nullable private Object replayed;
+
+    DeliveryReporter(@Nullable Object replayed) {
+      this.replayed = replayed;
+    }
+
+    @Override
+    public void accept(Object value) {
+      final boolean isReplayed = value == replayed;
+      replayed = null;
+
+      if (!isReplayed) {
+        eventListener.emissionDelivered(value);
+      }
     }
-    return observable;
   }
 
   /**
@@ -246,6 +833,7 @@ public final class RxNetwork {
     private NetworkObservingStrategy networkObservingStrategy;
     private InternetObservingStrategy internetObservingStrategy;
     private NetworkRequest networkRequest;
+    private ProbeEventListener eventListener = ProbeEventListener.NONE;
 
     Builder() {
     }
@@ -298,6 +886,16 @@ public final class RxNetwork {
       return this;
     }
 
+    /**
+     * Set the listener of probe events, e.g. for metrics or tracing. It gets network callbacks
+     * and values delivered by shared observables, as well as probe events of the default internet
+     * observing strategy. Custom strategies take their own listener.
+     */
+    public Builder eventListener(@NonNull ProbeEventListener eventListener) {
+      this.eventListener = checkNotNull(eventListener, "eventListener");
+      return this;
+    }
+
     /**
      * Create the {@link RxNetwork} instance using the configured values.
      * <p>
@@ -328,7 +926,8 @@ public final class RxNetwork {
     @NonNull
     public RxNetwork init() {
       if (internetObservingStrategy == null) {
-        internetObservingStrategy = WalledGardenInternetObservingStrategy.create();
+        internetObservingStrategy =
+            WalledGardenInternetObservingStrategy.builder().eventListener(eventListener).build();
       }
 
       return new RxNetwork(this);
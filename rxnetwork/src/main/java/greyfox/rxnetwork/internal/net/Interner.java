@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bounded pool of canonical strings used by {@link RxNetworkInfo}.
+ * <p>
+ * Network type, subtype and reason names come from a small, fixed vocabulary, so every
+ * emission would otherwise carry its own copy of the same few strings. Once the pool is full
+ * new strings are simply passed through, which keeps the memory taken by the pool bounded.
+ *
+ * @author Radek Kozak
+ */
+final class Interner {
+
+  @VisibleForTesting static final int MAX_SIZE = 256;
+
+  private static final ConcurrentMap<String, String> POOL = new ConcurrentHashMap<>();
+
+  @VisibleForTesting
+  Interner() {
+    throw new AssertionError("No instances.");
+  }
+
+  @Nullable
+  static String intern(@Nullable String value) {
+    if (value == null) {
+      return null;
+    }
+
+    final String canonical = POOL.get(value);
+
+    if (canonical != null) {
+      return canonical;
+    }
+    if (POOL.size() >= MAX_SIZE) {
+      return value;
+    }
+
+    final String previous = POOL.putIfAbsent(value, value);
+    return previous != null ? previous : value;
+  }
+
+  @VisibleForTesting
+  static void clear() {
+    POOL.clear();
+  }
+}
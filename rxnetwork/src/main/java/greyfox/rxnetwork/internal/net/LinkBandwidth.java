@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.RestrictTo;
+import android.support.annotation.VisibleForTesting;
+
+import static android.net.ConnectivityManager.TYPE_ETHERNET;
+import static android.net.ConnectivityManager.TYPE_MOBILE;
+import static android.net.ConnectivityManager.TYPE_WIFI;
+import static android.net.ConnectivityManager.TYPE_WIMAX;
+import static android.os.Build.VERSION.SDK_INT;
+import static android.os.Build.VERSION_CODES.LOLLIPOP;
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_1xRTT;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_CDMA;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_EDGE;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_EHRPD;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_EVDO_0;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_EVDO_A;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_EVDO_B;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_GPRS;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_HSDPA;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_HSPA;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_HSPAP;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_HSUPA;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_IDEN;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_LTE;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_UMTS;
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+
+/**
+ * Rough downstream bandwidth of a network, to start connection quality estimates from.
+ *
+ * @author Radek Kozak
+ */
+@RestrictTo(LIBRARY_GROUP)
+public final class LinkBandwidth {
+
+  private static final long KBPS_2G = 100;
+  private static final long KBPS_3G = 400;
+  private static final long KBPS_3_5G = 1500;
+  private static final long KBPS_4G = 5000;
+  private static final long KBPS_LOCAL = 5000;
+
+  @VisibleForTesting
+  LinkBandwidth() {
+    throw new AssertionError("No instances.");
+  }
+
+  /**
+   * Downstream bandwidth of given network in kbps: the one advertised by the platform if there
+   * is one (API 21+), otherwise the one typical for its type and subtype. It's {@code 0} for
+   * disconnected or unknown networks.
+   */
+  public static long estimateKbps(@NonNull RxNetworkInfo networkInfo) {
+    checkNotNull(networkInfo, "networkInfo");
+
+    if (!networkInfo.isConnected()) {
+      return 0;
+    }
+
+    if (SDK_INT >= LOLLIPOP && networkInfo.getNetworkCapabilities() != null
+        && networkInfo.getNetworkCapabilities().getLinkDownstreamBandwidthKbps() > 0) {
+      return networkInfo.getNetworkCapabilities().getLinkDownstreamBandwidthKbps();
+    }
+
+    switch (networkInfo.getType()) {
+      case TYPE_WIFI:
+      case TYPE_ETHERNET:
+        return KBPS_LOCAL;
+      case TYPE_WIMAX:
+        return KBPS_4G;
+      case TYPE_MOBILE:
+        return mobileKbps(networkInfo.getSubType());
+      default:
+        return 0;
+    }
+  }
+
+  private static long mobileKbps(int subType) {
+    switch (subType) {
+      case NETWORK_TYPE_GPRS:
+      case NETWORK_TYPE_EDGE:
+      case NETWORK_TYPE_CDMA:
+      case NETWORK_TYPE_1xRTT:
+      case NETWORK_TYPE_IDEN:
+        return KBPS_2G;
+      case NETWORK_TYPE_UMTS:
+      case NETWORK_TYPE_EVDO_0:
+      case NETWORK_TYPE_EVDO_A:
+        return KBPS_3G;
+      case NETWORK_TYPE_HSDPA:
+      case NETWORK_TYPE_HSUPA:
+      case NETWORK_TYPE_HSPA:
+      case NETWORK_TYPE_EVDO_B:
+      case NETWORK_TYPE_EHRPD:
+      case NETWORK_TYPE_HSPAP:
+        return KBPS_3_5G;
+      case NETWORK_TYPE_LTE:
+        return KBPS_4G;
+      default:
+        return 0;
+    }
+  }
+}
@@ -41,26 +41,44 @@ import static java.util.logging.Logger.getLogger;
  * <p>
  * Starting from {@link android.os.Build.VERSION_CODES#LOLLIPOP Lollipop} (API &gt;= 21)
  * it provides additional {@link NetworkCapabilities} information to the class.
+ * <p>
+ * Instances are compact: state, detailed state and all the boolean flags are packed
+ * into a single {@code int}, type and subtype into a single {@code long}. Recurring type,
+ * subtype and reason names are interned and hash code is computed once, so comparing
+ * instances (as in {@code distinctUntilChanged()}) is mostly a matter of comparing
+ * a few primitives.
  *
  * @author Radek Kozak
  */
 @SuppressWarnings({ "unused", "WeakerAccess" })
 public class RxNetworkInfo {
 
-  private final NetworkInfo.State state;
-  private final NetworkInfo.DetailedState detailedState;
-  private final int type;
-  private final int subType;
-  private final boolean available;
-  private final boolean connectedOrConnecting;
-  private final boolean connected;
-  private final boolean failover;
-  private final boolean roaming;
+  private static final NetworkInfo.State[] STATES = NetworkInfo.State.values();
+  private static final NetworkInfo.DetailedState[] DETAILED_STATES =
+      NetworkInfo.DetailedState.values();
+
+  // @formatter:off
+
+  /* Layout of state bits: enum ordinals are stored off by one so that 0 stands for null. */
+  private static final int STATE_MASK                   = 0x0F;
+  private static final int DETAILED_STATE_SHIFT         = 4;
+  private static final int DETAILED_STATE_MASK          = 0x1F << DETAILED_STATE_SHIFT;
+  private static final int AVAILABLE                    = 1 << 9;
+  private static final int CONNECTED_OR_CONNECTING      = 1 << 10;
+  private static final int CONNECTED                    = 1 << 11;
+  private static final int FAILOVER                     = 1 << 12;
+  private static final int ROAMING                      = 1 << 13;
+
+  // @formatter:on
+
+  private final int stateBits;
+  private final long typeBits;
   private final String typeName;
   private final String subTypeName;
   private final String reason;
   private final String extraInfo;
   private final NetworkCapabilities networkCapabilities;
+  private final int hash;
 
   @VisibleForTesting
   RxNetworkInfo() {
@@ -71,20 +89,14 @@ public class RxNetworkInfo {
   RxNetworkInfo(@NonNull Builder builder) {
     checkNotNull(builder, "builder");
 
-    state = builder.state;
-    detailedState = builder.detailedState;
-    type = builder.type;
-    subType = builder.subType;
-    available = builder.available;
-    connectedOrConnecting = builder.connectedOrConnecting;
-    connected = builder.connected;
-    failover = builder.failover;
-    roaming = builder.roaming;
-    typeName = builder.typeName;
-    subTypeName = builder.subTypeName;
-    reason = builder.reason;
+    stateBits = packState(builder);
+    typeBits = ((long) builder.type << 32) | (builder.subType & 0xFFFFFFFFL);
+    typeName = Interner.intern(builder.typeName);
+    subTypeName = Interner.intern(builder.subTypeName);
+    reason = Interner.intern(builder.reason);
     extraInfo = builder.extraInfo;
     networkCapabilities = builder.networkCapabilities;
+    hash = computeHashCode();
   }
 
   public static RxNetworkInfo create() {
@@ -155,37 +167,39 @@ public class RxNetworkInfo {
 
   /** @see NetworkInfo#getState() */
   public NetworkInfo.State getState() {
-    return state;
+    final int ordinal = stateBits & STATE_MASK;
+    return ordinal == 0 ? null : STATES[ordinal - 1];
   }
 
   /** @see NetworkInfo#getDetailedState() */
   public NetworkInfo.DetailedState getDetailedState() {
-    return detailedState;
+    final int ordinal = (stateBits & DETAILED_STATE_MASK) >>> DETAILED_STATE_SHIFT;
+    return ordinal == 0 ? null : DETAILED_STATES[ordinal - 1];
   }
 
   /** @see NetworkInfo#getType() */
   public int getType() {
-    return type;
+    return (int) (typeBits >> 32);
   }
 
   /** @see NetworkInfo#getSubtype() */
   public int getSubType() {
-    return subType;
+    return (int) typeBits;
   }
 
   /** @see NetworkInfo#isAvailable() */
   public boolean isAvailable() {
-    return available;
+    return (stateBits & AVAILABLE) != 0;
   }
 
   /** @see NetworkInfo#isFailover() */
   public boolean isFailover() {
-    return failover;
+    return (stateBits & FAILOVER) != 0;
   }
 
   /** @see NetworkInfo#isRoaming() */
   public boolean isRoaming() {
-    return roaming;
+    return (stateBits & ROAMING) != 0;
   }
 
   /** @see NetworkInfo#getTypeName() */
@@ -200,12 +214,12 @@ public class RxNetworkInfo {
 
   /** @see NetworkInfo#isConnectedOrConnecting() */
   public boolean isConnectedOrConnecting() {
-    return connectedOrConnecting;
+    return (stateBits & CONNECTED_OR_CONNECTING) != 0;
   }
 
   /** @see NetworkInfo#isConnected() */
   public boolean isConnected() {
-    return connected;
+    return (stateBits & CONNECTED) != 0;
   }
 
   /** @see NetworkInfo#getReason() */
@@ -224,29 +238,124 @@ public class RxNetworkInfo {
     return networkCapabilities;
   }
 
+  /**
+   * Computes {@link RxNetworkInfoChange} mask of fields that differ from the previous instance.
+   * Most of the fields are compared as packed bits, without any allocation.
+   */
+  @SuppressLint("NewApi")
+  int changedFields(@Nullable RxNetworkInfo previous) {
+    if (previous == null) {
+      return RxNetworkInfoChange.ALL;
+    }
+    if (previous == this) {
+      return 0;
+    }
+
+    final int stateDiff = stateBits ^ previous.stateBits;
+    final long typeDiff = typeBits ^ previous.typeBits;
+    int fields = 0;
+
+    if ((stateDiff & STATE_MASK) != 0) {
+      fields |= RxNetworkInfoChange.STATE;
+    }
+    if ((stateDiff & DETAILED_STATE_MASK) != 0) {
+      fields |= RxNetworkInfoChange.DETAILED_STATE;
+    }
+    if ((stateDiff & AVAILABLE) != 0) {
+      fields |= RxNetworkInfoChange.AVAILABLE;
+    }
+    if ((stateDiff & CONNECTED_OR_CONNECTING) != 0) {
+      fields |= RxNetworkInfoChange.CONNECTED_OR_CONNECTING;
+    }
+    if ((stateDiff & CONNECTED) != 0) {
+      fields |= RxNetworkInfoChange.CONNECTED;
+    }
+    if ((stateDiff & FAILOVER) != 0) {
+      fields |= RxNetworkInfoChange.FAILOVER;
+    }
+    if ((stateDiff & ROAMING) != 0) {
+      fields |= RxNetworkInfoChange.ROAMING;
+    }
+    if ((typeDiff >>> 32) != 0) {
+      fields |= RxNetworkInfoChange.TYPE;
+    }
+    if ((int) typeDiff != 0) {
+      fields |= RxNetworkInfoChange.SUB_TYPE;
+    }
+    if (!equal(typeName, previous.typeName)) {
+      fields |= RxNetworkInfoChange.TYPE_NAME;
+    }
+    if (!equal(subTypeName, previous.subTypeName)) {
+      fields |= RxNetworkInfoChange.SUB_TYPE_NAME;
+    }
+    if (!equal(reason, previous.reason)) {
+      fields |= RxNetworkInfoChange.REASON;
+    }
+    if (!equal(extraInfo, previous.extraInfo)) {
+      fields |= RxNetworkInfoChange.EXTRA_INFO;
+    }
+    if (!equal(networkCapabilities, previous.networkCapabilities)) {
+      fields |= RxNetworkInfoChange.NETWORK_CAPABILITIES;
+
+      if (downBandwidth(networkCapabilities) != downBandwidth(previous.networkCapabilities)
+          || upBandwidth(networkCapabilities) != upBandwidth(previous.networkCapabilities)) {
+        fields |= RxNetworkInfoChange.BANDWIDTH;
+      }
+    }
+
+    return fields;
+  }
+
+  @RequiresApi(LOLLIPOP)
+  private static int downBandwidth(@Nullable NetworkCapabilities capabilities) {
+    return capabilities != null ? capabilities.getLinkDownstreamBandwidthKbps() : 0;
+  }
+
+  @RequiresApi(LOLLIPOP)
+  private static int upBandwidth(@Nullable NetworkCapabilities capabilities) {
+    return capabilities != null ? capabilities.getLinkUpstreamBandwidthKbps() : 0;
+  }
+
+  private static int packState(@NonNull Builder builder) {
+    int bits = 0;
+
+    if (builder.state != null) {
+      bits |= builder.state.ordinal() + 1;
+    }
+    if (builder.detailedState != null) {
+      bits |= (builder.detailedState.ordinal() + 1) << DETAILED_STATE_SHIFT;
+    }
+    if (builder.available) {
+      bits |= AVAILABLE;
+    }
+    if (builder.connectedOrConnecting) {
+      bits |= CONNECTED_OR_CONNECTING;
+    }
+    if (builder.connected) {
+      bits |= CONNECTED;
+    }
+    if (builder.failover) {
+      bits |= FAILOVER;
+    }
+    if (builder.roaming) {
+      bits |= ROAMING;
+    }
+
+    return bits;
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return a == b || (a != null && a.equals(b));
+  }
+
   // @formatter:off
 
-  @Override
-  public int hashCode() {
+  private int computeHashCode() {
     int h = 1;
     h *= 1000003;
-    h ^= (this.state == null) ? 0 : this.state.hashCode();
-    h *= 1000003;
-    h ^= (this.detailedState == null) ? 0 : this.detailedState.hashCode();
-    h *= 1000003;
-    h ^= this.type;
-    h *= 1000003;
-    h ^= this.subType;
+    h ^= this.stateBits;
     h *= 1000003;
-    h ^= this.available ? 1231 : 1237;
-    h *= 1000003;
-    h ^= this.connectedOrConnecting ? 1231 : 1237;
-    h *= 1000003;
-    h ^= this.connected ? 1231 : 1237;
-    h *= 1000003;
-    h ^= this.failover ? 1231 : 1237;
-    h *= 1000003;
-    h ^= this.roaming ? 1231 : 1237;
+    h ^= (int) (this.typeBits ^ (this.typeBits >>> 32));
     h *= 1000003;
     h ^= (this.typeName == null) ? 0 : this.typeName.hashCode();
     h *= 1000003;
@@ -261,7 +370,18 @@ public class RxNetworkInfo {
     return h;
   }
 
-  @SuppressWarnings("ConstantConditions")
+  // @formatter:on
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  /**
+   * Packed bits along with cached hash code are compared first, so that in the common case
+   * of instances that differ, only primitives are touched. Interned names of equal instances
+   * are the very same objects and compare by reference.
+   */
   @Override
   public boolean equals(Object o) {
     if (o == this) {
@@ -270,35 +390,14 @@ public class RxNetworkInfo {
     if (o instanceof RxNetworkInfo) {
       RxNetworkInfo that = (RxNetworkInfo) o;
 
-      return ((this.state == null) ? (that.state == null)
-                                   : this.state.equals(that.state))
-
-          && ((this.detailedState == null) ? (that.detailedState == null)
-                                           : this.detailedState.equals(that.detailedState))
-
-          && (this.type == that.type)
-          && (this.subType == that.subType)
-          && (this.available == that.available)
-          && (this.connectedOrConnecting == that.connectedOrConnecting)
-          && (this.connected == that.connected)
-          && (this.failover == that.failover)
-          && (this.roaming == that.roaming)
-
-          && ((this.typeName == null) ? (that.typeName == null)
-                                      : this.typeName.equals(that.typeName))
-
-          && ((this.subTypeName == null) ? (that.subTypeName == null)
-                                         : this.subTypeName.equals(that.subTypeName))
-
-          && ((this.reason == null) ? (that.reason == null)
-                                    : this.reason.equals(that.reason))
-
-          && ((this.extraInfo == null) ? (that.extraInfo == null)
-                                       : this.extraInfo.equals(that.extraInfo))
-
-          && ((this.networkCapabilities == null) ? (that.networkCapabilities == null)
-                                                 : this.networkCapabilities.equals(
-                                                     that.networkCapabilities));
+      return this.stateBits == that.stateBits
+          && this.typeBits == that.typeBits
+          && this.hash == that.hash
+          && equal(this.typeName, that.typeName)
+          && equal(this.subTypeName, that.subTypeName)
+          && equal(this.reason, that.reason)
+          && equal(this.extraInfo, that.extraInfo)
+          && equal(this.networkCapabilities, that.networkCapabilities);
     }
 
     return false;
@@ -310,15 +409,15 @@ public class RxNetworkInfo {
   @Override
   public String toString() {
     return "RxNetworkInfo{"
-        + "state=" + state + ", "
-        + "detailedState=" + detailedState + ", "
-        + "type=" + type + ", "
-        + "subType=" + subType + ", "
-        + "available=" + available + ", "
-        + "connectedOrConnecting=" + connectedOrConnecting + ", "
-        + "connected=" + connected + ", "
-        + "failover=" + failover + ", "
-        + "roaming=" + roaming + ", "
+        + "state=" + getState() + ", "
+        + "detailedState=" + getDetailedState() + ", "
+        + "type=" + getType() + ", "
+        + "subType=" + getSubType() + ", "
+        + "available=" + isAvailable() + ", "
+        + "connectedOrConnecting=" + isConnectedOrConnecting() + ", "
+        + "connected=" + isConnected() + ", "
+        + "failover=" + isFailover() + ", "
+        + "roaming=" + isRoaming() + ", "
         + "typeName=" + typeName + ", "
         + "subTypeName=" + subTypeName + ", "
         + "reason=" + reason + ", "
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import java.util.concurrent.Callable;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+
+/**
+ * Describes which fields of {@link RxNetworkInfo} changed between two consecutive emissions.
+ * <p>
+ * Changed fields are reported as a bitmask, so interest in one or two of them can be expressed
+ * with a single bitwise test:
+ * <pre><code>
+ * rxnetwork.observeChanges()
+ *          .filter(changedAny(ROAMING | BANDWIDTH))
+ *          .subscribe(...);
+ * </code></pre>
+ * The very first change delivered to each subscriber has no previous value and reports
+ * {@linkplain #ALL all} fields as changed.
+ *
+ * @author Radek Kozak
+ */
+@SuppressWarnings("WeakerAccess")
+public final class RxNetworkInfoChange {
+
+  // @formatter:off
+
+  /** @see RxNetworkInfo#getState() */
+  public static final int STATE                     = 1;
+  /** @see RxNetworkInfo#getDetailedState() */
+  public static final int DETAILED_STATE            = 1 << 1;
+  /** @see RxNetworkInfo#getType() */
+  public static final int TYPE                      = 1 << 2;
+  /** @see RxNetworkInfo#getSubType() */
+  public static final int SUB_TYPE                  = 1 << 3;
+  /** @see RxNetworkInfo#isAvailable() */
+  public static final int AVAILABLE                 = 1 << 4;
+  /** @see RxNetworkInfo#isConnectedOrConnecting() */
+  public static final int CONNECTED_OR_CONNECTING   = 1 << 5;
+  /** @see RxNetworkInfo#isConnected() */
+  public static final int CONNECTED                 = 1 << 6;
+  /** @see RxNetworkInfo#isFailover() */
+  public static final int FAILOVER                  = 1 << 7;
+  /** @see RxNetworkInfo#isRoaming() */
+  public static final int ROAMING                   = 1 << 8;
+  /** @see RxNetworkInfo#getTypeName() */
+  public static final int TYPE_NAME                 = 1 << 9;
+  /** @see RxNetworkInfo#getSubTypeName() */
+  public static final int SUB_TYPE_NAME             = 1 << 10;
+  /** @see RxNetworkInfo#getReason() */
+  public static final int REASON                    = 1 << 11;
+  /** @see RxNetworkInfo#getExtraInfo() */
+  public static final int EXTRA_INFO                = 1 << 12;
+  /** @see RxNetworkInfo#getNetworkCapabilities() */
+  public static final int NETWORK_CAPABILITIES      = 1 << 13;
+  /** Upstream or downstream link bandwidth of {@link RxNetworkInfo#getNetworkCapabilities()} */
+  public static final int BANDWIDTH                 = 1 << 14;
+
+  /** All of the fields */
+  public static final int ALL                       = (1 << 15) - 1;
+
+  // @formatter:on
+
+  @Nullable private final RxNetworkInfo previous;
+  @NonNull private final RxNetworkInfo current;
+  private final int changedFields;
+
+  @VisibleForTesting
+  RxNetworkInfoChange(@Nullable RxNetworkInfo previous, @NonNull RxNetworkInfo current) {
+    this.previous = previous;
+    this.current = checkNotNull(current, "current");
+    this.changedFields = current.changedFields(previous);
+  }
+
+  /**
+   * Turns stream of {@link RxNetworkInfo} into stream of its changes. Emissions that do not
+   * change anything are dropped. Each subscriber tracks its own previous value.
+   */
+  @NonNull
+  public static ObservableTransformer<RxNetworkInfo, RxNetworkInfoChange> changes() {
+    return new ObservableTransformer<RxNetworkInfo, RxNetworkInfoChange>() {
+      @Override
+      public ObservableSource<RxNetworkInfoChange> apply(
+          final Observable<RxNetworkInfo> upstream) {
+
+        return Observable.defer(new Callable<ObservableSource<RxNetworkInfoChange>>() {
+          @Override
+          public ObservableSource<RxNetworkInfoChange> call() throws Exception {
+            return upstream.map(new ToChange()).filter(changedAny(ALL));
+          }
+        });
+      }
+    };
+  }
+
+  /**
+   * Determines if any of the given fields changed.
+   *
+   * @param fields one or many fields combined with bitwise or, e.g. {@code STATE | TYPE}
+   *
+   * @return {@code true} if any of the given fields changed, {@code false} otherwise
+   */
+  @NonNull
+  public static Predicate<RxNetworkInfoChange> changedAny(final int fields) {
+    return new Predicate<RxNetworkInfoChange>() {
+      @Override
+      public boolean test(RxNetworkInfoChange change) throws Exception {
+        return change.hasChanged(fields);
+      }
+    };
+  }
+
+  /** Previous {@link RxNetworkInfo} or {@code null} for the very first change. */
+  @Nullable
+  public RxNetworkInfo previous() {
+    return previous;
+  }
+
+  /** Current {@link RxNetworkInfo}. */
+  @NonNull
+  public RxNetworkInfo current() {
+    return current;
+  }
+
+  /** Bitmask of changed fields. */
+  public int changedFields() {
+    return changedFields;
+  }
+
+  /** Checks if any of the given fields changed. */
+  public boolean hasChanged(int fields) {
+    return (changedFields & fields) != 0;
+  }
+
+  @Override
+  public String toString() {
+    return "RxNetworkInfoChange{"
+        + "changedFields=0x" + Integer.toHexString(changedFields) + ", "
+        + "previous=" + previous + ", "
+        + "current=" + current
+        + "}";
+  }
+
+  private static final class ToChange implements Function<RxNetworkInfo, RxNetworkInfoChange> {
+
+    private RxNetworkInfo previous;
+
+    @Override
+    public RxNetworkInfoChange apply(RxNetworkInfo current) throws Exception {
+      final RxNetworkInfoChange change = new RxNetworkInfoChange(previous, current);
+      previous = current;
+      return change;
+    }
+  }
+}
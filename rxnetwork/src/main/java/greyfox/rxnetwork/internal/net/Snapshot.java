@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import java.util.concurrent.TimeUnit;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Immutable, timestamped value last observed by {@link greyfox.rxnetwork.RxNetwork RxNetwork}.
+ * <p>
+ * Timestamp is taken from {@link System#nanoTime()} so the age of the value is immune
+ * to wall-clock changes.
+ *
+ * @author Radek Kozak
+ */
+@SuppressWarnings("WeakerAccess")
+public final class Snapshot<T> {
+
+  @Nullable private final T value;
+  private final long timestamp;
+
+  @VisibleForTesting
+  Snapshot(@Nullable T value, long timestamp) {
+    this.value = value;
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Value observed at the time of the snapshot.
+   *
+   * @return observed value or {@code null} if nothing has been observed yet
+   */
+  @Nullable
+  public T value() {
+    return value;
+  }
+
+  /** Returns {@code true} if this snapshot holds an observed value. */
+  public boolean hasValue() {
+    return value != null;
+  }
+
+  /**
+   * Time elapsed since the value was observed.
+   * <p>
+   * For a snapshot without a value this is the time elapsed since observing started
+   * to be possible, i.e. since the owning instance was created.
+   *
+   * @param unit {@link TimeUnit} of the returned age
+   *
+   * @return age of the snapshot in given unit
+   */
+  public long age(@NonNull TimeUnit unit) {
+    checkNotNull(unit, "unit");
+    return unit.convert(System.nanoTime() - timestamp, NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return "Snapshot{value=" + value + ", timestamp=" + timestamp + "}";
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.RestrictTo;
+import io.reactivex.functions.Consumer;
+
+import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
+
+/**
+ * Keeps the latest {@link Snapshot} of the values passing through it.
+ * <p>
+ * Every accepted value is published with a single volatile write so that {@link #snapshot()}
+ * is just a volatile read - lock-free and allocation-free no matter how often it is called.
+ *
+ * @author Radek Kozak
+ */
+@RestrictTo(LIBRARY_GROUP)
+public final class SnapshotRecorder<T> implements Consumer<T> {
+
+  private volatile Snapshot<T> snapshot = new Snapshot<>(null, System.nanoTime());
+
+  @Override
+  public void accept(@NonNull T value) {
+    snapshot = new Snapshot<>(value, System.nanoTime());
+  }
+
+  /** Returns the latest recorded {@link Snapshot}. */
+  @NonNull
+  public Snapshot<T> snapshot() {
+    return snapshot;
+  }
+}
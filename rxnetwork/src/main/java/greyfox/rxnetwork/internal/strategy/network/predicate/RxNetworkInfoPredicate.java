@@ -18,19 +18,31 @@ package greyfox.rxnetwork.internal.strategy.network.predicate;
 import android.net.ConnectivityManager;
 import android.net.NetworkCapabilities;
 import android.net.NetworkInfo;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.RequiresApi;
 import android.support.annotation.VisibleForTesting;
 import greyfox.rxnetwork.RxNetwork;
 import greyfox.rxnetwork.internal.net.RxNetworkInfo;
 import io.reactivex.functions.Predicate;
-import java.util.Arrays;
 
 import static android.net.ConnectivityManager.TYPE_MOBILE;
 import static android.net.ConnectivityManager.TYPE_WIFI;
 import static android.os.Build.VERSION_CODES.LOLLIPOP;
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
 
 /**
  * Contains predefined predicates for filtering reactive streams of {@link RxNetwork}.
+ * <p>
+ * State and type predicates are compiled at creation time into bitmasks, so testing them is
+ * a single bitwise operation no matter how many states or types were given. Combining them with
+ * {@linkplain #and}, {@linkplain #or} and {@linkplain #not} yields another bitmask whenever
+ * possible:
+ * <pre><code>
+ * rxnetwork.observe()
+ *          .filter(and(hasState(CONNECTED), not(hasType(TYPE_MOBILE, TYPE_WIMAX))))
+ *          .subscribe(...);
+ * </code></pre>
  *
  * @author Radek Kozak
  */
@@ -42,6 +54,88 @@ public final class RxNetworkInfoPredicate {
     throw new AssertionError("No instances.");
   }
 
+  /**
+   * Determines if both of the given predicates are satisfied.
+   *
+   * @param first  first {@link RxNetworkInfo} predicate
+   * @param second second {@link RxNetworkInfo} predicate
+   *
+   * @return {@code true} if both predicates are satisfied, {@code false} otherwise
+   */
+  public static Predicate<RxNetworkInfo> and(@NonNull final Predicate<RxNetworkInfo> first,
+      @NonNull final Predicate<RxNetworkInfo> second) {
+
+    checkNotNull(first, "first predicate");
+    checkNotNull(second, "second predicate");
+
+    if (first instanceof Mask && second instanceof Mask) {
+      return ((Mask) first).and((Mask) second);
+    }
+
+    return new Predicate<RxNetworkInfo>() {
+      @Override
+      public boolean test(RxNetworkInfo networkInfo) throws Exception {
+        return first.test(networkInfo) && second.test(networkInfo);
+      }
+    };
+  }
+
+  /**
+   * Determines if any of the given predicates is satisfied.
+   *
+   * @param first  first {@link RxNetworkInfo} predicate
+   * @param second second {@link RxNetworkInfo} predicate
+   *
+   * @return {@code true} if any of the predicates is satisfied, {@code false} otherwise
+   */
+  public static Predicate<RxNetworkInfo> or(@NonNull final Predicate<RxNetworkInfo> first,
+      @NonNull final Predicate<RxNetworkInfo> second) {
+
+    checkNotNull(first, "first predicate");
+    checkNotNull(second, "second predicate");
+
+    if (first instanceof Mask && second instanceof Mask) {
+      final Mask union = ((Mask) first).or((Mask) second);
+
+      if (union != null) {
+        return union;
+      }
+    }
+
+    return new Predicate<RxNetworkInfo>() {
+      @Override
+      public boolean test(RxNetworkInfo networkInfo) throws Exception {
+        return first.test(networkInfo) || second.test(networkInfo);
+      }
+    };
+  }
+
+  /**
+   * Negates given predicate.
+   *
+   * @param predicate {@link RxNetworkInfo} predicate
+   *
+   * @return {@code true} if the predicate is not satisfied, {@code false} otherwise
+   */
+  public static Predicate<RxNetworkInfo> not(@NonNull final Predicate<RxNetworkInfo> predicate) {
+    checkNotNull(predicate, "predicate");
+
+    if (predicate instanceof Mask) {
+      final Mask complement = ((Mask) predicate).not();
+
+      if (complement != null) {
+        return complement;
+      }
+    }
+
+    return new Predicate<RxNetworkInfo>() {
+      @Override
+      public boolean test(RxNetworkInfo networkInfo) throws Exception {
+        return !predicate.test(networkInfo);
+      }
+    };
+  }
+
   /**
    * Predicate class for filtering reactive streams of {@link RxNetwork}
    * by {@link android.net.NetworkInfo.State network state}.
@@ -72,12 +166,13 @@ public final class RxNetworkInfoPredicate {
      * @return {@code true} if any of the given network states occurred, {@code false} otherwise
      */
     public static Predicate<RxNetworkInfo> hasState(final NetworkInfo.State... networkStates) {
-      return new Predicate<RxNetworkInfo>() {
-        @Override
-        public boolean test(RxNetworkInfo networkInfo) throws Exception {
-          return Arrays.asList(networkStates).contains(networkInfo.getState());
-        }
-      };
+      int states = 0;
+
+      for (NetworkInfo.State state : networkStates) {
+        states |= Mask.stateBit(state);
+      }
+
+      return new Mask(states, Mask.ANY_TYPE);
     }
   }
 
@@ -117,6 +212,20 @@ public final class RxNetworkInfoPredicate {
      * @return {@code true} if any of the given network states occurred, {@code false} otherwise
      */
     public static Predicate<RxNetworkInfo> hasType(final int... networkTypes) {
+      long types = 0;
+
+      for (int type : networkTypes) {
+        if (!Mask.isMaskable(type)) {
+          return hasAnyOf(networkTypes.clone());
+        }
+        types |= Mask.typeBit(type);
+      }
+
+      return new Mask(Mask.ANY_STATE, types);
+    }
+
+    /* Fallback for types beyond the range of bitmask, which none of the built-in types is. */
+    private static Predicate<RxNetworkInfo> hasAnyOf(final int... networkTypes) {
       return new Predicate<RxNetworkInfo>() {
         @Override
         public boolean test(RxNetworkInfo networkInfo) throws Exception {
@@ -131,21 +240,11 @@ public final class RxNetworkInfoPredicate {
     }
 
     private static Predicate<RxNetworkInfo> isOfTypeMobile() {
-      return new Predicate<RxNetworkInfo>() {
-        @Override
-        public boolean test(RxNetworkInfo networkInfo) throws Exception {
-          return networkInfo.getType() == TYPE_MOBILE;
-        }
-      };
+      return hasType(TYPE_MOBILE);
     }
 
     private static Predicate<RxNetworkInfo> isOfTypeWifi() {
-      return new Predicate<RxNetworkInfo>() {
-        @Override
-        public boolean test(RxNetworkInfo networkInfo) throws Exception {
-          return networkInfo.getType() == TYPE_WIFI;
-        }
-      };
+      return hasType(TYPE_WIFI);
     }
   }
 
@@ -180,13 +279,15 @@ public final class RxNetworkInfoPredicate {
      * @return {@code true} if any of the given transport types occurred, {@code false} otherwise
      */
     public static Predicate<RxNetworkInfo> hasTransportType(final int... transportTypes) {
+      final int[] types = transportTypes.clone();
+
       return new Predicate<RxNetworkInfo>() {
         @Override
         public boolean test(RxNetworkInfo networkInfo) throws Exception {
           final NetworkCapabilities networkCapabilities = networkInfo.getNetworkCapabilities();
 
           if (networkCapabilities != null) {
-            for (Integer transportType : transportTypes) {
+            for (int transportType : types) {
               if (networkCapabilities.hasTransport(transportType)) {
                 return true;
               }
@@ -198,6 +299,39 @@ public final class RxNetworkInfoPredicate {
       };
     }
 
+    /**
+     * Determines if all of specified capabilities are present.
+     * <p>
+     * For example {@code hasCapability(NET_CAPABILITY_NOT_METERED)} is satisfied only by
+     * unmetered networks.
+     *
+     * @param capabilities one or many {@code NetworkCapabilities#NET_CAPABILITY_*}
+     *
+     * @return {@code true} if all of the given capabilities are present, {@code false} otherwise
+     */
+    public static Predicate<RxNetworkInfo> hasCapability(final int... capabilities) {
+      final int[] required = capabilities.clone();
+
+      return new Predicate<RxNetworkInfo>() {
+        @Override
+        public boolean test(RxNetworkInfo networkInfo) throws Exception {
+          final NetworkCapabilities networkCapabilities = networkInfo.getNetworkCapabilities();
+
+          if (networkCapabilities == null) {
+            return false;
+          }
+
+          for (int capability : required) {
+            if (!networkCapabilities.hasCapability(capability)) {
+              return false;
+            }
+          }
+
+          return true;
+        }
+      };
+    }
+
     /**
      * Checks if given network satisfies minimum upstream bandwidth.
      * <p>
@@ -248,4 +382,80 @@ public final class RxNetworkInfoPredicate {
       };
     }
   }
+
+  /**
+   * Predicate compiled into a set of allowed states and a set of allowed types, each kept
+   * as a bitmask. It is satisfied when both network state and type are allowed.
+   * <p>
+   * Intersection of two masks is always a mask. Union and complement are masks only
+   * if they don't mix states with types, otherwise {@code null} is returned and callers
+   * fall back to plain predicate composition.
+   */
+  @VisibleForTesting
+  static final class Mask implements Predicate<RxNetworkInfo> {
+
+    static final int ANY_STATE = -1;
+    static final long ANY_TYPE = -1L;
+
+    /* Types from TYPE_NONE (-1) up to 61 get their own bit, the last bit stands for the rest. */
+    private static final int MIN_TYPE = -1;
+    private static final int MAX_TYPE = 61;
+    private static final long OTHER_TYPES = 1L << 63;
+
+    private final int states;
+    private final long types;
+
+    Mask(int states, long types) {
+      this.states = states;
+      this.types = types;
+    }
+
+    /* Null state gets the lowest bit, so ordinals are shifted by one. */
+    static int stateBit(@Nullable NetworkInfo.State state) {
+      return state == null ? 1 : 1 << (state.ordinal() + 1);
+    }
+
+    static boolean isMaskable(int type) {
+      return type >= MIN_TYPE && type <= MAX_TYPE;
+    }
+
+    static long typeBit(int type) {
+      return isMaskable(type) ? 1L << (type - MIN_TYPE) : OTHER_TYPES;
+    }
+
+    @Override
+    public boolean test(RxNetworkInfo networkInfo) throws Exception {
+      return (states & stateBit(networkInfo.getState())) != 0
+          && (types & typeBit(networkInfo.getType())) != 0;
+    }
+
+    @NonNull
+    Mask and(@NonNull Mask other) {
+      return new Mask(states & other.states, types & other.types);
+    }
+
+    @Nullable
+    Mask or(@NonNull Mask other) {
+      if (states == other.states) {
+        return new Mask(states, types | other.types);
+      }
+      if (types == other.types) {
+        return new Mask(states | other.states, types);
+      }
+
+      return null;
+    }
+
+    @Nullable
+    Mask not() {
+      if (types == ANY_TYPE) {
+        return new Mask(~states, ANY_TYPE);
+      }
+      if (states == ANY_STATE) {
+        return new Mask(ANY_STATE, ~types);
+      }
+
+      return null;
+    }
+  }
 }
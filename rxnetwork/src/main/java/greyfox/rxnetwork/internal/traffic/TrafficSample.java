@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.traffic;
+
+import android.support.annotation.NonNull;
+import greyfox.rxnetwork.internal.net.RxNetworkInfo;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+
+/**
+ * Smoothed byte rates observed by {@link TrafficSampler} on given network.
+ *
+ * @author Radek Kozak
+ */
+public final class TrafficSample {
+
+  @NonNull private final RxNetworkInfo network;
+  private final long rxRate;
+  private final long txRate;
+  private final long appRxRate;
+  private final long appTxRate;
+  private final boolean idle;
+  private final boolean burst;
+
+  TrafficSample(@NonNull RxNetworkInfo network, long rxRate, long txRate, long appRxRate,
+      long appTxRate, boolean idle, boolean burst) {
+
+    this.network = checkNotNull(network, "network");
+    this.rxRate = rxRate;
+    this.txRate = txRate;
+    this.appRxRate = appRxRate;
+    this.appTxRate = appTxRate;
+    this.idle = idle;
+    this.burst = burst;
+  }
+
+  /** Network the sample was taken on. */
+  @NonNull
+  public RxNetworkInfo network() {
+    return network;
+  }
+
+  /** Bytes per second received by the device. */
+  public long rxRate() {
+    return rxRate;
+  }
+
+  /** Bytes per second sent by the device. */
+  public long txRate() {
+    return txRate;
+  }
+
+  /** Bytes per second received by this app. */
+  public long appRxRate() {
+    return appRxRate;
+  }
+
+  /** Bytes per second sent by this app. */
+  public long appTxRate() {
+    return appTxRate;
+  }
+
+  /** Checks if device traffic is below idle threshold. */
+  public boolean isIdle() {
+    return idle;
+  }
+
+  /** Checks if device traffic has just jumped well above its recent average. */
+  public boolean isBurst() {
+    return burst;
+  }
+
+  @Override
+  public String toString() {
+    return "TrafficSample{"
+        + "rxRate=" + rxRate + ", "
+        + "txRate=" + txRate + ", "
+        + "appRxRate=" + appRxRate + ", "
+        + "appTxRate=" + appTxRate + ", "
+        + "idle=" + idle + ", "
+        + "burst=" + burst + ", "
+        + "network=" + network
+        + "}";
+  }
+}
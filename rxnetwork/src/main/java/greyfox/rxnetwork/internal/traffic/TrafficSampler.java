@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.traffic;
+
+import android.net.TrafficStats;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import greyfox.rxnetwork.internal.net.RxNetworkInfo;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.BiPredicate;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import java.util.concurrent.Callable;
+
+import static greyfox.rxnetwork.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Passive throughput sampler based on {@link TrafficStats} byte counters.
+ * <p>
+ * Counters of the device and of this app are read every {@code interval} and turned into
+ * bytes per second rates, smoothed with exponentially weighted moving average. Each sample also
+ * tells whether the device is idle, i.e. its smoothed traffic is below {@code idleThreshold}, and
+ * whether traffic bursts, i.e. it's above {@code idleThreshold} and {@code burstFactor} times
+ * the average so far.
+ * <p>
+ * Sampling starts over each time the network changes its type, subtype or connectivity, so that
+ * samples always describe traffic of the network they are tagged with. Other updates of the same
+ * network, e.g. of its link bandwidth, do not interrupt sampling. Reading the counters is cheap:
+ * no sockets are opened and no data is sent, which makes non-idle samples a free sign of being
+ * online.
+ *
+ * @author Radek Kozak
+ */
+public final class TrafficSampler {
+
+  /** Source of byte counters, {@link TrafficStats} by default. */
+  public interface Counters {
+
+    /** Bytes received by the device since boot, or negative value if not supported. */
+    long totalRxBytes();
+
+    /** Bytes sent by the device since boot, or negative value if not supported. */
+    long totalTxBytes();
+
+    /** Bytes received by this app since boot, or negative value if not supported. */
+    long appRxBytes();
+
+    /** Bytes sent by this app since boot, or negative value if not supported. */
+    long appTxBytes();
+  }
+
+  private static final Counters TRAFFIC_STATS = new Counters() {
+    @Override
+    public long totalRxBytes() {
+      return TrafficStats.getTotalRxBytes();
+    }
+
+    @Override
+    public long totalTxBytes() {
+      return TrafficStats.getTotalTxBytes();
+    }
+
+    @Override
+    public long appRxBytes() {
+      return TrafficStats.getUidRxBytes(Process.myUid());
+    }
+
+    @Override
+    public long appTxBytes() {
+      return TrafficStats.getUidTxBytes(Process.myUid());
+    }
+  };
+
+  private static final BiPredicate<RxNetworkInfo, RxNetworkInfo> SAME_NETWORK =
+      new BiPredicate<RxNetworkInfo, RxNetworkInfo>() {
+        @Override
+        public boolean test(RxNetworkInfo previous, RxNetworkInfo current) throws Exception {
+          return previous.getType() == current.getType()
+              && previous.getSubType() == current.getSubType()
+              && previous.isConnected() == current.isConnected();
+        }
+      };
+
+  private final long interval;
+  private final double weight;
+  private final long idleThreshold;
+  private final double burstFactor;
+  private final Counters counters;
+  private final Scheduler scheduler;
+
+  TrafficSampler(@NonNull Builder builder) {
+    checkNotNull(builder, "builder");
+
+    interval = builder.interval;
+    weight = builder.weight;
+    idleThreshold = builder.idleThreshold;
+    burstFactor = builder.burstFactor;
+    counters = builder.counters;
+    scheduler = builder.scheduler;
+  }
+
+  @NonNull
+  public static TrafficSampler create() {
+    return builder().build();
+  }
+
+  @NonNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Samples traffic on each of the given networks in turn.
+   *
+   * @param networks networks to tag samples with, e.g. {@code RxNetwork#observe()}
+   *
+   * @return RxJava Observable with {@link TrafficSample}
+   */
+  @NonNull
+  public Observable<TrafficSample> observe(@NonNull Observable<RxNetworkInfo> networks) {
+    checkNotNull(networks, "networks");
+
+    return networks.distinctUntilChanged(SAME_NETWORK)
+                   .switchMap(new Function<RxNetworkInfo, ObservableSource<TrafficSample>>() {
+                     @Override
+                     public ObservableSource<TrafficSample> apply(RxNetworkInfo network)
+                         throws Exception {
+                       return sample(network);
+                     }
+                   });
+  }
+
+  private Observable<TrafficSample> sample(final RxNetworkInfo network) {
+    return Observable.defer(new Callable<ObservableSource<TrafficSample>>() {
+      @Override
+      public ObservableSource<TrafficSample> call() throws Exception {
+        final Rates rates = new Rates(network);
+
+        return Observable.interval(interval, interval, MILLISECONDS, scheduler)
+            .map(new Function<Long, TrafficSample>() {
+              @Override
+              public TrafficSample apply(Long tick) throws Exception {
+                return rates.next();
+              }
+            });
+      }
+    });
+  }
+
+  /** Rates of single sampling session, confined to the sampling thread. */
+  private final class Rates {
+
+    private final RxNetworkInfo network;
+    private long[] previous = new long[4];
+    private long[] current = new long[4];
+    private final double[] smoothed = new double[4];
+    private long previousTime;
+    private boolean first = true;
+
+    Rates(RxNetworkInfo network) {
+      this.network = network;
+      read(previous);
+      previousTime = scheduler.now(MILLISECONDS);
+    }
+
+    TrafficSample next() {
+      read(current);
+      final long now = scheduler.now(MILLISECONDS);
+      final long elapsed = Math.max(1, now - previousTime);
+      final double previousTotal = smoothed[0] + smoothed[1];
+      double instantTotal = 0;
+
+      for (int i = 0; i < current.length; i++) {
+        final double rate = rate(previous[i], current[i], elapsed);
+
+        if (i < 2) {
+          instantTotal += rate;
+        }
+
+        smoothed[i] = first ? rate : smoothed[i] * (1 - weight) + rate * weight;
+      }
+
+      final boolean burst = !first && instantTotal > idleThreshold
+          && instantTotal > previousTotal * burstFactor;
+      final boolean idle = smoothed[0] + smoothed[1] < idleThreshold;
+
+      final long[] swap = previous;
+      previous = current;
+      current = swap;
+      previousTime = now;
+      first = false;
+
+      return new TrafficSample(network, Math.round(smoothed[0]), Math.round(smoothed[1]),
+          Math.round(smoothed[2]), Math.round(smoothed[3]), idle, burst);
+    }
+
+    private void read(long[] values) {
+      values[0] = counters.totalRxBytes();
+      values[1] = counters.totalTxBytes();
+      values[2] = counters.appRxBytes();
+      values[3] = counters.appTxBytes();
+    }
+
+    /** Bytes per second, or {@code 0} if counter is not supported or was reset. */
+    private double rate(long previous, long current, long elapsed) {
+      if (previous < 0 || current < previous) {
+        return 0;
+      }
+
+      return (current - previous) * 1000d / elapsed;
+    }
+  }
+
+  /** Build a new {@link TrafficSampler}. */
+  public static final class Builder {
+
+    private static final long DEFAULT_INTERVAL_MS = 1000;
+    private static final double DEFAULT_WEIGHT = 0.3;
+    private static final long DEFAULT_IDLE_THRESHOLD = 1024;
+    private static final double DEFAULT_BURST_FACTOR = 4;
+
+    private long interval = DEFAULT_INTERVAL_MS;
+    private double weight = DEFAULT_WEIGHT;
+    private long idleThreshold = DEFAULT_IDLE_THRESHOLD;
+    private double burstFactor = DEFAULT_BURST_FACTOR;
+    private Counters counters = TRAFFIC_STATS;
+    private Scheduler scheduler = Schedulers.computation();
+
+    Builder() {
+    }
+
+    /** Set the sampling interval in milliseconds. Defaults to one second. */
+    @NonNull
+    public Builder interval(long interval) {
+      if (interval <= 0) {
+        throw new IllegalArgumentException("Invalid interval: " + interval);
+      }
+
+      this.interval = interval;
+      return this;
+    }
+
+    /** Set the weight of new samples in smoothed rates, in (0, 1]. Defaults to 0.3. */
+    @NonNull
+    public Builder weight(double weight) {
+      if (!(weight > 0 && weight <= 1)) {
+        throw new IllegalArgumentException("Invalid weight: " + weight);
+      }
+
+      this.weight = weight;
+      return this;
+    }
+
+    /**
+     * Set the rate in bytes per second (received and sent together) below which the device is
+     * considered idle. Defaults to 1 KiB/s.
+     */
+    @NonNull
+    public Builder idleThreshold(long idleThreshold) {
+      if (idleThreshold < 0) {
+        throw new IllegalArgumentException("Invalid idle threshold: " + idleThreshold);
+      }
+
+      this.idleThreshold = idleThreshold;
+      return this;
+    }
+
+    /** Set how many times above the average traffic has to jump to be a burst. Defaults to 4. */
+    @NonNull
+    public Builder burstFactor(double burstFactor) {
+      if (!(burstFactor > 1)) {
+        throw new IllegalArgumentException("Invalid burst factor: " + burstFactor);
+      }
+
+      this.burstFactor = burstFactor;
+      return this;
+    }
+
+    /** Set the source of byte counters. Defaults to {@link TrafficStats}. */
+    @NonNull
+    public Builder counters(@NonNull Counters counters) {
+      this.counters = checkNotNull(counters, "counters");
+      return this;
+    }
+
+    /** Set the {@link Scheduler} counters are read on. Defaults to computation scheduler. */
+    @NonNull
+    public Builder scheduler(@NonNull Scheduler scheduler) {
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      return this;
+    }
+
+    /** Create an immutable instance of {@link TrafficSampler} using configured values. */
+    @NonNull
+    public TrafficSampler build() {
+      return new TrafficSampler(this);
+    }
+  }
+}
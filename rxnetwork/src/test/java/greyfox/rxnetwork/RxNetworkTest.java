@@ -16,26 +16,61 @@
 package greyfox.rxnetwork;
 
 import android.content.Context;
+import android.net.NetworkCapabilities;
 import android.net.NetworkRequest;
+import greyfox.rxnetwork.internal.metrics.LatencyRecorder;
+import greyfox.rxnetwork.internal.metrics.LatencySnapshot;
+import greyfox.rxnetwork.internal.net.RxNetworkInfo;
+import greyfox.rxnetwork.internal.net.RxNetworkInfoChange;
+import greyfox.rxnetwork.internal.prewarm.ConnectionPreWarmer;
+import greyfox.rxnetwork.internal.quality.ConnectionQuality;
+import greyfox.rxnetwork.internal.queue.OperationQueue;
+import greyfox.rxnetwork.internal.queue.OperationQueue.Condition;
 import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategy;
 import greyfox.rxnetwork.internal.strategy.internet.InternetObservingStrategyFactory;
+import greyfox.rxnetwork.internal.strategy.internet.ProbeEventListener;
 import greyfox.rxnetwork.internal.strategy.internet.impl.SocketInternetObservingStrategy;
 import greyfox.rxnetwork.internal.strategy.internet.impl.WalledGardenInternetObservingStrategy;
 import greyfox.rxnetwork.internal.strategy.network.NetworkObservingStrategy;
 import greyfox.rxnetwork.internal.strategy.network.NetworkObservingStrategyFactory;
 import greyfox.rxnetwork.internal.strategy.network.impl.PreLollipopNetworkObservingStrategy;
+import io.reactivex.Completable;
+import io.reactivex.Observable;
 import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.plugins.RxJavaPlugins;
 import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.CompletableSubject;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import static android.net.ConnectivityManager.TYPE_MOBILE;
+import static android.net.ConnectivityManager.TYPE_WIFI;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_EDGE;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.Type.IS_WIFI;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -52,6 +87,7 @@ public class RxNetworkTest {
   @Mock private InternetObservingStrategy customInternetStrategy;
   @Mock private InternetObservingStrategyFactory customInternetStrategyFactory;
   @Mock private NetworkRequest customNetworkRequest;
+  @Mock private ProbeEventListener eventListener;
 
   @Before
   public void setUp() {
@@ -156,6 +192,9 @@ public class RxNetworkTest {
     assertThat(sut.observe()).isNotNull();
     assertThat(sut.observeSimple()).isNotNull();
     assertThat(sut.observeInternetAccess()).isNotNull();
+    assertThat(sut.observeLatest()).isNotNull();
+    assertThat(sut.observeInternetAccessLatest()).isNotNull();
+    assertThat(sut.observeChanges()).isNotNull();
   }
 
   @Test
@@ -257,4 +296,463 @@ public class RxNetworkTest {
   public void shouldThrow_whenTryingToSetNullSchedulerOnBuilder() {
     RxNetwork.builder().defaultScheduler(null);
   }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToSetNullEventListenerOnBuilder() {
+    RxNetwork.builder().eventListener(null);
+  }
+
+  @Test
+  public void shouldReportNetworkCallbacksAndEmissions_toEventListener() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    final RxNetworkInfo networkInfo = RxNetworkInfo.builder().type(TYPE_WIFI).build();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy)
+        .eventListener(eventListener).init(context);
+
+    sut.observe().test();
+    sut.observe().test();
+    networkInfos.onNext(networkInfo);
+
+    verify(eventListener).networkCallbackReceived(networkInfo);
+    verify(eventListener, times(2)).emissionDelivered(networkInfo);
+  }
+
+  @Test
+  public void shouldReportDelivery_afterObserveOn() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    final RxNetworkInfo networkInfo = RxNetworkInfo.builder().type(TYPE_WIFI).build();
+    TestScheduler scheduler = new TestScheduler();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy)
+        .eventListener(eventListener).init(context);
+    final TestSubscriber<RxNetworkInfo> subscriber = sut.observeLatest(scheduler).test();
+
+    networkInfos.onNext(networkInfo);
+
+    verify(eventListener).networkCallbackReceived(networkInfo);
+    verify(eventListener, never()).emissionDelivered(networkInfo);
+
+    scheduler.triggerActions();
+
+    subscriber.assertValue(networkInfo);
+    verify(eventListener).emissionDelivered(networkInfo);
+  }
+
+  @Test
+  public void shouldNotReportDelivery_ofValueReplayedToLateSubscriber() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    final RxNetworkInfo networkInfo = RxNetworkInfo.builder().type(TYPE_WIFI).build();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy)
+        .eventListener(eventListener).init(context);
+    sut.observe().test();
+    networkInfos.onNext(networkInfo);
+
+    sut.observe().test().assertValue(networkInfo);
+
+    verify(eventListener).emissionDelivered(networkInfo);
+  }
+
+  @Test
+  public void shouldReportDelivery_ofFirstValueAfterAllSubscribersLeft() {
+    PublishSubject<Boolean> internetAccess = PublishSubject.create();
+    when(customInternetStrategy.observe()).thenReturn(internetAccess);
+    sut = RxNetwork.builder().internetObservingStrategy(customInternetStrategy)
+        .eventListener(eventListener).init(context);
+    final TestObserver<Boolean> first = sut.observeInternetAccess().test();
+    internetAccess.onNext(true);
+    first.dispose();
+
+    final TestObserver<Boolean> second = sut.observeInternetAccess().test();
+    internetAccess.onNext(true);
+
+    second.assertValue(true);
+    verify(eventListener, times(2)).emissionDelivered(true);
+  }
+
+  @Test
+  public void shouldRecordDeliveryLatency_fromNetworkCallbackToSubscriberThread()
+      throws InterruptedException {
+
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    final RxNetworkInfo networkInfo = RxNetworkInfo.builder().type(TYPE_WIFI).build();
+    final LatencyRecorder recorder = LatencyRecorder.create();
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final CountDownLatch emitted = new CountDownLatch(1);
+    final CountDownLatch delivered = new CountDownLatch(1);
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy)
+        .eventListener(recorder).init(context);
+
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            emitted.await();
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      sut.observeLatest(Schedulers.from(executor)).subscribe(new Consumer<RxNetworkInfo>() {
+        @Override
+        public void accept(RxNetworkInfo value) {
+          delivered.countDown();
+        }
+      });
+      networkInfos.onNext(networkInfo);
+      emitted.countDown();
+
+      assertThat(delivered.await(1, TimeUnit.SECONDS)).isTrue();
+    } finally {
+      executor.shutdown();
+    }
+
+    final LatencySnapshot latency = recorder.deliveryLatency().snapshot();
+    assertThat(latency.count()).isEqualTo(1);
+    assertThat(latency.percentile(50, TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(15);
+  }
+
+  @Test
+  public void shouldReportInternetAccessEmissions_toEventListener() {
+    when(customInternetStrategy.observe()).thenReturn(Observable.just(true));
+    sut = RxNetwork.builder().internetObservingStrategy(customInternetStrategy)
+        .eventListener(eventListener).init(context);
+
+    sut.observeInternetAccess().test().assertValue(true);
+
+    verify(eventListener).emissionDelivered(true);
+  }
+
+  @Test
+  public void shouldDeliverOnlyLatestNetworkInfo_whenSubscriberNotReady() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    RxNetworkInfo latest = RxNetworkInfo.builder().type(1).build();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+
+    TestSubscriber<RxNetworkInfo> subscriber = sut.observeLatest().test(0);
+    networkInfos.onNext(RxNetworkInfo.builder().type(0).build());
+    networkInfos.onNext(latest);
+    subscriber.request(1);
+
+    subscriber.assertValue(latest);
+  }
+
+  @Test
+  public void shouldDeliverOnlyLatestInternetAccess_whenSubscriberBusyOnScheduler() {
+    PublishSubject<Boolean> internetAccess = PublishSubject.create();
+    TestScheduler testScheduler = new TestScheduler();
+    when(customInternetStrategy.observe()).thenReturn(internetAccess);
+    sut = RxNetwork.builder().internetObservingStrategy(customInternetStrategy).init(context);
+
+    TestSubscriber<Boolean> subscriber = sut.observeInternetAccessLatest(testScheduler).test();
+    internetAccess.onNext(true);
+    internetAccess.onNext(false);
+    internetAccess.onNext(true);
+    internetAccess.onNext(false);
+    testScheduler.triggerActions();
+
+    subscriber.assertValues(true, false);
+  }
+
+  @Test
+  public void shouldRetry_whenInternetAccessRegained() {
+    PublishSubject<Boolean> internetAccess = PublishSubject.create();
+    when(customInternetStrategy.observe()).thenReturn(internetAccess);
+    sut = RxNetwork.builder().internetObservingStrategy(customInternetStrategy).init(context);
+    final AtomicInteger subscriptions = new AtomicInteger();
+
+    TestObserver<Integer> observer = Single.fromCallable(new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        if (subscriptions.incrementAndGet() == 1) {
+          throw new IOException("offline");
+        }
+        return subscriptions.get();
+      }
+    }).compose(sut.<Integer>retryWhenConnected(3)).test();
+
+    sut.observeInternetAccess().test();
+    internetAccess.onNext(false);
+    observer.assertNoValues();
+
+    internetAccess.onNext(true);
+    observer.assertValue(2);
+  }
+
+  @Test
+  public void shouldRetry_whenNetworkSatisfiesCondition() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+    final AtomicInteger subscriptions = new AtomicInteger();
+
+    TestObserver<Void> observer = Completable.fromAction(new Action() {
+      @Override
+      public void run() throws Exception {
+        if (subscriptions.incrementAndGet() == 1) {
+          throw new IOException("offline");
+        }
+      }
+    }).compose(sut.retryWhenConnected(IS_WIFI, 3)).test();
+
+    networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_MOBILE).build());
+    observer.assertNotComplete();
+
+    networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_WIFI).build());
+    observer.assertComplete();
+  }
+
+  @Test
+  public void shouldNotPostponeRetry_whenNetworkUpdateKeepsConditionSatisfied() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+    final TestScheduler scheduler = new TestScheduler();
+    final AtomicInteger subscriptions = new AtomicInteger();
+    RxJavaPlugins.setComputationSchedulerHandler(new Function<Scheduler, Scheduler>() {
+      @Override
+      public Scheduler apply(Scheduler ignored) throws Exception {
+        return scheduler;
+      }
+    });
+
+    try {
+      sut.observe().test();
+      networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_WIFI).build());
+      final TestObserver<Void> observer = Completable.fromAction(new Action() {
+        @Override
+        public void run() throws Exception {
+          if (subscriptions.incrementAndGet() == 1) {
+            throw new IOException("offline");
+          }
+        }
+      }).compose(sut.retryWhenConnected(IS_WIFI, 3)).test();
+
+      scheduler.advanceTimeBy(600, TimeUnit.MILLISECONDS);
+      networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_WIFI).extraInfo("updated").build());
+      scheduler.advanceTimeBy(600, TimeUnit.MILLISECONDS);
+
+      observer.assertComplete();
+    } finally {
+      RxJavaPlugins.reset();
+    }
+  }
+
+  @Test
+  public void shouldRunScheduledActions_whenNetworkSatisfiesCondition() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+    TestScheduler scheduler = new TestScheduler();
+
+    TestObserver<Integer> observer =
+        Single.just(1).subscribeOn(sut.networkScheduler(IS_WIFI, scheduler)).test();
+
+    networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_MOBILE).build());
+    scheduler.triggerActions();
+    observer.assertNoValues();
+
+    networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_WIFI).build());
+    scheduler.triggerActions();
+    observer.assertValue(1);
+  }
+
+  @Test
+  public void shouldEstimateConnectionQuality_fromNetworkTypeAndReportedThroughput() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+    TestObserver<ConnectionQuality> observer = sut.observeConnectionQuality().test();
+
+    networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_MOBILE).subType(NETWORK_TYPE_EDGE)
+                                     .connected(true).build());
+    // 10 MB in a second
+    sut.reportThroughput(10000000, 1, TimeUnit.SECONDS);
+    networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_MOBILE).subType(NETWORK_TYPE_EDGE)
+                                     .connected(false).build());
+
+    observer.assertValues(ConnectionQuality.POOR, ConnectionQuality.EXCELLENT,
+        ConnectionQuality.UNKNOWN);
+  }
+
+  @Test
+  public void shouldKeepReportedThroughput_whenOnlyAdvertisedBandwidthChanges() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    final NetworkCapabilities capabilities = mock(NetworkCapabilities.class);
+    doReturn(100).when(capabilities).getLinkDownstreamBandwidthKbps();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+    final TestObserver<ConnectionQuality> observer = sut.observeConnectionQuality().test();
+
+    networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_MOBILE).subType(NETWORK_TYPE_EDGE)
+                                     .connected(true).build());
+    // 10 MB in a second
+    sut.reportThroughput(10000000, 1, TimeUnit.SECONDS);
+    networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_MOBILE).subType(NETWORK_TYPE_EDGE)
+                                     .connected(true).networkCapabilities(capabilities).build());
+
+    observer.assertValues(ConnectionQuality.POOR, ConnectionQuality.EXCELLENT);
+  }
+
+  @Test
+  public void shouldShareDefaultTrafficObservable() {
+    when(customNetworkStrategy.observe()).thenReturn(PublishSubject.<RxNetworkInfo>create());
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+
+    assertThat(sut.observeTraffic()).isSameAs(sut.observeTraffic());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToObserveTrafficWithNullSampler() {
+    sut.observeTraffic(null);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToPreWarmWithNull() {
+    sut.preWarm(null);
+  }
+
+  @Test
+  public void shouldPreWarm_whenInternetAccessRegainedOrConnectedToOtherNetwork() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    PublishSubject<Boolean> internetAccess = PublishSubject.create();
+    ConnectionPreWarmer preWarmer = spy(ConnectionPreWarmer.builder().build());
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    when(customInternetStrategy.observe()).thenReturn(internetAccess);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy)
+                   .internetObservingStrategy(customInternetStrategy).init(context);
+
+    sut.preWarm(preWarmer).test();
+    networkInfos.onNext(RxNetworkInfo.builder().type(1).connected(true).build());
+    internetAccess.onNext(false);
+    verify(preWarmer, never()).warm();
+
+    internetAccess.onNext(true);
+    verify(preWarmer, times(1)).warm();
+
+    networkInfos.onNext(RxNetworkInfo.builder().type(0).connected(true).build());
+    verify(preWarmer, times(2)).warm();
+
+    networkInfos.onNext(RxNetworkInfo.builder().type(0).connected(false).build());
+    verify(preWarmer, times(2)).warm();
+  }
+
+  @Test
+  public void shouldRunQueuedOperations_whenTheirConditionsAreMet() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    PublishSubject<Boolean> internetAccess = PublishSubject.create();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    when(customInternetStrategy.observe()).thenReturn(internetAccess);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy)
+                   .internetObservingStrategy(customInternetStrategy).init(context);
+    OperationQueue queue = sut.operationQueue().scheduler(Schedulers.trampoline()).build();
+    CompletableSubject sync = CompletableSubject.create();
+    CompletableSubject upload = CompletableSubject.create();
+    CompletableSubject report = CompletableSubject.create();
+    queue.process().test();
+
+    queue.enqueue(sync, 0, Condition.ANY);
+    queue.enqueue(upload, 0, Condition.UNMETERED);
+    queue.enqueue(report, 0, Condition.VALIDATED);
+    networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_MOBILE).connected(true).build());
+
+    assertThat(sync.hasObservers()).isTrue();
+    assertThat(upload.hasObservers()).isFalse();
+    assertThat(report.hasObservers()).isFalse();
+
+    sync.onComplete();
+    internetAccess.onNext(true);
+    assertThat(report.hasObservers()).isTrue();
+
+    report.onComplete();
+    networkInfos.onNext(RxNetworkInfo.builder().type(TYPE_WIFI).connected(true).build());
+    assertThat(upload.hasObservers()).isTrue();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToObserveLatestOnNullScheduler() {
+    sut.observeLatest(null);
+  }
+
+  @Test
+  public void shouldShareDefaultNetworkObservable() {
+    when(customNetworkStrategy.observe()).thenReturn(PublishSubject.<RxNetworkInfo>create());
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+
+    sut.observe().test();
+    sut.observe().test();
+
+    assertThat(sut.observe()).isSameAs(sut.observe());
+    verify(customNetworkStrategy, times(1)).observe();
+  }
+
+  @Test
+  public void shouldReplayLatestNetworkInfo_toLateSubscriber() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    RxNetworkInfo latest = RxNetworkInfo.builder().type(1).build();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+
+    sut.observe().test();
+    networkInfos.onNext(latest);
+
+    sut.observe().test().assertValue(latest);
+  }
+
+  @Test
+  public void shouldEmitOnlyChangesOfGivenFields_whenObservingChanges() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    RxNetworkInfo first = RxNetworkInfo.builder().type(1).build();
+    RxNetworkInfo roaming = RxNetworkInfo.builder().type(1).roaming(true).build();
+    RxNetworkInfo connected = RxNetworkInfo.builder().type(1).roaming(true).connected(true).build();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+
+    TestObserver<RxNetworkInfoChange> changes = sut.observeChanges(RxNetworkInfoChange.ROAMING)
+        .test();
+    networkInfos.onNext(first);
+    networkInfos.onNext(roaming);
+    networkInfos.onNext(connected);
+
+    changes.assertValueCount(2);
+    assertThat(changes.values().get(1).previous()).isEqualTo(first);
+    assertThat(changes.values().get(1).current()).isEqualTo(roaming);
+  }
+
+  @Test
+  public void shouldHaveEmptySnapshots_whenNothingObservedYet() {
+    assertThat(sut.currentNetworkInfo().hasValue()).isFalse();
+    assertThat(sut.currentInternetAccess().hasValue()).isFalse();
+  }
+
+  @Test
+  public void shouldSnapshotLatestNetworkInfo_whenObserved() {
+    PublishSubject<RxNetworkInfo> networkInfos = PublishSubject.create();
+    RxNetworkInfo latest = RxNetworkInfo.builder().type(1).build();
+    when(customNetworkStrategy.observe()).thenReturn(networkInfos);
+    sut = RxNetwork.builder().networkObservingStrategy(customNetworkStrategy).init(context);
+
+    sut.observe().test();
+    networkInfos.onNext(RxNetworkInfo.builder().type(0).build());
+    networkInfos.onNext(latest);
+
+    assertThat(sut.currentNetworkInfo().value()).isEqualTo(latest);
+  }
+
+  @Test
+  public void shouldSnapshotLatestInternetAccess_whenObserved() {
+    PublishSubject<Boolean> internetAccess = PublishSubject.create();
+    when(customInternetStrategy.observe()).thenReturn(internetAccess);
+    sut = RxNetwork.builder().internetObservingStrategy(customInternetStrategy).init(context);
+
+    sut.observeInternetAccess().test();
+    internetAccess.onNext(true);
+
+    assertThat(sut.currentInternetAccess().value()).isTrue();
+  }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@SuppressWarnings("ConstantConditions")
+public class InternerTest {
+
+  @After
+  public void tearDown() {
+    Interner.clear();
+  }
+
+  @Test(expected = AssertionError.class)
+  public void shouldThrow_whenTryingToInstantiateViaConstructor() {
+    new Interner();
+  }
+
+  @Test
+  public void shouldReturnNull_whenInterningNull() {
+    assertThat(Interner.intern(null)).isNull();
+  }
+
+  @Test
+  public void shouldReturnSameInstance_forEqualStrings() {
+    String first = Interner.intern(new String("MOBILE"));
+    String second = Interner.intern(new String("MOBILE"));
+
+    assertThat(second).isEqualTo("MOBILE").isSameAs(first);
+  }
+
+  @Test
+  public void shouldPassThroughNewStrings_whenPoolFull() {
+    for (int i = 0; i < Interner.MAX_SIZE; i++) {
+      Interner.intern("filler-" + i);
+    }
+
+    String value = new String("overflow");
+
+    assertThat(Interner.intern(value)).isSameAs(value);
+    assertThat(Interner.intern(new String("MOBILE"))).isEqualTo("MOBILE");
+  }
+}
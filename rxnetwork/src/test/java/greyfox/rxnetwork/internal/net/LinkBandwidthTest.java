@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import android.net.NetworkCapabilities;
+import greyfox.rxnetwork.BuildConfig;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static android.net.ConnectivityManager.TYPE_BLUETOOTH;
+import static android.net.ConnectivityManager.TYPE_MOBILE;
+import static android.net.ConnectivityManager.TYPE_WIFI;
+import static android.os.Build.VERSION_CODES.LOLLIPOP;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_EDGE;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_HSPAP;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_LTE;
+import static android.telephony.TelephonyManager.NETWORK_TYPE_UMTS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = LOLLIPOP)
+public class LinkBandwidthTest {
+
+  @Test(expected = AssertionError.class)
+  public void shouldThrow_whenTryingToInstantiateViaConstructor() {
+    new LinkBandwidth();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToEstimateNull() {
+    LinkBandwidth.estimateKbps(null);
+  }
+
+  @Test
+  public void shouldEstimateZero_whenDisconnected() {
+    assertThat(LinkBandwidth.estimateKbps(network(TYPE_WIFI, 0, false))).isZero();
+  }
+
+  @Test
+  public void shouldPreferAdvertisedBandwidth() {
+    NetworkCapabilities capabilities = mock(NetworkCapabilities.class);
+    doReturn(300).when(capabilities).getLinkDownstreamBandwidthKbps();
+
+    RxNetworkInfo networkInfo = RxNetworkInfo.builder().type(TYPE_WIFI).connected(true)
+                                             .networkCapabilities(capabilities).build();
+
+    assertThat(LinkBandwidth.estimateKbps(networkInfo)).isEqualTo(300);
+  }
+
+  @Test
+  public void shouldEstimateByType_whenBandwidthIsNotAdvertised() {
+    assertThat(LinkBandwidth.estimateKbps(network(TYPE_WIFI, 0, true))).isEqualTo(5000);
+    assertThat(LinkBandwidth.estimateKbps(network(TYPE_BLUETOOTH, 0, true))).isZero();
+  }
+
+  @Test
+  public void shouldEstimateMobileBySubType() {
+    assertThat(LinkBandwidth.estimateKbps(network(TYPE_MOBILE, NETWORK_TYPE_EDGE, true)))
+        .isEqualTo(100);
+    assertThat(LinkBandwidth.estimateKbps(network(TYPE_MOBILE, NETWORK_TYPE_UMTS, true)))
+        .isEqualTo(400);
+    assertThat(LinkBandwidth.estimateKbps(network(TYPE_MOBILE, NETWORK_TYPE_HSPAP, true)))
+        .isEqualTo(1500);
+    assertThat(LinkBandwidth.estimateKbps(network(TYPE_MOBILE, NETWORK_TYPE_LTE, true)))
+        .isEqualTo(5000);
+  }
+
+  private static RxNetworkInfo network(int type, int subType, boolean connected) {
+    return RxNetworkInfo.builder().type(type).subType(subType).connected(connected).build();
+  }
+}
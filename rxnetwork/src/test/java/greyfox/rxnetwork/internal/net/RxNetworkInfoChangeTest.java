@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import greyfox.rxnetwork.BuildConfig;
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static android.os.Build.VERSION_CODES.LOLLIPOP;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.ALL;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.BANDWIDTH;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.CONNECTED;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.DETAILED_STATE;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.NETWORK_CAPABILITIES;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.REASON;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.ROAMING;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.STATE;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.SUB_TYPE;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.TYPE;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.changedAny;
+import static greyfox.rxnetwork.internal.net.RxNetworkInfoChange.changes;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+@SuppressWarnings("ConstantConditions")
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = LOLLIPOP)
+public class RxNetworkInfoChangeTest {
+
+  private static final RxNetworkInfo DEFAULT = RxNetworkInfo.create();
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenCurrentIsNull() {
+    new RxNetworkInfoChange(DEFAULT, null);
+  }
+
+  @Test
+  public void shouldReportAllFields_whenNoPreviousValue() {
+    RxNetworkInfoChange sut = new RxNetworkInfoChange(null, DEFAULT);
+
+    assertThat(sut.changedFields()).isEqualTo(ALL);
+    assertThat(sut.previous()).isNull();
+    assertThat(sut.current()).isEqualTo(DEFAULT);
+  }
+
+  @Test
+  public void shouldReportNothing_whenEqual() {
+    RxNetworkInfoChange sut = new RxNetworkInfoChange(DEFAULT, RxNetworkInfo.create());
+
+    assertThat(sut.changedFields()).isZero();
+    assertThat(sut.hasChanged(ALL)).isFalse();
+  }
+
+  @Test
+  public void shouldReportOnlyChangedFields() {
+    RxNetworkInfo current = RxNetworkInfo.builder().state(NetworkInfo.State.CONNECTED)
+        .roaming(true).subType(3).reason("reason").build();
+
+    RxNetworkInfoChange sut = new RxNetworkInfoChange(DEFAULT, current);
+
+    assertThat(sut.changedFields()).isEqualTo(STATE | ROAMING | SUB_TYPE | REASON);
+    assertThat(sut.hasChanged(ROAMING | CONNECTED)).isTrue();
+    assertThat(sut.hasChanged(TYPE | DETAILED_STATE | CONNECTED)).isFalse();
+  }
+
+  @Test
+  public void shouldReportBandwidth_whenLinkBandwidthChanged() {
+    RxNetworkInfo previous = withCapabilities(512, 2048);
+    RxNetworkInfo current = withCapabilities(512, 4096);
+
+    RxNetworkInfoChange sut = new RxNetworkInfoChange(previous, current);
+
+    assertThat(sut.changedFields()).isEqualTo(NETWORK_CAPABILITIES | BANDWIDTH);
+  }
+
+  @Test
+  public void shouldDropEmissions_whenNothingChanged() {
+    RxNetworkInfo roaming = RxNetworkInfo.builder().roaming(true).build();
+
+    TestObserver<RxNetworkInfoChange> changes =
+        Observable.just(DEFAULT, RxNetworkInfo.create(), roaming, roaming).compose(changes())
+            .test();
+
+    changes.assertValueCount(2);
+    assertThat(changes.values().get(0).changedFields()).isEqualTo(ALL);
+    assertThat(changes.values().get(1).changedFields()).isEqualTo(ROAMING);
+  }
+
+  @Test
+  public void shouldTrackPreviousValuePerSubscriber() {
+    Observable<RxNetworkInfoChange> changes = Observable.just(DEFAULT).compose(changes());
+
+    changes.test().assertValueCount(1);
+    changes.test().assertValueCount(1);
+  }
+
+  @Test
+  public void shouldFilterByFields() throws Exception {
+    RxNetworkInfoChange change =
+        new RxNetworkInfoChange(DEFAULT, RxNetworkInfo.builder().roaming(true).build());
+
+    assertThat(changedAny(ROAMING).test(change)).isTrue();
+    assertThat(changedAny(STATE | TYPE).test(change)).isFalse();
+  }
+
+  @Test
+  public void shouldNotReportBandwidth_whenOnlyOtherCapabilitiesChanged() {
+    RxNetworkInfo previous = withCapabilities(512, 2048);
+    RxNetworkInfo current = withCapabilities(512, 2048);
+
+    RxNetworkInfoChange sut = new RxNetworkInfoChange(previous, current);
+
+    assertThat(sut.changedFields()).isEqualTo(NETWORK_CAPABILITIES);
+  }
+
+  private RxNetworkInfo withCapabilities(int upBandwidth, int downBandwidth) {
+    NetworkCapabilities capabilities = mock(NetworkCapabilities.class);
+    doReturn(upBandwidth).when(capabilities).getLinkUpstreamBandwidthKbps();
+    doReturn(downBandwidth).when(capabilities).getLinkDownstreamBandwidthKbps();
+
+    return RxNetworkInfo.builder().networkCapabilities(capabilities).build();
+  }
+}
@@ -183,6 +183,47 @@ public class RxNetworkInfoTest {
     assertNotEqual(rxni, rxni2);
   }
 
+  @Test
+  public void shouldNotBeEqual_whenOnlyNamesDiffer() {
+    RxNetworkInfo rxni = detailedRxNetworkInfoBuilder().reason("one reason").build();
+    RxNetworkInfo rxni2 = detailedRxNetworkInfoBuilder().reason("another reason").build();
+
+    assertNotEqual(rxni, rxni2);
+  }
+
+  @Test
+  public void shouldNotBeEqual_whenOnlyTypeAndSubTypeSwapped() {
+    RxNetworkInfo rxni = builder().type(1).subType(2).build();
+    RxNetworkInfo rxni2 = builder().type(2).subType(1).build();
+
+    assertThat(rxni).isNotEqualTo(rxni2);
+  }
+
+  @Test
+  public void shouldShareInternedNames_whenCreatedSeparately() {
+    RxNetworkInfo rxni = builder().typeName(new String("WIFI")).reason(new String("r")).build();
+    RxNetworkInfo rxni2 = builder().typeName(new String("WIFI")).reason(new String("r")).build();
+
+    assertThat(rxni.getTypeName()).isSameAs(rxni2.getTypeName());
+    assertThat(rxni.getReason()).isSameAs(rxni2.getReason());
+  }
+
+  @Test
+  public void shouldRoundTripAllValues_whenPacked() {
+    for (NetworkInfo.DetailedState detailedState : NetworkInfo.DetailedState.values()) {
+      RxNetworkInfo sut = builder().state(NetworkInfo.State.DISCONNECTED)
+          .detailedState(detailedState).type(Integer.MIN_VALUE).subType(-1).roaming(true)
+          .build();
+
+      assertThat(sut.getState()).isEqualTo(NetworkInfo.State.DISCONNECTED);
+      assertThat(sut.getDetailedState()).isEqualTo(detailedState);
+      assertThat(sut.getType()).isEqualTo(Integer.MIN_VALUE);
+      assertThat(sut.getSubType()).isEqualTo(-1);
+      assertThat(sut.isRoaming()).isTrue();
+      assertThat(sut.isAvailable()).isFalse();
+    }
+  }
+
   @Test(expected = NullPointerException.class)
   public void shouldThrow_whenProvidedNullNetworkInfo() {
     RxNetworkInfo.create(NULL_NETWORK_INFO);
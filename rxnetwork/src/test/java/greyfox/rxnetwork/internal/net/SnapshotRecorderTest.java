@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class SnapshotRecorderTest {
+
+  private final SnapshotRecorder<Boolean> sut = new SnapshotRecorder<>();
+
+  @Test
+  public void shouldStartWithEmptySnapshot() {
+    assertThat(sut.snapshot()).isNotNull();
+    assertThat(sut.snapshot().hasValue()).isFalse();
+  }
+
+  @Test
+  public void shouldSnapshotLatestAcceptedValue() {
+    sut.accept(true);
+    sut.accept(false);
+
+    assertThat(sut.snapshot().value()).isFalse();
+  }
+
+  @Test
+  public void shouldReturnSameSnapshot_untilNextValueAccepted() {
+    sut.accept(true);
+    Snapshot<Boolean> snapshot = sut.snapshot();
+
+    assertThat(sut.snapshot()).isSameAs(snapshot);
+
+    sut.accept(true);
+
+    assertThat(sut.snapshot()).isNotSameAs(snapshot);
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.net;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class SnapshotTest {
+
+  private static final long AGE_MS = 5000;
+
+  @Test
+  public void shouldHaveNoValue_whenEmpty() {
+    Snapshot<Boolean> sut = new Snapshot<>(null, System.nanoTime());
+
+    assertThat(sut.hasValue()).isFalse();
+    assertThat(sut.value()).isNull();
+  }
+
+  @Test
+  public void shouldHoldValue() {
+    Snapshot<Boolean> sut = new Snapshot<>(true, System.nanoTime());
+
+    assertThat(sut.hasValue()).isTrue();
+    assertThat(sut.value()).isTrue();
+  }
+
+  @Test
+  public void shouldMeasureAgeSinceTimestamp() {
+    long timestamp = System.nanoTime() - NANOSECONDS.convert(AGE_MS, MILLISECONDS);
+    Snapshot<Boolean> sut = new Snapshot<>(true, timestamp);
+
+    assertThat(sut.age(MILLISECONDS)).isGreaterThanOrEqualTo(AGE_MS);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenAskedForAgeInNullUnit() {
+    new Snapshot<>(true, System.nanoTime()).age(null);
+  }
+}
@@ -29,9 +29,12 @@ import org.mockito.junit.MockitoRule;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import static android.net.NetworkCapabilities.NET_CAPABILITY_INTERNET;
+import static android.net.NetworkCapabilities.NET_CAPABILITY_NOT_METERED;
 import static android.net.NetworkCapabilities.TRANSPORT_CELLULAR;
 import static android.net.NetworkCapabilities.TRANSPORT_WIFI;
 import static android.os.Build.VERSION_CODES.LOLLIPOP;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.Capabilities.hasCapability;
 import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.Capabilities.hasTransportType;
 import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.Capabilities.isSatisfiedByDownBandwidth;
 import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.Capabilities.isSatisfiedByUpBandwidth;
@@ -52,6 +55,9 @@ public class RxNetworkInfoPredicateCapabilitiesTest {
   private static final Predicate<RxNetworkInfo> VALID_TRANSPORT_TYPES =
       hasTransportType(TRANSPORT_CELLULAR, TRANSPORT_WIFI);
 
+  private static final Predicate<RxNetworkInfo> UNMETERED_INTERNET =
+      hasCapability(NET_CAPABILITY_INTERNET, NET_CAPABILITY_NOT_METERED);
+
   private static int VALID_UP_BANDWIDTH = 2048;
   private static final Predicate<RxNetworkInfo> VALID_UPSTREAM_PREDICATE =
       isSatisfiedByUpBandwidth(VALID_UP_BANDWIDTH);
@@ -87,10 +93,29 @@ public class RxNetworkInfoPredicateCapabilitiesTest {
     assertThat(VALID_TRANSPORT_TYPES.test(rxNetworkInfo)).isFalse();
   }
 
+  @Test
+  public void shouldReturnTrue_whenAllPredicatedCapabilitiesPresent() throws Exception {
+    when(networkCapabilities.hasCapability(NET_CAPABILITY_INTERNET)).thenReturn(true);
+    when(networkCapabilities.hasCapability(NET_CAPABILITY_NOT_METERED)).thenReturn(true);
+    when(rxNetworkInfo.getNetworkCapabilities()).thenReturn(networkCapabilities);
+
+    assertThat(UNMETERED_INTERNET.test(rxNetworkInfo)).isTrue();
+  }
+
+  @Test
+  public void shouldReturnFalse_whenAnyOfPredicatedCapabilitiesMissing() throws Exception {
+    when(networkCapabilities.hasCapability(NET_CAPABILITY_INTERNET)).thenReturn(true);
+    when(networkCapabilities.hasCapability(NET_CAPABILITY_NOT_METERED)).thenReturn(false);
+    when(rxNetworkInfo.getNetworkCapabilities()).thenReturn(networkCapabilities);
+
+    assertThat(UNMETERED_INTERNET.test(rxNetworkInfo)).isFalse();
+  }
+
   @Test
   public void shouldReturnFalse_whenNetworkInfoHasNoNetworkCapabilities() throws Exception {
     when(rxNetworkInfo.getNetworkCapabilities()).thenReturn(null);
 
+    assertThat(UNMETERED_INTERNET.test(rxNetworkInfo)).isFalse();
     assertThat(VALID_UPSTREAM_PREDICATE.test(rxNetworkInfo)).isFalse();
     assertThat(VALID_DOWNSTREAM_PREDICATE.test(rxNetworkInfo)).isFalse();
   }
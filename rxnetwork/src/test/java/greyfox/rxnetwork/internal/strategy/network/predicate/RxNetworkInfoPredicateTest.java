@@ -15,12 +15,112 @@
  */
 package greyfox.rxnetwork.internal.strategy.network.predicate;
 
+import android.net.NetworkInfo;
+import greyfox.rxnetwork.internal.net.RxNetworkInfo;
+import io.reactivex.functions.Predicate;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
 
+import static android.net.ConnectivityManager.TYPE_MOBILE;
+import static android.net.ConnectivityManager.TYPE_WIFI;
+import static android.net.ConnectivityManager.TYPE_WIMAX;
+import static android.net.NetworkInfo.State.CONNECTED;
+import static android.net.NetworkInfo.State.CONNECTING;
+import static android.net.NetworkInfo.State.DISCONNECTED;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.State.hasState;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.Type.hasType;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.and;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.not;
+import static greyfox.rxnetwork.internal.strategy.network.predicate.RxNetworkInfoPredicate.or;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("ConstantConditions")
+@RunWith(MockitoJUnitRunner.class)
 public class RxNetworkInfoPredicateTest {
 
+  private static final Predicate<RxNetworkInfo> IS_CONNECTED = hasState(CONNECTED);
+  private static final Predicate<RxNetworkInfo> IS_WIFI = hasType(TYPE_WIFI);
+
+  @Mock private RxNetworkInfo rxNetworkInfo;
+
   @Test(expected = AssertionError.class)
   public void shouldThrow_whenTryingToInstantiateViaConstructor() {
     new RxNetworkInfoPredicate();
   }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenCombiningWithNull() {
+    and(IS_CONNECTED, null);
+  }
+
+  @Test
+  public void shouldCompileToMask_whenCombiningCompiledPredicates() {
+    assertThat(and(IS_CONNECTED, IS_WIFI)).isInstanceOf(RxNetworkInfoPredicate.Mask.class);
+    assertThat(or(IS_WIFI, hasType(TYPE_MOBILE))).isInstanceOf(RxNetworkInfoPredicate.Mask.class);
+    assertThat(or(IS_CONNECTED, hasState(CONNECTING)))
+        .isInstanceOf(RxNetworkInfoPredicate.Mask.class);
+    assertThat(not(IS_WIFI)).isInstanceOf(RxNetworkInfoPredicate.Mask.class);
+    assertThat(and(IS_CONNECTED, not(IS_WIFI))).isInstanceOf(RxNetworkInfoPredicate.Mask.class);
+  }
+
+  @Test
+  public void shouldMatchBothStateAndType_whenCombinedWithAnd() throws Exception {
+    Predicate<RxNetworkInfo> sut = and(IS_CONNECTED, IS_WIFI);
+
+    assertThat(sut.test(networkInfo(CONNECTED, TYPE_WIFI))).isTrue();
+    assertThat(sut.test(networkInfo(CONNECTED, TYPE_MOBILE))).isFalse();
+    assertThat(sut.test(networkInfo(DISCONNECTED, TYPE_WIFI))).isFalse();
+  }
+
+  @Test
+  public void shouldMatchEitherStateOrType_whenCombinedWithOr() throws Exception {
+    Predicate<RxNetworkInfo> sut = or(IS_CONNECTED, IS_WIFI);
+
+    assertThat(sut.test(networkInfo(CONNECTED, TYPE_MOBILE))).isTrue();
+    assertThat(sut.test(networkInfo(DISCONNECTED, TYPE_WIFI))).isTrue();
+    assertThat(sut.test(networkInfo(DISCONNECTED, TYPE_MOBILE))).isFalse();
+  }
+
+  @Test
+  public void shouldNegate_whenCombinedWithNot() throws Exception {
+    assertThat(not(IS_WIFI).test(networkInfo(CONNECTED, TYPE_MOBILE))).isTrue();
+    assertThat(not(IS_WIFI).test(networkInfo(CONNECTED, TYPE_WIFI))).isFalse();
+    assertThat(not(IS_WIFI).test(networkInfo(CONNECTED, 1000))).isTrue();
+    assertThat(not(IS_CONNECTED).test(networkInfo(null, TYPE_WIFI))).isTrue();
+  }
+
+  @Test
+  public void shouldNegateComposite_whenMixingStateAndType() throws Exception {
+    Predicate<RxNetworkInfo> sut = not(and(IS_CONNECTED, IS_WIFI));
+
+    assertThat(sut.test(networkInfo(CONNECTED, TYPE_WIFI))).isFalse();
+    assertThat(sut.test(networkInfo(CONNECTED, TYPE_MOBILE))).isTrue();
+    assertThat(sut.test(networkInfo(DISCONNECTED, TYPE_WIFI))).isTrue();
+  }
+
+  @Test
+  public void shouldCombineWithArbitraryPredicates() throws Exception {
+    Predicate<RxNetworkInfo> roaming = new Predicate<RxNetworkInfo>() {
+      @Override
+      public boolean test(RxNetworkInfo networkInfo) throws Exception {
+        return networkInfo.isRoaming();
+      }
+    };
+
+    Predicate<RxNetworkInfo> sut = and(or(IS_WIFI, hasType(TYPE_WIMAX)), not(roaming));
+
+    when(rxNetworkInfo.isRoaming()).thenReturn(false);
+    assertThat(sut.test(networkInfo(CONNECTED, TYPE_WIMAX))).isTrue();
+    when(rxNetworkInfo.isRoaming()).thenReturn(true);
+    assertThat(sut.test(networkInfo(CONNECTED, TYPE_WIMAX))).isFalse();
+  }
+
+  private RxNetworkInfo networkInfo(NetworkInfo.State state, int type) {
+    when(rxNetworkInfo.getState()).thenReturn(state);
+    when(rxNetworkInfo.getType()).thenReturn(type);
+    return rxNetworkInfo;
+  }
 }
@@ -73,4 +73,12 @@ public class RxNetworkInfoPredicateTypeTest {
 
     assertThat(IS_WIFI.test(rxNetworkInfo)).isTrue();
   }
+
+  @Test
+  public void shouldMatchTypesBeyondMaskRange() throws Exception {
+    when(rxNetworkInfo.getType()).thenReturn(1000);
+
+    assertThat(hasType(TYPE_WIFI, 1000).test(rxNetworkInfo)).isTrue();
+    assertThat(hasType(TYPE_WIFI, 1001).test(rxNetworkInfo)).isFalse();
+  }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2017 Greyfox, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package greyfox.rxnetwork.internal.traffic;
+
+import greyfox.rxnetwork.BuildConfig;
+import greyfox.rxnetwork.internal.net.RxNetworkInfo;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.PublishSubject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static android.net.ConnectivityManager.TYPE_MOBILE;
+import static android.net.ConnectivityManager.TYPE_WIFI;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class TrafficSamplerTest {
+
+  private static final RxNetworkInfo WIFI = RxNetworkInfo.builder().type(TYPE_WIFI).build();
+  private static final RxNetworkInfo MOBILE = RxNetworkInfo.builder().type(TYPE_MOBILE).build();
+
+  private FakeCounters counters;
+  private TestScheduler scheduler;
+  private PublishSubject<RxNetworkInfo> networks;
+  private TrafficSampler sut;
+
+  @Before
+  public void setUp() {
+    counters = new FakeCounters();
+    scheduler = new TestScheduler();
+    networks = PublishSubject.create();
+    sut = TrafficSampler.builder().counters(counters).scheduler(scheduler).weight(0.5)
+                        .idleThreshold(100).build();
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldThrow_whenTryingToInstantiateWithNullBuilder() {
+    new TrafficSampler(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidInterval() {
+    TrafficSampler.builder().interval(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrow_whenTryingToSetInvalidBurstFactor() {
+    TrafficSampler.builder().burstFactor(1);
+  }
+
+  @Test
+  public void shouldEmitRatesOfDeviceAndApp() {
+    final TestObserver<TrafficSample> observer = sut.observe(networks).test();
+    networks.onNext(WIFI);
+
+    counters.add(2000, 1000, 200, 100);
+    scheduler.advanceTimeBy(1, SECONDS);
+
+    TrafficSample sample = observer.values().get(0);
+    assertThat(sample.rxRate()).isEqualTo(2000);
+    assertThat(sample.txRate()).isEqualTo(1000);
+    assertThat(sample.appRxRate()).isEqualTo(200);
+    assertThat(sample.appTxRate()).isEqualTo(100);
+    assertThat(sample.network()).isEqualTo(WIFI);
+  }
+
+  @Test
+  public void shouldSmoothRates() {
+    final TestObserver<TrafficSample> observer = sut.observe(networks).test();
+    networks.onNext(WIFI);
+
+    counters.add(2000, 0, 0, 0);
+    scheduler.advanceTimeBy(1, SECONDS);
+    counters.add(1000, 0, 0, 0);
+    scheduler.advanceTimeBy(1, SECONDS);
+
+    assertThat(observer.values().get(1).rxRate()).isEqualTo(1500);
+  }
+
+  @Test
+  public void shouldDetectIdleAndBurst() {
+    final TestObserver<TrafficSample> observer = sut.observe(networks).test();
+    networks.onNext(WIFI);
+
+    counters.add(10, 10, 0, 0);
+    scheduler.advanceTimeBy(1, SECONDS);
+    counters.add(10000, 0, 0, 0);
+    scheduler.advanceTimeBy(1, SECONDS);
+
+    assertThat(observer.values().get(0).isIdle()).isTrue();
+    assertThat(observer.values().get(0).isBurst()).isFalse();
+    assertThat(observer.values().get(1).isIdle()).isFalse();
+    assertThat(observer.values().get(1).isBurst()).isTrue();
+  }
+
+  @Test
+  public void shouldReportZero_whenCountersAreNotSupported() {
+    counters.rx = -1;
+    final TestObserver<TrafficSample> observer = sut.observe(networks).test();
+    networks.onNext(WIFI);
+
+    scheduler.advanceTimeBy(1, SECONDS);
+
+    assertThat(observer.values().get(0).rxRate()).isZero();
+  }
+
+  @Test
+  public void shouldStartOver_whenNetworkChanges() {
+    final TestObserver<TrafficSample> observer = sut.observe(networks).test();
+    networks.onNext(WIFI);
+    counters.add(2000, 0, 0, 0);
+    scheduler.advanceTimeBy(1, SECONDS);
+
+    networks.onNext(MOBILE);
+    counters.add(500, 0, 0, 0);
+    scheduler.advanceTimeBy(1, SECONDS);
+
+    assertThat(observer.values()).hasSize(2);
+    assertThat(observer.values().get(1).network()).isEqualTo(MOBILE);
+    assertThat(observer.values().get(1).rxRate()).isEqualTo(500);
+  }
+
+  @Test
+  public void shouldKeepSampling_whenSameNetworkIsUpdated() {
+    final RxNetworkInfo updatedWifi = RxNetworkInfo.builder().type(TYPE_WIFI)
+                                                   .extraInfo("updated").build();
+    final TestObserver<TrafficSample> observer = sut.observe(networks).test();
+    networks.onNext(WIFI);
+    counters.add(2000, 0, 0, 0);
+    scheduler.advanceTimeBy(1, SECONDS);
+
+    networks.onNext(updatedWifi);
+    counters.add(1000, 0, 0, 0);
+    scheduler.advanceTimeBy(1, SECONDS);
+
+    assertThat(observer.values()).hasSize(2);
+    assertThat(observer.values().get(1).network()).isEqualTo(WIFI);
+    assertThat(observer.values().get(1).rxRate()).isEqualTo(1500);
+  }
+
+  private static final class FakeCounters implements TrafficSampler.Counters {
+
+    long rx;
+    long tx;
+    long appRx;
+    long appTx;
+
+    void add(long rx, long tx, long appRx, long appTx) {
+      this.rx += rx;
+      this.tx += tx;
+      this.appRx += appRx;
+      this.appTx += appTx;
+    }
+
+    @Override
+    public long totalRxBytes() {
+      return rx;
+    }
+
+    @Override
+    public long totalTxBytes() {
+      return tx;
+    }
+
+    @Override
+    public long appRxBytes() {
+      return appRx;
+    }
+
+    @Override
+    public long appTxBytes() {
+      return appTx;
+    }
+  }
+}